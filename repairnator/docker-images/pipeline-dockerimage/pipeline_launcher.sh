@@ -10,7 +10,7 @@ function ca {
   fi
 }
 
-args="`ca --dbhost $MONGODB_HOST``ca --dbname $MONGODB_NAME``ca --smtpServer $SMTP_SERVER``ca --smtpPort $SMTP_PORT``ca --smtpUsername $SMTP_USERNAME``ca --smtpPassword $SMTP_PASSWORD``ca --notifyto $NOTIFY_TO``ca --githubUserName $GITHUB_USERNAME``ca --githubUserEmail $GITHUB_USEREMAIL``ca --experimentalPluginRepoList $EXPERIMENTAL_PLUGIN_REPOS``ca --listenermode $LISTEN_MODE``ca --activemqurl $ACTIVEMQ_URL``ca --activemqlistenqueuename $ACTIVEMQ_LISTEN_QUEUE``ca --pushurl $PUSH_URL`"
+args="`ca --dbhost $MONGODB_HOST``ca --dbname $MONGODB_NAME``ca --smtpServer $SMTP_SERVER``ca --smtpPort $SMTP_PORT``ca --smtpUsername $SMTP_USERNAME``ca --smtpPassword $SMTP_PASSWORD``ca --notifyto $NOTIFY_TO``ca --githubUserName $GITHUB_USERNAME``ca --githubUserEmail $GITHUB_USEREMAIL``ca --experimentalPluginRepoList $EXPERIMENTAL_PLUGIN_REPOS``ca --listenermode $LISTEN_MODE``ca --activemqurl $ACTIVEMQ_URL``ca --activemqlistenqueuename $ACTIVEMQ_LISTEN_QUEUE``ca --pushurl $PUSH_URL``ca --handoffdir $HANDOFF_DIR``ca --clonecache $CLONE_CACHE_DIR``ca --clonecachesize $CLONE_CACHE_SIZE``ca --clonedepth $CLONE_DEPTH``ca --submodulejobs $SUBMODULE_JOBS``ca --pushoutbox $PUSH_OUTBOX_DIR``ca --mavencache $MAVEN_CACHE_DIR``ca --mavencachesize $MAVEN_CACHE_SIZE`"
 
 if [[ "$CREATE_PR" == 1 ]]; then
   args="$args --createPR"
@@ -34,6 +34,11 @@ export EXPERIMENTAL_PLUGIN_REPOS=
 
 LOCAL_REPAIR_MODE=repair
 
+# In WARM mode the build id is given later through the handoff directory
+if [[ -z "$BUILD_ID" && "$LISTEN_MODE" == "WARM" ]]; then
+    BUILD_ID=0
+fi
+
 if [[ -z "$BUILD_ID" ]]; then
     echo you must pass a BUILD_ID environment variable
     exit -1
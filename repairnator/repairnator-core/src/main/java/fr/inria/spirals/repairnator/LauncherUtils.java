@@ -337,6 +337,130 @@ public class LauncherUtils {
         return arguments.getInt("threads");
     }
 
+    public static Switch defineArgResourceAwareScheduling() {
+        Switch sw = new Switch("resourceAware");
+        sw.setLongFlag("resourceAware");
+        sw.setDefault("false");
+        sw.setHelp("Admit docker containers depending on the free cores and memory of the host instead of a fixed number of threads, and limit their resources.");
+        return sw;
+    }
+
+    public static boolean getArgResourceAwareScheduling(JSAPResult arguments) {
+        return arguments.getBoolean("resourceAware");
+    }
+
+    public static FlaggedOption defineArgFootprintHistory() {
+        FlaggedOption opt = new FlaggedOption("footprintHistory");
+        opt.setLongFlag("footprintHistory");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Specify a JSON file used to persist the resources used by the builds of each repository (used with --resourceAware)");
+        return opt;
+    }
+
+    public static String getArgFootprintHistory(JSAPResult arguments) {
+        return arguments.getString("footprintHistory");
+    }
+
+    public static FlaggedOption defineArgCloneCache() {
+        FlaggedOption opt = new FlaggedOption("cloneCache");
+        opt.setLongFlag("cloneCache");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Specify a directory of the host where the mirrors of the cloned repositories are shared between the docker containers");
+        return opt;
+    }
+
+    public static String getArgCloneCache(JSAPResult arguments) {
+        return arguments.getString("cloneCache");
+    }
+
+    public static FlaggedOption defineArgCloneCacheSize() {
+        FlaggedOption opt = new FlaggedOption("cloneCacheSize");
+        opt.setLongFlag("cloneCacheSize");
+        opt.setStringParser(JSAP.LONG_PARSER);
+        opt.setDefault("10240");
+        opt.setHelp("Specify the maximum size in MB of the clone cache (used with --cloneCache)");
+        return opt;
+    }
+
+    public static long getArgCloneCacheSize(JSAPResult arguments) {
+        return arguments.getLong("cloneCacheSize");
+    }
+
+    public static FlaggedOption defineArgCloneDepth() {
+        FlaggedOption opt = new FlaggedOption("cloneDepth");
+        opt.setLongFlag("cloneDepth");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setDefault("0");
+        opt.setHelp("Specify the number of commits cloned for each branch by the pipeline, the history being deepened when needed (0 to clone the whole history)");
+        return opt;
+    }
+
+    public static int getArgCloneDepth(JSAPResult arguments) {
+        return arguments.getInt("cloneDepth");
+    }
+
+    public static FlaggedOption defineArgSubmoduleJobs() {
+        FlaggedOption opt = new FlaggedOption("submoduleJobs");
+        opt.setLongFlag("submoduleJobs");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setDefault("4");
+        opt.setHelp("Specify the number of git submodules fetched at the same time by the pipeline");
+        return opt;
+    }
+
+    public static int getArgSubmoduleJobs(JSAPResult arguments) {
+        return arguments.getInt("submoduleJobs");
+    }
+
+    public static FlaggedOption defineArgPushOutbox() {
+        FlaggedOption opt = new FlaggedOption("pushOutbox");
+        opt.setLongFlag("pushOutbox");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Specify a directory of the host where the docker containers aggregate the pushes of their branches (used with --pushurl)");
+        return opt;
+    }
+
+    public static String getArgPushOutbox(JSAPResult arguments) {
+        return arguments.getString("pushOutbox");
+    }
+
+    public static FlaggedOption defineArgMavenCache() {
+        FlaggedOption opt = new FlaggedOption("mavenCache");
+        opt.setLongFlag("mavenCache");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Specify a directory of the host where the Maven artifacts downloaded by the builds are shared between the docker containers");
+        return opt;
+    }
+
+    public static String getArgMavenCache(JSAPResult arguments) {
+        return arguments.getString("mavenCache");
+    }
+
+    public static FlaggedOption defineArgMavenCacheSize() {
+        FlaggedOption opt = new FlaggedOption("mavenCacheSize");
+        opt.setLongFlag("mavenCacheSize");
+        opt.setStringParser(JSAP.LONG_PARSER);
+        opt.setDefault("10240");
+        opt.setHelp("Specify the maximum size in MB of the Maven cache (used with --mavenCache)");
+        return opt;
+    }
+
+    public static long getArgMavenCacheSize(JSAPResult arguments) {
+        return arguments.getLong("mavenCacheSize");
+    }
+
+    public static Switch defineArgStallDetection() {
+        Switch sw = new Switch("stallDetection");
+        sw.setLongFlag("stallDetection");
+        sw.setDefault("false");
+        sw.setHelp("Kill the docker containers which spend much more time in a step of the pipeline than the previous builds.");
+        return sw;
+    }
+
+    public static boolean getArgStallDetection(JSAPResult arguments) {
+        return arguments.getBoolean("stallDetection");
+    }
+
     public static FlaggedOption defineArgGlobalTimeout() {
         FlaggedOption opt = new FlaggedOption("globalTimeout");
         opt.setShortFlag('g');
@@ -36,6 +36,7 @@ public class RepairnatorConfig {
 
     public enum LISTENER_MODE {
         KUBERNETES("fr.inria.spirals.repairnator.pipeline.PipelineBuildListener"),
+        WARM("fr.inria.spirals.repairnator.pipeline.WarmContainerListener"),
         NOOP("fr.inria.spirals.repairnator.pipeline.NoopListener");
 
         private final String klass;
@@ -88,6 +89,23 @@ public class RepairnatorConfig {
     private String githubUserEmail;
     private String[] experimentalPluginRepoList;
     private LISTENER_MODE listenerMode;
+    private String handoffDirectory;
+    private String cloneCacheDirectory;
+    private long cloneCacheSize; // in MB
+    private int cloneDepth;
+    private int submoduleJobs;
+    private String pushOutboxDirectory;
+    private String mavenCacheDirectory;
+    private long mavenCacheSize; // in MB
+    private boolean warmMaven;
+    private boolean fusedMaven;
+    private int mavenTimeout; // in minutes, no limit if 0
+    private long mavenMemoryLimit; // in MB, no limit if 0
+    private boolean prefetchDependencies = true;
+    private boolean scopedBuilds = true;
+    private String classpathCacheDirectory;
+    private boolean earlyTestDecision;
+    private boolean reuseCompiledOutputs;
 
     // Dockerpool
     private String dockerImageName;
@@ -96,6 +114,14 @@ public class RepairnatorConfig {
     private String logDirectory;
     private int nbThreads = 1; // safe default value
     private int globalTimeout;
+    private int nbWarmContainers;
+    private String warmContainersDirectory;
+    private boolean resourceAwareScheduling;
+    private String footprintHistoryPath;
+    private boolean stallDetection;
+    private String journalPath;
+    private int maxInFlightBuilds;
+    private boolean groupByRepository;
 
     // Realtime
     private File whiteList;
@@ -668,6 +694,31 @@ public class RepairnatorConfig {
                 ", listenerMode=" + listenerMode +
                 ", activeMQUrl=" + activeMQUrl +
                 ", activeMQSubmitQueueName=" + activeMQSubmitQueueName +
+                ", handoffDirectory=" + handoffDirectory +
+                ", nbWarmContainers=" + nbWarmContainers +
+                ", warmContainersDirectory=" + warmContainersDirectory +
+                ", resourceAwareScheduling=" + resourceAwareScheduling +
+                ", footprintHistoryPath=" + footprintHistoryPath +
+                ", stallDetection=" + stallDetection +
+                ", journalPath=" + journalPath +
+                ", maxInFlightBuilds=" + maxInFlightBuilds +
+                ", groupByRepository=" + groupByRepository +
+                ", cloneCacheDirectory=" + cloneCacheDirectory +
+                ", cloneCacheSize=" + cloneCacheSize +
+                ", cloneDepth=" + cloneDepth +
+                ", submoduleJobs=" + submoduleJobs +
+                ", pushOutboxDirectory=" + pushOutboxDirectory +
+                ", mavenCacheDirectory=" + mavenCacheDirectory +
+                ", mavenCacheSize=" + mavenCacheSize +
+                ", warmMaven=" + warmMaven +
+                ", fusedMaven=" + fusedMaven +
+                ", mavenTimeout=" + mavenTimeout +
+                ", mavenMemoryLimit=" + mavenMemoryLimit +
+                ", prefetchDependencies=" + prefetchDependencies +
+                ", scopedBuilds=" + scopedBuilds +
+                ", classpathCacheDirectory=" + classpathCacheDirectory +
+                ", earlyTestDecision=" + earlyTestDecision +
+                ", reuseCompiledOutputs=" + reuseCompiledOutputs +
                 '}';
     }
 
@@ -710,4 +761,204 @@ public class RepairnatorConfig {
     public void setNumberOfPatchedBuilds(int numberOfPatchedBuilds) {
         this.numberOfPatchedBuilds = numberOfPatchedBuilds;
     }
+
+    public String getHandoffDirectory() {
+        return handoffDirectory;
+    }
+
+    public void setHandoffDirectory(String handoffDirectory) {
+        this.handoffDirectory = handoffDirectory;
+    }
+
+    public int getNbWarmContainers() {
+        return nbWarmContainers;
+    }
+
+    public void setNbWarmContainers(int nbWarmContainers) {
+        this.nbWarmContainers = nbWarmContainers;
+    }
+
+    public String getWarmContainersDirectory() {
+        return warmContainersDirectory;
+    }
+
+    public void setWarmContainersDirectory(String warmContainersDirectory) {
+        this.warmContainersDirectory = warmContainersDirectory;
+    }
+
+    public boolean isResourceAwareScheduling() {
+        return resourceAwareScheduling;
+    }
+
+    public void setResourceAwareScheduling(boolean resourceAwareScheduling) {
+        this.resourceAwareScheduling = resourceAwareScheduling;
+    }
+
+    public String getFootprintHistoryPath() {
+        return footprintHistoryPath;
+    }
+
+    public void setFootprintHistoryPath(String footprintHistoryPath) {
+        this.footprintHistoryPath = footprintHistoryPath;
+    }
+
+    public boolean isStallDetection() {
+        return stallDetection;
+    }
+
+    public void setStallDetection(boolean stallDetection) {
+        this.stallDetection = stallDetection;
+    }
+
+    public String getJournalPath() {
+        return journalPath;
+    }
+
+    public void setJournalPath(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    public int getMaxInFlightBuilds() {
+        return maxInFlightBuilds;
+    }
+
+    public void setMaxInFlightBuilds(int maxInFlightBuilds) {
+        this.maxInFlightBuilds = maxInFlightBuilds;
+    }
+
+    public boolean isGroupByRepository() {
+        return groupByRepository;
+    }
+
+    public void setGroupByRepository(boolean groupByRepository) {
+        this.groupByRepository = groupByRepository;
+    }
+
+    public String getCloneCacheDirectory() {
+        return cloneCacheDirectory;
+    }
+
+    public void setCloneCacheDirectory(String cloneCacheDirectory) {
+        this.cloneCacheDirectory = cloneCacheDirectory;
+    }
+
+    public long getCloneCacheSize() {
+        return cloneCacheSize;
+    }
+
+    public void setCloneCacheSize(long cloneCacheSize) {
+        this.cloneCacheSize = cloneCacheSize;
+    }
+
+    public int getCloneDepth() {
+        return cloneDepth;
+    }
+
+    public void setCloneDepth(int cloneDepth) {
+        this.cloneDepth = cloneDepth;
+    }
+
+    public int getSubmoduleJobs() {
+        return submoduleJobs;
+    }
+
+    public void setSubmoduleJobs(int submoduleJobs) {
+        this.submoduleJobs = submoduleJobs;
+    }
+
+    public String getPushOutboxDirectory() {
+        return pushOutboxDirectory;
+    }
+
+    public void setPushOutboxDirectory(String pushOutboxDirectory) {
+        this.pushOutboxDirectory = pushOutboxDirectory;
+    }
+
+    public String getMavenCacheDirectory() {
+        return mavenCacheDirectory;
+    }
+
+    public void setMavenCacheDirectory(String mavenCacheDirectory) {
+        this.mavenCacheDirectory = mavenCacheDirectory;
+    }
+
+    public long getMavenCacheSize() {
+        return mavenCacheSize;
+    }
+
+    public void setMavenCacheSize(long mavenCacheSize) {
+        this.mavenCacheSize = mavenCacheSize;
+    }
+
+    public boolean isWarmMaven() {
+        return warmMaven;
+    }
+
+    public void setWarmMaven(boolean warmMaven) {
+        this.warmMaven = warmMaven;
+    }
+
+    public boolean isFusedMaven() {
+        return fusedMaven;
+    }
+
+    public void setFusedMaven(boolean fusedMaven) {
+        this.fusedMaven = fusedMaven;
+    }
+
+    public int getMavenTimeout() {
+        return mavenTimeout;
+    }
+
+    public void setMavenTimeout(int mavenTimeout) {
+        this.mavenTimeout = mavenTimeout;
+    }
+
+    public long getMavenMemoryLimit() {
+        return mavenMemoryLimit;
+    }
+
+    public void setMavenMemoryLimit(long mavenMemoryLimit) {
+        this.mavenMemoryLimit = mavenMemoryLimit;
+    }
+
+    public boolean isPrefetchDependencies() {
+        return prefetchDependencies;
+    }
+
+    public void setPrefetchDependencies(boolean prefetchDependencies) {
+        this.prefetchDependencies = prefetchDependencies;
+    }
+
+    public boolean isScopedBuilds() {
+        return scopedBuilds;
+    }
+
+    public void setScopedBuilds(boolean scopedBuilds) {
+        this.scopedBuilds = scopedBuilds;
+    }
+
+    public String getClasspathCacheDirectory() {
+        return classpathCacheDirectory;
+    }
+
+    public void setClasspathCacheDirectory(String classpathCacheDirectory) {
+        this.classpathCacheDirectory = classpathCacheDirectory;
+    }
+
+    public boolean isEarlyTestDecision() {
+        return earlyTestDecision;
+    }
+
+    public void setEarlyTestDecision(boolean earlyTestDecision) {
+        this.earlyTestDecision = earlyTestDecision;
+    }
+
+    public boolean isReuseCompiledOutputs() {
+        return reuseCompiledOutputs;
+    }
+
+    public void setReuseCompiledOutputs(boolean reuseCompiledOutputs) {
+        this.reuseCompiledOutputs = reuseCompiledOutputs;
+    }
 }
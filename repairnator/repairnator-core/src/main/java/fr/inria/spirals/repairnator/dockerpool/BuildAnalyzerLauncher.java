@@ -4,15 +4,17 @@ import com.martiansoftware.jsap.FlaggedOption;
 import com.martiansoftware.jsap.JSAP;
 import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Switch;
+import fr.inria.jtravis.entities.Build;
 import fr.inria.spirals.repairnator.InputBuildId;
 import fr.inria.spirals.repairnator.LauncherType;
 import fr.inria.spirals.repairnator.LauncherUtils;
-import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.docker.DockerHelper;
 import fr.inria.spirals.repairnator.notifier.EndProcessNotifier;
 import fr.inria.spirals.repairnator.notifier.engines.NotifierEngine;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.dockerpool.serializer.EndProcessSerializer;
+import fr.inria.spirals.repairnator.dockerpool.serializer.TreatedBuildTracking;
 import fr.inria.spirals.repairnator.serializer.HardwareInfoSerializer;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
 
@@ -20,17 +22,20 @@ import fr.inria.spirals.repairnator.states.LauncherMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Run one docker container with the pipeline per line of the input file builds.txt
@@ -42,6 +47,20 @@ public class BuildAnalyzerLauncher {
     private EndProcessNotifier endProcessNotifier;
     private DockerPoolManager dockerPool = new DockerPoolManager();
 
+    // used to stream the input builds
+    private static final int GROUPING_WINDOW_SIZE = 100;
+    private BuildJournal journal;
+    private Semaphore inFlightBuilds;
+    private int nbBuilds;
+    private AtomicInteger nbSkippedBuilds = new AtomicInteger();
+    private AtomicInteger nbFinishedBuilds = new AtomicInteger();
+    private long startDate;
+    // the date when the run must stop, given by the global timeout
+    private long deadline;
+    // the builds which have not been started before the global timeout, modified by the reader and the running groups
+    private List<InputBuildId> unsubmittedBuilds = Collections.synchronizedList(new ArrayList<>());
+    private boolean unsubmittedBuildsAborted;
+
     private BuildAnalyzerLauncher(String[] args) throws JSAPException {
         JSAP jsap = this.defineArgs();
         JSAPResult arguments = jsap.parse(args);
@@ -96,6 +115,26 @@ public class BuildAnalyzerLauncher {
         jsap.registerParameter(LauncherUtils.defineArgCreateOutputDir());
         // -t or --threads
         jsap.registerParameter(LauncherUtils.defineArgNbThreads());
+        // --resourceAware
+        jsap.registerParameter(LauncherUtils.defineArgResourceAwareScheduling());
+        // --footprintHistory
+        jsap.registerParameter(LauncherUtils.defineArgFootprintHistory());
+        // --stallDetection
+        jsap.registerParameter(LauncherUtils.defineArgStallDetection());
+        // --cloneCache
+        jsap.registerParameter(LauncherUtils.defineArgCloneCache());
+        // --cloneCacheSize
+        jsap.registerParameter(LauncherUtils.defineArgCloneCacheSize());
+        // --cloneDepth
+        jsap.registerParameter(LauncherUtils.defineArgCloneDepth());
+        // --submoduleJobs
+        jsap.registerParameter(LauncherUtils.defineArgSubmoduleJobs());
+        // --pushOutbox
+        jsap.registerParameter(LauncherUtils.defineArgPushOutbox());
+        // --mavenCache
+        jsap.registerParameter(LauncherUtils.defineArgMavenCache());
+        // --mavenCacheSize
+        jsap.registerParameter(LauncherUtils.defineArgMavenCacheSize());
         // -g or --globalTimeout
         jsap.registerParameter(LauncherUtils.defineArgGlobalTimeout());
         // --pushurl
@@ -117,6 +156,25 @@ public class BuildAnalyzerLauncher {
         opt2.setDefault("NopolAllTests");
         jsap.registerParameter(opt2);
 
+        FlaggedOption opt3 = new FlaggedOption("journal");
+        opt3.setLongFlag("journal");
+        opt3.setStringParser(JSAP.STRING_PARSER);
+        opt3.setHelp("Specify a file where the finished builds are recorded: the builds already recorded in it are skipped, so an interrupted run can be resumed");
+        jsap.registerParameter(opt3);
+
+        FlaggedOption opt4 = new FlaggedOption("maxInFlight");
+        opt4.setLongFlag("maxInFlight");
+        opt4.setStringParser(JSAP.INTEGER_PARSER);
+        opt4.setDefault("0");
+        opt4.setHelp("Specify the maximum number of builds submitted to the pool and not yet finished (default: twice the number of threads)");
+        jsap.registerParameter(opt4);
+
+        Switch sw1 = new Switch("groupByRepository");
+        sw1.setLongFlag("groupByRepository");
+        sw1.setDefault("false");
+        sw1.setHelp("Run the builds of the same repository one after the other on the same thread, so that caches can be reused between them (the repository of each build is retrieved from Travis)");
+        jsap.registerParameter(sw1);
+
         return jsap;
     }
 
@@ -151,6 +209,16 @@ public class BuildAnalyzerLauncher {
         this.config.setCreateOutputDir(LauncherUtils.getArgCreateOutputDir(arguments));
         this.config.setLogDirectory(LauncherUtils.getArgLogDirectory(arguments));
         this.config.setNbThreads(LauncherUtils.getArgNbThreads(arguments));
+        this.config.setResourceAwareScheduling(LauncherUtils.getArgResourceAwareScheduling(arguments));
+        this.config.setFootprintHistoryPath(LauncherUtils.getArgFootprintHistory(arguments));
+        this.config.setStallDetection(LauncherUtils.getArgStallDetection(arguments));
+        this.config.setCloneCacheDirectory(LauncherUtils.getArgCloneCache(arguments));
+        this.config.setCloneCacheSize(LauncherUtils.getArgCloneCacheSize(arguments));
+        this.config.setCloneDepth(LauncherUtils.getArgCloneDepth(arguments));
+        this.config.setSubmoduleJobs(LauncherUtils.getArgSubmoduleJobs(arguments));
+        this.config.setPushOutboxDirectory(LauncherUtils.getArgPushOutbox(arguments));
+        this.config.setMavenCacheDirectory(LauncherUtils.getArgMavenCache(arguments));
+        this.config.setMavenCacheSize(LauncherUtils.getArgMavenCacheSize(arguments));
         this.config.setGlobalTimeout(LauncherUtils.getArgGlobalTimeout(arguments));
         this.config.setGithubUserEmail(LauncherUtils.getArgGithubUserEmail(arguments));
         this.config.setGithubUserName(LauncherUtils.getArgGithubUserName(arguments));
@@ -166,6 +234,10 @@ public class BuildAnalyzerLauncher {
         }
 
         this.config.setRepairTools(new HashSet<>(Arrays.asList(arguments.getStringArray("repairTools"))));
+        this.config.setJournalPath(arguments.getString("journal"));
+        int maxInFlight = arguments.getInt("maxInFlight");
+        this.config.setMaxInFlightBuilds((maxInFlight > 0) ? maxInFlight : 2 * this.config.getNbThreads());
+        this.config.setGroupByRepository(arguments.getBoolean("groupByRepository"));
     }
 
     private void initSerializerEngines() {
@@ -187,39 +259,139 @@ public class BuildAnalyzerLauncher {
         }
     }
 
-    private List<InputBuildId> readListOfBuildIds() {
-        List<InputBuildId> result = new ArrayList<>();
+    /**
+     * Find the repository of the given build, or null if it cannot be retrieved.
+     */
+    private String getRepositorySlug(InputBuildId inputBuildId) {
+        try {
+            Optional<Build> build = this.config.getJTravis().build().fromId(inputBuildId.getBuggyBuildId());
+            if (build.isPresent()) {
+                return build.get().getRepository().getSlug();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error while retrieving the repository of build " + inputBuildId.getBuggyBuildId(), e);
+        }
+        return null;
+    }
 
-        File inputFile = new File(this.config.getInputPath());
+    /**
+     * Submit the builds while reading them: at most {@link RepairnatorConfig#getMaxInFlightBuilds()} builds are submitted and not finished.
+     * When builds are grouped by repository, the groups are made among a window of builds read from the input.
+     * Once the global timeout is reached, the remaining builds are not submitted anymore.
+     */
+    private void submitBuilds(ExecutorService executorService, String imageId, BuildIdReader buildIdReader) throws InterruptedException {
+        Map<String, List<InputBuildId>> window = new LinkedHashMap<>();
+        int windowSize = 0;
+
+        while (buildIdReader.hasNext()) {
+            InputBuildId inputBuildId = buildIdReader.next();
+            if (this.journal != null && this.journal.isFinished(inputBuildId)) {
+                this.nbSkippedBuilds.incrementAndGet();
+                continue;
+            }
 
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-            while (reader.ready()) {
-                String line = reader.readLine().trim();
-                if (!line.isEmpty()) {
-                    String[] buildIds = line.split(Utils.COMMA+"");
-                    if (buildIds.length > 0) {
-                        long buggyBuildId = Long.parseLong(buildIds[0]);
-                        if (this.config.getLauncherMode() == LauncherMode.BEARS) {
-                            if (buildIds.length > 1) {
-                                long patchedBuildId = Long.parseLong(buildIds[1]);
-                                result.add(new InputBuildId(buggyBuildId, patchedBuildId));
-                            } else {
-                                LOGGER.error("The build "+buggyBuildId+" will not be processed because there is no next build for it in the input file.");
-                            }
-                        } else {
-                            result.add(new InputBuildId(buggyBuildId));
-                        }
-                    }
+            if (!this.unsubmittedBuilds.isEmpty()) {
+                this.addUnsubmittedBuilds(Collections.singletonList(inputBuildId));
+            } else if (!this.config.isGroupByRepository()) {
+                // the repository is only needed to learn the footprint of its builds
+                String repositorySlug = (this.dockerPool.getFootprintEstimator() != null) ? this.getRepositorySlug(inputBuildId) : null;
+                this.submitGroup(executorService, imageId, repositorySlug, Collections.singletonList(inputBuildId));
+            } else {
+                String repositorySlug = this.getRepositorySlug(inputBuildId);
+                // builds of unknown repositories are not grouped
+                String key = (repositorySlug != null) ? repositorySlug : "#" + inputBuildId.getBuggyBuildId();
+                window.computeIfAbsent(key, k -> new ArrayList<>()).add(inputBuildId);
+                windowSize++;
+                if (windowSize >= GROUPING_WINDOW_SIZE) {
+                    this.submitWindow(executorService, imageId, window);
+                    windowSize = 0;
                 }
             }
+        }
+        this.submitWindow(executorService, imageId, window);
+    }
+
+    private void submitWindow(ExecutorService executorService, String imageId, Map<String, List<InputBuildId>> window) throws InterruptedException {
+        for (Map.Entry<String, List<InputBuildId>> group : window.entrySet()) {
+            String repositorySlug = group.getKey().startsWith("#") ? null : group.getKey();
+            this.submitGroup(executorService, imageId, repositorySlug, group.getValue());
+        }
+        window.clear();
+    }
 
-            reader.close();
-        } catch (IOException e) {
-            throw new RuntimeException("Error while reading build ids from file: "+inputFile.getPath(),e);
+    /**
+     * Submit a group of builds which will be run one after the other.
+     * Each build holds one of the in-flight permits while it runs: the permit of the first build is taken here,
+     * so that the reading of the input waits for a free slot, and the next ones are taken by the group when it starts them.
+     */
+    private void submitGroup(ExecutorService executorService, String imageId, String repositorySlug, List<InputBuildId> inputBuildIds) throws InterruptedException {
+        long timeLeft = this.deadline - System.currentTimeMillis();
+        if (!this.unsubmittedBuilds.isEmpty() || timeLeft <= 0 || !this.inFlightBuilds.tryAcquire(timeLeft, TimeUnit.MILLISECONDS)) {
+            this.addUnsubmittedBuilds(inputBuildIds);
+            return;
         }
+        executorService.submit(() -> this.runGroup(imageId, repositorySlug, inputBuildIds));
+    }
 
-        return result;
+    /**
+     * Run the builds of a group: the container of a build is only created once the build has its permit.
+     * The builds which cannot get one before the global timeout, or once the pool is stopped, are not submitted.
+     */
+    private void runGroup(String imageId, String repositorySlug, List<InputBuildId> inputBuildIds) {
+        for (int i = 0; i < inputBuildIds.size(); i++) {
+            if (i > 0 && !this.acquireInFlightBuild()) {
+                this.addUnsubmittedBuilds(inputBuildIds.subList(i, inputBuildIds.size()));
+                return;
+            }
+            try {
+                RunnablePipelineContainer container = dockerPool.submitBuild(imageId, inputBuildIds.get(i), repositorySlug);
+                container.run();
+                this.onBuildFinished(container);
+            } finally {
+                this.inFlightBuilds.release();
+            }
+        }
+    }
+
+    private boolean acquireInFlightBuild() {
+        long timeLeft = this.deadline - System.currentTimeMillis();
+        try {
+            return timeLeft > 0 && this.inFlightBuilds.tryAcquire(timeLeft, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * The builds given up by a group after the pool has been stopped are aborted right away.
+     */
+    private void addUnsubmittedBuilds(List<InputBuildId> inputBuildIds) {
+        synchronized (this.unsubmittedBuilds) {
+            this.unsubmittedBuilds.addAll(inputBuildIds);
+            if (this.unsubmittedBuildsAborted) {
+                inputBuildIds.forEach(this::abortUnsubmittedBuild);
+            }
+        }
+    }
+
+    private void abortUnsubmittedBuild(InputBuildId inputBuildId) {
+        TreatedBuildTracking treatedBuildTracking = new TreatedBuildTracking(this.engines, this.config.getRunId(), inputBuildId.getBuggyBuildId());
+        treatedBuildTracking.setStatus("ABORTED");
+        treatedBuildTracking.serialize();
+    }
+
+    private void onBuildFinished(RunnablePipelineContainer container) {
+        if (this.journal != null) {
+            this.journal.record(container.getInputBuildId(), container.getStatus());
+        }
+        int nbFinished = this.nbFinishedBuilds.incrementAndGet();
+        int nbRemaining = this.nbBuilds - this.nbSkippedBuilds.get() - nbFinished;
+        long elapsed = System.currentTimeMillis() - this.startDate;
+        long eta = (long) ((double) elapsed / nbFinished * nbRemaining);
+        LOGGER.info("Progress: " + nbFinished + " builds finished, " + this.nbSkippedBuilds.get() + " skipped, " + Math.max(nbRemaining, 0)
+                + " remaining out of " + this.nbBuilds + ". ETA: " + TimeUnit.MILLISECONDS.toHours(eta) + "h"
+                + (TimeUnit.MILLISECONDS.toMinutes(eta) % 60) + "min");
     }
 
     private void runPool() throws IOException {
@@ -228,10 +400,15 @@ public class BuildAnalyzerLauncher {
         hardwareInfoSerializer.serialize();
 
         EndProcessSerializer endProcessSerializer = new EndProcessSerializer(this.engines, runId);
-        List<InputBuildId> buildIds = this.readListOfBuildIds();
-        LOGGER.info("Find "+buildIds.size()+" builds to run.");
+        File inputFile = new File(this.config.getInputPath());
+        this.nbBuilds = BuildIdReader.countBuilds(inputFile);
+        LOGGER.info("Find "+this.nbBuilds+" builds to run.");
 
-        endProcessSerializer.setNbBuilds(buildIds.size());
+        endProcessSerializer.setNbBuilds(this.nbBuilds);
+
+        if (this.config.getJournalPath() != null) {
+            this.journal = new BuildJournal(new File(this.config.getJournalPath()));
+        }
 
         String imageId = DockerHelper.findDockerImage(this.config.getDockerImageName(), dockerPool.getDockerClient());
         LOGGER.info("Found the following docker image id: "+imageId);
@@ -240,22 +417,29 @@ public class BuildAnalyzerLauncher {
         dockerPool.setRunId(runId);
         dockerPool.setEngines(this.engines);
 
-        //
-        // ExecutorService executorService = Executors.newFixedThreadPool(this.config.getNbThreads());
-
-        ExecutorService executorService = Executors.newFixedThreadPool(this.config.getNbThreads());
+        dockerPool.initResourceAwareScheduling();
+        ExecutorService executorService = dockerPool.createExecutorService(this.config.getNbThreads());
+        this.inFlightBuilds = new Semaphore(this.config.getMaxInFlightBuilds());
+        this.startDate = System.currentTimeMillis();
+        this.deadline = this.startDate + TimeUnit.DAYS.toMillis(this.config.getGlobalTimeout());
 
-        for (InputBuildId inputBuildId : buildIds) {
-            executorService.submit(dockerPool.submitBuild(imageId, inputBuildId));
+        try (BuildIdReader buildIdReader = new BuildIdReader(inputFile, this.config.getLauncherMode() == LauncherMode.BEARS)) {
+            this.submitBuilds(executorService, imageId, buildIdReader);
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while submitting the builds: the remaining builds are not submitted.", e);
         }
 
         executorService.shutdown();
         try {
-            if (executorService.awaitTermination(this.config.getGlobalTimeout(), TimeUnit.DAYS)) {
+            // the global timeout applies to the whole run, including the time spent waiting to submit the builds
+            long timeLeft = Math.max(0, this.deadline - System.currentTimeMillis());
+            if (executorService.awaitTermination(timeLeft, TimeUnit.MILLISECONDS) && this.unsubmittedBuilds.isEmpty()) {
                 LOGGER.info("Job finished within time.");
                 endProcessSerializer.setStatus("ok");
             } else {
-                LOGGER.warn("Timeout launched: the job is running for one day. Force stopped "+ dockerPool.submittedRunnablePipelineContainers.size()+" docker container(s).");
+                LOGGER.warn("Timeout launched: the job is running for " + this.config.getGlobalTimeout() + " day(s). Force stopped "
+                        + dockerPool.submittedRunnablePipelineContainers.size() + " docker container(s), "
+                        + this.unsubmittedBuilds.size() + " build(s) have not been submitted.");
                 executorService.shutdownNow();
                 this.setStatusForUnexecutedJobs();
                 endProcessSerializer.setStatus("timeout");
@@ -267,6 +451,7 @@ public class BuildAnalyzerLauncher {
             endProcessSerializer.setStatus("interrupted");
         }
 
+        dockerPool.stopWatchdog();
         dockerPool.getDockerClient().close();
         endProcessSerializer.serialize();
         if (this.endProcessNotifier != null) {
@@ -275,9 +460,14 @@ public class BuildAnalyzerLauncher {
     }
 
     private void setStatusForUnexecutedJobs() {
-        for (RunnablePipelineContainer runnablePipelineContainer : dockerPool.submittedRunnablePipelineContainers) {
+        for (RunnablePipelineContainer runnablePipelineContainer : dockerPool.submittedRunnablePipelineContainers.values()) {
             runnablePipelineContainer.serialize("ABORTED");
         }
+        // no container has been created for the builds which have not been submitted before the timeout
+        synchronized (this.unsubmittedBuilds) {
+            this.unsubmittedBuildsAborted = true;
+            this.unsubmittedBuilds.forEach(this::abortUnsubmittedBuild);
+        }
     }
 
     public static void main(String[] args) throws Exception {
@@ -0,0 +1,103 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import fr.inria.spirals.repairnator.InputBuildId;
+import fr.inria.spirals.repairnator.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read the build ids of an input file one line after the other, without loading the whole file in memory.
+ * Each line contains a build id, or a pair of build ids separated by a comma for BEARS.
+ */
+public class BuildIdReader implements Iterator<InputBuildId>, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildIdReader.class);
+
+    private final File inputFile;
+    private final BufferedReader reader;
+    private final boolean withPatchedBuild;
+    private InputBuildId next;
+
+    /**
+     * @param withPatchedBuild true if each line should contain a pair of build ids (BEARS mode)
+     */
+    public BuildIdReader(File inputFile, boolean withPatchedBuild) throws IOException {
+        this.inputFile = inputFile;
+        this.reader = Files.newBufferedReader(inputFile.toPath(), StandardCharsets.UTF_8);
+        this.withPatchedBuild = withPatchedBuild;
+    }
+
+    /**
+     * Count the lines containing build ids, without parsing them.
+     */
+    public static int countBuilds(File inputFile) throws IOException {
+        int result = 0;
+        try (BufferedReader reader = Files.newBufferedReader(inputFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (this.next == null) {
+                String line = this.reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+                this.next = this.parseLine(line.trim());
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while reading build ids from file: " + this.inputFile.getPath(), e);
+        }
+    }
+
+    @Override
+    public InputBuildId next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        InputBuildId result = this.next;
+        this.next = null;
+        return result;
+    }
+
+    private InputBuildId parseLine(String line) {
+        if (line.isEmpty()) {
+            return null;
+        }
+        String[] buildIds = line.split(Utils.COMMA + "");
+        long buggyBuildId = Long.parseLong(buildIds[0]);
+        if (!this.withPatchedBuild) {
+            return new InputBuildId(buggyBuildId);
+        }
+        if (buildIds.length > 1) {
+            long patchedBuildId = Long.parseLong(buildIds[1]);
+            return new InputBuildId(buggyBuildId, patchedBuildId);
+        } else {
+            LOGGER.error("The build " + buggyBuildId + " will not be processed because there is no next build for it in the input file.");
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+}
@@ -0,0 +1,87 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import fr.inria.spirals.repairnator.InputBuildId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A journal of the builds processed by the docker pool: one line is appended each time a container finishes.
+ * It allows to resume an interrupted run without processing again the builds which were finished.
+ *
+ * The builds whose container has been interrupted or aborted, or could not be run by docker, are not considered as finished.
+ */
+public class BuildJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildJournal.class);
+    private static final String SEPARATOR = "\t";
+    private static final List<String> UNFINISHED_STATUSES = Arrays.asList("INTERRUPTED", "ABORTED", "ERROR");
+
+    private File journalFile;
+    private Set<String> finishedBuilds = new HashSet<>();
+
+    public BuildJournal(File journalFile) throws IOException {
+        this.journalFile = journalFile;
+        this.load();
+    }
+
+    private static String getKey(InputBuildId inputBuildId) {
+        if (inputBuildId.getPatchedBuildId() == InputBuildId.NO_PATCH) {
+            return String.valueOf(inputBuildId.getBuggyBuildId());
+        }
+        return inputBuildId.getBuggyBuildId() + "," + inputBuildId.getPatchedBuildId();
+    }
+
+    private void load() throws IOException {
+        if (!this.journalFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(this.journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR);
+                // a truncated line can be found if the previous run crashed while writing it
+                if (fields.length == 2 && !UNFINISHED_STATUSES.contains(fields[1])) {
+                    this.finishedBuilds.add(fields[0]);
+                }
+            }
+        }
+        LOGGER.info(this.finishedBuilds.size() + " finished builds found in the journal " + this.journalFile.getPath());
+    }
+
+    public synchronized int getNbFinishedBuilds() {
+        return this.finishedBuilds.size();
+    }
+
+    public synchronized boolean isFinished(InputBuildId inputBuildId) {
+        return this.finishedBuilds.contains(getKey(inputBuildId));
+    }
+
+    /**
+     * Append the final status of a build to the journal.
+     */
+    public synchronized void record(InputBuildId inputBuildId, String status) {
+        String key = getKey(inputBuildId);
+        if (status == null || UNFINISHED_STATUSES.contains(status)) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(this.journalFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(key + SEPARATOR + status);
+            writer.newLine();
+            this.finishedBuilds.add(key);
+        } catch (IOException e) {
+            LOGGER.error("Error while writing the status of build " + key + " in the journal " + this.journalFile.getPath(), e);
+        }
+    }
+}
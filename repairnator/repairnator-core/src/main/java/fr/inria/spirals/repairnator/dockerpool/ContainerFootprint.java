@@ -0,0 +1,39 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+/**
+ * The resources needed by a pipeline container: a number of cores and an amount of memory.
+ */
+public class ContainerFootprint {
+    private static final long GIGABYTE = 1024L * 1024L * 1024L;
+
+    // used when nothing is known about the repository of the build
+    public static final ContainerFootprint DEFAULT = new ContainerFootprint(1.0, 2 * GIGABYTE);
+
+    private double cpus;
+    private long memory; // in bytes
+
+    public ContainerFootprint(double cpus, long memory) {
+        this.cpus = cpus;
+        this.memory = memory;
+    }
+
+    public double getCpus() {
+        return cpus;
+    }
+
+    public long getMemory() {
+        return memory;
+    }
+
+    public boolean isLargerThan(ContainerFootprint other) {
+        return this.memory > other.memory || (this.memory == other.memory && this.cpus > other.cpus);
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerFootprint{" +
+                "cpus=" + cpus +
+                ", memory=" + (memory / (1024 * 1024)) + "MB" +
+                '}';
+    }
+}
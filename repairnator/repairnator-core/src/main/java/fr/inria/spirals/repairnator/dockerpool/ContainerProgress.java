@@ -0,0 +1,99 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The live view of the progress of a running pipeline container.
+ * It is fed with the raw output of the container, and keeps track of the current step and of the finished ones.
+ * It is written by the thread following the container logs and read by the {@link ContainerWatchdog}.
+ */
+public class ContainerProgress {
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+    private final List<StepProgressEvent> finishedSteps = Collections.synchronizedList(new ArrayList<>());
+    private volatile String currentStep;
+    private volatile long currentStepStartDate;
+    private volatile long lastEventDate;
+
+    /**
+     * Feed the progress with a chunk of the container output: lines can be split between chunks.
+     */
+    public void feed(ByteBuffer content) {
+        while (content.hasRemaining()) {
+            byte b = content.get();
+            if (b == '\n') {
+                this.onLine(new String(this.currentLine.toByteArray(), StandardCharsets.UTF_8));
+                this.currentLine.reset();
+            } else if (this.currentLine.size() < MAX_LINE_LENGTH) {
+                this.currentLine.write(b);
+            }
+        }
+    }
+
+    /**
+     * @return the event found in the line if any
+     */
+    public StepProgressEvent onLine(String line) {
+        StepProgressEvent event = StepProgressEvent.parse(line);
+        if (event != null) {
+            this.onEvent(event, System.currentTimeMillis());
+        }
+        return event;
+    }
+
+    void onEvent(StepProgressEvent event, long date) {
+        this.lastEventDate = date;
+        if (event.isStart()) {
+            this.currentStep = event.getStepName();
+            this.currentStepStartDate = date;
+        } else {
+            this.finishedSteps.add(event);
+            if (event.getStepName().equals(this.currentStep)) {
+                this.currentStep = null;
+            }
+        }
+    }
+
+    /**
+     * @return the name of the running step, or null if no step is running
+     */
+    public String getCurrentStep() {
+        return this.currentStep;
+    }
+
+    /**
+     * @return the time spent in the running step in milliseconds, or 0 if no step is running
+     */
+    public long getCurrentStepElapsedTime(long now) {
+        if (this.currentStep == null) {
+            return 0;
+        }
+        return now - this.currentStepStartDate;
+    }
+
+    public long getLastEventDate() {
+        return this.lastEventDate;
+    }
+
+    public List<StepProgressEvent> getFinishedSteps() {
+        synchronized (this.finishedSteps) {
+            return new ArrayList<>(this.finishedSteps);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String step = this.currentStep;
+        if (step == null) {
+            return this.finishedSteps.size() + " step(s) finished";
+        }
+        return "step " + step + " running since " + (this.getCurrentStepElapsedTime(System.currentTimeMillis()) / 1000) + "s, "
+                + this.finishedSteps.size() + " step(s) finished";
+    }
+}
@@ -0,0 +1,56 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is used to kill the docker containers which reached their limit date or which are stalled in a step of the pipeline.
+ * It should be launched in a dedicated thread: it wakes up on each tick of the timing wheel of the {@link DockerPoolManager}.
+ */
+public class ContainerWatchdog implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerWatchdog.class);
+    private static final int DELAY_BETWEEN_REPORTS = 60; // in minutes
+
+    private DockerPoolManager poolManager;
+    private boolean shouldStop;
+
+    public ContainerWatchdog(DockerPoolManager poolManager) {
+        this.poolManager = poolManager;
+    }
+
+    /**
+     * This is used to stop the thread.
+     */
+    public void switchOff() {
+        this.shouldStop = true;
+    }
+
+    @Override
+    public void run() {
+        LOGGER.debug("Start running container watchdog...");
+        long tickDuration = this.poolManager.getContainerDeadlines().getTickDuration();
+        long nextReport = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(DELAY_BETWEEN_REPORTS);
+
+        while (!this.shouldStop) {
+            try {
+                Thread.sleep(tickDuration);
+            } catch (InterruptedException e) {
+                LOGGER.debug("Container watchdog interrupted.");
+                break;
+            }
+
+            this.poolManager.cleanUpOlderContainers();
+            this.poolManager.killStalledContainers();
+            this.poolManager.sampleContainersUsage();
+
+            long now = System.currentTimeMillis();
+            if (now >= nextReport) {
+                this.poolManager.reportStatistics();
+                nextReport = now + TimeUnit.MINUTES.toMillis(DELAY_BETWEEN_REPORTS);
+            }
+        }
+        LOGGER.info("Container watchdog will now stop.");
+    }
+}
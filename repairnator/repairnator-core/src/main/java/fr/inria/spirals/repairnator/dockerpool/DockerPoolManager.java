@@ -2,17 +2,24 @@ package fr.inria.spirals.repairnator.dockerpool;
 
 import com.spotify.docker.client.DockerClient;
 import fr.inria.spirals.repairnator.InputBuildId;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.docker.DockerHelper;
 import fr.inria.spirals.repairnator.dockerpool.serializer.TreatedBuildTracking;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.Instant;
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class defines the main property to manage a pool of docker containers in Repairnator.
@@ -23,9 +30,36 @@ public class DockerPoolManager {
     private static int counter = 0;
     private static final String DEFAULT_RUN_ID = "RUN-"+(counter++);
     private static final String DEFAULT_OUTPUT_DIR = "/var/log/repairnator";
+    private static final long WATCHDOG_TICK_DURATION = TimeUnit.MINUTES.toMillis(1);
+    private static final int WATCHDOG_NB_BUCKETS = 64;
+    private static final int NB_USAGE_SAMPLING_THREADS = 4;
+    // the footprint is only learned from the builds which ran long enough to be sampled
+    private static final long MIN_DURATION_TO_LEARN_FOOTPRINT = 2 * WATCHDOG_TICK_DURATION;
+
+    // we need to be able to manage concurrency on this one: containers are indexed by their name
+    protected Map<String, RunnablePipelineContainer> submittedRunnablePipelineContainers = new ConcurrentHashMap<>();
+
+    // the deadlines of the running containers: the watchdog thread kills the containers which reached it
+    private HashedTimingWheel<RunnablePipelineContainer> containerDeadlines = new HashedTimingWheel<>(WATCHDOG_TICK_DURATION, WATCHDOG_NB_BUCKETS, System.currentTimeMillis());
+    private Map<String, HashedTimingWheel.Timeout<RunnablePipelineContainer>> scheduledDeadlines = new ConcurrentHashMap<>();
+    private ContainerWatchdog watchdog;
+    private WarmContainerPool warmContainerPool;
+    private ResourceAwareScheduler resourceScheduler;
+    private FootprintEstimator footprintEstimator;
+    // docker stats blocks for a while: the containers are sampled in parallel, out of the watchdog thread
+    private ExecutorService usageSamplingExecutor = Executors.newFixedThreadPool(NB_USAGE_SAMPLING_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "container-usage-sampling");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Set<String> containersBeingSampled = ConcurrentHashMap.newKeySet();
+    private StepBudgetEstimator stepBudgetEstimator = new StepBudgetEstimator();
+
+    private AtomicInteger nbKilledContainers = new AtomicInteger();
+    private AtomicInteger nbStalledContainers = new AtomicInteger();
+    private AtomicInteger nbFinishedContainers = new AtomicInteger();
+    private AtomicLong totalSlotOccupancyTime = new AtomicLong(); // in milliseconds
 
-    // we need to be able to manage concurrency on this one
-    protected List<RunnablePipelineContainer> submittedRunnablePipelineContainers = new CopyOnWriteArrayList<>();
     private DockerClient docker;
     private String runId = DEFAULT_RUN_ID;
     private String dockerOutputDir = DEFAULT_OUTPUT_DIR;
@@ -41,8 +75,66 @@ public class DockerPoolManager {
         return this.docker;
     }
 
+    public HashedTimingWheel<RunnablePipelineContainer> getContainerDeadlines() {
+        return containerDeadlines;
+    }
+
+    public int getNbKilledContainers() {
+        return nbKilledContainers.get();
+    }
+
+    public int getNbStalledContainers() {
+        return nbStalledContainers.get();
+    }
+
+    public StepBudgetEstimator getStepBudgetEstimator() {
+        return stepBudgetEstimator;
+    }
+
+    public long getTotalSlotOccupancyTime() {
+        return totalSlotOccupancyTime.get();
+    }
+
+    /**
+     * Called by the container when it starts running, i.e. when it holds an executor slot:
+     * its limit date is then given to the watchdog.
+     */
+    public void registerRunningContainer(RunnablePipelineContainer pipelineContainer) {
+        if (pipelineContainer.getLimitDateBeforeKilling() != null) {
+            HashedTimingWheel.Timeout<RunnablePipelineContainer> timeout = this.containerDeadlines.schedule(pipelineContainer, pipelineContainer.getLimitDateBeforeKilling().getTime());
+            this.scheduledDeadlines.put(pipelineContainer.getContainerName(), timeout);
+        }
+    }
+
     public void removeSubmittedRunnablePipelineContainer(RunnablePipelineContainer pipelineContainer) {
-        this.submittedRunnablePipelineContainers.remove(pipelineContainer);
+        if (this.submittedRunnablePipelineContainers.remove(pipelineContainer.getContainerName()) != null) {
+            this.containerDeadlines.cancel(this.scheduledDeadlines.remove(pipelineContainer.getContainerName()));
+
+            if (this.footprintEstimator != null && this.isFootprintObservable(pipelineContainer)) {
+                this.footprintEstimator.record(pipelineContainer.getRepositorySlug(), pipelineContainer.getObservedFootprint());
+            }
+
+            for (StepProgressEvent finishedStep : pipelineContainer.getProgress().getFinishedSteps()) {
+                this.stepBudgetEstimator.record(finishedStep.getStepName(), TimeUnit.SECONDS.toMillis(finishedStep.getElapsed()));
+            }
+
+            if (pipelineContainer.getStartDate() != null) {
+                long occupancy = System.currentTimeMillis() - pipelineContainer.getStartDate().getTime();
+                this.totalSlotOccupancyTime.addAndGet(occupancy);
+                this.nbFinishedContainers.incrementAndGet();
+                LOGGER.debug("Container " + pipelineContainer.getContainerName() + " held its slot for " + TimeUnit.MILLISECONDS.toMinutes(occupancy) + " minutes.");
+            }
+        }
+    }
+
+    /**
+     * The peak usage of a container only gives its footprint when the build went to its end:
+     * a build which failed early or was killed, for instance when it ran out of memory, would shrink the estimate.
+     */
+    private boolean isFootprintObservable(RunnablePipelineContainer pipelineContainer) {
+        return "TREATED".equals(pipelineContainer.getStatus())
+                && pipelineContainer.getStartDate() != null
+                && System.currentTimeMillis() - pipelineContainer.getStartDate().getTime() >= MIN_DURATION_TO_LEARN_FOOTPRINT;
     }
 
     public void setRunId(String runId) {
@@ -57,43 +149,191 @@ public class DockerPoolManager {
         this.engines = engines;
     }
 
+    public ResourceAwareScheduler getResourceScheduler() {
+        return resourceScheduler;
+    }
+
+    public FootprintEstimator getFootprintEstimator() {
+        return footprintEstimator;
+    }
+
+    /**
+     * When enabled, the containers are admitted depending on the free resources of the host and their estimated footprint,
+     * and their CPU and memory are limited accordingly.
+     */
+    public void enableResourceAwareScheduling(ResourceAwareScheduler resourceScheduler, FootprintEstimator footprintEstimator) {
+        this.resourceScheduler = resourceScheduler;
+        this.footprintEstimator = footprintEstimator;
+    }
+
+    /**
+     * Enable the resource aware scheduling if it is asked in the configuration.
+     */
+    public void initResourceAwareScheduling() {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        if (config.isResourceAwareScheduling()) {
+            File historyFile = (config.getFootprintHistoryPath() != null) ? new File(config.getFootprintHistoryPath()) : null;
+            this.enableResourceAwareScheduling(ResourceAwareScheduler.forLocalHost(), new FootprintEstimator(historyFile));
+        }
+    }
+
+    /**
+     * Create the executor service running the containers.
+     * With resource aware scheduling the number of running containers is driven by the scheduler, so the number of threads is not bounded.
+     */
+    public ExecutorService createExecutorService(int nbThreads) {
+        if (this.resourceScheduler != null) {
+            return Executors.newCachedThreadPool();
+        } else {
+            return Executors.newFixedThreadPool(nbThreads);
+        }
+    }
+
+    public WarmContainerPool getWarmContainerPool() {
+        return warmContainerPool;
+    }
+
+    /**
+     * When a pool of warm containers is given, the submitted builds are handed to its containers whenever one is ready.
+     */
+    public void setWarmContainerPool(WarmContainerPool warmContainerPool) {
+        this.warmContainerPool = warmContainerPool;
+    }
+
+    /**
+     * Start the thread in charge of killing the containers which reached their limit date, if not already started.
+     */
+    public synchronized void startWatchdog() {
+        if (this.watchdog == null) {
+            this.watchdog = new ContainerWatchdog(this);
+            Thread thread = new Thread(this.watchdog, "container-watchdog");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public synchronized void stopWatchdog() {
+        if (this.watchdog != null) {
+            this.watchdog.switchOff();
+            this.watchdog = null;
+        }
+        this.reportStatistics();
+    }
+
     /**
-     * For preparing the build, we first clean the older containers
+     * For preparing the build, we ensure the watchdog is running to clean the older containers
      * @param buildId
      * @return
      */
     public TreatedBuildTracking prepareBeforeSubmitBuild(long buildId) {
-        this.cleanUpOlderContainers();
+        this.startWatchdog();
         return new TreatedBuildTracking(this.engines, this.runId, buildId);
     }
 
     /**
      * For submitting build, we first call {@link #prepareBeforeSubmitBuild(long)}, then we create the container and add it to the list of submitted.
+     * If a warm container is ready when the build starts running, it is used instead of creating a new container.
      */
     public RunnablePipelineContainer submitBuild(String imageId, InputBuildId inputBuildId) {
+        return this.submitBuild(imageId, inputBuildId, null);
+    }
+
+    /**
+     * Same as {@link #submitBuild(String, InputBuildId)}: the repository slug, if known, is used to estimate the footprint of the container.
+     */
+    public RunnablePipelineContainer submitBuild(String imageId, InputBuildId inputBuildId, String repositorySlug) {
         TreatedBuildTracking treatedBuildTracking = this.prepareBeforeSubmitBuild(inputBuildId.getBuggyBuildId());
+
+        // the warm container is only taken when the build starts running, so that the queued builds do not hold one
         RunnablePipelineContainer runnablePipelineContainer = new RunnablePipelineContainer(this, imageId, inputBuildId, this.dockerOutputDir, treatedBuildTracking);
-        this.submittedRunnablePipelineContainers.add(runnablePipelineContainer);
+        runnablePipelineContainer.setRepositorySlug(repositorySlug);
+        this.submittedRunnablePipelineContainers.put(runnablePipelineContainer.getContainerName(), runnablePipelineContainer);
 
         return runnablePipelineContainer;
     }
 
     /**
-     * We call this method to kill the containers which reaches the timeout
-     * FIXME: we should use a thread to inspect those containers and kill them like we do in RTScanner
+     * We call this method to kill the containers which reaches the timeout.
+     * It is regularly called by the {@link ContainerWatchdog}: only the containers whose deadline expired are visited.
      */
     public void cleanUpOlderContainers() {
-        LOGGER.info("Start cleaning docker containers...");
-        Instant now = new Date().toInstant();
-
-        int nbKilled = 0;
-        for (RunnablePipelineContainer runnablePipelineContainer : this.submittedRunnablePipelineContainers) {
-            if (runnablePipelineContainer.getLimitDateBeforeKilling() != null && runnablePipelineContainer.getLimitDateBeforeKilling().toInstant().isBefore(now)) {
-                runnablePipelineContainer.killDockerContainer(this.docker, false);
-                nbKilled++;
+        List<RunnablePipelineContainer> expiredContainers = this.containerDeadlines.advance(System.currentTimeMillis());
+
+        for (RunnablePipelineContainer runnablePipelineContainer : expiredContainers) {
+            this.scheduledDeadlines.remove(runnablePipelineContainer.getContainerName());
+            LOGGER.info("Container " + runnablePipelineContainer.getContainerName() + " reached its limit date: it will be killed.");
+            runnablePipelineContainer.killDockerContainer(this.getDockerClient(), false);
+            this.nbKilledContainers.incrementAndGet();
+        }
+
+        if (!expiredContainers.isEmpty()) {
+            LOGGER.info("Number of killed docker containers: " + expiredContainers.size());
+        }
+    }
+
+    /**
+     * We call this method to kill the containers which spend much more time in a step than the previous builds:
+     * they would probably reach their limit date without producing anything, so we free their slot earlier.
+     * It is regularly called by the {@link ContainerWatchdog} when the stall detection is enabled.
+     */
+    public void killStalledContainers() {
+        if (!RepairnatorConfig.getInstance().isStallDetection()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (RunnablePipelineContainer runnablePipelineContainer : this.submittedRunnablePipelineContainers.values()) {
+            ContainerProgress progress = runnablePipelineContainer.getProgress();
+            String currentStep = progress.getCurrentStep();
+            if (currentStep == null) {
+                continue;
+            }
+            long budget = this.stepBudgetEstimator.getBudget(currentStep);
+            long elapsed = progress.getCurrentStepElapsedTime(now);
+            if (budget != StepBudgetEstimator.NO_BUDGET && elapsed > budget) {
+                LOGGER.info("Container " + runnablePipelineContainer.getContainerName() + " is running step " + currentStep + " for "
+                        + TimeUnit.MILLISECONDS.toMinutes(elapsed) + " minutes (budget: " + TimeUnit.MILLISECONDS.toMinutes(budget) + " minutes): it will be killed.");
+                this.containerDeadlines.cancel(this.scheduledDeadlines.remove(runnablePipelineContainer.getContainerName()));
+                runnablePipelineContainer.killDockerContainer(this.getDockerClient(), false, "STALLED:" + currentStep);
+                this.nbStalledContainers.incrementAndGet();
             }
         }
+    }
+
+    /**
+     * Sample the resource usage of the running containers to learn their footprint.
+     * The samples are taken in the background: this method does not wait for them.
+     */
+    public void sampleContainersUsage() {
+        if (this.footprintEstimator == null) {
+            return;
+        }
+        for (RunnablePipelineContainer runnablePipelineContainer : this.submittedRunnablePipelineContainers.values()) {
+            String containerName = runnablePipelineContainer.getContainerName();
+            // a container whose previous sample is not finished is skipped
+            if (runnablePipelineContainer.getStartDate() != null && this.containersBeingSampled.add(containerName)) {
+                this.usageSamplingExecutor.execute(() -> {
+                    try {
+                        runnablePipelineContainer.sampleResourceUsage(this.getDockerClient());
+                    } finally {
+                        this.containersBeingSampled.remove(containerName);
+                    }
+                });
+            }
+        }
+    }
 
-        LOGGER.info("Number of killed docker containers: "+nbKilled);
+    public void reportStatistics() {
+        int nbFinished = this.nbFinishedContainers.get();
+        long averageOccupancy = (nbFinished == 0) ? 0 : this.totalSlotOccupancyTime.get() / nbFinished;
+        LOGGER.info("Docker pool statistics: " + this.submittedRunnablePipelineContainers.size() + " submitted container(s), "
+                + nbFinished + " finished, " + this.nbKilledContainers.get() + " killed by timeout, "
+                + this.nbStalledContainers.get() + " killed while stalled, "
+                + "total slot occupancy: " + TimeUnit.MILLISECONDS.toMinutes(this.totalSlotOccupancyTime.get()) + " minutes, "
+                + "average: " + TimeUnit.MILLISECONDS.toMinutes(averageOccupancy) + " minutes.");
+        for (RunnablePipelineContainer runnablePipelineContainer : this.submittedRunnablePipelineContainers.values()) {
+            if (runnablePipelineContainer.getStartDate() != null) {
+                LOGGER.info("Container " + runnablePipelineContainer.getContainerName() + ": " + runnablePipelineContainer.getProgress());
+            }
+        }
     }
 }
@@ -0,0 +1,88 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class estimates the resources needed by the container of a build, based on the previous builds of the same repository.
+ * Observations are smoothed with an exponential moving average, and can be persisted in a JSON file to be reused between runs.
+ */
+public class FootprintEstimator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FootprintEstimator.class);
+    private static final double SMOOTHING_FACTOR = 0.5;
+
+    private Map<String, ContainerFootprint> footprints = new ConcurrentHashMap<>();
+    private File historyFile;
+    private Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * @param historyFile the file used to persist the footprints: can be null to keep them only in memory
+     */
+    public FootprintEstimator(File historyFile) {
+        this.historyFile = historyFile;
+        this.load();
+    }
+
+    /**
+     * @return the footprint learned for the repository, or {@link ContainerFootprint#DEFAULT} if nothing is known
+     */
+    public ContainerFootprint estimate(String repositorySlug) {
+        if (repositorySlug == null) {
+            return ContainerFootprint.DEFAULT;
+        }
+        ContainerFootprint footprint = this.footprints.get(repositorySlug);
+        return (footprint == null) ? ContainerFootprint.DEFAULT : footprint;
+    }
+
+    public void record(String repositorySlug, ContainerFootprint observed) {
+        if (repositorySlug == null || observed == null) {
+            return;
+        }
+        this.footprints.merge(repositorySlug, observed, (previous, current) -> new ContainerFootprint(
+                SMOOTHING_FACTOR * current.getCpus() + (1 - SMOOTHING_FACTOR) * previous.getCpus(),
+                (long) (SMOOTHING_FACTOR * current.getMemory() + (1 - SMOOTHING_FACTOR) * previous.getMemory())));
+        LOGGER.debug("New footprint for " + repositorySlug + ": " + this.footprints.get(repositorySlug));
+        this.save();
+    }
+
+    private void load() {
+        if (this.historyFile == null || !this.historyFile.exists()) {
+            return;
+        }
+        Type type = new TypeToken<HashMap<String, ContainerFootprint>>() {}.getType();
+        try (Reader reader = Files.newBufferedReader(this.historyFile.toPath(), StandardCharsets.UTF_8)) {
+            Map<String, ContainerFootprint> loaded = this.gson.fromJson(reader, type);
+            if (loaded != null) {
+                this.footprints.putAll(loaded);
+            }
+            LOGGER.info(this.footprints.size() + " container footprints loaded from " + this.historyFile.getPath());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Error while reading container footprints from " + this.historyFile.getPath(), e);
+        }
+    }
+
+    private synchronized void save() {
+        if (this.historyFile == null) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(this.historyFile.toPath(), StandardCharsets.UTF_8)) {
+            this.gson.toJson(new HashMap<>(this.footprints), writer);
+        } catch (IOException e) {
+            LOGGER.error("Error while writing container footprints to " + this.historyFile.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A hashed timing wheel used to track deadlines of elements.
+ * The wheel is divided in buckets each covering one tick: scheduling and cancelling an element are done in constant time,
+ * and advancing the wheel only visits the buckets corresponding to the elapsed ticks.
+ *
+ * Elements whose deadline is further than a full turn of the wheel are kept in their bucket until the wheel reaches their deadline tick.
+ */
+public class HashedTimingWheel<T> {
+
+    /**
+     * A handle on a scheduled element: it is used to cancel it.
+     */
+    public static final class Timeout<T> {
+        private final T element;
+        private final long deadline;
+        private long deadlineTick;
+        private int bucketIndex;
+        private boolean cancelled;
+
+        private Timeout(T element, long deadline) {
+            this.element = element;
+            this.deadline = deadline;
+        }
+
+        public T getElement() {
+            return element;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final long tickDuration;
+    private final List<Set<Timeout<T>>> buckets;
+    private long lastProcessedTick;
+    private int size;
+
+    /**
+     * @param tickDuration the duration of a tick in milliseconds
+     * @param nbBuckets the number of buckets of the wheel
+     * @param startTime the time in milliseconds from which ticks are computed
+     */
+    public HashedTimingWheel(long tickDuration, int nbBuckets, long startTime) {
+        if (tickDuration <= 0 || nbBuckets <= 0) {
+            throw new IllegalArgumentException("Tick duration and number of buckets must be positive.");
+        }
+        this.tickDuration = tickDuration;
+        this.buckets = new ArrayList<>(nbBuckets);
+        for (int i = 0; i < nbBuckets; i++) {
+            this.buckets.add(new LinkedHashSet<>());
+        }
+        this.lastProcessedTick = startTime / tickDuration;
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Schedule the given element to expire at the given deadline (in milliseconds).
+     * A deadline already in the past expires on the next call to {@link #advance(long)}.
+     */
+    public synchronized Timeout<T> schedule(T element, long deadline) {
+        Timeout<T> timeout = new Timeout<>(element, deadline);
+
+        timeout.deadlineTick = Math.max(deadline / this.tickDuration, this.lastProcessedTick + 1);
+        timeout.bucketIndex = (int) (timeout.deadlineTick % this.buckets.size());
+
+        this.buckets.get(timeout.bucketIndex).add(timeout);
+        this.size++;
+        return timeout;
+    }
+
+    /**
+     * Remove the given timeout from the wheel.
+     * @return true if the timeout was still pending
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.cancelled) {
+            return false;
+        }
+        timeout.cancelled = true;
+        if (this.buckets.get(timeout.bucketIndex).remove(timeout)) {
+            this.size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move the wheel up to the given time (in milliseconds) and return the elements which expired.
+     * Only the buckets of the elapsed ticks are visited.
+     */
+    public synchronized List<T> advance(long now) {
+        List<T> expired = new ArrayList<>();
+        long currentTick = now / this.tickDuration;
+
+        // if we have been idle for more than a full turn, each bucket only has to be visited once
+        long nbTicks = Math.min(currentTick - this.lastProcessedTick, this.buckets.size());
+
+        for (long i = 1; i <= nbTicks; i++) {
+            long tick = this.lastProcessedTick + i;
+            Set<Timeout<T>> bucket = this.buckets.get((int) (tick % this.buckets.size()));
+
+            Iterator<Timeout<T>> iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                Timeout<T> timeout = iterator.next();
+                if (timeout.deadlineTick <= currentTick) {
+                    iterator.remove();
+                    this.size--;
+                    timeout.cancelled = true;
+                    expired.add(timeout.element);
+                }
+            }
+        }
+
+        if (currentTick > this.lastProcessedTick) {
+            this.lastProcessedTick = currentTick;
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,163 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import com.spotify.docker.client.messages.HostConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class admits the pipeline containers depending on the resources of the host instead of a fixed number of threads.
+ * Each container declares an estimated footprint: it is started only when the free cores and memory of the host can hold it.
+ * When several containers are waiting, the largest one which fits is admitted first, unless a container is waiting for too long:
+ * then no other container is admitted before it, to avoid starving large builds.
+ *
+ * The footprint is also used to set the CPU and memory limits of the container. The limits are larger than the footprint:
+ * otherwise the usage observed for a repository could never exceed its estimate, which could then only decrease.
+ */
+public class ResourceAwareScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceAwareScheduler.class);
+    private static final long CPU_PERIOD = 100000; // in microseconds, the default value of docker
+    private static final long CPU_SHARES_PER_CORE = 1024;
+    private static final double MEMORY_LIMIT_FACTOR = 2.0; // the limit is larger than the estimate to avoid killing builds using a bit more memory
+    private static final double CPU_LIMIT_FACTOR = 2.0; // the limit is larger than the estimate to observe builds using more cores
+    private static final long STARVATION_DELAY = TimeUnit.MINUTES.toMillis(30);
+
+    private static final class Request {
+        private final ContainerFootprint footprint;
+        private final long submissionDate;
+
+        private Request(ContainerFootprint footprint) {
+            this.footprint = footprint;
+            this.submissionDate = System.currentTimeMillis();
+        }
+    }
+
+    private final double totalCpus;
+    private final long totalMemory;
+    private double reservedCpus;
+    private long reservedMemory;
+    private int nbAdmitted;
+    private List<Request> waitingRequests = new ArrayList<>();
+
+    public ResourceAwareScheduler(double totalCpus, long totalMemory) {
+        this.totalCpus = totalCpus;
+        this.totalMemory = totalMemory;
+        LOGGER.info("Resource aware scheduler initialized with " + totalCpus + " cores and " + (totalMemory / (1024 * 1024)) + "MB of memory.");
+    }
+
+    /**
+     * Create a scheduler with the resources of the current host.
+     */
+    public static ResourceAwareScheduler forLocalHost() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        long memory = ContainerFootprint.DEFAULT.getMemory() * cpus;
+
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            memory = ((com.sun.management.OperatingSystemMXBean) osBean).getTotalPhysicalMemorySize();
+        }
+        return new ResourceAwareScheduler(cpus, memory);
+    }
+
+    public synchronized int getNbAdmitted() {
+        return nbAdmitted;
+    }
+
+    public synchronized int getNbWaiting() {
+        return waitingRequests.size();
+    }
+
+    /**
+     * Block until the host has enough free resources for the given footprint.
+     */
+    public void acquire(ContainerFootprint footprint) throws InterruptedException {
+        Request request = new Request(footprint);
+        synchronized (this) {
+            this.waitingRequests.add(request);
+            try {
+                while (!this.canBeAdmitted(request)) {
+                    this.wait();
+                }
+            } finally {
+                this.waitingRequests.remove(request);
+            }
+            this.reservedCpus += footprint.getCpus();
+            this.reservedMemory += footprint.getMemory();
+            this.nbAdmitted++;
+            // other waiting requests might fit in the remaining resources
+            this.notifyAll();
+        }
+        LOGGER.debug("Container admitted with " + footprint + " (reserved: " + this.reservedCpus + " cores, " + (this.reservedMemory / (1024 * 1024)) + "MB)");
+    }
+
+    public synchronized void release(ContainerFootprint footprint) {
+        this.reservedCpus -= footprint.getCpus();
+        this.reservedMemory -= footprint.getMemory();
+        this.nbAdmitted--;
+        this.notifyAll();
+    }
+
+    /**
+     * Compute the docker host configuration limiting the container to the given footprint.
+     */
+    public HostConfig.Builder limitResources(HostConfig.Builder builder, ContainerFootprint footprint) {
+        return builder
+                .cpuShares((long) (footprint.getCpus() * CPU_SHARES_PER_CORE))
+                .cpuPeriod(CPU_PERIOD)
+                .cpuQuota(this.getCpuQuota(footprint))
+                .memory(this.getMemoryLimit(footprint));
+    }
+
+    /**
+     * @return the memory limit of the container: the estimated memory with headroom, never less than the limit of a build whose footprint is unknown
+     */
+    long getMemoryLimit(ContainerFootprint footprint) {
+        return (long) (Math.max(footprint.getMemory(), ContainerFootprint.DEFAULT.getMemory()) * MEMORY_LIMIT_FACTOR);
+    }
+
+    /**
+     * @return the CPU quota of the container for a period of {@link #CPU_PERIOD}: the estimated cores with headroom, at most all the cores of the host
+     */
+    long getCpuQuota(ContainerFootprint footprint) {
+        double cpus = Math.min(Math.ceil(footprint.getCpus() * CPU_LIMIT_FACTOR), Math.max(this.totalCpus, 1));
+        return (long) (cpus * CPU_PERIOD);
+    }
+
+    private boolean fits(ContainerFootprint footprint) {
+        return this.reservedCpus + footprint.getCpus() <= this.totalCpus
+                && this.reservedMemory + footprint.getMemory() <= this.totalMemory;
+    }
+
+    private boolean canBeAdmitted(Request request) {
+        // a container larger than the host would never fit: we admit it alone
+        if (this.nbAdmitted == 0) {
+            return true;
+        }
+        if (!this.fits(request.footprint)) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        for (Request other : this.waitingRequests) {
+            if (other == request) {
+                continue;
+            }
+            boolean otherIsStarving = now - other.submissionDate > STARVATION_DELAY && other.submissionDate < request.submissionDate;
+            if (otherIsStarving && !this.fits(other.footprint)) {
+                // we keep the resources for the starving request
+                return false;
+            }
+            if (this.fits(other.footprint) && (other.footprint.isLargerThan(request.footprint)
+                    || (!request.footprint.isLargerThan(other.footprint) && other.submissionDate < request.submissionDate))) {
+                // best fit: the largest request which fits goes first
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,10 +1,12 @@
 package fr.inria.spirals.repairnator.dockerpool;
 
 import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.LogStream;
 import com.spotify.docker.client.exceptions.DockerException;
 import com.spotify.docker.client.messages.ContainerConfig;
 import com.spotify.docker.client.messages.ContainerCreation;
 import com.spotify.docker.client.messages.ContainerExit;
+import com.spotify.docker.client.messages.ContainerStats;
 import com.spotify.docker.client.messages.HostConfig;
 import fr.inria.spirals.repairnator.InputBuildId;
 import fr.inria.spirals.repairnator.utils.DateUtils;
@@ -18,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 
@@ -28,7 +31,11 @@ public class RunnablePipelineContainer implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RunnablePipelineContainer.class);
     private static final int DELAY_BEFORE_KILLING_DOCKER_IMAGE = 60 * 24; // in minutes
+    public static final String CLONE_CACHE_DIRECTORY_IN_CONTAINER = "/var/clonecache";
+    public static final String PUSH_OUTBOX_DIRECTORY_IN_CONTAINER = "/var/pushoutbox";
+    public static final String MAVEN_CACHE_DIRECTORY_IN_CONTAINER = "/var/mavencache";
     private Date limitDateBeforeKilling;
+    private Date startDate;
     private String imageId;
     private InputBuildId inputBuildId;
     private String logDirectory;
@@ -39,12 +46,28 @@ public class RunnablePipelineContainer implements Runnable {
     private String containerName;
     private List<String> envValues;
     private Set<String> volumes;
+    private WarmContainerPool.WarmContainer warmContainer;
+
+    // used by the resource aware scheduling
+    private String repositorySlug;
+    private ContainerFootprint footprint;
+    // sampled by the threads of the pool manager
+    private volatile long peakMemory;
+    private volatile double peakCpus;
+    private long lastCpuUsage;
+    private long lastCpuSampleTime;
+
+    // the live view of the steps of the pipeline, retrieved from the container logs
+    private ContainerProgress progress = new ContainerProgress();
 
     public ContainerExit getExitStatus() {
         return exitStatus;
     }
 
     private ContainerExit exitStatus;
+    private volatile String status;
+    // the status given when the container has been killed on purpose, which must not be replaced by its exit code
+    private String killStatus;
 
     /**
      * The constructor will init all the environment values for the container.
@@ -64,7 +87,6 @@ public class RunnablePipelineContainer implements Runnable {
         this.treatedBuildTracking = treatedBuildTracking;
 
         this.containerName = "docker_pipeline"+ DateUtils.formatFilenameDate(new Date())+"_"+this.inputBuildId.getBuggyBuildId()+"_"+StringUtils.join(this.repairnatorConfig.getRepairTools(),",");
-        String output = (this.repairnatorConfig.isCreateOutputDir()) ? "/var/log/"+this.repairnatorConfig.getRunId() : "/var/log";
 
         this.envValues = new ArrayList<>();
 
@@ -73,39 +95,85 @@ public class RunnablePipelineContainer implements Runnable {
         this.envValues.add("BUILD_ID="+this.inputBuildId.getBuggyBuildId());
         if (this.repairnatorConfig.getLauncherMode() == LauncherMode.BEARS) {
             this.envValues.add("NEXT_BUILD_ID="+this.inputBuildId.getPatchedBuildId());
-            if (this.repairnatorConfig.isDebug()) {
-                this.envValues.add("LOG_LEVEL=DEBUG");
+        }
+        this.envValues.addAll(computeCommonEnvValues(this.repairnatorConfig, this.containerName));
+    }
+
+    /**
+     * Compute the environment values which do not depend on the build to process.
+     */
+    static List<String> computeCommonEnvValues(RepairnatorConfig repairnatorConfig, String containerName) {
+        List<String> envValues = new ArrayList<>();
+        String output = (repairnatorConfig.isCreateOutputDir()) ? "/var/log/"+repairnatorConfig.getRunId() : "/var/log";
+
+        if (repairnatorConfig.getLauncherMode() == LauncherMode.BEARS) {
+            if (repairnatorConfig.isDebug()) {
+                envValues.add("LOG_LEVEL=DEBUG");
             } else {
-                this.envValues.add("LOG_LEVEL=INFO");
+                envValues.add("LOG_LEVEL=INFO");
             }
         }
-        this.envValues.add("LOG_FILENAME="+this.containerName);
-        this.envValues.add("GITHUB_OAUTH="+RepairnatorConfig.getInstance().getGithubToken());
-        this.envValues.add("RUN_ID="+this.repairnatorConfig.getRunId());
-        this.envValues.add("REPAIR_MODE="+this.repairnatorConfig.getLauncherMode().name().toLowerCase());
-        this.envValues.add("PUSH_URL="+this.repairnatorConfig.getPushRemoteRepo());
-        this.envValues.add("MONGODB_HOST="+this.repairnatorConfig.getMongodbHost());
-        this.envValues.add("MONGODB_NAME="+this.repairnatorConfig.getMongodbName());
-        this.envValues.add("SMTP_SERVER="+this.repairnatorConfig.getSmtpServer());
-        this.envValues.add("SMTP_PORT="+Integer.toString(this.repairnatorConfig.getSmtpPort()));
-        this.envValues.add("SMTP_USERNAME="+this.repairnatorConfig.getSmtpUsername());
-        this.envValues.add("SMTP_PASSWORD="+this.repairnatorConfig.getSmtpPassword());
-        this.envValues.add("GITHUB_USERNAME="+this.repairnatorConfig.getGithubUserName());
-        this.envValues.add("GITHUB_USEREMAIL="+this.repairnatorConfig.getGithubUserEmail());
-        this.envValues.add("NOTIFY_TO="+ StringUtils.join(this.repairnatorConfig.getNotifyTo(),','));
-        this.envValues.add("OUTPUT="+output);
-        if (this.repairnatorConfig.isCreatePR()) {
-            this.envValues.add("CREATE_PR=1");
-        }
-        if(this.repairnatorConfig.isSmtpTLS()) {
-            this.envValues.add("SMTP_TLS=1");
+        envValues.add("LOG_FILENAME="+containerName);
+        envValues.add("GITHUB_OAUTH="+repairnatorConfig.getGithubToken());
+        envValues.add("RUN_ID="+repairnatorConfig.getRunId());
+        envValues.add("REPAIR_MODE="+repairnatorConfig.getLauncherMode().name().toLowerCase());
+        envValues.add("PUSH_URL="+repairnatorConfig.getPushRemoteRepo());
+        envValues.add("MONGODB_HOST="+repairnatorConfig.getMongodbHost());
+        envValues.add("MONGODB_NAME="+repairnatorConfig.getMongodbName());
+        envValues.add("SMTP_SERVER="+repairnatorConfig.getSmtpServer());
+        envValues.add("SMTP_PORT="+Integer.toString(repairnatorConfig.getSmtpPort()));
+        envValues.add("SMTP_USERNAME="+repairnatorConfig.getSmtpUsername());
+        envValues.add("SMTP_PASSWORD="+repairnatorConfig.getSmtpPassword());
+        envValues.add("GITHUB_USERNAME="+repairnatorConfig.getGithubUserName());
+        envValues.add("GITHUB_USEREMAIL="+repairnatorConfig.getGithubUserEmail());
+        envValues.add("NOTIFY_TO="+ StringUtils.join(repairnatorConfig.getNotifyTo(),','));
+        envValues.add("OUTPUT="+output);
+        if (repairnatorConfig.isCreatePR()) {
+            envValues.add("CREATE_PR=1");
+        }
+        if(repairnatorConfig.isSmtpTLS()) {
+            envValues.add("SMTP_TLS=1");
         } else {
-            this.envValues.add("SMTP_TLS=0");
+            envValues.add("SMTP_TLS=0");
+        }
+
+        if (repairnatorConfig.getLauncherMode() == LauncherMode.REPAIR || repairnatorConfig.getLauncherMode() == LauncherMode.CHECKSTYLE) {
+            envValues.add("REPAIR_TOOLS=" + StringUtils.join(repairnatorConfig.getRepairTools(), ","));
+        }
+        if (repairnatorConfig.getCloneCacheDirectory() != null) {
+            envValues.add("CLONE_CACHE_DIR=" + CLONE_CACHE_DIRECTORY_IN_CONTAINER);
+            envValues.add("CLONE_CACHE_SIZE=" + repairnatorConfig.getCloneCacheSize());
         }
+        if (repairnatorConfig.getCloneDepth() > 0) {
+            envValues.add("CLONE_DEPTH=" + repairnatorConfig.getCloneDepth());
+        }
+        if (repairnatorConfig.getSubmoduleJobs() > 0) {
+            envValues.add("SUBMODULE_JOBS=" + repairnatorConfig.getSubmoduleJobs());
+        }
+        if (repairnatorConfig.getPushOutboxDirectory() != null) {
+            envValues.add("PUSH_OUTBOX_DIR=" + PUSH_OUTBOX_DIRECTORY_IN_CONTAINER);
+        }
+        if (repairnatorConfig.getMavenCacheDirectory() != null) {
+            envValues.add("MAVEN_CACHE_DIR=" + MAVEN_CACHE_DIRECTORY_IN_CONTAINER);
+            envValues.add("MAVEN_CACHE_SIZE=" + repairnatorConfig.getMavenCacheSize());
+        }
+        return envValues;
+    }
 
-        if (this.repairnatorConfig.getLauncherMode() == LauncherMode.REPAIR || this.repairnatorConfig.getLauncherMode() == LauncherMode.CHECKSTYLE) {
-            this.envValues.add("REPAIR_TOOLS=" + StringUtils.join(this.repairnatorConfig.getRepairTools(), ","));
+    /**
+     * Add the host directories shared by all the containers.
+     */
+    static HostConfig.Builder appendCommonBinds(RepairnatorConfig repairnatorConfig, HostConfig.Builder hostConfigBuilder) {
+        if (repairnatorConfig.getCloneCacheDirectory() != null) {
+            hostConfigBuilder.appendBinds(new File(repairnatorConfig.getCloneCacheDirectory()).getAbsolutePath() + ":" + CLONE_CACHE_DIRECTORY_IN_CONTAINER);
+        }
+        if (repairnatorConfig.getPushOutboxDirectory() != null) {
+            hostConfigBuilder.appendBinds(new File(repairnatorConfig.getPushOutboxDirectory()).getAbsolutePath() + ":" + PUSH_OUTBOX_DIRECTORY_IN_CONTAINER);
+        }
+        if (repairnatorConfig.getMavenCacheDirectory() != null) {
+            hostConfigBuilder.appendBinds(new File(repairnatorConfig.getMavenCacheDirectory()).getAbsolutePath() + ":" + MAVEN_CACHE_DIRECTORY_IN_CONTAINER);
         }
+        return hostConfigBuilder;
     }
 
     public InputBuildId getInputBuildId() {
@@ -116,45 +184,121 @@ public class RunnablePipelineContainer implements Runnable {
         return this.limitDateBeforeKilling;
     }
 
-    @Override
-    public void run() {
-        this.limitDateBeforeKilling = new Date(new Date().toInstant().plus(DELAY_BEFORE_KILLING_DOCKER_IMAGE, ChronoUnit.MINUTES).toEpochMilli());
-        DockerClient docker = this.poolManager.getDockerClient();
-        try {
-            LOGGER.info("Start to build and run container for build id "+this.inputBuildId.getBuggyBuildId());
-            LOGGER.info("At most this docker run will be killed at: "+this.limitDateBeforeKilling);
+    public Date getStartDate() {
+        return this.startDate;
+    }
 
-            // fixme: this does not work anymore to put a name that is displayed in docker ps
-            Map<String,String> labels = new HashMap<>();
-            labels.put("name",this.containerName);
+    public String getContainerName() {
+        return this.containerName;
+    }
 
-            HostConfig hostConfig = HostConfig.builder().build();
+    public ContainerProgress getProgress() {
+        return this.progress;
+    }
 
-            // we soecify the complete configuration of the container
-            ContainerConfig containerConfig = ContainerConfig.builder()
-                    .image(imageId)
-                    .env(envValues)
-                    .hostname(Utils.getHostname())
-                    .hostConfig(hostConfig)
-                    .labels(labels)
-                    .build();
+    public String getRepositorySlug() {
+        return this.repositorySlug;
+    }
 
-            // and we create it
-            LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Create the container: "+this.containerName);
-            ContainerCreation container = docker.createContainer(containerConfig);
+    public void setRepositorySlug(String repositorySlug) {
+        this.repositorySlug = repositorySlug;
+    }
 
-            // fixme: replace it with volumes() ?
-            // at the end we want to remove both the container and the volume to save space
-            this.volumes = containerConfig.volumeNames();
+    /**
+     * @return the resources used by the container, as observed by {@link #sampleResourceUsage(DockerClient)}, or null if never sampled
+     */
+    public ContainerFootprint getObservedFootprint() {
+        if (this.peakMemory == 0) {
+            return null;
+        }
+        return new ContainerFootprint(Math.max(this.peakCpus, 0.1), this.peakMemory);
+    }
 
-            this.containerId = container.id();
-            treatedBuildTracking.setContainerId(this.containerId);
+    /**
+     * Retrieve the current resource usage of the container to learn its footprint.
+     * The CPU usage is computed between two consecutive samples.
+     */
+    public void sampleResourceUsage(DockerClient docker) {
+        if (this.containerId == null) {
+            return;
+        }
+        try {
+            ContainerStats stats = docker.stats(this.containerId);
+            long now = System.nanoTime();
+            if (stats.memoryStats() != null && stats.memoryStats().usage() != null) {
+                this.peakMemory = Math.max(this.peakMemory, stats.memoryStats().usage());
+            }
+            if (stats.cpuStats() != null && stats.cpuStats().cpuUsage() != null && stats.cpuStats().cpuUsage().totalUsage() != null) {
+                long cpuUsage = stats.cpuStats().cpuUsage().totalUsage();
+                if (this.lastCpuSampleTime != 0 && now > this.lastCpuSampleTime) {
+                    double cpus = (double) (cpuUsage - this.lastCpuUsage) / (now - this.lastCpuSampleTime);
+                    this.peakCpus = Math.max(this.peakCpus, cpus);
+                }
+                this.lastCpuUsage = cpuUsage;
+                this.lastCpuSampleTime = now;
+            }
+        } catch (DockerException | InterruptedException e) {
+            LOGGER.debug("Error while retrieving the stats of container " + this.containerName, e);
+        }
+    }
 
-            // now the container is created: let's start it
-            LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Start the container: "+this.containerName);
-            docker.startContainer(container.id());
+    @Override
+    public void run() {
+        ResourceAwareScheduler resourceScheduler = this.poolManager.getResourceScheduler();
+        if (resourceScheduler != null) {
+            this.footprint = this.poolManager.getFootprintEstimator().estimate(this.repositorySlug);
+            try {
+                LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Waiting for resources: " + this.footprint);
+                resourceScheduler.acquire(this.footprint);
+            } catch (InterruptedException e) {
+                LOGGER.error("Interrupted while waiting for resources for build id " + this.inputBuildId.getBuggyBuildId(), e);
+                serialize("INTERRUPTED");
+                this.poolManager.removeSubmittedRunnablePipelineContainer(this);
+                return;
+            }
+        }
 
-            // and now we wait until it's finished
+        try {
+            this.runContainer();
+        } finally {
+            if (resourceScheduler != null) {
+                resourceScheduler.release(this.footprint);
+            }
+        }
+    }
+
+    private void runContainer() {
+        this.startDate = new Date();
+        this.limitDateBeforeKilling = new Date(this.startDate.toInstant().plus(DELAY_BEFORE_KILLING_DOCKER_IMAGE, ChronoUnit.MINUTES).toEpochMilli());
+        this.poolManager.registerRunningContainer(this);
+        DockerClient docker = this.poolManager.getDockerClient();
+        // a warm container is only taken once the build can run: the pool then starts another one
+        WarmContainerPool warmContainerPool = this.poolManager.getWarmContainerPool();
+        if (warmContainerPool != null) {
+            this.warmContainer = warmContainerPool.poll(this.imageId);
+        }
+        boolean handedOff = false;
+        try {
+            LOGGER.info("Start to build and run container for build id "+this.inputBuildId.getBuggyBuildId());
+            LOGGER.info("At most this docker run will be killed at: "+this.limitDateBeforeKilling);
+
+            if (this.warmContainer != null) {
+                // the container is already started: we only have to give it the build
+                LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Hand the build to the warm container: "+this.warmContainer.getContainerName());
+                this.containerId = this.warmContainer.getContainerId();
+                this.volumes = this.warmContainer.getVolumes();
+                treatedBuildTracking.setContainerId(this.containerId);
+                if (this.footprint != null) {
+                    docker.updateContainer(this.containerId, this.poolManager.getResourceScheduler().limitResources(HostConfig.builder(), this.footprint).build());
+                }
+                handedOff = true;
+                this.warmContainer.getHandoff().submitBuild(this.inputBuildId);
+            } else {
+                this.createAndStartContainer(docker);
+            }
+
+            // we follow the progress of the pipeline until the container stops, then we get its exit status
+            this.followProgress(docker);
             exitStatus = docker.waitContainer(this.containerId);
 
             LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") The container has finished with status code: "+ exitStatus.statusCode());
@@ -166,10 +310,14 @@ public class RunnablePipelineContainer implements Runnable {
                 this.removeVolumes(docker);
             }
 
-            if (exitStatus.statusCode() == 0) {
-                serialize("TREATED");
-            } else {
-                serialize("ERROR:CODE" + exitStatus.statusCode());
+            synchronized (this) {
+                if (this.killStatus != null) {
+                    LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") The container has been killed: " + this.killStatus);
+                } else if (exitStatus.statusCode() == 0) {
+                    serialize("TREATED");
+                } else {
+                    serialize("ERROR:CODE" + exitStatus.statusCode());
+                }
             }
         } catch (InterruptedException e) {
             LOGGER.error("Error while running the container for build id "+this.inputBuildId.getBuggyBuildId(), e);
@@ -177,10 +325,75 @@ public class RunnablePipelineContainer implements Runnable {
         } catch (DockerException e) {
             LOGGER.error("Error while creating or running the container for build id "+this.inputBuildId.getBuggyBuildId(), e);
             serialize("ERROR");
+        } catch (IOException e) {
+            LOGGER.error("Error while handing the build id "+this.inputBuildId.getBuggyBuildId()+" to the warm container", e);
+            killDockerContainer(docker, true, "ERROR");
+        } finally {
+            if (this.warmContainer != null) {
+                if (handedOff) {
+                    this.warmContainer.release();
+                } else {
+                    // the container did not receive the build: it must not stay idle out of the pool
+                    warmContainerPool.discard(this.warmContainer);
+                }
+            }
         }
         this.poolManager.removeSubmittedRunnablePipelineContainer(this);
     }
 
+    private void createAndStartContainer(DockerClient docker) throws DockerException, InterruptedException {
+        // fixme: this does not work anymore to put a name that is displayed in docker ps
+        Map<String,String> labels = new HashMap<>();
+        labels.put("name",this.containerName);
+
+        HostConfig.Builder hostConfigBuilder = appendCommonBinds(this.repairnatorConfig, HostConfig.builder());
+        if (this.footprint != null) {
+            hostConfigBuilder = this.poolManager.getResourceScheduler().limitResources(hostConfigBuilder, this.footprint);
+        }
+        HostConfig hostConfig = hostConfigBuilder.build();
+
+        // we soecify the complete configuration of the container
+        ContainerConfig containerConfig = ContainerConfig.builder()
+                .image(imageId)
+                .env(envValues)
+                .hostname(Utils.getHostname())
+                .hostConfig(hostConfig)
+                .labels(labels)
+                .build();
+
+        // and we create it
+        LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Create the container: "+this.containerName);
+        ContainerCreation container = docker.createContainer(containerConfig);
+
+        // fixme: replace it with volumes() ?
+        // at the end we want to remove both the container and the volume to save space
+        this.volumes = containerConfig.volumeNames();
+
+        this.containerId = container.id();
+        treatedBuildTracking.setContainerId(this.containerId);
+
+        // now the container is created: let's start it
+        LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Start the container: "+this.containerName);
+        docker.startContainer(container.id());
+    }
+
+    /**
+     * Follow the logs of the container to keep its progress up-to-date: this blocks until the container stops.
+     * If the logs cannot be followed, the container is only waited without live view.
+     */
+    private void followProgress(DockerClient docker) throws InterruptedException {
+        // warm containers were started before the build was given: their previous logs are not relevant
+        int since = (int) (this.startDate.getTime() / 1000);
+        try (LogStream logStream = docker.logs(this.containerId, DockerClient.LogsParam.follow(), DockerClient.LogsParam.stdout(),
+                DockerClient.LogsParam.stderr(), DockerClient.LogsParam.since(since))) {
+            while (logStream.hasNext()) {
+                this.progress.feed(logStream.next().content());
+            }
+        } catch (DockerException | RuntimeException e) {
+            LOGGER.warn("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Error while following the progress of the container: its end will only be waited.", e);
+        }
+    }
+
     private void removeVolumes(DockerClient docker) throws DockerException, InterruptedException {
         for (String volume : this.volumes) {
             docker.removeVolume(volume);
@@ -193,18 +406,28 @@ public class RunnablePipelineContainer implements Runnable {
      * @param remove if true, it will remove both the container and the volumes
      */
     public void killDockerContainer(DockerClient docker, boolean remove) {
+        this.killDockerContainer(docker, remove, "INTERRUPTED");
+    }
+
+    /**
+     * Same as {@link #killDockerContainer(DockerClient, boolean)} but the reason of the kill is given as status.
+     * The status is kept as the final one: the exit code of the killed container is not serialized.
+     */
+    public synchronized void killDockerContainer(DockerClient docker, boolean remove, String status) {
         if (this.containerId == null) {
             LOGGER.error("Error while trying to kill docker container: the container id is not available. Maybe the container is not started yet.");
         } else {
             LOGGER.info("Killing the docker container with id "+containerId+". Forced killing date: "+this.limitDateBeforeKilling);
             try {
                 docker.killContainer(containerId);
+                // the thread waiting for the container reads it once the kill is over, as this method holds the lock
+                this.killStatus = status;
+                this.poolManager.removeSubmittedRunnablePipelineContainer(this);
+                serialize(status);
                 if (remove) {
                     docker.removeContainer(containerId);
                     this.removeVolumes(docker);
                 }
-                this.poolManager.removeSubmittedRunnablePipelineContainer(this);
-                serialize("INTERRUPTED");
             } catch (DockerException|InterruptedException e) {
                 LOGGER.error("Error while killing docker container "+containerId, e);
             }
@@ -212,7 +435,15 @@ public class RunnablePipelineContainer implements Runnable {
 
     }
 
+    /**
+     * @return the last status serialized for the container, or null if it is not finished
+     */
+    public String getStatus() {
+        return this.status;
+    }
+
     public void serialize(String msg) {
+        this.status = msg;
         treatedBuildTracking.setStatus(msg);
         treatedBuildTracking.serialize();
     }
@@ -0,0 +1,64 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class learns how long each step of the pipeline usually lasts, from the progress events of the finished containers.
+ * It gives for each step a budget: a container spending more time than this budget in a step is considered as stalled.
+ *
+ * The budget is voluntarily generous: it is only given once enough durations have been observed for the step,
+ * and it is never lower than {@link #MIN_BUDGET}.
+ */
+public class StepBudgetEstimator {
+    public static final long NO_BUDGET = -1;
+    private static final long MIN_BUDGET = TimeUnit.MINUTES.toMillis(30);
+    private static final int MIN_OBSERVATIONS = 10;
+    private static final double SMOOTHING_FACTOR = 0.1;
+    private static final double BUDGET_FACTOR = 3.0;
+    private static final int NB_DEVIATIONS = 2;
+
+    private static final class StepDurations {
+        private int nbObservations;
+        private double mean; // in milliseconds
+        private double deviation; // mean absolute deviation, in milliseconds
+
+        private synchronized void record(long duration) {
+            if (this.nbObservations == 0) {
+                this.mean = duration;
+            } else {
+                this.deviation = SMOOTHING_FACTOR * Math.abs(duration - this.mean) + (1 - SMOOTHING_FACTOR) * this.deviation;
+                this.mean = SMOOTHING_FACTOR * duration + (1 - SMOOTHING_FACTOR) * this.mean;
+            }
+            this.nbObservations++;
+        }
+
+        private synchronized long getBudget() {
+            if (this.nbObservations < MIN_OBSERVATIONS) {
+                return NO_BUDGET;
+            }
+            return Math.max(MIN_BUDGET, (long) (BUDGET_FACTOR * (this.mean + NB_DEVIATIONS * this.deviation)));
+        }
+    }
+
+    private Map<String, StepDurations> durations = new ConcurrentHashMap<>();
+
+    /**
+     * @param duration the duration of the step in milliseconds
+     */
+    public void record(String stepName, long duration) {
+        this.durations.computeIfAbsent(stepName, name -> new StepDurations()).record(duration);
+    }
+
+    /**
+     * @return the maximum time in milliseconds a container should spend in the given step, or {@link #NO_BUDGET} if not enough is known about the step
+     */
+    public long getBudget(String stepName) {
+        StepDurations stepDurations = this.durations.get(stepName);
+        if (stepDurations == null) {
+            return NO_BUDGET;
+        }
+        return stepDurations.getBudget();
+    }
+}
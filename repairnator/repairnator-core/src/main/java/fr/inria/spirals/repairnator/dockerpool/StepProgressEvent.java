@@ -0,0 +1,79 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An event emitted by the pipeline each time a step starts or ends.
+ * The events are printed in the standard output of the pipeline, so that the docker pool can follow them
+ * through the logs of the container, whatever the format given by the logger.
+ */
+public class StepProgressEvent {
+    public static final String MARKER = "[STEP PROGRESS]";
+    public static final String STATUS_START = "START";
+
+    private static final Pattern EVENT_PATTERN = Pattern.compile(Pattern.quote(MARKER) + " step=(\\S+) status=(\\S+) elapsed=(\\d+)");
+
+    private String stepName;
+    private String status;
+    private int elapsed; // in seconds
+
+    /**
+     * @param stepName the name of the step
+     * @param status {@link #STATUS_START} when the step starts, else the status of the finished step
+     * @param elapsed the duration of the step in seconds when it is finished
+     */
+    public StepProgressEvent(String stepName, String status, int elapsed) {
+        this.stepName = stepName;
+        this.status = status;
+        this.elapsed = elapsed;
+    }
+
+    public static StepProgressEvent start(String stepName) {
+        return new StepProgressEvent(stepName, STATUS_START, 0);
+    }
+
+    public String getStepName() {
+        return stepName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getElapsed() {
+        return elapsed;
+    }
+
+    public boolean isStart() {
+        return STATUS_START.equals(this.status);
+    }
+
+    /**
+     * @return the event in the format recognized by {@link #parse(String)}
+     */
+    public String toLogMessage() {
+        return MARKER + " step=" + this.stepName.replaceAll("\\s", "_") + " status=" + this.status + " elapsed=" + this.elapsed;
+    }
+
+    /**
+     * Retrieve an event from a line of the container logs.
+     *
+     * @return the event or null if the line does not contain any
+     */
+    public static StepProgressEvent parse(String line) {
+        if (line == null || !line.contains(MARKER)) {
+            return null;
+        }
+        Matcher matcher = EVENT_PATTERN.matcher(line);
+        if (!matcher.find()) {
+            return null;
+        }
+        return new StepProgressEvent(matcher.group(1), matcher.group(2), Integer.parseInt(matcher.group(3)));
+    }
+
+    @Override
+    public String toString() {
+        return this.toLogMessage();
+    }
+}
@@ -0,0 +1,99 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import fr.inria.spirals.repairnator.InputBuildId;
+import fr.inria.spirals.repairnator.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class defines the protocol used to give a build to a warm container.
+ * The docker pool and the pipeline share a directory: the pipeline creates a ready file when it is initialized,
+ * then the docker pool atomically writes the build id file that the pipeline is waiting for.
+ */
+public class WarmContainerHandoff {
+    public static final String READY_FILENAME = "ready";
+    public static final String BUILD_ID_FILENAME = "buildid";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private File handoffDirectory;
+
+    public WarmContainerHandoff(File handoffDirectory) {
+        this.handoffDirectory = handoffDirectory;
+    }
+
+    public File getHandoffDirectory() {
+        return handoffDirectory;
+    }
+
+    public boolean isReady() {
+        return new File(this.handoffDirectory, READY_FILENAME).exists();
+    }
+
+    public void markReady() throws IOException {
+        this.writeAtomically(READY_FILENAME, Long.toString(System.currentTimeMillis()));
+    }
+
+    public boolean hasBuild() {
+        return new File(this.handoffDirectory, BUILD_ID_FILENAME).exists();
+    }
+
+    /**
+     * Give the build to the container: the file is written under a temporary name and then renamed,
+     * so the pipeline never reads a partial content.
+     */
+    public void submitBuild(InputBuildId inputBuildId) throws IOException {
+        String content = Long.toString(inputBuildId.getBuggyBuildId());
+        if (inputBuildId.getPatchedBuildId() != InputBuildId.NO_PATCH) {
+            content += Utils.COMMA + Long.toString(inputBuildId.getPatchedBuildId());
+        }
+        this.writeAtomically(BUILD_ID_FILENAME, content);
+    }
+
+    /**
+     * Read and consume the build given to the container.
+     * @return null if no build has been given yet
+     */
+    public InputBuildId takeBuild() throws IOException {
+        File buildIdFile = new File(this.handoffDirectory, BUILD_ID_FILENAME);
+        if (!buildIdFile.exists()) {
+            return null;
+        }
+
+        String content = new String(Files.readAllBytes(buildIdFile.toPath()), StandardCharsets.UTF_8).trim();
+        Files.delete(buildIdFile.toPath());
+
+        String[] buildIds = content.split(Utils.COMMA + "");
+        long buggyBuildId = Long.parseLong(buildIds[0]);
+        if (buildIds.length > 1) {
+            return new InputBuildId(buggyBuildId, Long.parseLong(buildIds[1]));
+        } else {
+            return new InputBuildId(buggyBuildId);
+        }
+    }
+
+    /**
+     * Remove the handoff directory and its content, ignoring errors.
+     */
+    public void delete() {
+        File[] files = this.handoffDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.handoffDirectory.delete();
+    }
+
+    private void writeAtomically(String filename, String content) throws IOException {
+        if (!this.handoffDirectory.exists() && !this.handoffDirectory.mkdirs()) {
+            throw new IOException("Cannot create the handoff directory " + this.handoffDirectory.getPath());
+        }
+        File tmpFile = new File(this.handoffDirectory, filename + TMP_SUFFIX);
+        Files.write(tmpFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpFile.toPath(), new File(this.handoffDirectory, filename).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,272 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ContainerConfig;
+import com.spotify.docker.client.messages.ContainerCreation;
+import com.spotify.docker.client.messages.ContainerInfo;
+import com.spotify.docker.client.messages.HostConfig;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.utils.DateUtils;
+import fr.inria.spirals.repairnator.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class maintains a pool of pipeline containers which are already started and initialized.
+ * Each of them waits for a build id in a directory shared with the host (see {@link WarmContainerHandoff}):
+ * giving a build to such a container avoids the creation of the container, the JVM startup and the pipeline initialization.
+ * The pool is refilled in background each time a container is taken.
+ */
+public class WarmContainerPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmContainerPool.class);
+    public static final String HANDOFF_DIRECTORY_IN_CONTAINER = "/var/warm";
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * A started container waiting for a build.
+     */
+    public final class WarmContainer {
+        private final String containerId;
+        private final String containerName;
+        private final String imageId;
+        private final Set<String> volumes;
+        private final WarmContainerHandoff handoff;
+
+        private WarmContainer(String containerId, String containerName, String imageId, Set<String> volumes, WarmContainerHandoff handoff) {
+            this.containerId = containerId;
+            this.containerName = containerName;
+            this.imageId = imageId;
+            this.volumes = volumes;
+            this.handoff = handoff;
+        }
+
+        public String getContainerId() {
+            return containerId;
+        }
+
+        public String getContainerName() {
+            return containerName;
+        }
+
+        public String getImageId() {
+            return imageId;
+        }
+
+        public Set<String> getVolumes() {
+            return volumes;
+        }
+
+        public WarmContainerHandoff getHandoff() {
+            return handoff;
+        }
+
+        /**
+         * Remove the handoff directory of the container once the build has been processed.
+         */
+        public void release() {
+            this.handoff.delete();
+        }
+    }
+
+    private DockerPoolManager poolManager;
+    private String imageId;
+    private int size;
+    private File rootDirectory;
+
+    // containers are appended when started and taken in the same order: the oldest ones are the most likely to be ready
+    private Deque<WarmContainer> idleContainers = new ConcurrentLinkedDeque<>();
+    private AtomicInteger nbStartingContainers = new AtomicInteger();
+    private ExecutorService refillExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * @param poolManager the manager of the pool of running containers
+     * @param imageId the docker image to use for the warm containers
+     * @param size the number of idle containers to maintain
+     * @param rootDirectory the host directory in which the handoff directories of the containers are created
+     */
+    public WarmContainerPool(DockerPoolManager poolManager, String imageId, int size, File rootDirectory) {
+        this.poolManager = poolManager;
+        this.imageId = imageId;
+        this.size = size;
+        this.rootDirectory = rootDirectory;
+    }
+
+    public int getNbIdleContainers() {
+        return this.idleContainers.size();
+    }
+
+    /**
+     * Start filling the pool in background.
+     */
+    public void start() {
+        LOGGER.info("Start a pool of " + this.size + " warm containers with handoff directories in " + this.rootDirectory.getPath());
+        this.refill();
+    }
+
+    /**
+     * Change the image used by the pool: idle containers using the former image are discarded.
+     */
+    public synchronized void setImageId(String imageId) {
+        if (imageId != null && !imageId.equals(this.imageId)) {
+            LOGGER.info("Docker image changed: warm containers will be recreated.");
+            this.imageId = imageId;
+            this.discardIdleContainers();
+            this.refill();
+        }
+    }
+
+    /**
+     * Take a warm container ready to receive a build.
+     * @return null if no container is ready: the caller should then create a new container as usual
+     */
+    public synchronized WarmContainer poll(String imageId) {
+        WarmContainer result = null;
+        DockerClient docker = this.poolManager.getDockerClient();
+
+        Iterator<WarmContainer> iterator = this.idleContainers.iterator();
+        while (result == null && iterator.hasNext()) {
+            WarmContainer warmContainer = iterator.next();
+            if (!warmContainer.getImageId().equals(imageId)) {
+                continue;
+            }
+            if (!warmContainer.getHandoff().isReady()) {
+                // the containers are ordered by starting date: the next ones are not ready either
+                break;
+            }
+            iterator.remove();
+
+            if (this.isRunning(docker, warmContainer)) {
+                result = warmContainer;
+            } else {
+                LOGGER.warn("Warm container " + warmContainer.getContainerName() + " is not running anymore: it is discarded.");
+                this.removeContainer(docker, warmContainer);
+            }
+        }
+
+        this.refill();
+        return result;
+    }
+
+    /**
+     * Kill and remove a container taken from the pool which did not receive its build.
+     */
+    public void discard(WarmContainer warmContainer) {
+        this.removeContainer(this.poolManager.getDockerClient(), warmContainer);
+    }
+
+    public void shutdown() {
+        this.refillExecutor.shutdownNow();
+        this.discardIdleContainers();
+    }
+
+    private boolean isRunning(DockerClient docker, WarmContainer warmContainer) {
+        try {
+            ContainerInfo containerInfo = docker.inspectContainer(warmContainer.getContainerId());
+            return containerInfo.state().running();
+        } catch (DockerException | InterruptedException e) {
+            LOGGER.error("Error while inspecting warm container " + warmContainer.getContainerName(), e);
+            return false;
+        }
+    }
+
+    private void discardIdleContainers() {
+        DockerClient docker = this.poolManager.getDockerClient();
+        WarmContainer warmContainer;
+        while ((warmContainer = this.idleContainers.poll()) != null) {
+            this.removeContainer(docker, warmContainer);
+        }
+    }
+
+    private void removeContainer(DockerClient docker, WarmContainer warmContainer) {
+        try {
+            docker.killContainer(warmContainer.getContainerId());
+        } catch (DockerException | InterruptedException e) {
+            LOGGER.debug("Error while killing warm container " + warmContainer.getContainerName() + " (maybe it was already stopped)", e);
+        }
+        try {
+            docker.removeContainer(warmContainer.getContainerId());
+            for (String volume : warmContainer.getVolumes()) {
+                docker.removeVolume(volume);
+            }
+        } catch (DockerException | InterruptedException e) {
+            LOGGER.error("Error while removing warm container " + warmContainer.getContainerName(), e);
+        }
+        warmContainer.release();
+    }
+
+    private void refill() {
+        int missing = this.size - this.idleContainers.size() - this.nbStartingContainers.get();
+        for (int i = 0; i < missing; i++) {
+            this.nbStartingContainers.incrementAndGet();
+            this.refillExecutor.submit(() -> {
+                try {
+                    WarmContainer warmContainer = this.createWarmContainer(this.imageId);
+                    if (warmContainer != null) {
+                        this.idleContainers.add(warmContainer);
+                    }
+                } finally {
+                    this.nbStartingContainers.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private WarmContainer createWarmContainer(String imageId) {
+        RepairnatorConfig repairnatorConfig = RepairnatorConfig.getInstance();
+        DockerClient docker = this.poolManager.getDockerClient();
+        String containerName = "docker_pipeline_warm" + DateUtils.formatFilenameDate(new Date()) + "_" + counter.incrementAndGet();
+
+        File handoffDirectory = new File(this.rootDirectory, containerName);
+        if (!handoffDirectory.mkdirs()) {
+            LOGGER.error("Error while creating the handoff directory " + handoffDirectory.getPath());
+            return null;
+        }
+        WarmContainerHandoff handoff = new WarmContainerHandoff(handoffDirectory);
+
+        List<String> envValues = new ArrayList<>();
+        envValues.add("LISTEN_MODE=WARM");
+        envValues.add("HANDOFF_DIR=" + HANDOFF_DIRECTORY_IN_CONTAINER);
+        envValues.addAll(RunnablePipelineContainer.computeCommonEnvValues(repairnatorConfig, containerName));
+
+        Map<String,String> labels = new HashMap<>();
+        labels.put("name", containerName);
+
+        HostConfig hostConfig = RunnablePipelineContainer.appendCommonBinds(repairnatorConfig, HostConfig.builder())
+                .appendBinds(handoffDirectory.getAbsolutePath() + ":" + HANDOFF_DIRECTORY_IN_CONTAINER)
+                .build();
+
+        ContainerConfig containerConfig = ContainerConfig.builder()
+                .image(imageId)
+                .env(envValues)
+                .hostname(Utils.getHostname())
+                .hostConfig(hostConfig)
+                .labels(labels)
+                .build();
+
+        try {
+            ContainerCreation container = docker.createContainer(containerConfig);
+            docker.startContainer(container.id());
+            LOGGER.debug("Warm container started: " + containerName);
+            return new WarmContainer(container.id(), containerName, imageId, containerConfig.volumeNames(), handoff);
+        } catch (DockerException | InterruptedException e) {
+            LOGGER.error("Error while creating warm container " + containerName, e);
+            handoff.delete();
+            return null;
+        }
+    }
+}
@@ -10,5 +10,7 @@ public enum PushState {
     PATCH_COMMITTED, PATCH_NOT_COMMITTED,
     PROCESS_END_COMMITTED, PROCESS_END_NOT_COMMITTED,
     CHANGED_TESTS_COMMITTED, CHANGED_TESTS_NOT_COMMITTED,
-    REPO_PUSHED, REPO_NOT_PUSHED
+    REPO_PUSHED, REPO_NOT_PUSHED,
+    // the branch is kept in the push outbox, to be pushed by a later flush
+    REPO_PUSH_QUEUED
 }
@@ -0,0 +1,70 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import fr.inria.spirals.repairnator.InputBuildId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestBuildJournal {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testFinishedBuildsAreKeptBetweenRuns() throws IOException {
+        File journalFile = new File(tmpFolder.getRoot(), "journal.txt");
+
+        BuildJournal journal = new BuildJournal(journalFile);
+        journal.record(new InputBuildId(1), "TREATED");
+        journal.record(new InputBuildId(2), "ERROR:CODE1");
+        journal.record(new InputBuildId(3), "INTERRUPTED");
+        journal.record(new InputBuildId(4, 5), "TREATED");
+        // docker could not run the container: the build is run again
+        journal.record(new InputBuildId(6), "ERROR");
+
+        BuildJournal resumedJournal = new BuildJournal(journalFile);
+        assertEquals(3, resumedJournal.getNbFinishedBuilds());
+        assertTrue(resumedJournal.isFinished(new InputBuildId(1)));
+        assertTrue(resumedJournal.isFinished(new InputBuildId(2)));
+        assertFalse(resumedJournal.isFinished(new InputBuildId(3)));
+        assertTrue(resumedJournal.isFinished(new InputBuildId(4, 5)));
+        assertFalse(resumedJournal.isFinished(new InputBuildId(4)));
+        assertFalse(resumedJournal.isFinished(new InputBuildId(6)));
+    }
+
+    @Test
+    public void testBuildIdsAreStreamed() throws IOException {
+        File inputFile = tmpFolder.newFile("builds.txt");
+        Files.write(inputFile.toPath(), Arrays.asList("42,43", "", "  44,45 ", "46"), StandardCharsets.UTF_8);
+
+        assertEquals(3, BuildIdReader.countBuilds(inputFile));
+
+        List<InputBuildId> inputBuildIds = new ArrayList<>();
+        try (BuildIdReader reader = new BuildIdReader(inputFile, true)) {
+            reader.forEachRemaining(inputBuildIds::add);
+        }
+        // the last build has no patched build: it is skipped in BEARS mode
+        assertEquals(2, inputBuildIds.size());
+        assertEquals(44, inputBuildIds.get(1).getBuggyBuildId());
+        assertEquals(45, inputBuildIds.get(1).getPatchedBuildId());
+
+        try (BuildIdReader reader = new BuildIdReader(inputFile, false)) {
+            assertEquals(42, reader.next().getBuggyBuildId());
+            assertEquals(44, reader.next().getBuggyBuildId());
+            assertEquals(46, reader.next().getBuggyBuildId());
+            assertFalse(reader.hasNext());
+        }
+    }
+}
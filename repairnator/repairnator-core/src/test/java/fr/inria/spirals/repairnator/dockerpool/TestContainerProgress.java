@@ -0,0 +1,69 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestContainerProgress {
+
+    @Test
+    public void testEventsAreFoundInSplitLogLines() {
+        ContainerProgress progress = new ContainerProgress();
+        String logs = "10:42:00.123 [main] INFO  f.i.s.r.p.step.CloneRepository - " + StepProgressEvent.start("CloneRepository").toLogMessage() + " \n"
+                + "10:42:03.456 [main] INFO  f.i.s.r.p.step.CloneRepository - Cloning repository\n"
+                + "10:42:05.789 [main] INFO  f.i.s.r.p.step.CloneRepository - " + new StepProgressEvent("CloneRepository", "SUCCESS", 5).toLogMessage() + " \n"
+                + "10:42:05.790 [main] INFO  f.i.s.r.p.step.BuildProject - " + StepProgressEvent.start("BuildProject").toLogMessage() + " \n";
+        byte[] bytes = logs.getBytes(StandardCharsets.UTF_8);
+
+        int middle = logs.indexOf("status=SUCCESS");
+        progress.feed(ByteBuffer.wrap(bytes, 0, middle));
+        assertEquals("CloneRepository", progress.getCurrentStep());
+        assertTrue(progress.getFinishedSteps().isEmpty());
+
+        progress.feed(ByteBuffer.wrap(bytes, middle, bytes.length - middle));
+        assertEquals("BuildProject", progress.getCurrentStep());
+        assertEquals(1, progress.getFinishedSteps().size());
+        StepProgressEvent finished = progress.getFinishedSteps().get(0);
+        assertEquals("CloneRepository", finished.getStepName());
+        assertEquals("SUCCESS", finished.getStatus());
+        assertEquals(5, finished.getElapsed());
+    }
+
+    @Test
+    public void testElapsedTimeOfCurrentStep() {
+        ContainerProgress progress = new ContainerProgress();
+        assertEquals(0, progress.getCurrentStepElapsedTime(1000));
+
+        progress.onEvent(StepProgressEvent.start("TestProject"), 1000);
+        assertEquals(4000, progress.getCurrentStepElapsedTime(5000));
+
+        progress.onEvent(new StepProgressEvent("TestProject", "FAILURE", 4), 5000);
+        assertNull(progress.getCurrentStep());
+    }
+
+    @Test
+    public void testStepBudgetIsGivenAfterEnoughObservations() {
+        StepBudgetEstimator estimator = new StepBudgetEstimator();
+        assertEquals(StepBudgetEstimator.NO_BUDGET, estimator.getBudget("BuildProject"));
+
+        for (int i = 0; i < 9; i++) {
+            estimator.record("BuildProject", TimeUnit.MINUTES.toMillis(20));
+        }
+        assertEquals(StepBudgetEstimator.NO_BUDGET, estimator.getBudget("BuildProject"));
+
+        estimator.record("BuildProject", TimeUnit.MINUTES.toMillis(20));
+        assertEquals(TimeUnit.MINUTES.toMillis(60), estimator.getBudget("BuildProject"));
+
+        // short steps still get a minimal budget
+        for (int i = 0; i < 10; i++) {
+            estimator.record("CloneRepository", TimeUnit.SECONDS.toMillis(10));
+        }
+        assertEquals(TimeUnit.MINUTES.toMillis(30), estimator.getBudget("CloneRepository"));
+    }
+}
@@ -0,0 +1,59 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestHashedTimingWheel {
+
+    @Test
+    public void testElementsExpireAtTheirDeadline() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(10, 4, 0);
+        wheel.schedule("first", 25);
+        wheel.schedule("second", 55);
+        assertEquals(2, wheel.size());
+
+        assertTrue(wheel.advance(19).isEmpty());
+
+        List<String> expired = wheel.advance(30);
+        assertEquals(1, expired.size());
+        assertEquals("first", expired.get(0));
+
+        // the second deadline is more than a full turn away from the start: it should not expire on the first pass of its bucket
+        assertTrue(wheel.advance(49).isEmpty());
+        expired = wheel.advance(50);
+        assertEquals(1, expired.size());
+        assertEquals("second", expired.get(0));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testCancelledElementsNeverExpire() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(10, 4, 0);
+        HashedTimingWheel.Timeout<String> timeout = wheel.schedule("cancelled", 15);
+        wheel.schedule("kept", 15);
+
+        assertTrue(wheel.cancel(timeout));
+        assertFalse(wheel.cancel(timeout));
+        assertEquals(1, wheel.size());
+
+        List<String> expired = wheel.advance(100);
+        assertEquals(1, expired.size());
+        assertEquals("kept", expired.get(0));
+    }
+
+    @Test
+    public void testLongIdlePeriodExpiresEverything() {
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(10, 4, 0);
+        for (int i = 0; i < 20; i++) {
+            wheel.schedule(i, i * 10);
+        }
+
+        assertEquals(20, wheel.advance(1000).size());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,91 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestResourceAwareScheduler {
+
+    private static final long GB = 1024L * 1024L * 1024L;
+
+    @Test
+    public void testContainersAreAdmittedWithinHostResources() throws InterruptedException {
+        ResourceAwareScheduler scheduler = new ResourceAwareScheduler(4, 8 * GB);
+        ContainerFootprint heavy = new ContainerFootprint(2, 5 * GB);
+        ContainerFootprint light = new ContainerFootprint(1, 1 * GB);
+
+        scheduler.acquire(heavy);
+        scheduler.acquire(light);
+        scheduler.acquire(light);
+        assertEquals(3, scheduler.getNbAdmitted());
+
+        // a second heavy build does not fit in memory: it has to wait for the first one
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.acquire(heavy);
+                admitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+
+        assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, scheduler.getNbWaiting());
+
+        scheduler.release(heavy);
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        assertEquals(3, scheduler.getNbAdmitted());
+        thread.join();
+    }
+
+    @Test
+    public void testOversizedContainerIsAdmittedAlone() throws InterruptedException {
+        ResourceAwareScheduler scheduler = new ResourceAwareScheduler(2, 2 * GB);
+        scheduler.acquire(new ContainerFootprint(4, 16 * GB));
+        assertEquals(1, scheduler.getNbAdmitted());
+    }
+
+    @Test
+    public void testCpuLimitLeavesRoomAboveEstimate() {
+        ResourceAwareScheduler scheduler = new ResourceAwareScheduler(8, 16 * GB);
+        // with the default footprint of one core, a build using two cores can be observed and learned
+        assertEquals(200000, scheduler.getCpuQuota(new ContainerFootprint(1, GB)));
+        assertEquals(300000, scheduler.getCpuQuota(new ContainerFootprint(1.5, GB)));
+        // the limit is never larger than the host
+        assertEquals(800000, scheduler.getCpuQuota(new ContainerFootprint(6, GB)));
+
+        FootprintEstimator estimator = new FootprintEstimator(null);
+        estimator.record("repairnator/repairnator", new ContainerFootprint(2, GB));
+        assertTrue(estimator.estimate("repairnator/repairnator").getCpus() > ContainerFootprint.DEFAULT.getCpus());
+    }
+
+    @Test
+    public void testMemoryLimitIsNeverBelowDefault() {
+        ResourceAwareScheduler scheduler = new ResourceAwareScheduler(8, 16 * GB);
+        long defaultLimit = scheduler.getMemoryLimit(ContainerFootprint.DEFAULT);
+        assertEquals(2 * ContainerFootprint.DEFAULT.getMemory(), defaultLimit);
+        // a small estimate, for instance learned from builds which failed early, does not get a smaller limit
+        assertEquals(defaultLimit, scheduler.getMemoryLimit(new ContainerFootprint(1, GB / 4)));
+        assertEquals(2 * 3 * GB, scheduler.getMemoryLimit(new ContainerFootprint(1, 3 * GB)));
+    }
+
+    @Test
+    public void testFootprintIsLearnedFromObservations() {
+        FootprintEstimator estimator = new FootprintEstimator(null);
+        assertEquals(ContainerFootprint.DEFAULT, estimator.estimate("repairnator/repairnator"));
+
+        estimator.record("repairnator/repairnator", new ContainerFootprint(2, 4 * GB));
+        assertEquals(4 * GB, estimator.estimate("repairnator/repairnator").getMemory());
+
+        estimator.record("repairnator/repairnator", new ContainerFootprint(1, 2 * GB));
+        assertEquals(3 * GB, estimator.estimate("repairnator/repairnator").getMemory());
+        assertEquals(1.5, estimator.estimate("repairnator/repairnator").getCpus(), 0.001);
+    }
+}
@@ -0,0 +1,90 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ContainerConfig;
+import com.spotify.docker.client.messages.ContainerCreation;
+import com.spotify.docker.client.messages.ContainerExit;
+import fr.inria.spirals.repairnator.InputBuildId;
+import fr.inria.spirals.repairnator.dockerpool.serializer.TreatedBuildTracking;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestRunnablePipelineContainer {
+
+    @Test
+    public void testStallReasonIsKeptAfterKill() throws Exception {
+        DockerClient docker = mock(DockerClient.class);
+        DockerPoolManager poolManager = new DockerPoolManager() {
+            @Override
+            public DockerClient getDockerClient() {
+                return docker;
+            }
+        };
+        RunnablePipelineContainer container = new RunnablePipelineContainer(poolManager, "image", new InputBuildId(42), "/tmp",
+                new TreatedBuildTracking(new ArrayList<>(), "run", 42L));
+
+        ContainerCreation creation = mock(ContainerCreation.class);
+        when(creation.id()).thenReturn("container");
+        when(docker.createContainer(any(ContainerConfig.class))).thenReturn(creation);
+        when(docker.logs(anyString(), Matchers.<DockerClient.LogsParam>anyVararg())).thenThrow(new DockerException("no logs"));
+
+        // the container exits with the code given by docker kill
+        ContainerExit exit = mock(ContainerExit.class);
+        when(exit.statusCode()).thenReturn(137L);
+        when(docker.waitContainer("container")).thenAnswer(invocation -> {
+            // the watchdog kills the stalled container while the pool waits for it
+            Thread watchdog = new Thread(() -> container.killDockerContainer(docker, false, "STALLED:BuildProject"));
+            watchdog.start();
+            watchdog.join();
+            return exit;
+        });
+
+        container.run();
+
+        verify(docker).killContainer("container");
+        assertEquals("STALLED:BuildProject", container.getStatus());
+    }
+
+    @Test
+    public void testWarmContainerIsTakenWhenTheBuildRuns() throws Exception {
+        DockerClient docker = mock(DockerClient.class);
+        WarmContainerPool warmContainerPool = mock(WarmContainerPool.class);
+        DockerPoolManager poolManager = new DockerPoolManager() {
+            @Override
+            public DockerClient getDockerClient() {
+                return docker;
+            }
+        };
+        poolManager.setWarmContainerPool(warmContainerPool);
+        RunnablePipelineContainer container = new RunnablePipelineContainer(poolManager, "image", new InputBuildId(42), "/tmp",
+                new TreatedBuildTracking(new ArrayList<>(), "run", 42L));
+        // a queued build does not hold a warm container
+        verify(warmContainerPool, times(0)).poll(anyString());
+
+        ContainerCreation creation = mock(ContainerCreation.class);
+        when(creation.id()).thenReturn("container");
+        when(docker.createContainer(any(ContainerConfig.class))).thenReturn(creation);
+        when(docker.logs(anyString(), Matchers.<DockerClient.LogsParam>anyVararg())).thenThrow(new DockerException("no logs"));
+        ContainerExit exit = mock(ContainerExit.class);
+        when(exit.statusCode()).thenReturn(0L);
+        when(docker.waitContainer("container")).thenReturn(exit);
+
+        // no warm container is ready: a new container is created
+        container.run();
+
+        verify(warmContainerPool).poll("image");
+        verify(docker).createContainer(any(ContainerConfig.class));
+        assertEquals("TREATED", container.getStatus());
+    }
+}
@@ -0,0 +1,53 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import fr.inria.spirals.repairnator.InputBuildId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestWarmContainerHandoff {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testBuildIsTakenOnlyOnce() throws IOException {
+        File handoffDirectory = new File(tmpFolder.getRoot(), "container");
+        WarmContainerHandoff poolSide = new WarmContainerHandoff(handoffDirectory);
+        WarmContainerHandoff pipelineSide = new WarmContainerHandoff(handoffDirectory);
+
+        assertFalse(poolSide.isReady());
+        pipelineSide.markReady();
+        assertTrue(poolSide.isReady());
+
+        assertNull(pipelineSide.takeBuild());
+        poolSide.submitBuild(new InputBuildId(42));
+        assertTrue(pipelineSide.hasBuild());
+
+        InputBuildId inputBuildId = pipelineSide.takeBuild();
+        assertEquals(42, inputBuildId.getBuggyBuildId());
+        assertEquals(InputBuildId.NO_PATCH, inputBuildId.getPatchedBuildId());
+        assertNull(pipelineSide.takeBuild());
+
+        poolSide.delete();
+        assertFalse(handoffDirectory.exists());
+    }
+
+    @Test
+    public void testBuildPairIsTransmitted() throws IOException {
+        WarmContainerHandoff handoff = new WarmContainerHandoff(tmpFolder.getRoot());
+        handoff.submitBuild(new InputBuildId(42, 43));
+
+        InputBuildId inputBuildId = handoff.takeBuild();
+        assertEquals(42, inputBuildId.getBuggyBuildId());
+        assertEquals(43, inputBuildId.getPatchedBuildId());
+    }
+}
@@ -8,6 +8,7 @@ import com.martiansoftware.jsap.FlaggedOption;
 import com.martiansoftware.jsap.JSAP;
 import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Switch;
 import com.martiansoftware.jsap.stringparsers.EnumeratedStringParser;
 import com.martiansoftware.jsap.stringparsers.FileStringParser;
 import fr.inria.jtravis.JTravis;
@@ -24,6 +25,7 @@ import fr.inria.spirals.repairnator.notifier.ErrorNotifier;
 import fr.inria.spirals.repairnator.notifier.PatchNotifier;
 import fr.inria.spirals.repairnator.notifier.PatchNotifierImpl;
 import fr.inria.spirals.repairnator.notifier.engines.NotifierEngine;
+import fr.inria.spirals.repairnator.process.files.WorkspaceReclaimer;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector4Bears;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector4Checkstyle;
@@ -57,12 +59,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is the main entry point for the repairnator pipeline.
  */
 public class Launcher {
     private static Logger LOGGER = LoggerFactory.getLogger(Launcher.class);
+    private static final long WORKSPACE_DELETION_TIMEOUT = 10; // in minutes
     private static Listener listener = null;
     private BuildToBeInspected buildToBeInspected;
     private List<SerializerEngine> engines;
@@ -196,9 +200,118 @@ public class Launcher {
         opt2.setLongFlag("listenermode");
         opt2.setStringParser(JSAP.STRING_PARSER);
         opt2.setDefault(LISTENER_MODE.NOOP.name());
-        opt2.setHelp("Possible string values KUBERNETES,NOOP . KUBERNETES is for running ActiveMQListener and "+LISTENER_MODE.NOOP.name()+" is for NoopRunner.");
+        opt2.setHelp("Possible string values KUBERNETES,WARM,NOOP . KUBERNETES is for running ActiveMQListener, WARM is for waiting a build id in the handoff directory and "+LISTENER_MODE.NOOP.name()+" is for NoopRunner.");
         jsap.registerParameter(opt2);
 
+        opt2 = new FlaggedOption("handoffdir");
+        opt2.setLongFlag("handoffdir");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setDefault("/var/warm");
+        opt2.setHelp("Directory watched in WARM listener mode: the build id to process is written there by the docker pool.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("clonecache");
+        opt2.setLongFlag("clonecache");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Directory of the bare mirrors shared between pipelines: when given, the repositories are cloned from their mirror.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("clonecachesize");
+        opt2.setLongFlag("clonecachesize");
+        opt2.setStringParser(JSAP.LONG_PARSER);
+        opt2.setDefault("10240");
+        opt2.setHelp("Maximum size of the clone cache in MB: the least recently used mirrors are removed above it.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("clonedepth");
+        opt2.setLongFlag("clonedepth");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Number of commits to clone for each branch, the history being deepened when needed (0 to clone the whole history). Not used with the clone cache.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("submodulejobs");
+        opt2.setLongFlag("submodulejobs");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("4");
+        opt2.setHelp("Number of git submodules fetched at the same time.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("pushoutbox");
+        opt2.setLongFlag("pushoutbox");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Directory of a local repository shared by the pipelines, used to aggregate the pushes of their branches to the remote repository.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("mavencache");
+        opt2.setLongFlag("mavencache");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Directory of the Maven artifacts shared between pipelines: when given, the builds get the artifacts from it before downloading them.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("mavencachesize");
+        opt2.setLongFlag("mavencachesize");
+        opt2.setStringParser(JSAP.LONG_PARSER);
+        opt2.setDefault("10240");
+        opt2.setHelp("Maximum size of the Maven cache in MB: the least recently used artifacts are removed above it.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("classpathcache");
+        opt2.setLongFlag("classpathcache");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Directory of the classpaths shared between pipelines: when given, the classpath of a module is not computed again with Maven if its dependencies did not change.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("maventimeout");
+        opt2.setLongFlag("maventimeout");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Maximum duration of a Maven goal in minutes: the processes of the goal are killed after it. No limit if 0.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("mavenmemorylimit");
+        opt2.setLongFlag("mavenmemorylimit");
+        opt2.setStringParser(JSAP.LONG_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Maximum memory in MB used by the processes of a Maven goal: they are killed above it. No limit if 0.");
+        jsap.registerParameter(opt2);
+
+        Switch sw = new Switch("warmmaven");
+        sw.setLongFlag("warmmaven");
+        sw.setDefault("false");
+        sw.setHelp("Run the Maven goals in a warm Maven process kept alive for the whole build, instead of a new mvn process for each goal.");
+        jsap.registerParameter(sw);
+
+        sw = new Switch("fusedmaven");
+        sw.setLongFlag("fusedmaven");
+        sw.setDefault("false");
+        sw.setHelp("Build the project, run its tests and compute its classpath with a single Maven invocation.");
+        jsap.registerParameter(sw);
+
+        sw = new Switch("noprefetch");
+        sw.setLongFlag("noprefetch");
+        sw.setDefault("false");
+        sw.setHelp("Download the dependencies with the build, instead of prefetching them in background during the checkout.");
+        jsap.registerParameter(sw);
+
+        sw = new Switch("fullreactor");
+        sw.setLongFlag("fullreactor");
+        sw.setDefault("false");
+        sw.setHelp("Build and test the whole reactor of a multi-module project, instead of the failing modules and the modules they depend on.");
+        jsap.registerParameter(sw);
+
+        sw = new Switch("earlytestdecision");
+        sw.setLongFlag("earlytestdecision");
+        sw.setDefault("false");
+        sw.setHelp("Watch the test reports of the buggy build: stop the tests as soon as the tests which failed on Travis failed again, or lower the priority of the tests if none of them failed again. The results of the tests which did not run yet are then missing.");
+        jsap.registerParameter(sw);
+
+        sw = new Switch("reusecompiledoutputs");
+        sw.setLongFlag("reusecompiledoutputs");
+        sw.setDefault("false");
+        sw.setHelp("Keep the compiled classes of the last successful build: the next builds and the repair tools only recompile the source files which changed since then and the source files which refer to them.");
+        jsap.registerParameter(sw);
+
         opt2 = new FlaggedOption("activemqurl");
         opt2.setLongFlag("activemqurl");
         opt2.setStringParser(JSAP.STRING_PARSER);
@@ -281,6 +394,23 @@ public class Launcher {
         this.getConfig().setGithubUserEmail(LauncherUtils.getArgGithubUserEmail(arguments));
         this.getConfig().setGithubUserName(LauncherUtils.getArgGithubUserName(arguments));
         this.getConfig().setListenerMode(arguments.getString("listenermode"));
+        this.getConfig().setHandoffDirectory(arguments.getString("handoffdir"));
+        this.getConfig().setCloneCacheDirectory(arguments.getString("clonecache"));
+        this.getConfig().setCloneCacheSize(arguments.getLong("clonecachesize"));
+        this.getConfig().setCloneDepth(arguments.getInt("clonedepth"));
+        this.getConfig().setSubmoduleJobs(arguments.getInt("submodulejobs"));
+        this.getConfig().setPushOutboxDirectory(arguments.getString("pushoutbox"));
+        this.getConfig().setMavenCacheDirectory(arguments.getString("mavencache"));
+        this.getConfig().setMavenCacheSize(arguments.getLong("mavencachesize"));
+        this.getConfig().setClasspathCacheDirectory(arguments.getString("classpathcache"));
+        this.getConfig().setMavenTimeout(arguments.getInt("maventimeout"));
+        this.getConfig().setMavenMemoryLimit(arguments.getLong("mavenmemorylimit"));
+        this.getConfig().setWarmMaven(arguments.getBoolean("warmmaven"));
+        this.getConfig().setFusedMaven(arguments.getBoolean("fusedmaven"));
+        this.getConfig().setPrefetchDependencies(!arguments.getBoolean("noprefetch"));
+        this.getConfig().setScopedBuilds(!arguments.getBoolean("fullreactor"));
+        this.getConfig().setEarlyTestDecision(arguments.getBoolean("earlytestdecision"));
+        this.getConfig().setReuseCompiledOutputs(arguments.getBoolean("reusecompiledoutputs"));
         this.getConfig().setActiveMQUrl(arguments.getString("activemqurl"));
         this.getConfig().setActiveMQListenQueueName(arguments.getString("activemqlistenqueuename"));
 
@@ -476,6 +606,12 @@ public class Launcher {
     public static void main(String[] args) throws JSAPException {
         Launcher launcher = new Launcher(args);
         initProcess(launcher);
+
+        // the workspaces are deleted by a daemon thread, which would be stopped with the process
+        if (!WorkspaceReclaimer.getInstance().waitForDeletions(WORKSPACE_DELETION_TIMEOUT, TimeUnit.MINUTES)) {
+            LOGGER.warn("The workspaces have not been deleted in " + WORKSPACE_DELETION_TIMEOUT
+                    + " minutes: they are left in the trash, to be deleted by the next pipeline using it.");
+        }
     }
 
     public ProjectInspector getInspector() {
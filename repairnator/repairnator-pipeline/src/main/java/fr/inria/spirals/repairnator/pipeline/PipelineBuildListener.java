@@ -2,6 +2,7 @@ package fr.inria.spirals.repairnator.pipeline;
 
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.Listener;
+import fr.inria.spirals.repairnator.process.files.WorkspaceReclaimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,7 +79,7 @@ public class PipelineBuildListener implements Listener,MessageListener {
                 config.setBuildId(Integer.parseInt(messageText));
                 this.launcher.mainProcess();
             }
-            /* Delete the folder when done*/
+            /* Delete the folder when done, in background to be ready for the next build */
             this.deleteDir(messageText);
             this.deleteDir("workspace");
 
@@ -100,13 +101,7 @@ public class PipelineBuildListener implements Listener,MessageListener {
  
         }else{
  
-           try{
-               
-               this.delete(directory);
-            
-           }catch(IOException e){
-               e.printStackTrace();
-           }
+           WorkspaceReclaimer.getInstance().reclaim(directory);
         }
     }
 
@@ -0,0 +1,64 @@
+package fr.inria.spirals.repairnator.pipeline;
+
+import fr.inria.spirals.repairnator.InputBuildId;
+import fr.inria.spirals.repairnator.Listener;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.dockerpool.WarmContainerHandoff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This listener is used in pre-started docker containers: the pipeline is initialized
+ * and waits for the docker pool to write a build id in the handoff directory.
+ * Only one build is processed, then the process exits.
+ */
+public class WarmContainerListener implements Listener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmContainerListener.class);
+    private static final int POLL_DELAY = 100; // in milliseconds
+    private static final RepairnatorConfig config = RepairnatorConfig.getInstance();
+    private Launcher launcher;
+    private WarmContainerHandoff handoff;
+
+    public WarmContainerListener(Launcher launcher) {
+        this.launcher = launcher;
+        this.handoff = new WarmContainerHandoff(new File(config.getHandoffDirectory()));
+        LOGGER.warn("WARM MODE");
+    }
+
+    /**
+     * Wait for a build id in the handoff directory and run the pipeline on it.
+     */
+    public void runListenerServer() {
+        try {
+            this.handoff.markReady();
+            LOGGER.info("Pipeline is ready, waiting for a build id in " + this.handoff.getHandoffDirectory().getPath());
+
+            InputBuildId inputBuildId = this.handoff.takeBuild();
+            while (inputBuildId == null) {
+                Thread.sleep(POLL_DELAY);
+                inputBuildId = this.handoff.takeBuild();
+            }
+            this.submitBuild(inputBuildId);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading the build id from the handoff directory", e);
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for a build id.", e);
+        }
+    }
+
+    private void submitBuild(InputBuildId inputBuildId) {
+        LOGGER.info("A new buildId has arrived: " + inputBuildId.getBuggyBuildId());
+        config.setBuildId((int) inputBuildId.getBuggyBuildId());
+        if (inputBuildId.getPatchedBuildId() != InputBuildId.NO_PATCH) {
+            config.setNextBuildId((int) inputBuildId.getPatchedBuildId());
+        }
+        this.launcher.mainProcess();
+    }
+
+    public void submitBuild(String buildStr) {
+        this.submitBuild(new InputBuildId(Long.parseLong(buildStr)));
+    }
+}
@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -62,36 +64,126 @@ public class FileHelper {
             getLogger().debug("Target dir: " + targetDir.getPath());
 
             try {
-                FileUtils.copyDirectory(sourceDir, targetDir, new FileFilter() {
-                    @Override
-                    public boolean accept(File file) {
-                        for (String excludedFileName : excludedFileNames) {
-                            if (isToPerfectlyMatch) {
-                                String excludedFilePath = sourceDir.getPath() + "/" + excludedFileName;
-                                if (file.getPath().equals(excludedFilePath)) {
-                                    getLogger().debug("File not copied: " + file.getPath());
-                                    return false;
-                                }
-                            } else {
-                                if (file.getPath().contains(excludedFileName)) {
-                                    getLogger().debug("File not copied: " + file.getPath());
-                                    return false;
-                                }
-                            }
-                        }
-                        return true;
-                    }
-                });
+                FileUtils.copyDirectory(sourceDir, targetDir, createExclusionFilter(sourceDir, excludedFileNames, isToPerfectlyMatch));
+            } catch (IOException e) {
+                step.addStepError(
+                        "Error while copying files to prepare the git repository folder towards to push data.", e);
+            }
+        } else {
+            step.addStepError(
+                    "Error while copying files to prepare the git repository folder towards to push data: the source and/or target folders are null.");
+        }
+    }
+
+    /**
+     * Synchronize a directory with another one: it has the same result as
+     * {@link #copyDirectory(File, File, String[], boolean, AbstractStep)}, but
+     * only the files which changed since the last synchronization are written,
+     * and they are hardlinked to the source files instead of being copied when
+     * both directories are on the same file system.
+     *
+     * As they can be shared with the source directory, the files of the target
+     * directory must not be modified in place, but replaced.
+     *
+     * @return the number of bytes copied, without the linked files
+     */
+    public static long syncDirectory(File sourceDir, File targetDir, String[] excludedFileNames,
+            boolean isToPerfectlyMatch, AbstractStep step) {
+        getLogger().debug("Synchronizing files...");
+        if (sourceDir != null && targetDir != null) {
+            getLogger().debug("Source dir: " + sourceDir.getPath());
+            getLogger().debug("Target dir: " + targetDir.getPath());
+
+            long[] counters = new long[4]; // unchanged files, linked files, copied files, copied bytes
+            try {
+                syncDirectory(sourceDir, targetDir, createExclusionFilter(sourceDir, excludedFileNames, isToPerfectlyMatch), counters);
             } catch (IOException e) {
                 step.addStepError(
                         "Error while copying files to prepare the git repository folder towards to push data.", e);
             }
+            getLogger().info("Files synchronized in " + targetDir.getPath() + ": " + counters[0] + " unchanged, "
+                    + counters[1] + " linked, " + counters[2] + " copied (" + counters[3] + " bytes).");
+            return counters[3];
         } else {
             step.addStepError(
                     "Error while copying files to prepare the git repository folder towards to push data: the source and/or target folders are null.");
+            return 0;
         }
     }
 
+    private static void syncDirectory(File sourceDir, File targetDir, FileFilter filter, long[] counters) throws IOException {
+        File[] files = sourceDir.listFiles(filter);
+        if (files == null) {
+            throw new IOException("Failed to list contents of " + sourceDir);
+        }
+        Files.createDirectories(targetDir.toPath());
+
+        for (File sourceFile : files) {
+            File targetFile = new File(targetDir, sourceFile.getName());
+            if (sourceFile.isDirectory()) {
+                syncDirectory(sourceFile, targetFile, filter, counters);
+            } else if (isUnchanged(sourceFile, targetFile)) {
+                counters[0]++;
+            } else {
+                Files.deleteIfExists(targetFile.toPath());
+                if (createLink(sourceFile, targetFile)) {
+                    counters[1]++;
+                } else {
+                    FileUtils.copyFile(sourceFile, targetFile, true);
+                    counters[2]++;
+                    counters[3] += targetFile.length();
+                }
+            }
+        }
+    }
+
+    private static boolean isUnchanged(File sourceFile, File targetFile) throws IOException {
+        if (!targetFile.exists()) {
+            return false;
+        }
+        if (Files.isSameFile(sourceFile.toPath(), targetFile.toPath())) {
+            return true;
+        }
+        return sourceFile.length() == targetFile.length() && sourceFile.lastModified() == targetFile.lastModified();
+    }
+
+    private static boolean createLink(File sourceFile, File targetFile) {
+        // the symbolic links are followed, as when copying
+        if (Files.isSymbolicLink(sourceFile.toPath())) {
+            return false;
+        }
+        try {
+            Files.createLink(targetFile.toPath(), sourceFile.toPath());
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            getLogger().debug("Cannot link " + targetFile.getPath() + ", it will be copied.", e);
+            return false;
+        }
+    }
+
+    private static FileFilter createExclusionFilter(File sourceDir, String[] excludedFileNames, boolean isToPerfectlyMatch) {
+        return new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                for (String excludedFileName : excludedFileNames) {
+                    if (isToPerfectlyMatch) {
+                        String excludedFilePath = sourceDir.getPath() + "/" + excludedFileName;
+                        if (file.getPath().equals(excludedFilePath)) {
+                            getLogger().debug("File not copied: " + file.getPath());
+                            return false;
+                        }
+                    } else {
+                        if (file.getPath().contains(excludedFileName)) {
+                            getLogger().debug("File not copied: " + file.getPath());
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
     public static void deleteFile(File file) throws IOException {
         if (file != null) {
             for (File childFile : file.listFiles()) {
@@ -175,7 +267,10 @@ public class FileHelper {
                     if (!content.equals(updatedContent)) {
                         getLogger().info(
                                 "ghOauth info detected in file " + file.toPath() + ". Such file will be changed.");
-                        Files.write(file.toPath(), updatedContent.getBytes(charset));
+                        // the file is replaced and not written in place, as it can be linked to the file of the cloned repository
+                        Path tmpFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+                        Files.write(tmpFile, updatedContent.getBytes(charset));
+                        Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
                     }
                 } catch (IOException e) {
                     getLogger().warn("Error while checking if file " + file.toPath() + " contains ghOauth info.", e);
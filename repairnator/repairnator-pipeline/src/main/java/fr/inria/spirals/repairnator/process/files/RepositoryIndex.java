@@ -0,0 +1,358 @@
+package fr.inria.spirals.repairnator.process.files;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The files of the repository of a build, listed in one pass and shared by the steps instead of walking the repository each time.
+ *
+ * Each entry records its path, whether it is a directory, the module it belongs to (the nearest directory with a pom.xml file)
+ * and its role in the module according to the Maven conventions. The content hash of a file is only computed when asked for,
+ * and kept until a refresh finds the file changed.
+ *
+ * The hidden directories, like .git or the local Maven repository, and the target directories of the modules are not indexed:
+ * their content is not part of the sources of the project. The index is refreshed after each checkout, and when it is queried
+ * after a step changed the repository, like a repair step applying a patch: the directories which did not change since the last
+ * refresh are not listed again, but all the indexed files are checked.
+ * As in git, an entry modified just before the last refresh is considered as changed, as the file system could have given
+ * it the same modification date if it was modified again in the meantime.
+ */
+public class RepositoryIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryIndex.class);
+
+    private static final String POM_FILE = "pom.xml";
+    private static final String BUILD_DIRECTORY = "target";
+    private static final String SOURCE_PREFIX = "src/main/java/";
+    private static final String TEST_PREFIX = "src/test/java/";
+    // the resolution of the modification dates of the slowest file systems
+    private static final long RACY_DELAY = 2000; // in milliseconds
+
+    public enum Role {
+        SOURCE, TEST, OTHER
+    }
+
+    /**
+     * A file or a directory of the repository.
+     */
+    public static class Entry {
+        private String path;
+        private boolean directory;
+        private long lastModified;
+        private long length;
+        private String modulePath;
+        private Role role;
+        private List<String> childNames;
+        private String contentHash;
+
+        Entry(String path, boolean directory, long lastModified, long length) {
+            this.path = path;
+            this.directory = directory;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        /**
+         * @return the path of the entry relative to the root of the repository, with / as separator
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * @return the path of the module of the entry relative to the root of the repository, empty for the root module,
+         * or null if the entry is not in a module
+         */
+        public String getModulePath() {
+            return modulePath;
+        }
+
+        public Role getRole() {
+            return role;
+        }
+    }
+
+    private File rootDirectory;
+    private TreeMap<String, Entry> entries;
+    private boolean built;
+    private long lastRefreshDate;
+    private long nbListedDirectories;
+    private long nbReadAttributes;
+
+    public RepositoryIndex(File rootDirectory) {
+        this.rootDirectory = rootDirectory.getAbsoluteFile();
+        this.entries = new TreeMap<>();
+    }
+
+    public File getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Update the index with the current content of the repository.
+     * The first call lists the whole repository, the next ones only list the directories which changed.
+     */
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        long racyDate = this.lastRefreshDate - RACY_DELAY;
+        long nbListedDirectories = this.nbListedDirectories;
+        long nbReadAttributes = this.nbReadAttributes;
+
+        TreeMap<String, Entry> previousEntries = this.entries;
+        this.entries = new TreeMap<>();
+        BasicFileAttributes attributes = this.readAttributes(this.rootDirectory.toPath());
+        if (attributes != null && attributes.isDirectory()) {
+            this.indexDirectory(this.rootDirectory.toPath(), "", attributes, null, previousEntries, racyDate);
+        }
+        this.built = true;
+        this.lastRefreshDate = start;
+
+        LOGGER.debug("Repository index of " + this.rootDirectory.getPath() + " refreshed in " + (System.currentTimeMillis() - start) + "ms: "
+                + this.entries.size() + " entries, " + (this.nbListedDirectories - nbListedDirectories) + " directories listed, "
+                + (this.nbReadAttributes - nbReadAttributes) + " file attributes read.");
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
+        this.nbReadAttributes++;
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            // the file has been deleted in the meantime
+            return null;
+        }
+    }
+
+    private List<String> listDirectory(Path directory) {
+        this.nbListedDirectories++;
+        TreeSet<String> childNames = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                childNames.add(child.getFileName().toString());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error while listing the directory " + directory + ": its content is not indexed.", e);
+        }
+        return new ArrayList<>(childNames);
+    }
+
+    private static boolean isUnchanged(Entry previousEntry, Entry entry, long racyDate) {
+        return previousEntry != null && previousEntry.directory == entry.directory && previousEntry.lastModified == entry.lastModified
+                && previousEntry.length == entry.length && entry.lastModified < racyDate;
+    }
+
+    private void indexDirectory(Path directory, String path, BasicFileAttributes attributes, String parentModulePath, Map<String, Entry> previousEntries, long racyDate) {
+        Entry previousEntry = previousEntries.get(path);
+        Entry entry = new Entry(path, true, attributes.lastModifiedTime().toMillis(), 0);
+        // adding or removing a file changes the modification date of its directory
+        if (isUnchanged(previousEntry, entry, racyDate)) {
+            entry.childNames = previousEntry.childNames;
+        } else {
+            entry.childNames = this.listDirectory(directory);
+        }
+
+        boolean isModule = entry.childNames.contains(POM_FILE);
+        entry.modulePath = isModule ? path : parentModulePath;
+        entry.role = getRole(path, entry.modulePath);
+        this.entries.put(path, entry);
+
+        for (String childName : entry.childNames) {
+            if (childName.startsWith(".") || (isModule && childName.equals(BUILD_DIRECTORY))) {
+                continue;
+            }
+            Path child = directory.resolve(childName);
+            String childPath = path.isEmpty() ? childName : path + "/" + childName;
+            BasicFileAttributes childAttributes = this.readAttributes(child);
+            if (childAttributes == null) {
+                continue;
+            }
+
+            if (childAttributes.isDirectory()) {
+                this.indexDirectory(child, childPath, childAttributes, entry.modulePath, previousEntries, racyDate);
+            } else {
+                Entry childEntry = new Entry(childPath, false, childAttributes.lastModifiedTime().toMillis(), childAttributes.size());
+                childEntry.modulePath = entry.modulePath;
+                childEntry.role = getRole(childPath, entry.modulePath);
+                Entry previousChildEntry = previousEntries.get(childPath);
+                if (isUnchanged(previousChildEntry, childEntry, racyDate)) {
+                    childEntry.contentHash = previousChildEntry.contentHash;
+                }
+                this.entries.put(childPath, childEntry);
+            }
+        }
+    }
+
+    private static Role getRole(String path, String modulePath) {
+        if (modulePath == null) {
+            return Role.OTHER;
+        }
+        String pathInModule = modulePath.isEmpty() ? path : path.substring(Math.min(path.length(), modulePath.length() + 1));
+        if (pathInModule.startsWith(SOURCE_PREFIX)) {
+            return Role.SOURCE;
+        } else if (pathInModule.startsWith(TEST_PREFIX)) {
+            return Role.TEST;
+        } else {
+            return Role.OTHER;
+        }
+    }
+
+    /**
+     * Record that the files of the repository may have changed: the index is refreshed when it is next queried.
+     */
+    public synchronized void invalidate() {
+        this.built = false;
+    }
+
+    private void ensureBuilt() {
+        if (!this.built) {
+            this.refresh();
+        }
+    }
+
+    /**
+     * @return the path of the file relative to the root of the repository, or null if it is outside the repository
+     */
+    private String getRelativePath(File file) {
+        Path relativePath;
+        try {
+            relativePath = this.rootDirectory.toPath().relativize(file.getAbsoluteFile().toPath().normalize());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String path = relativePath.toString().replace(File.separatorChar, '/');
+        return path.startsWith("..") ? null : path;
+    }
+
+    private File toFile(String path) {
+        return path.isEmpty() ? this.rootDirectory : new File(this.rootDirectory, path);
+    }
+
+    /**
+     * @return the entry of the given file, or null if it is not indexed
+     */
+    public synchronized Entry getEntry(File file) {
+        this.ensureBuilt();
+        String path = this.getRelativePath(file);
+        return path == null ? null : this.entries.get(path);
+    }
+
+    /**
+     * @return the directories of all the modules of the repository, parents first
+     */
+    public synchronized List<File> getModuleDirectories() {
+        this.ensureBuilt();
+        List<File> moduleDirectories = new ArrayList<>();
+        for (Entry entry : this.entries.values()) {
+            if (entry.directory && entry.path.equals(entry.modulePath)) {
+                moduleDirectories.add(this.toFile(entry.path));
+            }
+        }
+        return moduleDirectories;
+    }
+
+    /**
+     * @return the files with the given extension in the given directory and its subdirectories,
+     * or null if the directory is not indexed: the caller should then list the files itself
+     */
+    public synchronized List<File> getFiles(File directory, String extension) {
+        this.ensureBuilt();
+        String path = this.getRelativePath(directory);
+        if (path == null || !this.entries.containsKey(path) || !this.entries.get(path).directory) {
+            return null;
+        }
+
+        SortedMap<String, Entry> children = path.isEmpty() ? this.entries : this.entries.subMap(path + "/", path + "0");
+        List<File> files = new ArrayList<>();
+        String suffix = "." + extension;
+        for (Entry entry : children.values()) {
+            if (!entry.directory && entry.path.endsWith(suffix)) {
+                files.add(this.toFile(entry.path));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return the files of the given role in all the modules
+     */
+    public synchronized List<File> getFiles(Role role) {
+        this.ensureBuilt();
+        List<File> files = new ArrayList<>();
+        for (Entry entry : this.entries.values()) {
+            if (!entry.directory && entry.role == role) {
+                files.add(this.toFile(entry.path));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return the entries of all the indexed files, ordered by path
+     */
+    public synchronized List<Entry> getFileEntries() {
+        this.ensureBuilt();
+        List<Entry> fileEntries = new ArrayList<>();
+        for (Entry entry : this.entries.values()) {
+            if (!entry.directory) {
+                fileEntries.add(entry);
+            }
+        }
+        return fileEntries;
+    }
+
+    /**
+     * @return the SHA-256 hash of the content of the given file, or null if it is not indexed or cannot be read
+     */
+    public synchronized String getContentHash(File file) {
+        Entry entry = this.getEntry(file);
+        if (entry == null || entry.directory) {
+            return null;
+        }
+        if (entry.contentHash == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                StringBuilder hash = new StringBuilder();
+                for (byte b : digest.digest(Files.readAllBytes(this.toFile(entry.path).toPath()))) {
+                    hash.append(String.format("%02x", b));
+                }
+                entry.contentHash = hash.toString();
+            } catch (IOException | NoSuchAlgorithmException e) {
+                LOGGER.warn("Error while computing the hash of " + entry.path + ".", e);
+                return null;
+            }
+        }
+        return entry.contentHash;
+    }
+
+    /**
+     * @return the number of directories listed since the creation of the index
+     */
+    public synchronized long getNbListedDirectories() {
+        return nbListedDirectories;
+    }
+
+    /**
+     * @return the number of times the attributes of a file have been read since the creation of the index
+     */
+    public synchronized long getNbReadAttributes() {
+        return nbReadAttributes;
+    }
+}
@@ -0,0 +1,168 @@
+package fr.inria.spirals.repairnator.process.files;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reclaim the disk space of the workspaces without blocking the pipeline.
+ *
+ * A workspace is atomically moved to a trash directory next to it, then deleted by a background thread
+ * with the minimum priority. As Java cannot lower the I/O priority of a thread, the deletion is paced
+ * to leave the disk to the running build, except when the free space of the disk becomes low.
+ * The workspaces left in a trash directory by a previous process are deleted when the trash is used again.
+ */
+public class WorkspaceReclaimer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkspaceReclaimer.class);
+    public static final String TRASH_DIRECTORY_NAME = ".repairnator-trash";
+    private static final double MIN_FREE_SPACE_RATIO = 0.1;
+    private static final int FILES_PER_BATCH = 500;
+    private static final long BATCH_PAUSE = 20; // in milliseconds
+
+    private static WorkspaceReclaimer instance;
+
+    private ExecutorService deleter;
+    private Set<File> knownTrashDirectories;
+
+    WorkspaceReclaimer() {
+        this.deleter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workspace-reclaimer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.knownTrashDirectories = ConcurrentHashMap.newKeySet();
+    }
+
+    public static synchronized WorkspaceReclaimer getInstance() {
+        if (instance == null) {
+            instance = new WorkspaceReclaimer();
+        }
+        return instance;
+    }
+
+    /**
+     * Make the directory disappear right away, its content being deleted in background.
+     * If it cannot be moved to the trash, it is deleted synchronously.
+     */
+    public void reclaim(File directory) {
+        if (directory == null || !directory.exists()) {
+            return;
+        }
+
+        File trashDirectory = new File(directory.getAbsoluteFile().getParentFile(), TRASH_DIRECTORY_NAME);
+        try {
+            Files.createDirectories(trashDirectory.toPath());
+            this.resumeDeletions(trashDirectory);
+
+            File trashedDirectory = new File(trashDirectory, directory.getName() + "-" + System.nanoTime());
+            Files.move(directory.toPath(), trashedDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Directory " + directory.getPath() + " moved to the trash, it will be deleted in background.");
+            this.deleter.submit(() -> this.delete(trashedDirectory));
+        } catch (IOException e) {
+            LOGGER.warn("Directory " + directory.getPath() + " cannot be moved to the trash: it will be deleted now.", e);
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    /**
+     * Delete the content left in the trash directory by a previous process.
+     */
+    private void resumeDeletions(File trashDirectory) {
+        if (!this.knownTrashDirectories.add(trashDirectory)) {
+            return;
+        }
+        File[] trashedDirectories = trashDirectory.listFiles();
+        if (trashedDirectories != null && trashedDirectories.length > 0) {
+            LOGGER.info(trashedDirectories.length + " directories left in " + trashDirectory.getPath() + " will be deleted in background.");
+            for (File trashedDirectory : trashedDirectories) {
+                this.deleter.submit(() -> this.delete(trashedDirectory));
+            }
+        }
+    }
+
+    private void delete(File directory) {
+        // the directory can be inside another reclaimed directory, which has been moved since
+        if (!directory.exists()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int[] nbDeletedFiles = {0};
+        try {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.deleteIfExists(file);
+                    nbDeletedFiles[0]++;
+                    if (nbDeletedFiles[0] % FILES_PER_BATCH == 0 && !isUnderDiskPressure(directory)) {
+                        try {
+                            Thread.sleep(BATCH_PAUSE);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return FileVisitResult.TERMINATE;
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    LOGGER.debug("Cannot visit " + file + " for deletion.", e);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    try {
+                        Files.deleteIfExists(dir);
+                    } catch (IOException deletionException) {
+                        LOGGER.debug("Cannot delete the directory " + dir, deletionException);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            LOGGER.info("Directory " + directory.getPath() + " deleted in background (" + nbDeletedFiles[0] + " files, "
+                    + (System.currentTimeMillis() - start) + "ms).");
+        } catch (IOException e) {
+            LOGGER.warn("Error while deleting the directory " + directory.getPath() + " in background.", e);
+        }
+    }
+
+    private static boolean isUnderDiskPressure(File file) {
+        long totalSpace = file.getTotalSpace();
+        return totalSpace > 0 && file.getUsableSpace() < totalSpace * MIN_FREE_SPACE_RATIO;
+    }
+
+    /**
+     * Wait until the directories reclaimed so far are deleted.
+     *
+     * @return true if they have been deleted before the timeout
+     */
+    public boolean waitForDeletions(long timeout, TimeUnit unit) {
+        try {
+            this.deleter.submit(() -> { }).get(timeout, unit);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+}
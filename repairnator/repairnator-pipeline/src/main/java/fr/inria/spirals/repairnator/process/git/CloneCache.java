@@ -0,0 +1,227 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A cache of bare mirrors of the cloned repositories, shared by all the pipelines running on the host.
+ *
+ * A repository is cloned from its mirror, which is only updated from the network when a needed commit is missing:
+ * the local clone uses hardlinks on the objects of the mirror, so it stays valid when the mirror is evicted.
+ * Each mirror is protected by a lock file, so that several processes can use the cache at the same time,
+ * and the least recently used mirrors are evicted when the cache exceeds its disk budget.
+ */
+public class CloneCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloneCache.class);
+    private static final String MIRROR_EXTENSION = ".git";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final String SIZE_FILENAME = "repairnator-size";
+    private static final String[] FETCH_REFSPECS = {"+refs/heads/*:refs/heads/*", "+refs/tags/*:refs/tags/*"};
+
+    private File cacheDirectory;
+    private long diskBudget; // in bytes
+
+    /**
+     * @param cacheDirectory the directory containing the mirrors
+     * @param diskBudget the maximum size of the cache in bytes
+     */
+    public CloneCache(File cacheDirectory, long diskBudget) {
+        this.cacheDirectory = cacheDirectory;
+        this.diskBudget = diskBudget;
+    }
+
+    public File getMirrorDirectory(String repoSlug) {
+        return new File(this.cacheDirectory, repoSlug.replace('/', '+') + MIRROR_EXTENSION);
+    }
+
+    /**
+     * Compute a key in the cache for a repository given by its URL, or null if the URL is not absolute.
+     */
+    public static String getKeyFromUrl(String remoteUrl) {
+        String key;
+        if (remoteUrl.contains("://")) {
+            key = remoteUrl.substring(remoteUrl.indexOf("://") + 3);
+        } else if (remoteUrl.startsWith("git@")) {
+            key = remoteUrl.substring("git@".length()).replace(':', '/');
+        } else {
+            return null;
+        }
+        if (key.endsWith(MIRROR_EXTENSION)) {
+            key = key.substring(0, key.length() - MIRROR_EXTENSION.length());
+        }
+        // the mirrors of GitHub repositories are shared with the ones created from their slug
+        if (key.startsWith("github.com/")) {
+            key = key.substring("github.com/".length());
+        }
+        return key.replace(':', '/');
+    }
+
+    /**
+     * Create or update the mirror of the repository so that it contains the needed commits.
+     * The mirror is not locked once returned: it should be used right away, as it could be evicted later.
+     *
+     * @return the directory of the mirror
+     */
+    public File prepareMirror(String key, String remoteUrl, Collection<String> neededCommits) throws IOException {
+        File mirror = this.getMirrorDirectory(key);
+        Files.createDirectories(this.cacheDirectory.toPath());
+
+        try (RandomAccessFile lockFile = new RandomAccessFile(new File(this.cacheDirectory, mirror.getName() + LOCK_EXTENSION), "rw");
+             FileChannel lockChannel = lockFile.getChannel();
+             FileLock lock = lockChannel.lock()) {
+            this.updateMirror(mirror, remoteUrl, neededCommits);
+            if (!mirror.setLastModified(System.currentTimeMillis())) {
+                LOGGER.debug("Cannot update the last usage date of the mirror " + mirror.getPath());
+            }
+        }
+        return mirror;
+    }
+
+    /**
+     * Clone the repository in the given directory using its mirror: the mirror is created or updated first if needed.
+     *
+     * @param repoSlug the slug of the repository, used as key in the cache
+     * @param remoteUrl the URL of the repository: it is used to update the mirror and it becomes the origin of the clone
+     * @param directory the directory of the clone
+     * @param neededCommits the commits which must be available in the clone
+     * @throws IOException if the clone failed: the caller should then clone from the network
+     */
+    public void cloneRepository(String repoSlug, String remoteUrl, File directory, Collection<String> neededCommits) throws IOException {
+        File mirror = this.getMirrorDirectory(repoSlug);
+        Files.createDirectories(this.cacheDirectory.toPath());
+
+        try (RandomAccessFile lockFile = new RandomAccessFile(new File(this.cacheDirectory, mirror.getName() + LOCK_EXTENSION), "rw");
+             FileChannel lockChannel = lockFile.getChannel()) {
+
+            // the mirror is updated with an exclusive lock
+            try (FileLock lock = lockChannel.lock()) {
+                this.updateMirror(mirror, remoteUrl, neededCommits);
+            }
+
+            // and cloned with a shared lock: several clones can be done at the same time, but not during an update or an eviction
+            try (FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+                if (!mirror.exists()) {
+                    throw new IOException("The mirror of " + repoSlug + " has been evicted before being cloned.");
+                }
+                GitCommands.execute(null, "clone", mirror.getAbsolutePath(), directory.getAbsolutePath());
+                GitCommands.execute(directory, "remote", "set-url", "origin", remoteUrl);
+                if (!mirror.setLastModified(System.currentTimeMillis())) {
+                    LOGGER.debug("Cannot update the last usage date of the mirror " + mirror.getPath());
+                }
+            }
+        }
+
+        this.evict();
+    }
+
+    private void updateMirror(File mirror, String remoteUrl, Collection<String> neededCommits) throws IOException {
+        if (!mirror.exists()) {
+            LOGGER.info("Create the mirror of " + remoteUrl + " in the clone cache.");
+            File tmpMirror = new File(mirror.getPath() + ".tmp");
+            FileUtils.deleteQuietly(tmpMirror);
+            GitCommands.execute(null, "clone", "--bare", remoteUrl, tmpMirror.getAbsolutePath());
+            for (String refspec : FETCH_REFSPECS) {
+                GitCommands.execute(tmpMirror, "config", "--add", "remote.origin.fetch", refspec);
+            }
+            Files.move(tmpMirror.toPath(), mirror.toPath());
+            this.updateMirrorSize(mirror);
+            return;
+        }
+
+        List<String> missingCommits = this.getMissingCommits(mirror, neededCommits);
+        if (missingCommits.isEmpty()) {
+            LOGGER.info("All the needed commits are in the mirror of " + remoteUrl + ": no fetch needed.");
+            return;
+        }
+
+        LOGGER.info("Update the mirror of " + remoteUrl + ": " + missingCommits.size() + " commit(s) missing.");
+        GitCommands.execute(mirror, "fetch", "--prune", "origin");
+
+        // the commits of pull requests or of deleted branches are not reachable from the fetched refs: we fetch them directly
+        missingCommits = this.getMissingCommits(mirror, missingCommits);
+        for (String commit : missingCommits) {
+            try {
+                GitCommands.execute(mirror, "fetch", "origin", commit + ":refs/repairnator/" + commit);
+            } catch (IOException e) {
+                LOGGER.warn("The commit " + commit + " cannot be fetched in the mirror of " + remoteUrl, e);
+            }
+        }
+        this.updateMirrorSize(mirror);
+    }
+
+    private List<String> getMissingCommits(File mirror, Collection<String> commits) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (String commit : commits) {
+            if (commit != null && GitCommands.run(mirror, "cat-file", "-e", commit + "^{commit}") != 0) {
+                result.add(commit);
+            }
+        }
+        return result;
+    }
+
+    private void updateMirrorSize(File mirror) throws IOException {
+        long size = FileUtils.sizeOfDirectory(mirror);
+        Files.write(new File(mirror, SIZE_FILENAME).toPath(), String.valueOf(size).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long getMirrorSize(File mirror) {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(new File(mirror, SIZE_FILENAME).toPath()), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            return FileUtils.sizeOfDirectory(mirror);
+        }
+    }
+
+    /**
+     * Delete the least recently used mirrors until the cache fits its disk budget.
+     * The mirrors currently in use are skipped.
+     */
+    public void evict() {
+        File[] mirrors = this.cacheDirectory.listFiles(file -> file.isDirectory() && file.getName().endsWith(MIRROR_EXTENSION));
+        if (mirrors == null) {
+            return;
+        }
+
+        long totalSize = 0;
+        for (File mirror : mirrors) {
+            totalSize += this.getMirrorSize(mirror);
+        }
+        if (totalSize <= this.diskBudget) {
+            return;
+        }
+
+        Arrays.sort(mirrors, Comparator.comparingLong(File::lastModified));
+        for (File mirror : mirrors) {
+            if (totalSize <= this.diskBudget) {
+                break;
+            }
+            long size = this.getMirrorSize(mirror);
+            try (RandomAccessFile lockFile = new RandomAccessFile(new File(this.cacheDirectory, mirror.getName() + LOCK_EXTENSION), "rw");
+                 FileChannel lockChannel = lockFile.getChannel();
+                 FileLock lock = lockChannel.tryLock()) {
+                if (lock != null) {
+                    LOGGER.info("Evict the mirror " + mirror.getName() + " from the clone cache (" + (size / (1024 * 1024)) + "MB).");
+                    FileUtils.deleteDirectory(mirror);
+                    totalSize -= size;
+                }
+            } catch (IOException | OverlappingFileLockException e) {
+                LOGGER.debug("The mirror " + mirror.getName() + " cannot be evicted now.", e);
+            }
+        }
+    }
+}
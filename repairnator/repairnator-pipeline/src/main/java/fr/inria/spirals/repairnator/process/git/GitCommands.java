@@ -0,0 +1,125 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Execute the git command line: it is used for the operations which are not supported by JGit.
+ */
+final class GitCommands {
+    // the length of the file arguments given to a single command, far below the limit of the operating systems
+    private static final int MAX_ARGUMENTS_LENGTH = 64 * 1024;
+
+    private GitCommands() {
+    }
+
+    private static ProcessBuilder createProcessBuilder(File directory, String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(arguments));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        if (directory != null) {
+            processBuilder.directory(directory);
+        }
+        return processBuilder;
+    }
+
+    /**
+     * Run the command, the output being redirected to the output of the current process.
+     *
+     * @return the exit code of the command
+     */
+    static int run(File directory, String... arguments) throws IOException {
+        ProcessBuilder processBuilder = createProcessBuilder(directory, arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        try {
+            return processBuilder.start().waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while executing: git " + StringUtils.join(arguments, " "), e);
+        }
+    }
+
+    /**
+     * Run the command and fail if its exit code is not 0.
+     */
+    static void execute(File directory, String... arguments) throws IOException {
+        int exitCode = run(directory, arguments);
+        if (exitCode != 0) {
+            throw new IOException("The command git " + StringUtils.join(arguments, " ") + " failed with exit code " + exitCode);
+        }
+    }
+
+    /**
+     * Force the staging of the given files, even if they are ignored.
+     * The files are given to a few git processes in batches: if a batch fails, for instance because one of its files
+     * does not exist, its files are staged one by one, so that a wrong file does not prevent the others to be staged.
+     *
+     * @return the number of files which cannot be staged
+     */
+    static int addForce(File directory, Collection<String> files) throws IOException {
+        List<String> batch = new ArrayList<>();
+        int batchLength = 0;
+        int nbFailures = 0;
+        for (String file : new LinkedHashSet<>(files)) {
+            if (!batch.isEmpty() && batchLength + file.length() > MAX_ARGUMENTS_LENGTH) {
+                nbFailures += addForceBatch(directory, batch);
+                batch.clear();
+                batchLength = 0;
+            }
+            batch.add(file);
+            batchLength += file.length() + 1;
+        }
+        if (!batch.isEmpty()) {
+            nbFailures += addForceBatch(directory, batch);
+        }
+        return nbFailures;
+    }
+
+    private static int addForceBatch(File directory, List<String> files) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList("add", "-f", "--"));
+        arguments.addAll(files);
+        if (run(directory, arguments.toArray(new String[0])) == 0) {
+            return 0;
+        }
+        if (files.size() == 1) {
+            return 1;
+        }
+
+        int nbFailures = 0;
+        for (String file : files) {
+            if (run(directory, "add", "-f", "--", file) != 0) {
+                nbFailures++;
+            }
+        }
+        return nbFailures;
+    }
+
+    /**
+     * Run the command and return its standard output, or null if it failed.
+     */
+    static String output(File directory, String... arguments) throws IOException {
+        ProcessBuilder processBuilder = createProcessBuilder(directory, arguments)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = processBuilder.start();
+        try (InputStream inputStream = process.getInputStream()) {
+            String output = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+            return (process.waitFor() == 0) ? output.trim() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while executing: git " + StringUtils.join(arguments, " "), e);
+        }
+    }
+}
@@ -40,6 +40,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -77,6 +78,7 @@ public class GitHelper {
      */
     public String testCommitExistence(Git git, String oldCommitSha, AbstractStep step, Build build) {
         try {
+            this.ensureCommitInShallowClone(git, oldCommitSha);
             ObjectId commitObject = git.getRepository().resolve(oldCommitSha);
             git.getRepository().open(commitObject);
             return oldCommitSha;
@@ -89,6 +91,20 @@ public class GitHelper {
         return null;
     }
 
+    /**
+     * If the repository is a shallow clone, deepen it until the commit is available.
+     */
+    private void ensureCommitInShallowClone(Git git, String commitSha) {
+        File directory = git.getRepository().getDirectory().getParentFile();
+        if (commitSha != null && ShallowCloneHelper.isShallow(directory)) {
+            try {
+                new ShallowCloneHelper(RepairnatorConfig.getInstance().getCloneDepth()).ensureCommit(directory, commitSha);
+            } catch (IOException e) {
+                this.getLogger().warn("Error while retrieving the commit " + commitSha + " in the shallow clone.", e);
+            }
+        }
+    }
+
     public static PersonIdent getCommitterIdent() {
         if (committerIdent == null) {
             committerIdent =  new PersonIdent(RepairnatorConfig.getInstance().getGithubUserName(), RepairnatorConfig.getInstance().getGithubUserEmail());
@@ -165,15 +181,20 @@ public class GitHelper {
         }
     }
 
+    /**
+     * Init the git submodules which are not checked out at their recorded commit:
+     * it can be called after each checkout, as the unchanged submodules are skipped.
+     */
     public void initAllSubmodules(Git git) {
-        this.getLogger().info("Init git submodules.");
-        ProcessBuilder processBuilder = new ProcessBuilder("git", "submodule", "update", "--init", "--recursive")
-                .directory(git.getRepository().getDirectory().getParentFile()).inheritIO();
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        CloneCache cloneCache = null;
+        if (config.getCloneCacheDirectory() != null) {
+            cloneCache = new CloneCache(new File(config.getCloneCacheDirectory()), config.getCloneCacheSize() * 1024 * 1024);
+        }
 
         try {
-            Process p = processBuilder.start();
-            p.waitFor();
-        } catch (InterruptedException|IOException e) {
+            new SubmoduleHelper(config.getSubmoduleJobs(), cloneCache).initAllSubmodules(git.getRepository().getDirectory().getParentFile());
+        } catch (IOException e) {
             this.getLogger().error("Error while executing git command to get git submodules: " + e);
         }
     }
@@ -222,7 +243,15 @@ public class GitHelper {
             remoteBranchCommand.setUri(new URIish(remoteBranchPath));
             remoteBranchCommand.call();
 
-            git.fetch().setRemote("PR").call();
+            File directory = git.getRepository().getDirectory().getParentFile();
+            boolean shallowClone = ShallowCloneHelper.isShallow(directory);
+            ShallowCloneHelper shallowCloneHelper = new ShallowCloneHelper(RepairnatorConfig.getInstance().getCloneDepth());
+            if (shallowClone) {
+                // JGit cannot fetch in a shallow clone without getting the whole history
+                GitCommands.execute(directory, "fetch", "--depth", String.valueOf(RepairnatorConfig.getInstance().getCloneDepth()), "PR");
+            } else {
+                git.fetch().setRemote("PR").call();
+            }
 
             String commitHeadSha = this.testCommitExistence(git, prInformation.getHead().getSHA1(), step, build);
             String commitBaseSha = this.testCommitExistence(git, prInformation.getBase().getSHA1(), step, build);
@@ -248,6 +277,10 @@ public class GitHelper {
                 git.checkout().setName(commitHeadSha).call();
             }
 
+            if (shallowClone && !shallowCloneHelper.ensureMergeBase(directory, Arrays.asList("origin", "PR"), commitHeadSha, commitBaseSha)) {
+                this.getLogger().warn("Step " + step.getName() + " - No merge base found between " + commitHeadSha + " and " + commitBaseSha + " in the shallow clone.");
+            }
+
             RevWalk revwalk = new RevWalk(git.getRepository());
             RevCommit revCommitBase = revwalk.lookupCommit(git.getRepository().resolve(commitBaseSha));
 
@@ -370,17 +403,14 @@ public class GitHelper {
     }
 
     public void gitAdd(List<String> files, Git git) {
-        for (String file : files) {
-            // add force is not supported by JGit...
-            ProcessBuilder processBuilder = new ProcessBuilder("git", "add", "-f", file)
-                    .directory(git.getRepository().getDirectory().getParentFile()).inheritIO();
-
-            try {
-                Process p = processBuilder.start();
-                p.waitFor();
-            } catch (InterruptedException|IOException e) {
-                this.getLogger().error("Error while executing git command to add files: " + e);
+        // add force is not supported by JGit...
+        try {
+            int nbFailures = GitCommands.addForce(git.getRepository().getDirectory().getParentFile(), files);
+            if (nbFailures > 0) {
+                this.getLogger().warn(nbFailures + " file(s) cannot be added among " + files.size() + " files.");
             }
+        } catch (IOException e) {
+            this.getLogger().error("Error while executing git command to add files: " + e);
         }
     }
 
@@ -0,0 +1,221 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate the pushes of several pipelines to the same remote repository.
+ *
+ * The pipelines push their branch in a local bare repository, the outbox, which can be shared by all the pipelines
+ * running on the host. Then all the pending branches of the outbox are pushed to the remote repository
+ * in a single push, retried with an exponential backoff when the remote cannot be reached:
+ * the branches submitted while a push is in progress are pushed together by the next flush.
+ */
+public class PushAggregator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PushAggregator.class);
+    private static final String OUTBOX_NAME = "outbox.git";
+    private static final String LOCK_NAME = "outbox.lock";
+    private static final String PENDING_REFS = "refs/heads/";
+    private static final String REJECTED_REFS = "refs/rejected/";
+
+    public enum BranchStatus {
+        PENDING,
+        PUSHED,
+        REJECTED
+    }
+
+    private File outboxDirectory;
+    private String remoteUrl;
+    private CredentialsProvider credentialsProvider;
+    private int maxRetries;
+    private long retryDelay; // in milliseconds
+
+    /**
+     * @param outboxDirectory the directory containing the outbox, shared by the pipelines
+     * @param remoteUrl the URL of the remote repository where the branches are pushed
+     * @param credentialsProvider the credentials used to push to the remote repository
+     * @param maxRetries the maximum number of retries of a failed push
+     * @param retryDelay the delay in milliseconds before the first retry, doubled at each retry
+     */
+    public PushAggregator(File outboxDirectory, String remoteUrl, CredentialsProvider credentialsProvider, int maxRetries, long retryDelay) {
+        this.outboxDirectory = outboxDirectory;
+        this.remoteUrl = remoteUrl;
+        this.credentialsProvider = credentialsProvider;
+        this.maxRetries = maxRetries;
+        this.retryDelay = retryDelay;
+    }
+
+    private File getOutbox() {
+        return new File(this.outboxDirectory, OUTBOX_NAME);
+    }
+
+    private FileChannel openLock() throws IOException {
+        Files.createDirectories(this.outboxDirectory.toPath());
+        return new RandomAccessFile(new File(this.outboxDirectory, LOCK_NAME), "rw").getChannel();
+    }
+
+    /**
+     * Push the branch of the given repository in the outbox: it will be pushed to the remote repository by the next flush.
+     */
+    public void submit(Git git, String branchName) throws IOException, GitAPIException {
+        File outbox = this.getOutbox();
+        if (!outbox.exists()) {
+            try (FileChannel lockChannel = this.openLock();
+                 FileLock lock = lockChannel.lock()) {
+                if (!outbox.exists()) {
+                    Git.init().setBare(true).setDirectory(outbox).call().close();
+                }
+            }
+        }
+
+        String branchRef = PENDING_REFS + branchName;
+        git.push().setRemote(outbox.getAbsolutePath()).setRefSpecs(new RefSpec(branchRef + ":" + branchRef)).setForce(true).call();
+        LOGGER.info("Branch " + branchName + " submitted to the push outbox.");
+    }
+
+    /**
+     * Push all the pending branches of the outbox to the remote repository.
+     * Only one push is done at a time: each attempt waits for the end of the current push, if any.
+     * The lock of the outbox is released while waiting for the next attempt, so that the other pipelines can submit
+     * and flush their branches in the meantime: each attempt pushes all the branches pending at that time.
+     *
+     * @return the number of branches pushed
+     */
+    public int flush() throws IOException {
+        File outbox = this.getOutbox();
+        if (!outbox.exists()) {
+            return 0;
+        }
+
+        int nbPushed = 0;
+        int nbPending;
+        long delay = this.retryDelay;
+        for (int attempt = 0; ; attempt++) {
+            try (FileChannel lockChannel = this.openLock();
+                 FileLock lock = lockChannel.lock();
+                 Git git = Git.open(outbox)) {
+                Map<String, Ref> pendingRefs = new HashMap<>(git.getRepository().getRefDatabase().getRefs(PENDING_REFS));
+                if (!pendingRefs.isEmpty()) {
+                    LOGGER.info("Push " + pendingRefs.size() + " branch(es) to " + this.remoteUrl + " (attempt " + (attempt + 1) + ").");
+                    try {
+                        nbPushed += this.push(git, pendingRefs);
+                    } catch (GitAPIException e) {
+                        LOGGER.warn("Error while pushing to " + this.remoteUrl, e);
+                    }
+                }
+                nbPending = pendingRefs.size();
+            }
+
+            if (nbPending == 0 || attempt >= this.maxRetries) {
+                break;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            delay *= 2;
+        }
+
+        if (nbPending > 0) {
+            LOGGER.warn(nbPending + " branch(es) cannot be pushed for now: they stay in the outbox for the next flush.");
+        }
+        return nbPushed;
+    }
+
+    /**
+     * Push the pending refs in one push, and remove from the map the refs which got a final status.
+     *
+     * @return the number of refs pushed
+     */
+    private int push(Git git, Map<String, Ref> pendingRefs) throws GitAPIException, IOException {
+        List<RefSpec> refSpecs = new ArrayList<>();
+        for (Ref ref : pendingRefs.values()) {
+            refSpecs.add(new RefSpec(ref.getName() + ":" + ref.getName()));
+        }
+
+        int nbPushed = 0;
+        Iterable<PushResult> results = git.push().setRemote(this.remoteUrl).setRefSpecs(refSpecs).setCredentialsProvider(this.credentialsProvider).call();
+        for (PushResult result : results) {
+            for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+                String branchName = update.getSrcRef().substring(PENDING_REFS.length());
+                Ref ref = pendingRefs.get(branchName);
+                if (ref == null) {
+                    continue;
+                }
+
+                switch (update.getStatus()) {
+                    case OK:
+                    case UP_TO_DATE:
+                        this.deleteRef(git.getRepository(), ref.getName());
+                        pendingRefs.remove(branchName);
+                        nbPushed++;
+                        break;
+
+                    case NOT_ATTEMPTED:
+                    case AWAITING_REPORT:
+                        // the branch will be pushed again with the next attempt
+                        break;
+
+                    default:
+                        LOGGER.warn("The push of the branch " + branchName + " has been rejected: " + update.getStatus());
+                        this.updateRef(git.getRepository(), REJECTED_REFS + branchName, ref);
+                        this.deleteRef(git.getRepository(), ref.getName());
+                        pendingRefs.remove(branchName);
+                        break;
+                }
+            }
+        }
+        return nbPushed;
+    }
+
+    private void updateRef(Repository repository, String name, Ref target) throws IOException {
+        RefUpdate refUpdate = repository.updateRef(name);
+        refUpdate.setNewObjectId(target.getObjectId());
+        refUpdate.setForceUpdate(true);
+        refUpdate.update();
+    }
+
+    private void deleteRef(Repository repository, String name) throws IOException {
+        RefUpdate refUpdate = repository.updateRef(name);
+        refUpdate.setForceUpdate(true);
+        refUpdate.delete();
+    }
+
+    /**
+     * @return the status of a branch submitted to the outbox
+     */
+    public BranchStatus getStatus(String branchName) throws IOException {
+        try (Git git = Git.open(this.getOutbox())) {
+            Repository repository = git.getRepository();
+            if (repository.exactRef(PENDING_REFS + branchName) != null) {
+                return BranchStatus.PENDING;
+            } else if (repository.exactRef(REJECTED_REFS + branchName) != null) {
+                return BranchStatus.REJECTED;
+            } else {
+                return BranchStatus.PUSHED;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class manages shallow clones: only the last commits of each branch are cloned,
+ * and the history is deepened on demand when a commit or a merge base needed by the pipeline is missing.
+ * It relies on the git command line, as JGit does not support shallow fetches.
+ */
+public class ShallowCloneHelper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShallowCloneHelper.class);
+    private static final String SHALLOW_FILE = ".git/shallow";
+    private static final int MAX_DEEPENINGS = 4;
+    private static final int DEEPENING_FACTOR = 4;
+
+    private interface HistoryCheck {
+        boolean isSatisfied() throws IOException;
+    }
+
+    private int depth;
+
+    /**
+     * @param depth the number of commits cloned for each branch, also used as the first deepening step
+     */
+    public ShallowCloneHelper(int depth) {
+        this.depth = Math.max(depth, 1);
+    }
+
+    public static boolean isShallow(File directory) {
+        return new File(directory, SHALLOW_FILE).exists();
+    }
+
+    public void cloneRepository(String remoteUrl, File directory) throws IOException {
+        LOGGER.info("Shallow clone of " + remoteUrl + " with a depth of " + this.depth);
+        GitCommands.execute(null, "clone", "--depth", String.valueOf(this.depth), "--no-single-branch", remoteUrl, directory.getAbsolutePath());
+    }
+
+    public static boolean hasCommit(File directory, String commit) throws IOException {
+        return GitCommands.run(directory, "cat-file", "-e", commit + "^{commit}") == 0;
+    }
+
+    /**
+     * Make the commit available in the repository: it is fetched directly if possible, else the history is deepened until it is found.
+     *
+     * @return true if the commit is available
+     */
+    public boolean ensureCommit(File directory, String commit) throws IOException {
+        if (hasCommit(directory, commit)) {
+            return true;
+        }
+        if (!isShallow(directory)) {
+            return false;
+        }
+
+        LOGGER.info("The commit " + commit + " is missing in the shallow clone: it will be fetched.");
+        if (GitCommands.run(directory, "fetch", "--depth", String.valueOf(this.depth), "origin", commit) == 0 && hasCommit(directory, commit)) {
+            return true;
+        }
+        return this.deepenUntil(directory, Arrays.asList("origin"), () -> hasCommit(directory, commit));
+    }
+
+    /**
+     * Deepen the history until a merge base is found between the two commits, to be able to merge them.
+     *
+     * @param remotes the remotes from which the history of the commits is deepened
+     * @return true if the merge base is available
+     */
+    public boolean ensureMergeBase(File directory, List<String> remotes, String commit, String otherCommit) throws IOException {
+        HistoryCheck hasMergeBase = () -> GitCommands.output(directory, "merge-base", commit, otherCommit) != null;
+        if (hasMergeBase.isSatisfied()) {
+            return true;
+        }
+        if (!isShallow(directory)) {
+            return false;
+        }
+
+        LOGGER.info("No merge base between " + commit + " and " + otherCommit + " in the shallow clone: the history will be deepened.");
+        return this.deepenUntil(directory, remotes, hasMergeBase);
+    }
+
+    private boolean deepenUntil(File directory, List<String> remotes, HistoryCheck check) throws IOException {
+        int deepening = this.depth;
+        for (int i = 0; i < MAX_DEEPENINGS; i++) {
+            for (String remote : remotes) {
+                GitCommands.run(directory, "fetch", "--deepen=" + deepening, remote);
+            }
+            if (check.isSatisfied()) {
+                return true;
+            }
+            deepening *= DEEPENING_FACTOR;
+        }
+
+        // the commit is too far: we get the whole history
+        LOGGER.info("The history is still not deep enough: the whole history will be fetched.");
+        for (String remote : remotes) {
+            if (isShallow(directory)) {
+                GitCommands.run(directory, "fetch", "--unshallow", remote);
+            } else {
+                GitCommands.run(directory, "fetch", remote);
+            }
+        }
+        return check.isSatisfied();
+    }
+}
@@ -0,0 +1,239 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class initializes the git submodules of a repository.
+ * Only the submodules which are not checked out at their recorded commit are updated, several of them at the same time,
+ * and when a clone cache is given, they are cloned from their mirror in the cache.
+ */
+public class SubmoduleHelper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmoduleHelper.class);
+    private static final String GITMODULES_FILE = ".gitmodules";
+
+    private int nbJobs;
+    private CloneCache cloneCache;
+
+    /**
+     * @param nbJobs the number of submodules fetched at the same time
+     * @param cloneCache the cache used to clone the submodules, can be null
+     */
+    public SubmoduleHelper(int nbJobs, CloneCache cloneCache) {
+        this.nbJobs = Math.max(nbJobs, 1);
+        this.cloneCache = cloneCache;
+    }
+
+    public void initAllSubmodules(File directory) throws IOException {
+        if (!new File(directory, GITMODULES_FILE).exists()) {
+            return;
+        }
+
+        List<String> outdatedSubmodules = this.getOutdatedSubmodules(directory);
+        if (outdatedSubmodules.isEmpty()) {
+            LOGGER.info("All git submodules are checked out at their recorded commit: nothing to update.");
+            return;
+        }
+        LOGGER.info("Init " + outdatedSubmodules.size() + " git submodule(s) with " + this.nbJobs + " job(s).");
+
+        GitCommands.execute(directory, this.withPaths(Arrays.asList("submodule", "init"), outdatedSubmodules));
+
+        Map<String, String> cachedSubmodules = Collections.emptyMap();
+        if (this.cloneCache != null) {
+            cachedSubmodules = this.useMirrors(directory, outdatedSubmodules);
+        }
+
+        List<String> update = Arrays.asList("submodule", "update", "--recursive", "--jobs", String.valueOf(this.nbJobs));
+        int exitCode;
+        if (cachedSubmodules.isEmpty()) {
+            exitCode = GitCommands.run(directory, this.withPaths(update, outdatedSubmodules));
+        } else {
+            // the mirrors are local repositories, which git refuses to clone as submodules by default
+            List<String> updateFromMirrors = new ArrayList<>(Arrays.asList("-c", "protocol.file.allow=always"));
+            updateFromMirrors.addAll(update);
+            exitCode = GitCommands.run(directory, this.withPaths(updateFromMirrors, outdatedSubmodules));
+
+            this.restoreUrls(directory, cachedSubmodules);
+            if (exitCode != 0) {
+                LOGGER.warn("Error while updating the git submodules from the clone cache: they will be updated from the network.");
+                exitCode = GitCommands.run(directory, this.withPaths(update, outdatedSubmodules));
+            }
+        }
+        if (exitCode != 0) {
+            throw new IOException("The git submodules cannot be updated (exit code " + exitCode + ").");
+        }
+    }
+
+    /**
+     * @return the paths of the top-level submodules which are not initialized or not checked out at their recorded commit,
+     * directly or in one of their nested submodules
+     */
+    List<String> getOutdatedSubmodules(File directory) throws IOException {
+        List<String> topLevelPaths = new ArrayList<>(this.getSubmodulePaths(directory).values());
+
+        String status = GitCommands.output(directory, "submodule", "status", "--recursive");
+        if (status == null) {
+            // we cannot know the status of the submodules: all of them are updated
+            return topLevelPaths;
+        }
+
+        Set<String> result = new LinkedHashSet<>();
+        for (String line : status.split("\n")) {
+            // each line is <status><sha> <path> (<description>), the status being ' ' if the submodule is checked out
+            // at its recorded commit: as the output is trimmed, we only look for the other statuses
+            line = line.trim();
+            int pathStart = line.indexOf(' ') + 1;
+            if (pathStart <= 0 || Character.digit(line.charAt(0), 16) >= 0) {
+                continue;
+            }
+            String path = line.substring(pathStart).trim();
+            int descriptionStart = path.lastIndexOf(" (");
+            if (descriptionStart > 0) {
+                path = path.substring(0, descriptionStart);
+            }
+            for (String topLevelPath : topLevelPaths) {
+                if (path.equals(topLevelPath) || path.startsWith(topLevelPath + "/")) {
+                    result.add(topLevelPath);
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * @return the path of each submodule indexed by its name
+     */
+    private Map<String, String> getSubmodulePaths(File directory) throws IOException {
+        Map<String, String> result = new LinkedHashMap<>();
+        String paths = GitCommands.output(directory, "config", "-f", GITMODULES_FILE, "--get-regexp", "^submodule\\..*\\.path$");
+        if (paths == null) {
+            return result;
+        }
+        for (String line : paths.split("\n")) {
+            int separator = line.indexOf(' ');
+            if (separator > 0) {
+                String key = line.substring(0, separator);
+                String name = key.substring("submodule.".length(), key.length() - ".path".length());
+                result.put(name, line.substring(separator + 1).trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Point the given submodules to their mirror in the clone cache.
+     * The mirrors are prepared at the same time, with as many threads as submodules fetched at the same time.
+     *
+     * @return the original URL of the submodules using a mirror, indexed by their name
+     */
+    private Map<String, String> useMirrors(File directory, List<String> submodulePaths) throws IOException {
+        Map<String, String> submoduleUrls = new LinkedHashMap<>();
+        Map<String, String> submoduleKeys = new LinkedHashMap<>();
+        // several submodules can share a mirror: it is prepared once with all their recorded commits
+        Map<String, String> mirrorUrls = new LinkedHashMap<>();
+        Map<String, Set<String>> mirrorCommits = new LinkedHashMap<>();
+        Map<String, String> paths = this.getSubmodulePaths(directory);
+        for (Map.Entry<String, String> submodule : paths.entrySet()) {
+            String name = submodule.getKey();
+            String path = submodule.getValue();
+            if (!submodulePaths.contains(path)) {
+                continue;
+            }
+
+            String url = GitCommands.output(directory, "config", "submodule." + name + ".url");
+            String key = (url != null) ? CloneCache.getKeyFromUrl(url) : null;
+            String recordedCommit = this.getRecordedCommit(directory, path);
+            if (key == null || recordedCommit == null) {
+                continue;
+            }
+            submoduleUrls.put(name, url);
+            submoduleKeys.put(name, key);
+            mirrorUrls.putIfAbsent(key, url);
+            mirrorCommits.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(recordedCommit);
+        }
+        if (mirrorUrls.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Future<File>> mirrors = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.nbJobs, mirrorUrls.size()), runnable -> {
+            Thread thread = new Thread(runnable, "submodule-mirror");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, String> result = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, String> mirrorUrl : mirrorUrls.entrySet()) {
+                String key = mirrorUrl.getKey();
+                mirrors.put(key, executor.submit(() -> this.cloneCache.prepareMirror(key, mirrorUrl.getValue(), mirrorCommits.get(key))));
+            }
+
+            for (Map.Entry<String, String> submodule : submoduleUrls.entrySet()) {
+                String name = submodule.getKey();
+                String path = paths.get(name);
+                try {
+                    File mirror = mirrors.get(submoduleKeys.get(name)).get();
+                    GitCommands.execute(directory, "config", "submodule." + name + ".url", mirror.getAbsolutePath());
+                    // a submodule already cloned is fetched from its own remote
+                    File submoduleDirectory = new File(directory, path);
+                    if (new File(submoduleDirectory, ".git").exists()) {
+                        GitCommands.run(submoduleDirectory, "remote", "set-url", "origin", mirror.getAbsolutePath());
+                    }
+                    result.put(name, submodule.getValue());
+                } catch (ExecutionException | IOException e) {
+                    LOGGER.warn("The submodule " + path + " cannot be retrieved from the clone cache.", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // the submodules already pointing to their mirror are restored by the caller
+            LOGGER.warn("Interrupted while preparing the mirrors of the git submodules.");
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private void restoreUrls(File directory, Map<String, String> originalUrls) throws IOException {
+        Map<String, String> paths = this.getSubmodulePaths(directory);
+        for (Map.Entry<String, String> submodule : originalUrls.entrySet()) {
+            GitCommands.execute(directory, "config", "submodule." + submodule.getKey() + ".url", submodule.getValue());
+            File submoduleDirectory = new File(directory, paths.get(submodule.getKey()));
+            if (new File(submoduleDirectory, ".git").exists()) {
+                GitCommands.run(submoduleDirectory, "remote", "set-url", "origin", submodule.getValue());
+            }
+        }
+    }
+
+    private String getRecordedCommit(File directory, String path) throws IOException {
+        // output format: <mode> commit <sha>\t<path>
+        String entry = GitCommands.output(directory, "ls-tree", "HEAD", "--", path);
+        if (entry == null) {
+            return null;
+        }
+        String[] fields = entry.split("\\s+");
+        return (fields.length >= 3 && "commit".equals(fields[1])) ? fields[2] : null;
+    }
+
+    private String[] withPaths(List<String> arguments, List<String> paths) {
+        List<String> result = new ArrayList<>(arguments);
+        result.add("--");
+        result.addAll(paths);
+        return result.toArray(new String[0]);
+    }
+}
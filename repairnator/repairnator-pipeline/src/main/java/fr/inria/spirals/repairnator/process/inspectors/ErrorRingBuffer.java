@@ -0,0 +1,87 @@
+package fr.inria.spirals.repairnator.process.inspectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded buffer of the error lines given by Maven for a step.
+ *
+ * Verbose builds can give thousands of error lines: the same line is only kept once with its number of occurrences,
+ * the lines without information (empty lines, help messages of Maven) are ignored,
+ * and above the capacity the oldest lines are dropped, as the last ones explain why the build stopped.
+ */
+public class ErrorRingBuffer {
+    private static final String ERROR_PREFIX = "[ERROR]";
+    private static final List<String> IRRELEVANT_LINES = Arrays.asList(
+            "-> [Help",
+            "[Help ",
+            "To see the full stack trace of the errors",
+            "Re-run Maven using the -X switch",
+            "For more information about the errors and possible solutions",
+            "After correcting the problems, you can resume the build"
+    );
+
+    private int capacity;
+    private LinkedHashMap<String, Integer> lines;
+    private int nbDroppedLines;
+
+    public ErrorRingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.lines = new LinkedHashMap<>();
+    }
+
+    private static boolean isRelevant(String line) {
+        String content = line.startsWith(ERROR_PREFIX) ? line.substring(ERROR_PREFIX.length()).trim() : line.trim();
+        if (content.isEmpty()) {
+            return false;
+        }
+        for (String irrelevantLine : IRRELEVANT_LINES) {
+            if (content.startsWith(irrelevantLine)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void add(String line) {
+        String trimmedLine = line.trim();
+        if (!isRelevant(trimmedLine)) {
+            return;
+        }
+
+        Integer count = this.lines.get(trimmedLine);
+        if (count != null) {
+            this.lines.put(trimmedLine, count + 1);
+            return;
+        }
+
+        if (this.lines.size() >= this.capacity) {
+            Iterator<Map.Entry<String, Integer>> iterator = this.lines.entrySet().iterator();
+            this.nbDroppedLines += iterator.next().getValue();
+            iterator.remove();
+        }
+        this.lines.put(trimmedLine, 1);
+    }
+
+    /**
+     * @return the kept lines in the order they were first given, with their number of occurrences if they were repeated
+     */
+    public synchronized List<String> getLines() {
+        List<String> result = new ArrayList<>();
+        if (this.nbDroppedLines > 0) {
+            result.add("(" + this.nbDroppedLines + " older error lines dropped)");
+        }
+        for (Map.Entry<String, Integer> entry : this.lines.entrySet()) {
+            if (entry.getValue() > 1) {
+                result.add(entry.getKey() + " (x" + entry.getValue() + ")");
+            } else {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+}
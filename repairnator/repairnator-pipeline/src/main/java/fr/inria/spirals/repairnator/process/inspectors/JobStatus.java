@@ -1,9 +1,13 @@
 package fr.inria.spirals.repairnator.process.inspectors;
 
 import com.google.gson.JsonElement;
+import fr.inria.spirals.repairnator.process.files.RepositoryIndex;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.inspectors.properties.features.Features;
 import fr.inria.spirals.repairnator.process.inspectors.properties.tests.FailureDetail;
+import fr.inria.spirals.repairnator.process.maven.CompiledOutputs;
+import fr.inria.spirals.repairnator.process.maven.EffectiveModelCache;
+import fr.inria.spirals.repairnator.process.maven.MavenProjectLayout;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
 import fr.inria.spirals.repairnator.states.PushState;
@@ -15,11 +19,14 @@ import org.apache.maven.model.Plugin;
 import java.io.File;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class contains all information about the status of the pipeline
  */
 public class JobStatus {
+    private static final int MAX_MAVEN_ERRORS_BY_STEP = 100;
+
     private final Logger logger = LoggerFactory.getLogger(JobStatus.class);
 
     private List<PushState> pushStates;
@@ -29,6 +36,10 @@ public class JobStatus {
     private File[] testDir;
     private File[] modules;
     private List<Plugin> plugins;
+    private MavenProjectLayout projectLayout;
+    private EffectiveModelCache effectiveModelCache;
+    private RepositoryIndex repositoryIndex;
+    private CompiledOutputs compiledOutputs;
 
     /**
      * List of patches indexed by the name of the tool to produce them
@@ -46,7 +57,10 @@ public class JobStatus {
 
     private Set<FailureLocation> failureLocations;
     private String failingModulePath;
+    private List<String> failingModulePaths;
+    private List<String> scopedModules;
     private Map<String, List<String>> stepErrors;
+    private Map<String, ErrorRingBuffer> mavenErrors;
     private String gitBranchUrl;
     private boolean hasBeenPatched;
     private Throwable fatalError;
@@ -65,9 +79,12 @@ public class JobStatus {
 
     public JobStatus(String pomDirPath) {
         this.stepErrors = new HashMap<>();
+        this.mavenErrors = new ConcurrentHashMap<>();
         this.pomDirPath = pomDirPath;
         this.repairSourceDir = new File[]{new File("src/main/java")};
         this.failingModulePath = pomDirPath;
+        this.effectiveModelCache = new EffectiveModelCache();
+        this.repositoryIndex = new RepositoryIndex(new File(pomDirPath));
         this.properties = new Properties();
         this.createdFilesToPush = new ArrayList<>();
         this.stepStatuses = new ArrayList<>();
@@ -121,6 +138,13 @@ public class JobStatus {
         errors.add(error);
     }
 
+    /**
+     * Add an error line given by Maven: only a bounded number of lines is kept for each step.
+     */
+    public void addMavenError(String step, String line) {
+        this.mavenErrors.computeIfAbsent(step, key -> new ErrorRingBuffer(MAX_MAVEN_ERRORS_BY_STEP)).add(line);
+    }
+
 
     public boolean isHasBeenPushed() {
         return hasBeenPushed;
@@ -131,7 +155,18 @@ public class JobStatus {
     }
 
     public Map<String, List<String>> getStepErrors() {
-        return stepErrors;
+        if (this.mavenErrors.isEmpty()) {
+            return stepErrors;
+        }
+
+        Map<String, List<String>> result = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : this.stepErrors.entrySet()) {
+            result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        for (Map.Entry<String, ErrorRingBuffer> entry : this.mavenErrors.entrySet()) {
+            result.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue().getLines());
+        }
+        return result;
     }
 
     public String getFailingModulePath() {
@@ -143,6 +178,39 @@ public class JobStatus {
         this.properties.getTests().setFailingModule(this.failingModulePath);
     }
 
+    /**
+     * @return the paths of all the modules with failing tests, while {@link #getFailingModulePath()} only gives the last one
+     */
+    public List<String> getFailingModulePaths() {
+        return failingModulePaths;
+    }
+
+    public void setFailingModulePaths(List<String> failingModulePaths) {
+        this.failingModulePaths = failingModulePaths;
+    }
+
+    /**
+     * @return the modules given to -pl by the last build, or null if the whole reactor has been built
+     */
+    public List<String> getScopedModules() {
+        return scopedModules;
+    }
+
+    public void setScopedModules(List<String> scopedModules) {
+        this.scopedModules = scopedModules;
+    }
+
+    /**
+     * @return the layout written by the fused Maven invocation of the last build, or null if the project has been built without it
+     */
+    public MavenProjectLayout getProjectLayout() {
+        return projectLayout;
+    }
+
+    public void setProjectLayout(MavenProjectLayout projectLayout) {
+        this.projectLayout = projectLayout;
+    }
+
     public Set<FailureLocation> getFailureLocations() {
         return failureLocations;
     }
@@ -199,6 +267,31 @@ public class JobStatus {
         this.modules = modules;
     }
 
+    /**
+     * @return the effective models of the pom.xml files already read by the steps
+     */
+    public EffectiveModelCache getEffectiveModelCache() {
+        return effectiveModelCache;
+    }
+
+    /**
+     * @return the index of the files of the repository, refreshed after each checkout and after the steps which change the repository
+     */
+    public RepositoryIndex getRepositoryIndex() {
+        return repositoryIndex;
+    }
+
+    /**
+     * @return the compiled classes kept after the last successful build, or null if they are not kept
+     */
+    public CompiledOutputs getCompiledOutputs() {
+        return compiledOutputs;
+    }
+
+    public void setCompiledOutputs(CompiledOutputs compiledOutputs) {
+        this.compiledOutputs = compiledOutputs;
+    }
+
     public List<Plugin> getPlugins() {
         return plugins;
     }
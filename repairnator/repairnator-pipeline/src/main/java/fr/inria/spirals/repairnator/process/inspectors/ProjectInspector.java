@@ -10,6 +10,7 @@ import fr.inria.spirals.repairnator.pipeline.RepairToolsManager;
 import fr.inria.spirals.repairnator.process.git.GitHelper;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.inspectors.properties.machineInfo.MachineInfo;
+import fr.inria.spirals.repairnator.process.maven.DependencyPrefetcher;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.process.step.AddExperimentalPluginRepo;
 import fr.inria.spirals.repairnator.process.step.BuildProject;
@@ -58,6 +59,7 @@ public class ProjectInspector {
     private BuildToBeInspected buildToBeInspected;
     private String repoLocalPath;
     private String repoToPushLocalPath;
+    private String compiledOutputsLocalPath;
 
     private String workspace;
     private String m2LocalPath;
@@ -67,6 +69,7 @@ public class ProjectInspector {
     private PatchNotifier patchNotifier;
 
     private CheckoutType checkoutType;
+    private DependencyPrefetcher dependencyPrefetcher;
 
     private List<AbstractStep> steps;
     private AbstractStep finalStep;
@@ -78,6 +81,7 @@ public class ProjectInspector {
         this.workspace = workspace;
         this.repoLocalPath = workspace + File.separator + getRepoSlug() + File.separator + buildToBeInspected.getBuggyBuild().getId();
         this.repoToPushLocalPath = repoLocalPath+"_topush";
+        this.compiledOutputsLocalPath = repoLocalPath + "_compiled";
         this.m2LocalPath = new File(this.repoLocalPath + File.separator + ".m2").getAbsolutePath();
         this.serializers = serializers;
         this.gitHelper = new GitHelper();
@@ -162,6 +166,17 @@ public class ProjectInspector {
         return this.gitHelper;
     }
 
+    /**
+     * @return the prefetch of the dependencies started at the checkout, or null if the build does not have to wait for it
+     */
+    public DependencyPrefetcher getDependencyPrefetcher() {
+        return dependencyPrefetcher;
+    }
+
+    public void setDependencyPrefetcher(DependencyPrefetcher dependencyPrefetcher) {
+        this.dependencyPrefetcher = dependencyPrefetcher;
+    }
+
     public List<AbstractDataSerializer> getSerializers() {
         return serializers;
     }
@@ -199,6 +214,10 @@ public class ProjectInspector {
         return repoToPushLocalPath;
     }
 
+    public String getCompiledOutputsLocalPath() {
+        return compiledOutputsLocalPath;
+    }
+
     public String getRemoteBranchName() {
         SimpleDateFormat dateFormat = new SimpleDateFormat("YYYYMMdd-HHmmss");
         String formattedDate = dateFormat.format(this.getBuggyBuild().getFinishedAt());
@@ -225,7 +244,9 @@ public class ProjectInspector {
                     .addNextStep(new InitRepoToPush(this))
                     .addNextStep(new ComputeClasspath(this, false))
                     .addNextStep(new ComputeSourceDir(this, false, false))
-                    .addNextStep(new ComputeTestDir(this, false));
+                    .addNextStep(new ComputeTestDir(this, false))
+                    // the modules are needed to restrict the build of the patched version to the failing modules
+                    .addNextStep(new ComputeModules(this, false));
 
             for (String repairToolName : RepairnatorConfig.getInstance().getRepairTools()) {
                 AbstractRepairStep repairStep = RepairToolsManager.getStepFromName(repairToolName);
@@ -0,0 +1,204 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The classpaths computed by dependency:build-classpath, kept between the pipelines to avoid running Maven again.
+ *
+ * A classpath is kept under the hash of the effective dependency declarations of the module: its dependencies and its
+ * dependency management, and the ones of the modules of the reactor it depends on. Those declarations are read
+ * from the effective models, without running Maven. The classpath cannot be cached when it depends on artifacts
+ * which can change without any change in the declarations: the SNAPSHOT versions outside the reactor and the version ranges.
+ *
+ * The entries are stored relatively to the local repository and to the project, as both are different for each build.
+ * A cached classpath is only used if all its jars are already in the local repository of the build, downloaded by the build.
+ */
+public class ClasspathCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClasspathCache.class);
+
+    private static final String LOCAL_REPOSITORY_PREFIX = "${localRepository}";
+    private static final String PROJECT_PREFIX = "${project}";
+    private static final String ENTRY_EXTENSION = ".classpath";
+
+    private File cacheDirectory;
+    private String localRepository;
+    private String projectDirectory;
+
+    public ClasspathCache(File cacheDirectory, String localRepository, String projectDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        this.localRepository = new File(localRepository).getAbsolutePath();
+        this.projectDirectory = new File(projectDirectory).getAbsolutePath();
+    }
+
+    /**
+     * @param modulePom the pom.xml file of the module whose classpath is computed
+     * @param rootPom the pom.xml file of the reactor
+     * @return the key of the classpath of the module, or null if it cannot be cached
+     */
+    public String computeKey(File modulePom, File rootPom, EffectiveModelCache models) {
+        Model moduleModel = models.getModel(modulePom, this.localRepository);
+        if (moduleModel == null) {
+            return null;
+        }
+
+        Map<String, Model> reactorModels = new HashMap<>();
+        this.readReactorModels(rootPom, models, reactorModels, new HashSet<>());
+
+        StringBuilder declarations = new StringBuilder();
+        if (!this.describeDependencies(moduleModel, reactorModels, declarations, new HashSet<>())) {
+            return null;
+        }
+        return EffectiveModelCache.computeHash(declarations.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void readReactorModels(File pomFile, EffectiveModelCache models, Map<String, Model> reactorModels, Set<File> visitedPomFiles) {
+        if (!pomFile.isFile() || !visitedPomFiles.add(pomFile.getAbsoluteFile())) {
+            return;
+        }
+        Model model = models.getModel(pomFile, this.localRepository);
+        if (model == null) {
+            return;
+        }
+        reactorModels.put(model.getGroupId() + ":" + model.getArtifactId() + ":" + model.getVersion(), model);
+        for (String module : model.getModules()) {
+            this.readReactorModels(new File(new File(pomFile.getParentFile(), module), "pom.xml"), models, reactorModels, visitedPomFiles);
+        }
+    }
+
+    /**
+     * Append the dependency declarations of the model, and of the modules of the reactor it depends on.
+     *
+     * @return false if the classpath of the model cannot be cached
+     */
+    private boolean describeDependencies(Model model, Map<String, Model> reactorModels, StringBuilder declarations, Set<String> describedModules) {
+        String moduleId = model.getGroupId() + ":" + model.getArtifactId() + ":" + model.getVersion();
+        if (!describedModules.add(moduleId)) {
+            return true;
+        }
+        declarations.append("module ").append(moduleId).append('\n');
+
+        if (model.getDependencyManagement() != null) {
+            for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+                declarations.append("managed ").append(describeDependency(dependency)).append('\n');
+            }
+        }
+
+        for (Dependency dependency : model.getDependencies()) {
+            String version = dependency.getVersion();
+            if (version == null || version.startsWith("[") || version.startsWith("(") || version.equals("LATEST") || version.equals("RELEASE")) {
+                return false;
+            }
+            declarations.append("dependency ").append(describeDependency(dependency)).append('\n');
+
+            Model reactorModel = reactorModels.get(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + version);
+            if (reactorModel != null) {
+                if (!this.describeDependencies(reactorModel, reactorModels, declarations, describedModules)) {
+                    return false;
+                }
+            } else if (version.endsWith("-SNAPSHOT")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describeDependency(Dependency dependency) {
+        List<String> exclusions = new ArrayList<>();
+        for (Exclusion exclusion : dependency.getExclusions()) {
+            exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+        }
+        Collections.sort(exclusions);
+
+        return dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion() + ":" + dependency.getType()
+                + ":" + dependency.getClassifier() + ":" + dependency.getScope() + ":" + dependency.isOptional()
+                + ":" + dependency.getSystemPath() + ":" + exclusions;
+    }
+
+    private File getEntryFile(String key) {
+        return new File(this.cacheDirectory, key + ENTRY_EXTENSION);
+    }
+
+    /**
+     * Write the cached classpath of the given key in the classpath file, as written by dependency:build-classpath.
+     *
+     * @return false if the classpath is not in the cache, or if one of its jars is not in the local repository of the build
+     */
+    public boolean restore(String key, File classpathFile) {
+        File entryFile = this.getEntryFile(key);
+        if (!entryFile.isFile()) {
+            return false;
+        }
+
+        try {
+            List<String> jars = new ArrayList<>();
+            for (String line : Files.readAllLines(entryFile.toPath(), StandardCharsets.UTF_8)) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String jar = line.replace(LOCAL_REPOSITORY_PREFIX, this.localRepository).replace(PROJECT_PREFIX, this.projectDirectory);
+                if (!new File(jar).exists()) {
+                    LOGGER.debug("The cached classpath " + key + " cannot be used: " + jar + " is not in the local repository.");
+                    return false;
+                }
+                jars.add(jar);
+            }
+            Files.write(classpathFile.toPath(), String.join(File.pathSeparator, jars).getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Error while reading the cached classpath " + entryFile.getPath() + ".", e);
+            return false;
+        }
+    }
+
+    /**
+     * Keep the classpath written in the given file by dependency:build-classpath under the given key.
+     */
+    public void store(String key, File classpathFile) {
+        try {
+            String classpath = new String(Files.readAllBytes(classpathFile.toPath()), StandardCharsets.UTF_8).trim();
+            if (classpath.isEmpty()) {
+                return;
+            }
+
+            StringBuilder entry = new StringBuilder();
+            for (String jar : classpath.split(File.pathSeparator)) {
+                String absolutePath = new File(jar).getAbsolutePath();
+                // the local repository is inside the project directory
+                if (absolutePath.startsWith(this.localRepository + File.separator)) {
+                    entry.append(LOCAL_REPOSITORY_PREFIX).append(absolutePath.substring(this.localRepository.length()));
+                } else if (absolutePath.startsWith(this.projectDirectory + File.separator)) {
+                    entry.append(PROJECT_PREFIX).append(absolutePath.substring(this.projectDirectory.length()));
+                } else {
+                    entry.append(absolutePath);
+                }
+                entry.append('\n');
+            }
+
+            // the file is moved in place once complete, as other pipelines may read it
+            this.cacheDirectory.mkdirs();
+            File entryFile = this.getEntryFile(key);
+            File tmpFile = File.createTempFile(key, ".tmp", this.cacheDirectory);
+            Files.write(tmpFile.toPath(), entry.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Error while caching the classpath of " + classpathFile.getPath() + ".", e);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.files.RepositoryIndex;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The compiled classes of the modules of the last successful build, kept as a version identified by the hashes
+ * of the sources they have been compiled from.
+ *
+ * Before another build of the same repository, the classes of the recorded version are put back in the target directories,
+ * in case a step changed them, and only the classes of the source files which changed since then are deleted, with the classes
+ * of the source files which refer to them by name. Maven then only compiles the sources whose classes are missing,
+ * instead of compiling again the whole modules. Before a repair tool runs, the classes are only put back, as the tool
+ * uses them without building the project first.
+ *
+ * Only the class files are kept: the resources are copied again by each build, so that a resource deleted or renamed
+ * since the recorded version is not put back.
+ *
+ * The whole project is compiled as usual when a pom.xml file or another compilation input than the java sources changed,
+ * or when the sources to compile belong to a module whose annotation processors generated sources.
+ */
+public class CompiledOutputs {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompiledOutputs.class);
+
+    // with the incremental compilation of the maven-compiler-plugin, a single changed source recompiles the whole module,
+    // without it only the stale sources, whose classes are missing or older, are compiled
+    public static final String INCREMENTAL_COMPILATION_PROPERTY = "maven.compiler.useIncrementalCompilation";
+
+    private static final String POM_FILE = "pom.xml";
+    private static final String SOURCE_PREFIX = "src/main/java/";
+    private static final String TEST_PREFIX = "src/test/java/";
+    private static final String[] INPUT_PREFIXES = {"src/main/", "src/test/"};
+    // the resources are copied again by each build
+    private static final String[] RESOURCE_PREFIXES = {"src/main/resources/", "src/test/resources/"};
+    private static final String CLASSES_PATH = "target/classes";
+    private static final String TEST_CLASSES_PATH = "target/test-classes";
+    private static final String GENERATED_SOURCES_PATH = "target/generated-sources";
+    private static final String CLASS_EXTENSION = ".class";
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    /**
+     * A file whose change can change the compiled classes.
+     */
+    private static class Input {
+        private String hash;
+        private String modulePath;
+        private boolean javaSource;
+
+        Input(String hash, String modulePath, boolean javaSource) {
+            this.hash = hash;
+            this.modulePath = modulePath;
+            this.javaSource = javaSource;
+        }
+    }
+
+    private File storeDirectory;
+    private RepositoryIndex repositoryIndex;
+    private String version;
+    private Map<String, Input> inputs;
+    private boolean incremental;
+
+    /**
+     * @param storeDirectory the directory where the versions are kept, outside of the repository
+     * @param repositoryIndex the index of the repository whose classes are kept
+     */
+    public CompiledOutputs(File storeDirectory, RepositoryIndex repositoryIndex) {
+        this.storeDirectory = storeDirectory;
+        this.repositoryIndex = repositoryIndex;
+    }
+
+    /**
+     * @return the identifier of the recorded version, or null if none has been recorded
+     */
+    public synchronized String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if the builds should only compile the stale sources, as prepared by {@link #prepare()}
+     */
+    public synchronized boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Keep the compiled classes of all the modules, after a successful build.
+     *
+     * @return false if they cannot be kept: the next builds will then compile the whole project
+     */
+    public synchronized boolean record() {
+        this.repositoryIndex.refresh();
+        Map<String, Input> inputs = this.readInputs();
+        if (inputs == null) {
+            this.version = null;
+            return false;
+        }
+
+        String version = getVersion(inputs);
+        File versionDirectory = new File(this.storeDirectory, version);
+        int nbCopiedFiles = 0;
+        try {
+            Files.createDirectories(versionDirectory.toPath());
+            for (File moduleDirectory : this.repositoryIndex.getModuleDirectories()) {
+                File moduleVersionDirectory = this.getVersionDirectory(versionDirectory, moduleDirectory);
+                for (String outputPath : new String[] {CLASSES_PATH, TEST_CLASSES_PATH}) {
+                    nbCopiedFiles += syncClassFiles(new File(moduleDirectory, outputPath), new File(moduleVersionDirectory, outputPath), true);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error while keeping the compiled classes: the next builds will compile the whole project.", e);
+            FileUtils.deleteQuietly(versionDirectory);
+            this.version = null;
+            return false;
+        }
+
+        File[] previousVersionDirectories = this.storeDirectory.listFiles();
+        if (previousVersionDirectories != null) {
+            for (File previousVersionDirectory : previousVersionDirectories) {
+                if (!previousVersionDirectory.getName().equals(version)) {
+                    FileUtils.deleteQuietly(previousVersionDirectory);
+                }
+            }
+        }
+
+        this.version = version;
+        this.inputs = inputs;
+        LOGGER.info("Compiled classes kept as version " + version + " (" + nbCopiedFiles + " files copied).");
+        return true;
+    }
+
+    /**
+     * Put back the classes of the recorded version and delete the classes to compile again,
+     * according to the changes of the sources since the recorded version.
+     *
+     * @return the paths, relative to the root of the repository, of the sources which will be compiled again,
+     * or null if the whole project must be compiled
+     */
+    public synchronized Set<String> prepare() {
+        this.incremental = false;
+        if (this.version == null) {
+            return null;
+        }
+        File versionDirectory = new File(this.storeDirectory, this.version);
+        if (!versionDirectory.isDirectory()) {
+            return null;
+        }
+
+        this.repositoryIndex.refresh();
+        Map<String, Input> inputs = this.readInputs();
+        if (inputs == null) {
+            return null;
+        }
+
+        Set<String> changedSources = new TreeSet<>();
+        boolean otherInputChanged = false;
+        Set<String> paths = new TreeSet<>(inputs.keySet());
+        paths.addAll(this.inputs.keySet());
+        for (String path : paths) {
+            Input previousInput = this.inputs.get(path);
+            Input input = inputs.get(path);
+            if (previousInput != null && input != null && previousInput.hash.equals(input.hash)) {
+                continue;
+            }
+            if ((previousInput == null || previousInput.javaSource) && (input == null || input.javaSource)) {
+                changedSources.add(path);
+            } else {
+                otherInputChanged = true;
+            }
+        }
+
+        Set<String> recompiledSources;
+        try {
+            this.restoreClassFiles(versionDirectory, true);
+
+            if (otherInputChanged) {
+                LOGGER.info("Other files than the java sources changed since the version " + this.version + ": the whole project will be compiled.");
+                return null;
+            }
+
+            recompiledSources = this.getSourcesToRecompile(changedSources, inputs);
+            Set<String> modulePaths = new HashSet<>();
+            for (String path : recompiledSources) {
+                modulePaths.add(inputs.get(path).modulePath);
+            }
+            for (String modulePath : modulePaths) {
+                if (!listFiles(new File(this.toFile(modulePath), GENERATED_SOURCES_PATH), null).isEmpty()) {
+                    LOGGER.info("The module " + modulePath + " has generated sources: the whole project will be compiled.");
+                    return null;
+                }
+            }
+
+            for (String path : changedSources) {
+                Input input = inputs.containsKey(path) ? inputs.get(path) : this.inputs.get(path);
+                this.deleteClassFiles(path, input.modulePath);
+            }
+            for (String path : recompiledSources) {
+                this.deleteClassFiles(path, inputs.get(path).modulePath);
+            }
+            LOGGER.info(changedSources.size() + " java files changed since the version " + this.version + ": "
+                    + recompiledSources.size() + " java files will be compiled again.");
+        } catch (IOException e) {
+            LOGGER.warn("Error while preparing the compiled classes of the version " + this.version + ": the whole project will be compiled.", e);
+            return null;
+        }
+
+        this.incremental = true;
+        return recompiledSources;
+    }
+
+    /**
+     * Put back the classes of the recorded version which have been changed or deleted, for instance by a previous repair tool,
+     * without deleting any class: unlike {@link #prepare()}, the classes are complete for the tools which use them without building.
+     *
+     * @return false if no version has been recorded or if the classes cannot be put back
+     */
+    public synchronized boolean restore() {
+        this.incremental = false;
+        if (this.version == null) {
+            return false;
+        }
+        File versionDirectory = new File(this.storeDirectory, this.version);
+        if (!versionDirectory.isDirectory()) {
+            return false;
+        }
+
+        try {
+            this.restoreClassFiles(versionDirectory, false);
+        } catch (IOException e) {
+            LOGGER.warn("Error while putting back the compiled classes of the version " + this.version + ".", e);
+            return false;
+        }
+        return true;
+    }
+
+    private void restoreClassFiles(File versionDirectory, boolean deleteOtherClassFiles) throws IOException {
+        int nbRestoredFiles = 0;
+        for (File moduleDirectory : this.repositoryIndex.getModuleDirectories()) {
+            File moduleVersionDirectory = this.getVersionDirectory(versionDirectory, moduleDirectory);
+            for (String outputPath : new String[] {CLASSES_PATH, TEST_CLASSES_PATH}) {
+                nbRestoredFiles += syncClassFiles(new File(moduleVersionDirectory, outputPath), new File(moduleDirectory, outputPath), deleteOtherClassFiles);
+            }
+        }
+        if (nbRestoredFiles > 0) {
+            LOGGER.info(nbRestoredFiles + " compiled files changed since the version " + this.version + " have been put back.");
+        }
+    }
+
+    /**
+     * Delete the compiled classes of all the modules, when a build using the classes of the recorded version failed:
+     * the next build then compiles the whole project.
+     */
+    public synchronized void discardOutputs() {
+        this.incremental = false;
+        for (File moduleDirectory : this.repositoryIndex.getModuleDirectories()) {
+            FileUtils.deleteQuietly(new File(moduleDirectory, CLASSES_PATH));
+            FileUtils.deleteQuietly(new File(moduleDirectory, TEST_CLASSES_PATH));
+        }
+    }
+
+    /**
+     * @return the compilation inputs of the repository, by path, or null if one of them cannot be read
+     */
+    private Map<String, Input> readInputs() {
+        Map<String, Input> inputs = new HashMap<>();
+        for (RepositoryIndex.Entry entry : this.repositoryIndex.getFileEntries()) {
+            String modulePath = entry.getModulePath();
+            if (modulePath == null) {
+                continue;
+            }
+            String path = entry.getPath();
+            String pathInModule = getPathInModule(path, modulePath);
+            boolean javaSource = entry.getRole() != RepositoryIndex.Role.OTHER && path.endsWith(".java");
+            if (!javaSource && !pathInModule.equals(POM_FILE) && !isOtherInput(pathInModule)) {
+                continue;
+            }
+
+            String hash = this.repositoryIndex.getContentHash(this.toFile(path));
+            if (hash == null) {
+                return null;
+            }
+            inputs.put(path, new Input(hash, modulePath, javaSource));
+        }
+        return inputs;
+    }
+
+    private static boolean isOtherInput(String pathInModule) {
+        for (String resourcePrefix : RESOURCE_PREFIXES) {
+            if (pathInModule.startsWith(resourcePrefix)) {
+                return false;
+            }
+        }
+        for (String inputPrefix : INPUT_PREFIXES) {
+            if (pathInModule.startsWith(inputPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getPathInModule(String path, String modulePath) {
+        return modulePath.isEmpty() ? path : path.substring(modulePath.length() + 1);
+    }
+
+    private static String getVersion(Map<String, Input> inputs) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, Input> input : new TreeMap<>(inputs).entrySet()) {
+            content.append(input.getKey()).append('=').append(input.getValue().hash).append('\n');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder version = new StringBuilder();
+            for (byte b : digest.digest(content.toString().getBytes(StandardCharsets.UTF_8))) {
+                version.append(String.format("%02x", b));
+            }
+            return version.substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private File toFile(String path) {
+        return path.isEmpty() ? this.repositoryIndex.getRootDirectory() : new File(this.repositoryIndex.getRootDirectory(), path);
+    }
+
+    private File getVersionDirectory(File versionDirectory, File moduleDirectory) {
+        String modulePath = this.repositoryIndex.getRootDirectory().toPath().relativize(moduleDirectory.toPath()).toString();
+        return modulePath.isEmpty() ? versionDirectory : new File(versionDirectory, modulePath);
+    }
+
+    private static String getSimpleName(String path) {
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        return fileName.substring(0, fileName.length() - ".java".length());
+    }
+
+    /**
+     * The classes of a source file which did not change must be compiled again if they refer to a class which changed,
+     * as the compiler may have inlined its constants or chosen another overload of its methods.
+     * The references are found by name, without parsing the sources: a source mentioning a changed class in a comment
+     * is compiled again for nothing, but a source using a changed class is never missed, unless it only uses it through
+     * inferred types.
+     *
+     * @return the existing sources which changed and the sources which refer, directly or not, to a changed source
+     */
+    private Set<String> getSourcesToRecompile(Set<String> changedSources, Map<String, Input> inputs) throws IOException {
+        Set<String> recompiledSources = new TreeSet<>();
+        if (changedSources.isEmpty()) {
+            return recompiledSources;
+        }
+
+        Set<String> knownNames = new HashSet<>();
+        for (Map.Entry<String, Input> input : inputs.entrySet()) {
+            if (input.getValue().javaSource) {
+                knownNames.add(getSimpleName(input.getKey()));
+            }
+        }
+        for (String path : changedSources) {
+            knownNames.add(getSimpleName(path));
+        }
+
+        // the sources referring to each known class name
+        Map<String, Set<String>> references = new HashMap<>();
+        for (Map.Entry<String, Input> input : inputs.entrySet()) {
+            if (!input.getValue().javaSource) {
+                continue;
+            }
+            String content = new String(Files.readAllBytes(this.toFile(input.getKey()).toPath()), StandardCharsets.UTF_8);
+            Matcher matcher = IDENTIFIER_PATTERN.matcher(content);
+            while (matcher.find()) {
+                String identifier = matcher.group();
+                if (knownNames.contains(identifier)) {
+                    references.computeIfAbsent(identifier, name -> new HashSet<>()).add(input.getKey());
+                }
+            }
+        }
+
+        Deque<String> changedNames = new ArrayDeque<>();
+        Set<String> visitedNames = new HashSet<>();
+        for (String path : changedSources) {
+            if (inputs.containsKey(path)) {
+                recompiledSources.add(path);
+            }
+            if (visitedNames.add(getSimpleName(path))) {
+                changedNames.add(getSimpleName(path));
+            }
+        }
+        while (!changedNames.isEmpty()) {
+            Set<String> referringSources = references.get(changedNames.poll());
+            if (referringSources == null) {
+                continue;
+            }
+            for (String path : referringSources) {
+                recompiledSources.add(path);
+                if (visitedNames.add(getSimpleName(path))) {
+                    changedNames.add(getSimpleName(path));
+                }
+            }
+        }
+        return recompiledSources;
+    }
+
+    /**
+     * Delete the classes compiled from the given source, including its nested and anonymous classes.
+     */
+    private void deleteClassFiles(String path, String modulePath) throws IOException {
+        String pathInModule = getPathInModule(path, modulePath);
+        String outputPath;
+        String classPath;
+        if (pathInModule.startsWith(SOURCE_PREFIX)) {
+            outputPath = CLASSES_PATH;
+            classPath = pathInModule.substring(SOURCE_PREFIX.length());
+        } else if (pathInModule.startsWith(TEST_PREFIX)) {
+            outputPath = TEST_CLASSES_PATH;
+            classPath = pathInModule.substring(TEST_PREFIX.length());
+        } else {
+            return;
+        }
+
+        File classDirectory = new File(new File(this.toFile(modulePath), outputPath), classPath).getParentFile();
+        String simpleName = getSimpleName(path);
+        File[] classFiles = classDirectory.listFiles((directory, name) -> name.equals(simpleName + ".class")
+                || (name.startsWith(simpleName + "$") && name.endsWith(".class")));
+        if (classFiles != null) {
+            for (File classFile : classFiles) {
+                Files.delete(classFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * @param extension the extension of the files to list, or null to list all the files
+     * @return the paths of the files in the given directory and its subdirectories, relative to it
+     */
+    private static Set<String> listFiles(File directory, String extension) throws IOException {
+        Set<String> files = new TreeSet<>();
+        if (!directory.isDirectory()) {
+            return files;
+        }
+        Path directoryPath = directory.toPath();
+        try (Stream<Path> paths = Files.walk(directoryPath)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(path -> extension == null || path.getFileName().toString().endsWith(extension))
+                    .forEach(path -> files.add(directoryPath.relativize(path).toString()));
+        }
+        return files;
+    }
+
+    /**
+     * Make the class files of the target directory the same as the ones of the source directory,
+     * copying only the files whose size or date differ. The other files are left as they are.
+     *
+     * @param deleteOtherClassFiles whether the class files of the target directory which are not in the source directory are deleted
+     * @return the number of files copied or deleted
+     */
+    private static int syncClassFiles(File sourceDirectory, File targetDirectory, boolean deleteOtherClassFiles) throws IOException {
+        Set<String> sourceFiles = listFiles(sourceDirectory, CLASS_EXTENSION);
+        int nbChangedFiles = 0;
+        if (deleteOtherClassFiles) {
+            for (String path : listFiles(targetDirectory, CLASS_EXTENSION)) {
+                if (!sourceFiles.contains(path)) {
+                    Files.delete(new File(targetDirectory, path).toPath());
+                    nbChangedFiles++;
+                }
+            }
+        }
+        for (String path : sourceFiles) {
+            File sourceFile = new File(sourceDirectory, path);
+            File targetFile = new File(targetDirectory, path);
+            if (!targetFile.isFile() || targetFile.length() != sourceFile.length() || targetFile.lastModified() != sourceFile.lastModified()) {
+                Files.createDirectories(targetFile.getParentFile().toPath());
+                Files.copy(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                nbChangedFiles++;
+            }
+        }
+        return nbChangedFiles;
+    }
+}
@@ -0,0 +1,94 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.output.MavenMuteOutputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Download the dependencies and the plugins of a project in background, as soon as its pom.xml files are checked out.
+ *
+ * The resolution overlaps the rest of the checkout, like the init of the submodules, instead of starting with the build:
+ * the build then finds the artifacts in the local repository. The build waits for the end of the prefetch,
+ * so that both do not write in the local repository at the same time.
+ * A failure of the prefetch is ignored: the missing artifacts are downloaded by the build.
+ */
+public class DependencyPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DependencyPrefetcher.class);
+
+    // go-offline resolves the plugins and the dependencies, excluding the modules of the reactor which are not built yet
+    public static final String PREFETCH_GOAL = "org.apache.maven.plugins:maven-dependency-plugin:3.1.2:go-offline";
+    private static final int DOWNLOAD_THREADS = 10;
+
+    private ProjectInspector inspector;
+    private Thread thread;
+    private long startTime;
+    private volatile long endTime;
+    private volatile int exitCode;
+
+    public DependencyPrefetcher(ProjectInspector inspector) {
+        this.inspector = inspector;
+        this.exitCode = -1;
+    }
+
+    /**
+     * Start to resolve the dependencies of the given pom.xml file in background.
+     */
+    public void start(String pomFile) {
+        Properties properties = new Properties();
+        properties.setProperty("maven.artifact.threads", String.valueOf(DOWNLOAD_THREADS));
+
+        MavenHelper helper = new MavenHelper(pomFile, PREFETCH_GOAL, properties, this.getClass().getSimpleName(), this.inspector, true);
+        // the errors of the prefetch are not the ones of the build
+        helper.setOutputHandler(new MavenMuteOutputHandler(helper));
+        helper.setErrorHandler(new MavenMuteOutputHandler(helper));
+
+        this.startTime = System.currentTimeMillis();
+        this.thread = new Thread(() -> {
+            try {
+                this.exitCode = helper.run();
+            } catch (InterruptedException e) {
+                LOGGER.debug("The dependency prefetch has been stopped: " + e.getMessage());
+            }
+            this.endTime = System.currentTimeMillis();
+        }, "dependency-prefetch");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        LOGGER.info("Dependency prefetch started for " + pomFile);
+    }
+
+    /**
+     * Wait for the end of the prefetch, before the build uses the local repository.
+     *
+     * @return the time saved on the critical path, in milliseconds: the part of the prefetch which ran along the previous steps
+     */
+    public long waitForEnd() {
+        long waitStartTime = System.currentTimeMillis();
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        long prefetchTime = this.endTime - this.startTime;
+        long savedTime = Math.min(prefetchTime, waitStartTime - this.startTime);
+        LOGGER.info("Dependency prefetch ended in " + prefetchTime + "ms with the exit code " + this.exitCode + ": "
+                + savedTime + "ms of it ran along the checkout, " + (prefetchTime - savedTime) + "ms were waited by the build.");
+        return savedTime;
+    }
+
+    /**
+     * Stop the prefetch and kill its processes, when the build will not use the local repository.
+     */
+    public void stop() {
+        this.thread.interrupt();
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
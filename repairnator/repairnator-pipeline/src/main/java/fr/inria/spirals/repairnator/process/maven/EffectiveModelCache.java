@@ -0,0 +1,200 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.DefaultModelBuilder;
+import org.apache.maven.model.building.DefaultModelBuilderFactory;
+import org.apache.maven.model.building.DefaultModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuildingResult;
+import org.apache.maven.model.building.ModelCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The effective models of the pom.xml files read during the inspection of a build.
+ *
+ * The steps computing the modules, the plugins and the source directories read the same pom.xml files,
+ * and each effective model needs the parent pom.xml files of the module: the models are kept by path and content of
+ * the pom.xml file, and the parent models are shared by all the modules. As a checkout can change any pom.xml file,
+ * the local files read to build the models are checked before each read, and everything is read again after a change.
+ * The returned models are shared and must not be modified.
+ */
+public class EffectiveModelCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EffectiveModelCache.class);
+
+    // the builder does not keep any state between two builds
+    private static final DefaultModelBuilder MODEL_BUILDER = new DefaultModelBuilderFactory().newInstance();
+
+    private Map<String, Model> models;
+    private Map<File, PomFileState> readPomFiles;
+    private ParentModelCache parentModels;
+    private int hits;
+    private int misses;
+
+    /**
+     * The content of a pom.xml file used by the cached models, identified by its hash.
+     */
+    private static class PomFileState {
+        private long lastModified;
+        private long length;
+        private String hash;
+
+        private PomFileState(File pomFile) throws IOException {
+            this.lastModified = pomFile.lastModified();
+            this.length = pomFile.length();
+            this.hash = computeHash(pomFile);
+        }
+
+        private boolean isUpToDate(File pomFile) {
+            if (pomFile.lastModified() == this.lastModified && pomFile.length() == this.length) {
+                return true;
+            }
+            // a checkout changes the modification date even if the content is the same
+            try {
+                if (pomFile.exists() && computeHash(pomFile).equals(this.hash)) {
+                    this.lastModified = pomFile.lastModified();
+                    this.length = pomFile.length();
+                    return true;
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Error while reading " + pomFile.getPath() + ": " + e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The raw models of the parent pom.xml files and the imported pom.xml files, shared by the builds of the effective models.
+     */
+    private static class ParentModelCache implements ModelCache {
+        private Map<String, Object> data = new HashMap<>();
+
+        @Override
+        public void put(String groupId, String artifactId, String version, String tag, Object data) {
+            this.data.put(groupId + ":" + artifactId + ":" + version + ":" + tag, data);
+        }
+
+        @Override
+        public Object get(String groupId, String artifactId, String version, String tag) {
+            return this.data.get(groupId + ":" + artifactId + ":" + version + ":" + tag);
+        }
+    }
+
+    public EffectiveModelCache() {
+        this.models = new HashMap<>();
+        this.readPomFiles = new HashMap<>();
+        this.parentModels = new ParentModelCache();
+    }
+
+    private static String computeHash(File file) throws IOException {
+        return computeHash(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * @return the SHA-256 hash of the given content, in hexadecimal
+     */
+    static String computeHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Build the effective model of the given pom.xml file, or get it from the cache.
+     * If the effective model cannot be built, for example if a parent cannot be downloaded, the raw model is used.
+     *
+     * @param localMavenRepository the repository in which the parent pom.xml files are looked for and downloaded
+     */
+    public synchronized Model getModel(File pomXml, String localMavenRepository) {
+        this.clearIfPomFilesChanged();
+
+        String key;
+        try {
+            pomXml = pomXml.getCanonicalFile();
+            PomFileState pomFileState = new PomFileState(pomXml);
+            this.readPomFiles.put(pomXml, pomFileState);
+            key = pomXml.getPath() + "@" + pomFileState.hash + "@" + localMavenRepository;
+        } catch (IOException e) {
+            LOGGER.error("Error while reading " + pomXml.getPath() + ": " + e.getMessage());
+            return null;
+        }
+
+        Model model = this.models.get(key);
+        if (model != null) {
+            this.hits++;
+            return model;
+        }
+        this.misses++;
+
+        model = this.buildModel(pomXml, localMavenRepository);
+        if (model != null) {
+            this.models.put(key, model);
+        }
+        return model;
+    }
+
+    private Model buildModel(File pomXml, String localMavenRepository) {
+        ModelBuildingRequest req = new DefaultModelBuildingRequest();
+        req.setProcessPlugins(true);
+        req.setPomFile(pomXml);
+        req.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
+        req.setModelResolver(new RepositoryModelResolver(localMavenRepository));
+        req.setModelCache(this.parentModels);
+
+        // we try to build the model, and if we fail, we try to get the raw model
+        try {
+            ModelBuildingResult modelBuildingResult = MODEL_BUILDER.build(req);
+            // the model depends on the content of the pom.xml file and of all its parents
+            for (String modelId : modelBuildingResult.getModelIds()) {
+                File pomFile = modelBuildingResult.getRawModel(modelId).getPomFile();
+                if (pomFile != null && !this.readPomFiles.containsKey(pomFile)) {
+                    this.readPomFiles.put(pomFile, new PomFileState(pomFile));
+                }
+            }
+            return modelBuildingResult.getEffectiveModel();
+        } catch (ModelBuildingException e) {
+            LOGGER.error("Error while building complete model. The raw model will be used. Error message: " + e.getMessage());
+            return MODEL_BUILDER.buildRawModel(pomXml, ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL, true).get();
+        } catch (IOException e) {
+            LOGGER.error("Error while reading the parents of " + pomXml.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void clearIfPomFilesChanged() {
+        for (Map.Entry<File, PomFileState> entry : this.readPomFiles.entrySet()) {
+            if (!entry.getValue().isUpToDate(entry.getKey())) {
+                LOGGER.debug(entry.getKey().getPath() + " changed: the effective models will be built again.");
+                this.models.clear();
+                this.readPomFiles.clear();
+                this.parentModels = new ParentModelCache();
+                return;
+            }
+        }
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+}
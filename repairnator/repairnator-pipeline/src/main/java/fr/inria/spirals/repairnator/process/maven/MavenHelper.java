@@ -1,21 +1,20 @@
 package fr.inria.spirals.repairnator.process.maven;
 
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.output.MavenErrorHandler;
 import fr.inria.spirals.repairnator.process.maven.output.MavenFilterOutputHandler;
+import fr.inria.spirals.repairnator.process.maven.output.MavenLogWriter;
 import fr.inria.spirals.repairnator.process.maven.output.MavenMuteOutputHandler;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportWatcher;
 import org.apache.maven.model.Model;
-import org.apache.maven.model.building.DefaultModelBuilder;
-import org.apache.maven.model.building.DefaultModelBuilderFactory;
-import org.apache.maven.model.building.DefaultModelBuildingRequest;
-import org.apache.maven.model.building.ModelBuildingException;
-import org.apache.maven.model.building.ModelBuildingRequest;
-import org.apache.maven.model.building.ModelBuildingResult;
 import org.apache.maven.shared.invoker.InvocationOutputHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
@@ -50,6 +49,8 @@ public class MavenHelper {
         "dependency-check.skip"
     );
     private static final int TIMEOUT_WITHOUT_OUTPUT = 10; // in minutes
+    private static final int MEMORY_CHECK_PERIOD = 5; // in seconds
+    private static final int REPORT_CHECK_PERIOD = 5; // in seconds
 
     private final Logger logger = LoggerFactory.getLogger(MavenHelper.class);
 
@@ -59,6 +60,12 @@ public class MavenHelper {
     private String name;
     private ProjectInspector inspector;
     private Instant limitOutputDate;
+    private File globalSettingsFile;
+    private String stopReason;
+    private MavenLogWriter logWriter;
+    private List<String> projects;
+    private SurefireReportWatcher reportWatcher;
+    private boolean stoppedOnReproduction;
 
     private boolean skipCheckstyle;
 
@@ -81,6 +88,7 @@ public class MavenHelper {
         this.outputHandler = new MavenFilterOutputHandler(this);
 
         this.updateProperties();
+        this.useMavenCache();
     }
 
     private void updateProperties() {
@@ -96,6 +104,27 @@ public class MavenHelper {
         if (this.skipCheckstyle) {
             this.properties.setProperty("checkstyle.skip", "true");
         }
+        // the classes of the previous build have been kept: only the sources whose classes are missing or outdated are compiled
+        JobStatus jobStatus = this.inspector.getJobStatus();
+        if (jobStatus != null && jobStatus.getCompiledOutputs() != null && jobStatus.getCompiledOutputs().isIncremental()) {
+            this.properties.setProperty(CompiledOutputs.INCREMENTAL_COMPILATION_PROPERTY, "false");
+        }
+    }
+
+    /**
+     * Declare the shared Maven cache, if any, as the first repository of the build.
+     */
+    private void useMavenCache() {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        if (config.getMavenCacheDirectory() == null || this.inspector.getM2LocalPath() == null) {
+            return;
+        }
+        MavenRepositoryCache mavenCache = new MavenRepositoryCache(new File(config.getMavenCacheDirectory()), config.getMavenCacheSize() * 1024 * 1024);
+        try {
+            this.globalSettingsFile = mavenCache.createSettings(new File(this.inspector.getM2LocalPath()));
+        } catch (IOException e) {
+            this.logger.warn("The Maven cache cannot be used: the artifacts will be downloaded.", e);
+        }
     }
 
     public String getGoal() {
@@ -118,6 +147,66 @@ public class MavenHelper {
         return inspector;
     }
 
+    public List<String> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Restrict the goal to the given modules of the reactor and to the modules they depend on (-pl and -am options).
+     * By default, or with null, the goal is run on the whole reactor.
+     */
+    public void setProjects(List<String> projects) {
+        this.projects = projects;
+    }
+
+    /**
+     * Watch the surefire reports while the goal runs: the goal is stopped as soon as the expected failing tests
+     * failed again, and its processes are given a lower priority if none of them failed.
+     */
+    public void setReportWatcher(SurefireReportWatcher reportWatcher) {
+        this.reportWatcher = reportWatcher;
+    }
+
+    /**
+     * @return true if the last run of the goal has been stopped because the expected failing tests failed again
+     */
+    public boolean isStoppedOnReproduction() {
+        return stoppedOnReproduction;
+    }
+
+    /**
+     * @return the writer of the log file of the goal, shared by its output and error handlers.
+     * Once the goal ended, the writer is closed and drops the lines still given by the processes of the goal.
+     */
+    public synchronized MavenLogWriter getLogWriter() {
+        if (this.logWriter == null) {
+            String filename = "repairnator.maven." + this.name.toLowerCase() + ".log";
+            this.inspector.getJobStatus().addFileToPush(filename);
+            this.logWriter = new MavenLogWriter(new File(this.inspector.getRepoLocalPath(), filename));
+        }
+        return this.logWriter;
+    }
+
+    /**
+     * The next run of the goal writes a new log file.
+     */
+    private synchronized void resetLogWriter() {
+        this.logWriter = null;
+    }
+
+    private synchronized void closeLogWriter() {
+        if (this.logWriter != null) {
+            this.logWriter.close();
+            for (File rotatedFile : this.logWriter.getRotatedFiles()) {
+                this.inspector.getJobStatus().addFileToPush(rotatedFile.getName());
+            }
+        }
+    }
+
+    public File getGlobalSettingsFile() {
+        return globalSettingsFile;
+    }
+
     public InvocationOutputHandler getErrorHandler() {
         return errorHandler;
     }
@@ -138,44 +227,100 @@ public class MavenHelper {
         this.outputHandler = outputHandler;
     }
 
+    /**
+     * Build the effective model of the given pom.xml file, without any cache.
+     * The steps should use the cache of the job status instead, see {@link EffectiveModelCache}.
+     */
     public static Model readPomXml(File pomXml, String localMavenRepository) {
-        ModelBuildingRequest req = new DefaultModelBuildingRequest();
-        req.setProcessPlugins(true);
-        req.setPomFile(pomXml);
-        req.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
-        req.setModelResolver(new RepositoryModelResolver(localMavenRepository));
+        return new EffectiveModelCache().getModel(pomXml, localMavenRepository);
+    }
 
-        DefaultModelBuilder defaultModelBuilder = new DefaultModelBuilderFactory().newInstance();
+    /**
+     * @return why the watchdog stopped the last run of the goal, or null if it has not been stopped
+     */
+    public String getStopReason() {
+        return stopReason;
+    }
 
-        // we try to build the model, and if we fail, we try to get the raw model
+    // we manage our own timeout: a watchdog kills all the processes of the goal
+    // when it does not give any output, takes too long, or uses too much memory
+    public int run() throws InterruptedException {
+        this.resetLogWriter();
         try {
-            ModelBuildingResult modelBuildingResult = defaultModelBuilder.build(req);
-            return modelBuildingResult.getEffectiveModel();
-        } catch (ModelBuildingException e) {
-            LOGGER.error("Error while building complete model. The raw model will be used. Error message: " + e.getMessage());
-            return defaultModelBuilder.buildRawModel(pomXml, ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL, true).get();
+            return this.runWithWatchdog();
+        } finally {
+            this.closeLogWriter();
         }
-
     }
 
-    // we manage our own timeout
-    public int run() throws InterruptedException {
+    private int runWithWatchdog() throws InterruptedException {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
         RunnableMavenInvoker runnableMavenInvoker = new RunnableMavenInvoker(this);
         Thread t = new Thread(runnableMavenInvoker);
+        this.stopReason = null;
+        this.stoppedOnReproduction = false;
+        SurefireReportWatcher.Decision reportDecision = SurefireReportWatcher.Decision.PENDING;
         this.updateLastOutputDate();
+        Instant limitDate = new Date().toInstant().plus(config.getMavenTimeout(), ChronoUnit.MINUTES);
+        long memoryLimit = config.getMavenMemoryLimit() * 1024 * 1024;
         t.start();
 
+        int nbChecks = 0;
         while (t.isAlive()) {
             Instant now = new Date().toInstant();
 
             if (now.isAfter(this.limitOutputDate)) {
+                this.stopReason = "no output has been received in the last " + TIMEOUT_WITHOUT_OUTPUT + " minutes";
+            } else if (config.getMavenTimeout() > 0 && now.isAfter(limitDate)) {
+                this.stopReason = "the goal did not end in " + config.getMavenTimeout() + " minutes";
+            } else if (memoryLimit > 0 && nbChecks % MEMORY_CHECK_PERIOD == 0) {
+                long memoryUsage = runnableMavenInvoker.getProcessTree().getMemoryUsage();
+                if (memoryUsage > memoryLimit) {
+                    this.stopReason = "the processes of the goal used " + (memoryUsage / 1024 / 1024) + " MB of memory, above the limit of " + config.getMavenMemoryLimit() + " MB";
+                }
+            }
+
+            if (this.reportWatcher != null && reportDecision == SurefireReportWatcher.Decision.PENDING && nbChecks % REPORT_CHECK_PERIOD == 0) {
+                reportDecision = this.reportWatcher.poll();
+                if (reportDecision == SurefireReportWatcher.Decision.REPRODUCED) {
+                    int nbKilledProcesses = runnableMavenInvoker.cancel();
+                    t.interrupt();
+                    int nbDiscardedReports = this.reportWatcher.discardIncompleteReports();
+                    this.stoppedOnReproduction = true;
+                    this.logger.info("The goal " + this.goal + " has been stopped (" + nbKilledProcesses + " processes killed, "
+                            + nbDiscardedReports + " incomplete reports discarded): the expected failing tests "
+                            + this.reportWatcher.getReproducedClasses() + " failed again.");
+                    return MAVEN_ERROR;
+                } else if (reportDecision == SurefireReportWatcher.Decision.NOT_REPRODUCED) {
+                    int nbProcesses = runnableMavenInvoker.deprioritize();
+                    this.logger.info("None of the expected failing tests failed again: the priority of the "
+                            + nbProcesses + " processes of the goal " + this.goal + " has been lowered.");
+                }
+            }
+
+            if (this.stopReason != null) {
+                int nbKilledProcesses = runnableMavenInvoker.cancel();
                 t.interrupt();
-                throw new InterruptedException("Timeout occurred: no output has been received in the last " + TIMEOUT_WITHOUT_OUTPUT + " minutes.");
+                this.logger.warn("The goal " + this.goal + " has been stopped (" + nbKilledProcesses + " processes killed): " + this.stopReason + ".");
+                throw new InterruptedException("Timeout occurred: " + this.stopReason + ".");
             } else {
-                Thread.sleep(1000);
+                nbChecks++;
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    // the caller stopped the goal: its processes must not be left behind
+                    this.stopReason = "the goal has been interrupted";
+                    runnableMavenInvoker.cancel();
+                    t.interrupt();
+                    throw e;
+                }
             }
         }
 
+        int nbKilledProcesses = runnableMavenInvoker.reclaim();
+        if (nbKilledProcesses > 0) {
+            this.logger.warn(nbKilledProcesses + " processes left by the goal " + this.goal + " have been killed.");
+        }
         return runnableMavenInvoker.getExitCode();
     }
 }
@@ -0,0 +1,232 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The tree of processes started for Maven goals: the mvn process, the JVMs forked by surefire, and their own children.
+ *
+ * The processes are marked with an environment variable given to the mvn process and inherited by all its children,
+ * so that they can be found in /proc even after their parent died and they have been reparented.
+ * This allows the watchdog of {@link MavenHelper} to measure their memory and to kill all of them at once.
+ * Where /proc is not available, no process is found and only the mvn process is stopped by the invoker.
+ */
+public class MavenProcessTree {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MavenProcessTree.class);
+
+    public static final String MARKER_ENVIRONMENT_VARIABLE = "REPAIRNATOR_MAVEN_PROCESS_TREE";
+    private static final File PROC_DIRECTORY = new File("/proc");
+    private static final int MAX_KILL_ROUNDS = 5;
+
+    private String marker;
+
+    public MavenProcessTree() {
+        this.marker = UUID.randomUUID().toString();
+    }
+
+    /**
+     * @return the value of {@link #MARKER_ENVIRONMENT_VARIABLE} to give to the mvn process
+     */
+    public String getMarker() {
+        return marker;
+    }
+
+    /**
+     * @return the pids of the running processes of the tree
+     */
+    public List<String> getPids() {
+        List<String> pids = new ArrayList<>();
+        File[] processDirectories = PROC_DIRECTORY.listFiles((dir, name) -> name.matches("\\d+"));
+        if (processDirectories == null) {
+            return pids;
+        }
+
+        String ownPid = getOwnPid();
+        String markerEntry = "\0" + MARKER_ENVIRONMENT_VARIABLE + "=" + this.marker + "\0";
+        for (File processDirectory : processDirectories) {
+            if (processDirectory.getName().equals(ownPid)) {
+                continue;
+            }
+            try {
+                byte[] environment = Files.readAllBytes(new File(processDirectory, "environ").toPath());
+                if (("\0" + new String(environment, StandardCharsets.ISO_8859_1)).contains(markerEntry)) {
+                    pids.add(processDirectory.getName());
+                }
+            } catch (IOException e) {
+                // the process ended, or it belongs to another user: it is not part of the tree
+            }
+        }
+        return pids;
+    }
+
+    private static String getOwnPid() {
+        try {
+            return new File(PROC_DIRECTORY, "self").getCanonicalFile().getName();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the resident memory used by the processes of the tree, in bytes
+     */
+    public long getMemoryUsage() {
+        long memoryUsage = 0;
+        for (String pid : this.getPids()) {
+            try {
+                for (String line : Files.readAllLines(new File(PROC_DIRECTORY, pid + "/status").toPath(), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("VmRSS:")) {
+                        // the value is given in kB
+                        memoryUsage += Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024;
+                        break;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // the process ended in the meantime
+            }
+        }
+        return memoryUsage;
+    }
+
+    /**
+     * Kill all the processes of the tree. The processes are stopped before being killed,
+     * so that they cannot start new processes in the meantime, and the tree is searched again until it is empty.
+     *
+     * @return the number of killed processes
+     */
+    public int kill() {
+        Set<String> killedPids = new HashSet<>();
+        for (int round = 0; round < MAX_KILL_ROUNDS; round++) {
+            List<String> pids = this.getPids();
+            if (pids.isEmpty()) {
+                break;
+            }
+            this.signal("-STOP", pids);
+            this.signal("-KILL", pids);
+            killedPids.addAll(pids);
+        }
+        return killedPids.size();
+    }
+
+    /**
+     * Lower the CPU priority of the processes of the tree. The processes they start next inherit their priority.
+     *
+     * @param niceness the niceness to add to the current one of the processes
+     * @return the number of processes whose priority has been lowered
+     */
+    public int renice(int niceness) {
+        List<String> pids = this.getPids();
+        this.renice(niceness, pids);
+        return pids.size();
+    }
+
+    /**
+     * Lower the CPU priority of the processes started by the roots of the tree, but not of the roots themselves:
+     * for the warm Maven process, the JVMs forked by surefire are deprioritized while the warm JVM keeps its priority for the next goals.
+     *
+     * @param niceness the niceness to add to the current one of the processes
+     * @return the number of processes whose priority has been lowered
+     */
+    public int reniceChildren(int niceness) {
+        List<String> childPids = this.getChildPids();
+        this.renice(niceness, childPids);
+        return childPids.size();
+    }
+
+    /**
+     * Kill the processes started by the roots of the tree, but not the roots themselves:
+     * for the warm Maven process, the JVMs left by a goal are killed while the warm JVM keeps running for the next goals.
+     *
+     * @return the number of killed processes
+     */
+    public int killChildren() {
+        Set<String> killedPids = new HashSet<>();
+        for (int round = 0; round < MAX_KILL_ROUNDS; round++) {
+            List<String> childPids = this.getChildPids();
+            if (childPids.isEmpty()) {
+                break;
+            }
+            this.signal("-STOP", childPids);
+            this.signal("-KILL", childPids);
+            killedPids.addAll(childPids);
+        }
+        return killedPids.size();
+    }
+
+    /**
+     * @return the processes of the tree whose parent is in the tree
+     */
+    private List<String> getChildPids() {
+        List<String> pids = this.getPids();
+        List<String> childPids = new ArrayList<>();
+        for (String pid : pids) {
+            if (pids.contains(getParentPid(pid))) {
+                childPids.add(pid);
+            }
+        }
+        return childPids;
+    }
+
+    /**
+     * @return the pid of the parent of the given process, or null if the process ended
+     */
+    static String getParentPid(String pid) {
+        String stat = readStat(pid);
+        if (stat == null) {
+            return null;
+        }
+        // the name of the command is between parentheses and may contain spaces: the state and the parent pid follow it
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 1).trim().split("\\s+");
+        return fields.length > 1 ? fields[1] : null;
+    }
+
+    static String readStat(String pid) {
+        try {
+            return new String(Files.readAllBytes(new File(PROC_DIRECTORY, pid + "/stat").toPath()), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void renice(int niceness, List<String> pids) {
+        if (!pids.isEmpty()) {
+            List<String> command = new ArrayList<>();
+            command.add("renice");
+            command.add("-n");
+            command.add(String.valueOf(niceness));
+            command.add("-p");
+            command.addAll(pids);
+            this.runCommand(command);
+        }
+    }
+
+    private void signal(String signal, List<String> pids) {
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add(signal);
+        command.addAll(pids);
+        this.runCommand(command);
+    }
+
+    private void runCommand(List<String> command) {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            process.getInputStream().close();
+            process.waitFor();
+        } catch (IOException e) {
+            LOGGER.warn("Error while running the command " + command, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
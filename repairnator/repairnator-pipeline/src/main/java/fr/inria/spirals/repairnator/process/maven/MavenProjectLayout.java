@@ -0,0 +1,220 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The layout of the modules of a project, written by the fused Maven invocation which builds the project,
+ * runs its tests and computes the classpath of each module at once.
+ *
+ * In each module, the help plugin evaluates an expression giving the directories of the module and its submodules,
+ * and writes it in a layout file next to the classpath file written by the dependency plugin.
+ * The layout is then read from the root module, so that the next steps do not run Maven or read the pom.xml files again.
+ */
+public class MavenProjectLayout {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MavenProjectLayout.class);
+
+    public static final String FUSED_GOALS = "install dependency:build-classpath org.apache.maven.plugins:maven-help-plugin:3.2.0:evaluate";
+    public static final String CLASSPATH_FILENAME = "classpath.info";
+    public static final String LAYOUT_FILENAME = "repairnator.layout.info";
+    private static final String SEPARATOR = "|";
+    private static final String LAYOUT_EXPRESSION = String.join(SEPARATOR,
+            "${project.basedir}",
+            "${project.build.directory}",
+            "${project.build.sourceDirectory}",
+            "${project.build.testSourceDirectory}",
+            "${project.build.outputDirectory}",
+            "${project.build.testOutputDirectory}",
+            "${project.modules}");
+    private static final String SUREFIRE_REPORTS_DIRECTORY = "surefire-reports";
+
+    /**
+     * The directories of a module.
+     */
+    public static class Module {
+        private File basedir;
+        private File buildDirectory;
+        private File sourceDirectory;
+        private File testSourceDirectory;
+        private File outputDirectory;
+        private File testOutputDirectory;
+        private List<String> modules;
+
+        public File getBasedir() {
+            return basedir;
+        }
+
+        public File getBuildDirectory() {
+            return buildDirectory;
+        }
+
+        public File getSourceDirectory() {
+            return sourceDirectory;
+        }
+
+        public File getTestSourceDirectory() {
+            return testSourceDirectory;
+        }
+
+        public File getOutputDirectory() {
+            return outputDirectory;
+        }
+
+        public File getTestOutputDirectory() {
+            return testOutputDirectory;
+        }
+
+        public File getSurefireReportsDirectory() {
+            return new File(this.buildDirectory, SUREFIRE_REPORTS_DIRECTORY);
+        }
+
+        public File getClasspathFile() {
+            return new File(this.basedir, CLASSPATH_FILENAME);
+        }
+    }
+
+    private List<Module> modules;
+
+    private MavenProjectLayout(List<Module> modules) {
+        this.modules = modules;
+    }
+
+    /**
+     * @return the properties of the fused Maven invocation, to use with {@link #FUSED_GOALS}.
+     * The failures of the tests do not stop the invocation, so that the classpath and the layout are always written.
+     */
+    public static Properties getFusedProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("maven.test.failure.ignore", "true");
+        properties.setProperty("mdep.outputFile", CLASSPATH_FILENAME);
+        properties.setProperty("expression", LAYOUT_EXPRESSION);
+        properties.setProperty("output", LAYOUT_FILENAME);
+        return properties;
+    }
+
+    /**
+     * Read the layout written by the fused Maven invocation, starting from the root module.
+     *
+     * @return the layout, or null if the layout of the root module cannot be read
+     */
+    public static MavenProjectLayout read(File rootDirectory) {
+        List<Module> modules = new ArrayList<>();
+        readModule(rootDirectory, modules, new HashSet<>());
+        if (modules.isEmpty()) {
+            return null;
+        }
+        return new MavenProjectLayout(modules);
+    }
+
+    private static void readModule(File directory, List<Module> modules, Set<File> visitedDirectories) {
+        File layoutFile = new File(directory, LAYOUT_FILENAME);
+        Module module;
+        try {
+            module = parseModule(layoutFile);
+        } catch (IOException e) {
+            LOGGER.warn("The layout of the module " + directory.getPath() + " cannot be read.", e);
+            return;
+        }
+        if (module == null || !visitedDirectories.add(module.basedir)) {
+            return;
+        }
+
+        modules.add(module);
+        for (String moduleName : module.modules) {
+            File moduleDirectory = new File(module.basedir, moduleName);
+            // a module can be given by its pom.xml file
+            if (moduleDirectory.isFile()) {
+                moduleDirectory = moduleDirectory.getParentFile();
+            }
+            readModule(moduleDirectory, modules, visitedDirectories);
+        }
+    }
+
+    private static Module parseModule(File layoutFile) throws IOException {
+        if (!layoutFile.exists()) {
+            return null;
+        }
+        String layout = null;
+        for (String line : Files.readAllLines(layoutFile.toPath(), StandardCharsets.UTF_8)) {
+            if (line.contains(SEPARATOR)) {
+                layout = line.trim();
+            }
+        }
+        String[] values = (layout != null) ? layout.split("\\" + SEPARATOR, -1) : new String[0];
+        if (values.length != 7) {
+            LOGGER.warn("The layout file " + layoutFile.getPath() + " is not valid: " + layout);
+            return null;
+        }
+
+        Module module = new Module();
+        module.basedir = toFile(values[0]);
+        module.buildDirectory = toFile(values[1]);
+        module.sourceDirectory = toFile(values[2]);
+        module.testSourceDirectory = toFile(values[3]);
+        module.outputDirectory = toFile(values[4]);
+        module.testOutputDirectory = toFile(values[5]);
+        module.modules = parseList(values[6]);
+        return (module.basedir != null) ? module : null;
+    }
+
+    private static File toFile(String path) throws IOException {
+        // the expressions which cannot be evaluated are kept as is by Maven
+        if (path.isEmpty() || path.contains("${") || "null".equals(path)) {
+            return null;
+        }
+        return new File(path).getCanonicalFile();
+    }
+
+    private static List<String> parseList(String list) {
+        String content = list.trim();
+        if (content.startsWith("[") && content.endsWith("]")) {
+            content = content.substring(1, content.length() - 1).trim();
+        }
+        if (content.isEmpty() || content.contains("${")) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        for (String element : content.split(",")) {
+            if (!element.trim().isEmpty()) {
+                result.add(element.trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the modules of the project, the root module being the first one
+     */
+    public List<Module> getModules() {
+        return modules;
+    }
+
+    /**
+     * @return the module with the given base directory, or null if it is not part of the project
+     */
+    public Module getModule(File basedir) {
+        File canonicalBasedir;
+        try {
+            canonicalBasedir = basedir.getCanonicalFile();
+        } catch (IOException e) {
+            canonicalBasedir = basedir.getAbsoluteFile();
+        }
+        for (Module module : this.modules) {
+            if (module.basedir.equals(canonicalBasedir)) {
+                return module;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,365 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A cache of the Maven artifacts downloaded by the builds, shared by all the pipelines running on the host.
+ *
+ * The cache is a read-only base layer, laid out as a Maven repository, which is declared in the settings
+ * of the builds before the remote repositories: each build keeps its own local repository as a writable overlay,
+ * in which Maven copies the artifacts found in the cache and downloads the other ones.
+ * At the end of the pipeline, the new release artifacts downloaded in the local repository are published in the cache.
+ * The publication and the eviction are done with an exclusive lock, and the files are moved in place atomically,
+ * so that a build never reads a partial artifact.
+ * The least recently used versions are evicted when the cache exceeds its disk budget.
+ */
+public class MavenRepositoryCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MavenRepositoryCache.class);
+    public static final String CACHE_REPOSITORY_ID = "repairnator-cache";
+    private static final String SETTINGS_FILENAME = "repairnator-settings.xml";
+    private static final String LOCK_FILENAME = "repairnator-cache.lock";
+    private static final String STATISTICS_FILENAME = "repairnator-statistics.properties";
+    private static final String REMOTE_REPOSITORIES_FILENAME = "_remote.repositories";
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+    private static final String[] CHECKSUM_SUFFIXES = {".sha1", ".md5", ".sha256", ".sha512"};
+
+    private File cacheDirectory;
+    private long diskBudget; // in bytes
+
+    /**
+     * The artifacts found in the cache and downloaded from the remote repositories by a build.
+     */
+    public static class Statistics {
+        private int hits;
+        private int misses;
+
+        public int getHits() {
+            return hits;
+        }
+
+        public int getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            int total = this.hits + this.misses;
+            return (total == 0) ? 0 : (double) this.hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return this.hits + " hit(s), " + this.misses + " miss(es), hit ratio " + Math.round(this.getHitRatio() * 100) + "%";
+        }
+    }
+
+    /**
+     * @param cacheDirectory the directory of the cache
+     * @param diskBudget the maximum size of the cache in bytes
+     */
+    public MavenRepositoryCache(File cacheDirectory, long diskBudget) {
+        this.cacheDirectory = cacheDirectory;
+        this.diskBudget = diskBudget;
+    }
+
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Write the Maven settings declaring the cache as the first repository of the builds using the given local repository.
+     * The settings are given as global settings, so that the user settings still apply.
+     *
+     * @return the settings file
+     */
+    public File createSettings(File localRepository) throws IOException {
+        Files.createDirectories(this.cacheDirectory.toPath());
+        Files.createDirectories(localRepository.toPath());
+        String url = this.cacheDirectory.getAbsoluteFile().toURI().toString();
+
+        String repository = "<id>" + CACHE_REPOSITORY_ID + "</id><url>" + url + "</url>"
+                + "<releases><enabled>true</enabled><checksumPolicy>ignore</checksumPolicy></releases>"
+                + "<snapshots><enabled>false</enabled></snapshots>";
+        String settings = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<settings>\n"
+                + "  <profiles>\n"
+                + "    <profile>\n"
+                + "      <id>" + CACHE_REPOSITORY_ID + "</id>\n"
+                + "      <repositories><repository>" + repository + "</repository></repositories>\n"
+                + "      <pluginRepositories><pluginRepository>" + repository + "</pluginRepository></pluginRepositories>\n"
+                + "    </profile>\n"
+                + "  </profiles>\n"
+                + "  <activeProfiles><activeProfile>" + CACHE_REPOSITORY_ID + "</activeProfile></activeProfiles>\n"
+                + "</settings>\n";
+
+        File settingsFile = new File(localRepository, SETTINGS_FILENAME);
+        Files.write(settingsFile.toPath(), settings.getBytes(StandardCharsets.UTF_8));
+        return settingsFile;
+    }
+
+    /**
+     * Publish in the cache the release artifacts downloaded in the given local repository which are not in it yet,
+     * mark the versions used by the build as recently used, then evict the least recently used versions if needed.
+     * The files are hardlinked when possible, so the local repository should not be modified afterwards.
+     *
+     * @return the statistics of the build which used the local repository
+     */
+    public Statistics publish(File localRepository) throws IOException {
+        Statistics statistics = new Statistics();
+        if (!localRepository.isDirectory()) {
+            return statistics;
+        }
+        Files.createDirectories(this.cacheDirectory.toPath());
+
+        long start = System.currentTimeMillis();
+        // the file lock only excludes the other processes: the threads of this process are excluded by the monitor
+        synchronized (MavenRepositoryCache.class) {
+            try (RandomAccessFile lockFile = new RandomAccessFile(new File(this.cacheDirectory, LOCK_FILENAME), "rw");
+                 FileChannel lockChannel = lockFile.getChannel();
+                 FileLock lock = lockChannel.lock()) {
+                this.publishWithLock(localRepository, statistics, start);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Publish the artifacts and update the statistics: it must be called with the lock of the cache.
+     */
+    private void publishWithLock(File localRepository, Statistics statistics, long start) throws IOException {
+        int nbPublishedFiles = 0;
+        for (File versionDirectory : this.getVersionDirectories(localRepository)) {
+            Map<String, String> remoteRepositories = this.getRemoteRepositories(versionDirectory);
+            this.countArtifacts(remoteRepositories, statistics);
+            if (versionDirectory.getName().endsWith(SNAPSHOT_SUFFIX)) {
+                continue;
+            }
+
+            String relativePath = localRepository.toPath().relativize(versionDirectory.toPath()).toString();
+            File cachedVersionDirectory = new File(this.cacheDirectory, relativePath);
+            nbPublishedFiles += this.publishVersion(versionDirectory, remoteRepositories, cachedVersionDirectory);
+            if (cachedVersionDirectory.exists() && !cachedVersionDirectory.setLastModified(System.currentTimeMillis())) {
+                LOGGER.debug("Cannot update the last usage date of " + cachedVersionDirectory.getPath());
+            }
+        }
+        LOGGER.info(nbPublishedFiles + " file(s) published in the Maven repository cache in "
+                + (System.currentTimeMillis() - start) + "ms. Artifacts of the build: " + statistics + ".");
+        this.updateStatistics(statistics);
+
+        this.evict();
+    }
+
+    /**
+     * @return the directories of the given repository containing the files of a version of an artifact
+     */
+    private List<File> getVersionDirectories(File repository) throws IOException {
+        List<File> versionDirectories = new ArrayList<>();
+        Files.walkFileTree(repository.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                File[] poms = dir.toFile().listFiles((parent, name) -> name.endsWith(".pom"));
+                if (poms != null && poms.length > 0) {
+                    versionDirectories.add(dir.toFile());
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return versionDirectories;
+    }
+
+    /**
+     * Read the repository from which each file of the version has been retrieved, as recorded by Maven in the local repository:
+     * the lines are like "junit-4.12.jar>central=", and the repository id is empty for the artifacts installed by the build.
+     *
+     * @return the repository ids by file name
+     */
+    private Map<String, String> getRemoteRepositories(File versionDirectory) {
+        Map<String, String> remoteRepositories = new HashMap<>();
+        File remoteRepositoriesFile = new File(versionDirectory, REMOTE_REPOSITORIES_FILENAME);
+        if (!remoteRepositoriesFile.exists()) {
+            return remoteRepositories;
+        }
+        try {
+            for (String line : Files.readAllLines(remoteRepositoriesFile.toPath(), StandardCharsets.UTF_8)) {
+                int separator = line.indexOf('>');
+                if (line.startsWith("#") || separator < 0 || !line.endsWith("=")) {
+                    continue;
+                }
+                remoteRepositories.put(line.substring(0, separator), line.substring(separator + 1, line.length() - 1));
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Cannot read " + remoteRepositoriesFile.getPath(), e);
+        }
+        return remoteRepositories;
+    }
+
+    /**
+     * Count the artifacts of the version which have been copied from the cache and the ones downloaded from another repository.
+     */
+    private void countArtifacts(Map<String, String> remoteRepositories, Statistics statistics) {
+        for (String repositoryId : remoteRepositories.values()) {
+            if (CACHE_REPOSITORY_ID.equals(repositoryId)) {
+                statistics.hits++;
+            } else if (!repositoryId.isEmpty()) {
+                statistics.misses++;
+            }
+        }
+    }
+
+    /**
+     * The files of the version are moved in place one by one: a file only appears in the cache once complete.
+     * Only the files downloaded from a remote repository are published, with their checksums: the artifacts
+     * installed by the build and the files maintained by Maven in the local repository, such as the metadata, are not.
+     *
+     * @return the number of files published
+     */
+    private int publishVersion(File versionDirectory, Map<String, String> remoteRepositories, File cachedVersionDirectory) throws IOException {
+        File[] files = versionDirectory.listFiles(file -> file.isFile() && isPublishable(file.getName())
+                && isDownloaded(file.getName(), remoteRepositories));
+        if (files == null) {
+            return 0;
+        }
+
+        int nbPublishedFiles = 0;
+        for (File file : files) {
+            File cachedFile = new File(cachedVersionDirectory, file.getName());
+            if (cachedFile.exists()) {
+                continue;
+            }
+            Files.createDirectories(cachedVersionDirectory.toPath());
+            Path tmpFile = new File(cachedVersionDirectory, "." + file.getName() + ".tmp").toPath();
+            Files.deleteIfExists(tmpFile);
+            try {
+                Files.createLink(tmpFile, file.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(file.toPath(), tmpFile);
+            }
+            Files.move(tmpFile, cachedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            nbPublishedFiles++;
+        }
+        return nbPublishedFiles;
+    }
+
+    private static boolean isDownloaded(String fileName, Map<String, String> remoteRepositories) {
+        String artifactName = fileName;
+        for (String checksumSuffix : CHECKSUM_SUFFIXES) {
+            if (fileName.endsWith(checksumSuffix)) {
+                artifactName = fileName.substring(0, fileName.length() - checksumSuffix.length());
+                break;
+            }
+        }
+        String repositoryId = remoteRepositories.get(artifactName);
+        return repositoryId != null && !repositoryId.isEmpty();
+    }
+
+    private static boolean isPublishable(String fileName) {
+        return !fileName.startsWith("_")
+                && !fileName.startsWith("maven-metadata")
+                && !fileName.startsWith("resolver-status")
+                && !fileName.endsWith(".lastUpdated")
+                && !fileName.endsWith(".tmp")
+                && !fileName.endsWith(".part")
+                && !fileName.endsWith(".lock");
+    }
+
+    private void updateStatistics(Statistics statistics) throws IOException {
+        File statisticsFile = new File(this.cacheDirectory, STATISTICS_FILENAME);
+        Properties totals = new Properties();
+        if (statisticsFile.exists()) {
+            try (InputStream inputStream = Files.newInputStream(statisticsFile.toPath())) {
+                totals.load(inputStream);
+            }
+        }
+        long hits = Long.parseLong(totals.getProperty("hits", "0")) + statistics.getHits();
+        long misses = Long.parseLong(totals.getProperty("misses", "0")) + statistics.getMisses();
+        totals.setProperty("hits", String.valueOf(hits));
+        totals.setProperty("misses", String.valueOf(misses));
+        try (OutputStream outputStream = Files.newOutputStream(statisticsFile.toPath())) {
+            totals.store(outputStream, "Artifacts found in the Maven repository cache and downloaded by the builds");
+        }
+        if (hits + misses > 0) {
+            LOGGER.info("Maven repository cache hit ratio since its creation: " + Math.round(100.0 * hits / (hits + misses)) + "%.");
+        }
+    }
+
+    /**
+     * @return the total hits and misses of the builds which used the cache
+     */
+    public Statistics getTotalStatistics() throws IOException {
+        Statistics statistics = new Statistics();
+        File statisticsFile = new File(this.cacheDirectory, STATISTICS_FILENAME);
+        if (statisticsFile.exists()) {
+            Properties totals = new Properties();
+            try (InputStream inputStream = Files.newInputStream(statisticsFile.toPath())) {
+                totals.load(inputStream);
+            }
+            statistics.hits = Integer.parseInt(totals.getProperty("hits", "0"));
+            statistics.misses = Integer.parseInt(totals.getProperty("misses", "0"));
+        }
+        return statistics;
+    }
+
+    /**
+     * Delete the least recently used versions until the cache fits its disk budget.
+     * It must be called with the lock of the cache.
+     */
+    private void evict() throws IOException {
+        List<File> versionDirectories = this.getVersionDirectories(this.cacheDirectory);
+        long[] sizes = new long[versionDirectories.size()];
+        long totalSize = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = FileUtils.sizeOfDirectory(versionDirectories.get(i));
+            totalSize += sizes[i];
+        }
+        if (totalSize <= this.diskBudget) {
+            return;
+        }
+
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            indexes.add(i);
+        }
+        indexes.sort(Comparator.comparingLong(i -> versionDirectories.get(i).lastModified()));
+
+        int nbEvicted = 0;
+        long evictedSize = 0;
+        for (int index : indexes) {
+            if (totalSize <= this.diskBudget) {
+                break;
+            }
+            FileUtils.deleteDirectory(versionDirectories.get(index));
+            totalSize -= sizes[index];
+            evictedSize += sizes[index];
+            nbEvicted++;
+        }
+        LOGGER.info(nbEvicted + " version(s) evicted from the Maven repository cache (" + (evictedSize / (1024 * 1024)) + "MB).");
+    }
+}
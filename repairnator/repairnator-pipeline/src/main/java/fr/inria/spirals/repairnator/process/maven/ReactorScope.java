@@ -0,0 +1,61 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The part of the reactor of a multi-module project to build and test once its failing modules are known:
+ * only the failing modules and the modules they depend on, given to Maven with the -pl and -am options.
+ *
+ * The whole reactor is kept when the failing modules or the modules of the reactor are not known,
+ * when the root module is failing, or when a failing module is not one of the modules found by
+ * {@link fr.inria.spirals.repairnator.process.step.paths.ComputeModules}.
+ */
+public final class ReactorScope {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactorScope.class);
+
+    private ReactorScope() {
+    }
+
+    /**
+     * @return the paths of the failing modules relative to the root pom.xml, to give to -pl, or null if the whole reactor must be built
+     */
+    public static List<String> getFailingModuleSelectors(JobStatus jobStatus) {
+        List<String> failingModulePaths = jobStatus.getFailingModulePaths();
+        File[] modules = jobStatus.getModules();
+        if (failingModulePaths == null || failingModulePaths.isEmpty() || modules == null) {
+            return null;
+        }
+
+        try {
+            Path rootPath = new File(jobStatus.getPomDirPath()).getCanonicalFile().toPath();
+            Set<Path> reactorPaths = new HashSet<>();
+            for (File module : modules) {
+                reactorPaths.add(module.getCanonicalFile().toPath());
+            }
+
+            List<String> selectors = new ArrayList<>();
+            for (String failingModulePath : failingModulePaths) {
+                Path modulePath = new File(failingModulePath).getCanonicalFile().toPath();
+                if (modulePath.equals(rootPath) || !modulePath.startsWith(rootPath) || !reactorPaths.contains(modulePath)) {
+                    return null;
+                }
+                // Maven resolves the paths given to -pl from the directory of the root pom.xml
+                selectors.add(rootPath.relativize(modulePath).toString().replace(File.separatorChar, '/'));
+            }
+            return selectors;
+        } catch (IOException e) {
+            LOGGER.warn("Error while computing the path of the failing modules: the whole reactor will be built.", e);
+            return null;
+        }
+    }
+}
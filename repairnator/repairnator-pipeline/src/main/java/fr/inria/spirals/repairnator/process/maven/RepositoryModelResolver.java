@@ -1,11 +1,16 @@
 package fr.inria.spirals.repairnator.process.maven;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -32,6 +37,14 @@ class RepositoryModelResolver implements ModelResolver {
     private static final String MAVEN_CENTRAL_URL_MIRROR_2 = "http://uk.maven.org/maven2";
 
     private static final Logger logger = LoggerFactory.getLogger(RepositoryModelResolver.class);
+
+    // shared by all the resolvers, so that the connections to the repositories are reused
+    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient();
+    // the pom.xml files which all the repositories answered as not found, with the date of the answer:
+    // they are not requested again for a while, but a pom.xml file deployed in the meantime is found by the next builds
+    private static final long MISSING_POM_TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final Map<String, Long> MISSING_POMS = new ConcurrentHashMap<>();
+
     private File localRepository;
 
     private List<Repository> repositories = new ArrayList<Repository>();
@@ -72,6 +85,7 @@ class RepositoryModelResolver implements ModelResolver {
     }
 
     private void download(File localRepoFile) throws IOException {
+        boolean notFound = true;
         for (Repository repository1 : repositories) {
             String repository1Url = repository1.getUrl();
             if (repository1Url.endsWith("/")) {
@@ -82,22 +96,49 @@ class RepositoryModelResolver implements ModelResolver {
 
             logger.debug("Downloading " + url);
 
-            OkHttpClient client = new OkHttpClient();
             Request request = new Request.Builder()
                     .url(url)
                     .build();
 
-            Response response = client.newCall(request).execute();
-
-            if (response.code() == 200) {
-                localRepoFile.getParentFile().mkdirs();
-                FileWriter out = new FileWriter(localRepoFile);
-                out.write(response.body().string());
-                out.flush();
-                out.close();
-                return;
+            // the body must be closed for the connection to go back to the pool
+            try (Response response = HTTP_CLIENT.newCall(request).execute()) {
+                if (response.code() == 200) {
+                    // the pom.xml file is moved in place once complete, as other builds may read it,
+                    // from a temporary file of its own, as other builds may download it at the same time
+                    Files.createDirectories(localRepoFile.getParentFile().toPath());
+                    Path tmpFile = Files.createTempFile(localRepoFile.getParentFile().toPath(), localRepoFile.getName(), ".part");
+                    try {
+                        Files.write(tmpFile, response.body().bytes());
+                        Files.move(tmpFile, localRepoFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(tmpFile);
+                    }
+                    return;
+                }
+                // another error, like a server error or a rate limit, may not happen for the next request
+                if (response.code() != 404) {
+                    notFound = false;
+                }
             }
         }
+        if (notFound) {
+            MISSING_POMS.put(localRepoFile.getAbsolutePath(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return true if all the repositories recently answered that the given pom.xml file does not exist
+     */
+    private static boolean isKnownAsMissing(File pom) {
+        Long missingDate = MISSING_POMS.get(pom.getAbsolutePath());
+        if (missingDate == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - missingDate < MISSING_POM_TTL) {
+            return true;
+        }
+        MISSING_POMS.remove(pom.getAbsolutePath(), missingDate);
+        return false;
     }
 
     @Override
@@ -106,6 +147,9 @@ class RepositoryModelResolver implements ModelResolver {
         File pom = getLocalFile(groupId, artifactId, versionId);
 
         if (!pom.exists()) {
+            if (isKnownAsMissing(pom)) {
+                throw new UnresolvableModelException("POM not found in the repositories", groupId, artifactId, versionId);
+            }
             try {
                 download(pom);
             } catch (IOException e) {
@@ -1,5 +1,6 @@
 package fr.inria.spirals.repairnator.process.maven;
 
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import org.apache.maven.shared.invoker.DefaultInvocationRequest;
 import org.apache.maven.shared.invoker.DefaultInvoker;
 import org.apache.maven.shared.invoker.InvocationOutputHandler;
@@ -11,37 +12,63 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 /**
  * This class allows us to run a Maven goal in a dedicated thread that we can interrupt for timeout
  */
 public class RunnableMavenInvoker implements Runnable {
+    private static final int DEPRIORITIZED_NICENESS = 10;
+
     private final Logger logger = LoggerFactory.getLogger(RunnableMavenInvoker.class);
 
     private MavenHelper mavenHelper;
     private int exitCode;
+    private WarmMavenProcess warmMavenProcess;
+    private MavenProcessTree processTree;
+    private volatile boolean usingWarmProcess;
+    private volatile boolean cancelled;
 
     public RunnableMavenInvoker(MavenHelper mavenHelper) {
         this.mavenHelper = mavenHelper;
         this.exitCode = -1;
+        this.processTree = new MavenProcessTree();
     }
 
     @Override
     public void run() {
-        InvocationRequest request = new DefaultInvocationRequest();
-        request.setPomFile(new File(this.mavenHelper.getPomFile()));
-        request.setGoals(Arrays.asList(this.mavenHelper.getGoal()));
-        Properties props = this.mavenHelper.getProperties();
         if (System.getenv("M2_HOME") == null) {
             // sensible value
             // https://stackoverflow.com/questions/14793015/programmatically-launch-m2e-maven-command
             System.setProperty("maven.home", "/usr/share/maven");
         }
+
+        if (RepairnatorConfig.getInstance().isWarmMaven() && this.runInWarmProcess()) {
+            return;
+        }
+        if (this.cancelled) {
+            this.exitCode = MavenHelper.MAVEN_ERROR;
+            return;
+        }
+
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setPomFile(new File(this.mavenHelper.getPomFile()));
+        request.setGoals(Arrays.asList(this.mavenHelper.getGoal()));
+        Properties props = this.mavenHelper.getProperties();
         request.setProperties(props);
         request.setBatchMode(true);
         request.setShowErrors(true);
+        if (this.mavenHelper.getProjects() != null) {
+            request.setProjects(this.mavenHelper.getProjects());
+            request.setAlsoMake(true);
+        }
+        request.addShellEnvironment(MavenProcessTree.MARKER_ENVIRONMENT_VARIABLE, this.processTree.getMarker());
+        if (this.mavenHelper.getGlobalSettingsFile() != null) {
+            request.setGlobalSettingsFile(this.mavenHelper.getGlobalSettingsFile());
+        }
 
         Invoker invoker = new DefaultInvoker();
 
@@ -63,6 +90,102 @@ public class RunnableMavenInvoker implements Runnable {
         }
     }
 
+    /**
+     * Run the goal in the warm Maven process, with the same arguments as the ones given by the invoker to mvn.
+     *
+     * @return false if the goal has not been run: it should then be run with the invoker
+     */
+    private boolean runInWarmProcess() {
+        File pomFile = new File(this.mavenHelper.getPomFile()).getAbsoluteFile();
+        this.warmMavenProcess = WarmMavenProcess.getInstance();
+        if (this.warmMavenProcess == null || !WarmMavenProcess.canRun(pomFile)) {
+            return false;
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add("-B");
+        args.add("-e");
+        args.add("-f");
+        args.add(pomFile.getPath());
+        if (this.mavenHelper.getGlobalSettingsFile() != null) {
+            args.add("-gs");
+            args.add(this.mavenHelper.getGlobalSettingsFile().getAbsolutePath());
+        }
+        if (this.mavenHelper.getProjects() != null) {
+            args.add("-pl");
+            args.add(String.join(",", this.mavenHelper.getProjects()));
+            args.add("-am");
+        }
+        for (String property : this.mavenHelper.getProperties().stringPropertyNames()) {
+            args.add("-D" + property + "=" + this.mavenHelper.getProperties().getProperty(property));
+        }
+        // like the invoker, several goals can be given separated by spaces
+        args.addAll(Arrays.asList(this.mavenHelper.getGoal().trim().split("\\s+")));
+
+        this.usingWarmProcess = true;
+        Integer result = this.warmMavenProcess.execute(pomFile.getParentFile(), args, this.mavenHelper.getOutputHandler(), this.mavenHelper.getErrorHandler());
+        if (result == null) {
+            this.usingWarmProcess = false;
+            return false;
+        }
+        this.exitCode = result;
+        return true;
+    }
+
+    /**
+     * @return the tree of the processes currently running the goal
+     */
+    public MavenProcessTree getProcessTree() {
+        if (this.usingWarmProcess && this.warmMavenProcess.getProcessTree() != null) {
+            return this.warmMavenProcess.getProcessTree();
+        }
+        return this.processTree;
+    }
+
+    /**
+     * Stop the goal when it reached its timeout: all the processes running it are killed,
+     * including the warm process which cannot be interrupted.
+     *
+     * @return the number of killed processes
+     */
+    public int cancel() {
+        this.cancelled = true;
+        int nbKilledProcesses = this.processTree.kill();
+        if (this.warmMavenProcess != null) {
+            nbKilledProcesses += this.warmMavenProcess.stop();
+        }
+        return nbKilledProcesses;
+    }
+
+    /**
+     * Kill the processes left by the goal after its end, like the JVMs forked by surefire when mvn crashed.
+     * The warm process is kept, as it keeps running for the next goals: only the processes it forked are killed.
+     *
+     * @return the number of killed processes
+     */
+    public int reclaim() {
+        int nbKilledProcesses = this.processTree.kill();
+        if (this.usingWarmProcess) {
+            MavenProcessTree warmProcessTree = this.warmMavenProcess.getProcessTree();
+            nbKilledProcesses += (warmProcessTree == null) ? 0 : warmProcessTree.killChildren();
+        }
+        return nbKilledProcesses;
+    }
+
+    /**
+     * Lower the CPU priority of the processes running the goal, so that the other builds of the machine run first.
+     * The warm process is kept at its priority, as it keeps running for the next goals: only the JVMs it forked are deprioritized.
+     *
+     * @return the number of processes whose priority has been lowered
+     */
+    public int deprioritize() {
+        if (this.usingWarmProcess) {
+            MavenProcessTree warmProcessTree = this.warmMavenProcess.getProcessTree();
+            return warmProcessTree == null ? 0 : warmProcessTree.reniceChildren(DEPRIORITIZED_NICENESS);
+        }
+        return this.processTree.renice(DEPRIORITIZED_NICENESS);
+    }
+
     public int getExitCode() {
         return exitCode;
     }
@@ -0,0 +1,255 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A Maven runtime kept alive to run the goals of the builds, instead of starting a new mvn JVM for each goal.
+ *
+ * The goals are sent to a {@link WarmMavenServer} running in a JVM started with the libraries of the Maven installation:
+ * the startup of the JVM and the loading of Maven are only paid once, and the JIT-compiled code is reused.
+ * The output lines are given to the same output handlers as with the Maven invoker, and the exit code is the one of Maven.
+ * Only one goal is run at a time: when the process is busy, not available, cannot run Maven, or is killed on timeout,
+ * the caller should fall back to a new mvn process.
+ */
+public class WarmMavenProcess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmMavenProcess.class);
+    private static final String SERVER_CLASS_NAME = WarmMavenServer.class.getName();
+    private static final String[] PROJECT_CONFIG_FILES = {".mvn/jvm.config", ".mvn/maven.config", ".mvn/extensions.xml"};
+
+    private static WarmMavenProcess instance;
+
+    private File mavenHome;
+    private Process process;
+    private MavenProcessTree processTree;
+    private Writer requestWriter;
+    private BufferedReader outputReader;
+    private BufferedReader errorReader;
+    private boolean busy;
+
+    WarmMavenProcess(File mavenHome) {
+        this.mavenHome = mavenHome;
+    }
+
+    /**
+     * @return the warm process of the Maven installation used by the invoker, or null if it cannot be found
+     */
+    public static synchronized WarmMavenProcess getInstance() {
+        if (instance == null) {
+            String mavenHome = System.getProperty("maven.home", System.getenv("M2_HOME"));
+            if (mavenHome == null || !new File(mavenHome, "lib").isDirectory()) {
+                return null;
+            }
+            instance = new WarmMavenProcess(new File(mavenHome));
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::stop));
+        }
+        return instance;
+    }
+
+    /**
+     * The projects asking for specific JVM options, Maven options or core extensions need their own mvn process.
+     */
+    public static boolean canRun(File pomFile) {
+        File directory = pomFile.getAbsoluteFile().getParentFile();
+        while (directory != null) {
+            for (String configFile : PROJECT_CONFIG_FILES) {
+                if (new File(directory, configFile).exists()) {
+                    return false;
+                }
+            }
+            directory = directory.getParentFile();
+        }
+        return true;
+    }
+
+    private synchronized boolean acquire() {
+        if (this.busy) {
+            return false;
+        }
+        this.busy = true;
+        return true;
+    }
+
+    private synchronized void release() {
+        this.busy = false;
+    }
+
+    private void start() throws IOException {
+        List<String> classpath = new ArrayList<>();
+        for (String directory : new String[] {"boot", "lib"}) {
+            File[] jars = new File(this.mavenHome, directory).listFiles((dir, name) -> name.endsWith(".jar"));
+            if (jars != null) {
+                for (File jar : jars) {
+                    classpath.add(jar.getAbsolutePath());
+                }
+            }
+        }
+        classpath.add(new File(this.mavenHome, "conf/logging").getAbsolutePath());
+        classpath.add(this.extractServerClass().getAbsolutePath());
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        String mavenOpts = System.getenv("MAVEN_OPTS");
+        if (mavenOpts != null && !mavenOpts.trim().isEmpty()) {
+            command.addAll(Arrays.asList(mavenOpts.trim().split("\\s+")));
+        }
+        command.add("-Dmaven.home=" + this.mavenHome.getAbsolutePath());
+        command.add("-Dmaven.conf=" + new File(this.mavenHome, "conf").getAbsolutePath());
+        command.add("-classpath");
+        command.add(String.join(File.pathSeparator, classpath));
+        command.add(SERVER_CLASS_NAME);
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        Map<String, String> environment = processBuilder.environment();
+        environment.put("MAVEN_TERMINATE_CMD", "on");
+        this.processTree = new MavenProcessTree();
+        environment.put(MavenProcessTree.MARKER_ENVIRONMENT_VARIABLE, this.processTree.getMarker());
+        this.process = processBuilder.start();
+        this.requestWriter = new BufferedWriter(new OutputStreamWriter(this.process.getOutputStream(), StandardCharsets.UTF_8));
+        this.outputReader = new BufferedReader(new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8));
+        this.errorReader = new BufferedReader(new InputStreamReader(this.process.getErrorStream(), StandardCharsets.UTF_8));
+        LOGGER.info("Warm Maven process started with the Maven installation " + this.mavenHome.getPath());
+    }
+
+    /**
+     * The server class is copied alone in a directory, so that the classes of the pipeline do not conflict with the ones of Maven.
+     */
+    private File extractServerClass() throws IOException {
+        File classesDirectory = Files.createTempDirectory("repairnator-warm-maven").toFile();
+        classesDirectory.deleteOnExit();
+        String classFile = SERVER_CLASS_NAME.replace('.', '/') + ".class";
+        File target = new File(classesDirectory, classFile);
+        Files.createDirectories(target.getParentFile().toPath());
+        try (InputStream inputStream = WarmMavenProcess.class.getClassLoader().getResourceAsStream(classFile)) {
+            if (inputStream == null) {
+                throw new IOException("The class " + classFile + " cannot be found.");
+            }
+            Files.copy(inputStream, target.toPath());
+        }
+        return classesDirectory;
+    }
+
+    /**
+     * Run mvn with the given arguments in the warm process.
+     *
+     * @return the exit code of Maven, or null if the goal could not be run in the warm process: it should then be run in a new process
+     */
+    public Integer execute(File workingDirectory, List<String> args, InvocationOutputHandler outputHandler, InvocationOutputHandler errorHandler) {
+        for (String arg : args) {
+            if (arg.isEmpty() || arg.contains("\n") || arg.contains("\r")) {
+                return null;
+            }
+        }
+        if (!this.acquire()) {
+            return null;
+        }
+
+        try {
+            if (this.process == null || !this.process.isAlive()) {
+                this.start();
+            }
+
+            String token = UUID.randomUUID().toString();
+            StringBuilder request = new StringBuilder();
+            request.append(token).append('\n').append(workingDirectory.getAbsolutePath()).append('\n');
+            for (String arg : args) {
+                request.append(arg).append('\n');
+            }
+            request.append('\n');
+            this.requestWriter.write(request.toString());
+            this.requestWriter.flush();
+
+            String end = WarmMavenServer.END_PREFIX + token + ":";
+            Thread errorThread = new Thread(() -> this.consume(this.errorReader, end, errorHandler), "warm-maven-stderr");
+            errorThread.start();
+            Integer exitCode = this.consume(this.outputReader, end, outputHandler);
+            errorThread.join();
+            if (exitCode == null) {
+                // the process died during the goal: the goal is run again in a new mvn process
+                this.stop();
+            } else if (exitCode == WarmMavenServer.FAILURE_EXIT_CODE) {
+                LOGGER.warn("The warm Maven process could not run the goal: it will be run in a new mvn process.");
+                this.stop();
+                return null;
+            }
+            return exitCode;
+        } catch (IOException e) {
+            LOGGER.warn("Error while using the warm Maven process.", e);
+            this.stop();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.stop();
+            return null;
+        } finally {
+            this.release();
+        }
+    }
+
+    /**
+     * Give the lines to the handler until the end line of the request.
+     *
+     * @return the exit code given by the end line, or null if the stream ended before
+     */
+    private Integer consume(BufferedReader reader, String end, InvocationOutputHandler handler) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int endIndex = line.indexOf(end);
+                if (endIndex >= 0) {
+                    // the last line of Maven may not be ended
+                    if (endIndex > 0 && handler != null) {
+                        handler.consumeLine(line.substring(0, endIndex));
+                    }
+                    return Integer.parseInt(line.substring(endIndex + end.length()));
+                }
+                if (handler != null) {
+                    handler.consumeLine(line);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("The output of the warm Maven process cannot be read anymore.", e);
+        }
+        return null;
+    }
+
+    /**
+     * @return the tree of the processes started by the warm process, or null if it has not been started
+     */
+    public synchronized MavenProcessTree getProcessTree() {
+        return processTree;
+    }
+
+    /**
+     * Kill the warm process and the processes forked by its goals, for instance when a goal reached its timeout:
+     * a new one is started for the next goal.
+     *
+     * @return the number of killed processes
+     */
+    public synchronized int stop() {
+        int nbKilledProcesses = 0;
+        if (this.process != null) {
+            nbKilledProcesses = this.processTree.kill();
+            this.process.destroyForcibly();
+            this.process = null;
+        }
+        return nbKilledProcesses;
+    }
+}
@@ -0,0 +1,92 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The main class of the warm Maven process started by {@link WarmMavenProcess}.
+ *
+ * It runs in a JVM whose classpath only contains the libraries of the Maven installation and this class,
+ * so it only depends on the JDK and reaches Maven by reflection.
+ * The requests are read on the standard input: a token, the working directory, then one argument of mvn per line,
+ * ended by an empty line. The goals are run one after another in the same JVM; the output of Maven goes
+ * to the standard output and error of the process, each followed by an end line giving the token and the exit code.
+ */
+public final class WarmMavenServer {
+    public static final String END_PREFIX = "[repairnator-warm-maven-end]";
+    /**
+     * The exit code given when Maven could not be run by the server: it is not an exit code of Maven,
+     * the goal should then be run in a new mvn process.
+     */
+    public static final int FAILURE_EXIT_CODE = -1;
+
+    private WarmMavenServer() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8.name());
+        PrintStream err = new PrintStream(System.err, true, StandardCharsets.UTF_8.name());
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        // the classes of Maven are loaded once by the class loader of the process, but each goal has its own class world:
+        // Maven creates realms in it, for instance for the core extensions, which cannot be created twice
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Class<?> classWorldClass = Class.forName("org.codehaus.plexus.classworlds.ClassWorld");
+        Constructor<?> classWorldConstructor = classWorldClass.getConstructor(String.class, ClassLoader.class);
+        Class<?> mavenCliClass = Class.forName("org.apache.maven.cli.MavenCli");
+        Constructor<?> mavenCliConstructor = mavenCliClass.getConstructor(classWorldClass);
+        Method doMain = mavenCliClass.getMethod("doMain", String[].class, String.class, PrintStream.class, PrintStream.class);
+
+        String token;
+        while ((token = in.readLine()) != null) {
+            String workingDirectory = in.readLine();
+            List<String> mavenArgs = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+                mavenArgs.add(line);
+            }
+
+            // Maven sets the user properties as system properties: they must not leak into the next goals
+            Properties systemProperties = (Properties) System.getProperties().clone();
+            int exitCode;
+            try {
+                System.setProperty("user.dir", workingDirectory);
+                System.setProperty("maven.multiModuleProjectDirectory", getMultiModuleProjectDirectory(workingDirectory));
+                Object classWorld = classWorldConstructor.newInstance("plexus.core", classLoader);
+                Object mavenCli = mavenCliConstructor.newInstance(classWorld);
+                exitCode = (Integer) doMain.invoke(mavenCli, mavenArgs.toArray(new String[0]), workingDirectory, out, err);
+            } catch (Throwable e) {
+                e.printStackTrace(err);
+                exitCode = FAILURE_EXIT_CODE;
+            } finally {
+                System.setProperties(systemProperties);
+            }
+
+            String end = END_PREFIX + token + ":" + exitCode;
+            err.println(end);
+            out.println(end);
+        }
+    }
+
+    /**
+     * Compute the directory of the project as done by the mvn script: the closest parent containing a .mvn directory.
+     */
+    private static String getMultiModuleProjectDirectory(String workingDirectory) {
+        File directory = new File(workingDirectory).getAbsoluteFile();
+        while (directory != null) {
+            if (new File(directory, ".mvn").isDirectory()) {
+                return directory.getPath();
+            }
+            directory = directory.getParentFile();
+        }
+        return workingDirectory;
+    }
+}
@@ -17,6 +17,6 @@ public class MavenErrorHandler extends MavenOutputHandler {
         super.consumeLine(s);
 
         this.getLogger().error(s);
-        this.inspector.getJobStatus().addStepError(name, s);
+        this.inspector.getJobStatus().addMavenError(name, s);
     }
 }
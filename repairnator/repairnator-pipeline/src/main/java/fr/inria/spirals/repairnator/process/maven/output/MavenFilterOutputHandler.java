@@ -18,7 +18,7 @@ public class MavenFilterOutputHandler extends MavenOutputHandler {
 
         if (s.contains("ERROR") || s.contains("error")) {
             this.getLogger().error(s);
-            this.inspector.getJobStatus().addStepError(name, s);
+            this.inspector.getJobStatus().addMavenError(name, s);
         }
     }
 }
@@ -0,0 +1,214 @@
+package fr.inria.spirals.repairnator.process.maven.output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write the output of a Maven goal in its log file, without slowing Maven down.
+ *
+ * The lines are buffered for the output handlers and written in batches by a background thread,
+ * which only flushes the file once per batch. Above {@link #MAX_FILE_SIZE} the log file is rotated:
+ * its content is compressed in a log.1.gz file, and only the {@link #MAX_ROTATED_FILES} last compressed files are kept.
+ */
+public class MavenLogWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MavenLogWriter.class);
+
+    public static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+    public static final int MAX_ROTATED_FILES = 5;
+    // the handlers wait for the writer above this number of lines, when the disk is slower than Maven
+    private static final int MAX_PENDING_LINES = 65536;
+
+    private File file;
+    private long maxFileSize;
+    private List<String> pendingLines;
+    private boolean closed;
+    private Thread thread;
+    private Writer writer;
+    private long fileSize;
+
+    public MavenLogWriter(File file) {
+        this(file, MAX_FILE_SIZE);
+    }
+
+    MavenLogWriter(File file, long maxFileSize) {
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.pendingLines = new ArrayList<>();
+        this.thread = new Thread(this::writeLines, "maven-log-" + file.getName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Add a line to write. The caller only waits if the disk is slower than Maven and too many lines are pending.
+     */
+    public synchronized void write(String line) {
+        try {
+            while (this.pendingLines.size() >= MAX_PENDING_LINES && !this.closed) {
+                this.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (this.closed) {
+            return;
+        }
+        this.pendingLines.add(line);
+        // the writer is only woken up by the first line of a batch
+        if (this.pendingLines.size() == 1) {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Write the pending lines and close the log file.
+     */
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            this.notifyAll();
+        }
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the lines to write, or null if the log is closed and all its lines have been written
+     */
+    private synchronized List<String> takePendingLines() throws InterruptedException {
+        while (this.pendingLines.isEmpty() && !this.closed) {
+            this.wait();
+        }
+        if (this.pendingLines.isEmpty()) {
+            return null;
+        }
+        List<String> lines = this.pendingLines;
+        this.pendingLines = new ArrayList<>(lines.size());
+        this.notifyAll();
+        return lines;
+    }
+
+    private void writeLines() {
+        try {
+            this.deleteRotatedFiles();
+            this.openFile();
+        } catch (IOException e) {
+            LOGGER.error("Cannot create the log file " + this.file.getPath() + ".", e);
+        }
+
+        try {
+            List<String> lines;
+            while ((lines = this.takePendingLines()) != null) {
+                for (String line : lines) {
+                    this.writeLine(line);
+                }
+                this.flush();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("The writer of " + this.file.getPath() + " has been interrupted.");
+        }
+        this.closeFile();
+    }
+
+    private void writeLine(String line) {
+        if (this.writer == null) {
+            return;
+        }
+        try {
+            if (this.fileSize > 0 && this.fileSize + line.length() + 1 > this.maxFileSize) {
+                this.rotate();
+            }
+            this.writer.write(line);
+            this.writer.write('\n');
+            this.fileSize += line.length() + 1;
+        } catch (IOException e) {
+            LOGGER.error("Error while writing to " + this.file.getPath() + ": the next lines are not written.", e);
+            this.closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file), StandardCharsets.UTF_8), 64 * 1024);
+        this.fileSize = 0;
+    }
+
+    private void flush() {
+        if (this.writer != null) {
+            try {
+                this.writer.flush();
+            } catch (IOException e) {
+                LOGGER.error("Error while writing to " + this.file.getPath() + ".", e);
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (this.writer != null) {
+            try {
+                this.writer.close();
+            } catch (IOException e) {
+                LOGGER.error("Error while closing " + this.file.getPath() + ".", e);
+            }
+            this.writer = null;
+        }
+    }
+
+    File getRotatedFile(int index) {
+        return new File(this.file.getPath() + "." + index + ".gz");
+    }
+
+    /**
+     * @return the compressed files of the rotated content of the log, next to the log file, the most recent first
+     */
+    public List<File> getRotatedFiles() {
+        List<File> rotatedFiles = new ArrayList<>();
+        for (int i = 1; i <= MAX_ROTATED_FILES; i++) {
+            if (this.getRotatedFile(i).exists()) {
+                rotatedFiles.add(this.getRotatedFile(i));
+            }
+        }
+        return rotatedFiles;
+    }
+
+    private void deleteRotatedFiles() throws IOException {
+        for (int i = 1; i <= MAX_ROTATED_FILES; i++) {
+            Files.deleteIfExists(this.getRotatedFile(i).toPath());
+        }
+    }
+
+    private void rotate() throws IOException {
+        this.writer.close();
+        this.writer = null;
+
+        Files.deleteIfExists(this.getRotatedFile(MAX_ROTATED_FILES).toPath());
+        for (int i = MAX_ROTATED_FILES - 1; i >= 1; i--) {
+            File rotatedFile = this.getRotatedFile(i);
+            if (rotatedFile.exists()) {
+                Files.move(rotatedFile.toPath(), this.getRotatedFile(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(this.getRotatedFile(1)), 64 * 1024)) {
+            Files.copy(this.file.toPath(), outputStream);
+        }
+
+        this.openFile();
+    }
+}
@@ -3,14 +3,17 @@ package fr.inria.spirals.repairnator.process.step;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.dockerpool.StepProgressEvent;
 import fr.inria.spirals.repairnator.notifier.AbstractNotifier;
+import fr.inria.spirals.repairnator.process.files.WorkspaceReclaimer;
 import fr.inria.spirals.repairnator.process.inspectors.*;
 import fr.inria.spirals.repairnator.process.inspectors.properties.machineInfo.MachineInfo;
 import fr.inria.spirals.repairnator.process.inspectors.properties.reproductionBuggyBuild.ReproductionBuggyBuild;
+import fr.inria.spirals.repairnator.process.maven.CompiledOutputs;
+import fr.inria.spirals.repairnator.process.maven.MavenRepositoryCache;
 import fr.inria.spirals.repairnator.serializer.AbstractDataSerializer;
 import fr.inria.spirals.repairnator.states.LauncherMode;
 import fr.inria.spirals.repairnator.states.PushState;
-import org.codehaus.plexus.util.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -291,24 +294,57 @@ public abstract class AbstractStep {
         return this.inspector.getJobStatus().getPomDirPath() + File.separator + Utils.POM_FILE;
     }
 
+    /**
+     * The directories are only moved away here: they are deleted in background, so that the next build can start.
+     * The artifacts downloaded by the build are published in the Maven cache before.
+     */
     protected void cleanMavenArtifactsAndLocalRepo() {
+        if (this.inspector.getDependencyPrefetcher() != null) {
+            this.inspector.getDependencyPrefetcher().stop();
+            this.inspector.setDependencyPrefetcher(null);
+        }
+
         if (this.inspector.getM2LocalPath() != null) {
-            try {
-                FileUtils.deleteDirectory(this.inspector.getM2LocalPath());
-            } catch (IOException e) {
-                getLogger().warn(
-                        "Error while deleting the M2 local directory (" + this.inspector.getM2LocalPath() + "): " + e);
+            if (this.getConfig().getMavenCacheDirectory() != null) {
+                MavenRepositoryCache mavenCache = new MavenRepositoryCache(new File(this.getConfig().getMavenCacheDirectory()), this.getConfig().getMavenCacheSize() * 1024 * 1024);
+                try {
+                    mavenCache.publish(new File(this.inspector.getM2LocalPath()));
+                } catch (IOException e) {
+                    this.getLogger().warn("Error while publishing the Maven artifacts in the cache.", e);
+                }
             }
+            WorkspaceReclaimer.getInstance().reclaim(new File(this.inspector.getM2LocalPath()));
         }
 
         File repoDir = new File(this.inspector.getRepoLocalPath(), Utils.REMOTE_REPO_EXT);
         if (repoDir.exists() && this.getConfig().isClean()) {
-            try {
-                FileUtils.deleteDirectory(this.inspector.getRepoLocalPath());
-            } catch (IOException e) {
-                getLogger().warn("Error while deleting the workspace directory (" + this.inspector.getRepoLocalPath()
-                        + "): " + e);
-            }
+            WorkspaceReclaimer.getInstance().reclaim(new File(this.inspector.getRepoLocalPath()));
+        }
+
+        if (this.inspector.getCompiledOutputsLocalPath() != null) {
+            WorkspaceReclaimer.getInstance().reclaim(new File(this.inspector.getCompiledOutputsLocalPath()));
+        }
+    }
+
+    /**
+     * When the compiled classes of a previous build are kept, put them back in the repository
+     * and delete the ones of the sources which changed since then: the next Maven invocations only compile these sources.
+     */
+    protected void prepareCompiledOutputs() {
+        CompiledOutputs compiledOutputs = this.inspector.getJobStatus().getCompiledOutputs();
+        if (this.getConfig().isReuseCompiledOutputs() && compiledOutputs != null) {
+            compiledOutputs.prepare();
+        }
+    }
+
+    /**
+     * When the compiled classes of a previous build are kept, put back the ones changed by a previous step,
+     * without deleting the ones of the changed sources: the repair tools use the classes without building the project.
+     */
+    protected void restoreCompiledOutputs() {
+        CompiledOutputs compiledOutputs = this.inspector.getJobStatus().getCompiledOutputs();
+        if (this.getConfig().isReuseCompiledOutputs() && compiledOutputs != null) {
+            compiledOutputs.restore();
         }
     }
 
@@ -330,9 +366,12 @@ public abstract class AbstractStep {
         this.getLogger().debug("STEP "+ (steps.indexOf(this) + 1)+"/"+ steps.size() +": "+this.name);
         this.getLogger().debug("----------------------------------------------------------------------");
 
+        // progress events are followed by the docker pool through the container output
+        this.getLogger().info(StepProgressEvent.start(this.name).toLogMessage());
         this.dateBegin = new Date();
         this.stepStatus = this.businessExecute();
         this.dateEnd = new Date();
+        this.getLogger().info(new StepProgressEvent(this.name, this.stepStatus.getStatus().name(), getDuration()).toLogMessage());
 
         this.getLogger().debug("STEP STATUS: "+this.stepStatus);
         this.getLogger().debug("STEP DURATION: "+getDuration()+"s");
@@ -1,9 +1,15 @@
 package fr.inria.spirals.repairnator.process.step;
 
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.CompiledOutputs;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import fr.inria.spirals.repairnator.process.maven.MavenProjectLayout;
+import fr.inria.spirals.repairnator.process.maven.ReactorScope;
 import fr.inria.spirals.repairnator.states.PipelineState;
 
+import java.io.File;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -20,22 +26,49 @@ public class BuildProject extends AbstractStep {
     }
 
     protected StepStatus businessExecute() {
-        this.getLogger().debug("Building project by installing artifacts with maven (skip test execution)...");
+        // the build must not write in the local repository at the same time as the prefetch
+        if (this.getInspector().getDependencyPrefetcher() != null) {
+            this.getInspector().getDependencyPrefetcher().waitForEnd();
+            this.getInspector().setDependencyPrefetcher(null);
+        }
 
-        Properties properties = new Properties();
-        properties.setProperty(MavenHelper.SKIP_TEST_PROPERTY, "true");
+        JobStatus jobStatus = this.getInspector().getJobStatus();
+        jobStatus.setProjectLayout(null);
+        jobStatus.setScopedModules(null);
+        this.prepareCompiledOutputs();
 
-        MavenHelper helper = new MavenHelper(this.getPom(), "install", properties, this.getClass().getSimpleName(), this.getInspector(), true);
+        List<String> moduleSelectors = this.getFailingModuleSelectors();
+        // the layout is read from the root module, which is not built when the reactor is restricted
+        if (moduleSelectors == null && this.getConfig().isFusedMaven() && this.runFusedInvocation()) {
+            this.recordCompiledOutputs();
+            return StepStatus.buildSuccess(this);
+        }
+
+        this.getLogger().debug("Building project by installing artifacts with maven (skip test execution)...");
 
         int result;
         try {
-            result = helper.run();
+            result = this.runInstall(moduleSelectors);
+            CompiledOutputs compiledOutputs = jobStatus.getCompiledOutputs();
+            if (result != MavenHelper.MAVEN_SUCCESS && compiledOutputs != null && compiledOutputs.isIncremental()) {
+                this.getLogger().info("The build reusing the compiled classes of the previous build failed: the whole project will be compiled.");
+                compiledOutputs.discardOutputs();
+                result = this.runInstall(moduleSelectors);
+            }
+            if (result != MavenHelper.MAVEN_SUCCESS && moduleSelectors != null) {
+                this.getLogger().info("The build of the modules " + moduleSelectors + " failed: the whole reactor will be built.");
+                moduleSelectors = null;
+                result = this.runInstall(null);
+            }
         } catch (InterruptedException e) {
             this.addStepError("Error while building", e);
             result = MavenHelper.MAVEN_ERROR;
         }
 
         if (result == MavenHelper.MAVEN_SUCCESS) {
+            // the tests are run on the same modules
+            jobStatus.setScopedModules(moduleSelectors);
+            this.recordCompiledOutputs();
             return StepStatus.buildSuccess(this);
         } else {
             this.addStepError("Repository " + this.getInspector().getRepoSlug() + " cannot be built.");
@@ -43,4 +76,77 @@ public class BuildProject extends AbstractStep {
         }
     }
 
+    /**
+     * When a previous run of the tests found the failing modules of a multi-module project,
+     * like for the validation of a patched build, only these modules and the modules they depend on are built and tested.
+     *
+     * @return the modules to give to -pl, or null to build the whole reactor
+     */
+    private List<String> getFailingModuleSelectors() {
+        if (!this.getConfig().isScopedBuilds()) {
+            return null;
+        }
+        List<String> moduleSelectors = ReactorScope.getFailingModuleSelectors(this.getInspector().getJobStatus());
+        if (moduleSelectors != null) {
+            this.getLogger().info("Only the failing modules " + moduleSelectors + " and the modules they depend on will be built and tested.");
+        }
+        return moduleSelectors;
+    }
+
+    /**
+     * Keep the compiled classes of the project, for the next builds and the repair tools.
+     */
+    private void recordCompiledOutputs() {
+        if (!this.getConfig().isReuseCompiledOutputs()) {
+            return;
+        }
+        JobStatus jobStatus = this.getInspector().getJobStatus();
+        if (jobStatus.getCompiledOutputs() == null) {
+            jobStatus.setCompiledOutputs(new CompiledOutputs(new File(this.getInspector().getCompiledOutputsLocalPath()), jobStatus.getRepositoryIndex()));
+        }
+        jobStatus.getCompiledOutputs().record();
+    }
+
+    private int runInstall(List<String> moduleSelectors) throws InterruptedException {
+        Properties properties = new Properties();
+        properties.setProperty(MavenHelper.SKIP_TEST_PROPERTY, "true");
+
+        MavenHelper helper = new MavenHelper(this.getPom(), "install", properties, this.getClass().getSimpleName(), this.getInspector(), true);
+        helper.setProjects(moduleSelectors);
+        return helper.run();
+    }
+
+    /**
+     * Build the project, run its tests and write its classpath and its layout with a single Maven invocation.
+     * The next steps then use the layout instead of running Maven or reading the pom.xml files again.
+     *
+     * @return false if the invocation failed: the project is then built and tested with separate invocations
+     */
+    private boolean runFusedInvocation() {
+        this.getLogger().debug("Building and testing project with a single maven invocation...");
+
+        MavenHelper helper = new MavenHelper(this.getPom(), MavenProjectLayout.FUSED_GOALS, MavenProjectLayout.getFusedProperties(), this.getClass().getSimpleName(), this.getInspector(), false);
+
+        int result;
+        try {
+            result = helper.run();
+        } catch (InterruptedException e) {
+            this.addStepError("Error while building and testing the project with a single maven invocation", e);
+            return false;
+        }
+
+        if (result != MavenHelper.MAVEN_SUCCESS) {
+            this.getLogger().info("The single maven invocation failed: the project will be built and tested separately.");
+            return false;
+        }
+
+        MavenProjectLayout layout = MavenProjectLayout.read(new File(this.getInspector().getJobStatus().getPomDirPath()));
+        if (layout == null) {
+            this.getLogger().info("The layout of the project cannot be read: the project will be built and tested separately.");
+            return false;
+        }
+        this.getInspector().getJobStatus().setProjectLayout(layout);
+        return true;
+    }
+
 }
@@ -1,12 +1,19 @@
 package fr.inria.spirals.repairnator.process.step;
 
 import fr.inria.jtravis.entities.Build;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.git.CloneCache;
+import fr.inria.spirals.repairnator.process.git.ShallowCloneHelper;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.states.PipelineState;
+import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by urli on 03/01/2017.
@@ -29,6 +36,15 @@ public class CloneRepository extends AbstractStep {
         try {
             this.getLogger().debug("Cloning repository " + repoSlug + " in the following directory: " + repoLocalPath);
 
+            if (this.cloneFromCache(repoSlug, repoRemotePath, new File(repoLocalPath))) {
+                return StepStatus.buildSuccess(this);
+            }
+
+            if (this.getConfig().getCloneDepth() > 0) {
+                this.shallowClone(repoRemotePath, new File(repoLocalPath));
+                return StepStatus.buildSuccess(this);
+            }
+
             Git.cloneRepository().setCloneSubmodules(true).setURI(repoRemotePath).setDirectory(new File(repoLocalPath)).call();
 
             return StepStatus.buildSuccess(this);
@@ -38,4 +54,51 @@ public class CloneRepository extends AbstractStep {
         }
     }
 
+    /**
+     * Clone only the last commits of the repository: the later steps deepen the history if they need older commits.
+     */
+    private void shallowClone(String repoRemotePath, File repoLocalDirectory) throws IOException {
+        ShallowCloneHelper shallowCloneHelper = new ShallowCloneHelper(this.getConfig().getCloneDepth());
+        shallowCloneHelper.cloneRepository(repoRemotePath, repoLocalDirectory);
+        for (String commit : this.getNeededCommits()) {
+            if (!shallowCloneHelper.ensureCommit(repoLocalDirectory, commit)) {
+                this.getLogger().warn("The commit " + commit + " cannot be retrieved in the shallow clone.");
+            }
+        }
+        this.getInspector().getGitHelper().initAllSubmodules(Git.open(repoLocalDirectory));
+    }
+
+    private List<String> getNeededCommits() {
+        List<String> neededCommits = new ArrayList<>();
+        neededCommits.add(this.build.getCommit().getSha());
+        Build patchedBuild = this.getInspector().getPatchedBuild();
+        if (patchedBuild != null) {
+            neededCommits.add(patchedBuild.getCommit().getSha());
+        }
+        return neededCommits;
+    }
+
+    /**
+     * Clone the repository from the shared clone cache, if one is configured.
+     *
+     * @return true if the repository has been cloned, false if it should be cloned from the network
+     */
+    private boolean cloneFromCache(String repoSlug, String repoRemotePath, File repoLocalDirectory) {
+        RepairnatorConfig config = this.getConfig();
+        if (config.getCloneCacheDirectory() == null) {
+            return false;
+        }
+
+        CloneCache cloneCache = new CloneCache(new File(config.getCloneCacheDirectory()), config.getCloneCacheSize() * 1024 * 1024);
+        try {
+            cloneCache.cloneRepository(repoSlug, repoRemotePath, repoLocalDirectory, this.getNeededCommits());
+            this.getInspector().getGitHelper().initAllSubmodules(Git.open(repoLocalDirectory));
+            return true;
+        } catch (IOException e) {
+            this.getLogger().warn("Repository " + repoSlug + " cannot be cloned from the clone cache: it will be cloned from the network.", e);
+            FileUtils.deleteQuietly(repoLocalDirectory);
+            return false;
+        }
+    }
+
 }
@@ -3,8 +3,13 @@ package fr.inria.spirals.repairnator.process.step;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.maven.output.MavenFilterOutputHandler;
+import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportWatcher;
+import fr.inria.spirals.repairnator.process.testinformation.TravisLogTestFailures;
 import fr.inria.spirals.repairnator.states.PipelineState;
 
+import java.util.Set;
+
 /**
  * This step only launch mvn test. IT DOES NOT PROCESS THE RESULTS OF THE TEST.
  * See {@link fr.inria.spirals.repairnator.process.step.gatherinfo.GatherTestInformation} for the process of the tests.
@@ -20,12 +25,20 @@ public class TestProject extends AbstractStep {
     }
 
     protected StepStatus businessExecute() {
+        if (this.getInspector().getJobStatus().getProjectLayout() != null) {
+            this.getLogger().debug("The tests have already been launched by the single maven invocation of the build.");
+            return StepStatus.buildSuccess(this);
+        }
+
         this.getLogger().debug("Launching tests with maven...");
 
         MavenHelper helper = new MavenHelper(this.getPom(), "test", null, this.getClass().getSimpleName(), this.getInspector(), false);
+        // only the modules built by the previous step, when the build has been restricted to the failing modules
+        helper.setProjects(this.getInspector().getJobStatus().getScopedModules());
 
         MavenFilterOutputHandler outputFilter = new MavenFilterOutputHandler(helper);
         helper.setOutputHandler(outputFilter);
+        helper.setReportWatcher(this.createReportWatcher());
 
         // we cannot rely on the bash result of the command here: it is erroring (!= 0) if the mvn test fail
         // but it might mean a success for us
@@ -36,7 +49,37 @@ public class TestProject extends AbstractStep {
             this.addStepError("Error while testing the project.", e);
             return StepStatus.buildError(this, PipelineState.NOTTESTABLE);
         }
+        if (helper.isStoppedOnReproduction()) {
+            this.getLogger().info("The tests have been stopped once the failures of the buggy build have been reproduced.");
+        }
         return StepStatus.buildSuccess(this);
     }
 
+    /**
+     * When reproducing the buggy build, the tests which failed on Travis are known from its logs:
+     * the reports are watched to decide whether the build reproduces without waiting for the end of all the tests.
+     *
+     * @return the watcher of the surefire reports, or null if no decision can be taken before the end of the tests
+     */
+    private SurefireReportWatcher createReportWatcher() {
+        if (!this.getConfig().isEarlyTestDecision() || this.getInspector().getCheckoutType() != CheckoutType.CHECKOUT_BUGGY_BUILD) {
+            return null;
+        }
+
+        Set<String> expectedFailingClasses;
+        try {
+            expectedFailingClasses = TravisLogTestFailures.getFailingTestClasses(this.getInspector().getBuggyBuild());
+        } catch (RuntimeException e) {
+            this.getLogger().warn("The logs of the buggy build cannot be read: all the tests will be run.", e);
+            return null;
+        }
+        if (expectedFailingClasses.isEmpty()) {
+            this.getLogger().debug("No failing test class has been found in the logs of the buggy build: all the tests will be run.");
+            return null;
+        }
+
+        this.getLogger().info("The reports of the test classes which failed on Travis will be watched: " + expectedFailingClasses);
+        return new SurefireReportWatcher(this.getInspector().getJobStatus().getRepositoryIndex().getModuleDirectories(), expectedFailingClasses);
+    }
+
 }
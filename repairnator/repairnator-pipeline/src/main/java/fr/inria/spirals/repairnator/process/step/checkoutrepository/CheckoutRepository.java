@@ -10,6 +10,7 @@ import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.inspectors.properties.commits.Commit;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
+import fr.inria.spirals.repairnator.process.maven.DependencyPrefetcher;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import org.eclipse.jgit.api.Git;
@@ -143,7 +144,15 @@ public abstract class CheckoutRepository extends AbstractStep {
                 }
             }
 
+            // the pom.xml files of the buggy build are readable: its dependencies are downloaded during the rest of the checkout
+            if (checkoutType == CheckoutType.CHECKOUT_BUGGY_BUILD && this.getConfig().isPrefetchDependencies()) {
+                this.startDependencyPrefetch();
+            }
+
             gitHelper.initAllSubmodules(git);
+
+            // the files of the repository are listed once for all the next steps
+            jobStatus.getRepositoryIndex().refresh();
         } catch (IOException | GitAPIException e) {
             this.addStepError("Exception while getting the commit to checkout from the repo.", e);
             return StepStatus.buildError(this, PipelineState.BUILDNOTCHECKEDOUT);
@@ -152,6 +161,17 @@ public abstract class CheckoutRepository extends AbstractStep {
         return StepStatus.buildSuccess(this);
     }
 
+    private void startDependencyPrefetch() {
+        File pomFile = new File(this.getInspector().getRepoLocalPath(), Utils.POM_FILE);
+        if (pomFile.isFile()) {
+            DependencyPrefetcher dependencyPrefetcher = new DependencyPrefetcher(this.getInspector());
+            dependencyPrefetcher.start(pomFile.getPath());
+            this.getInspector().setDependencyPrefetcher(dependencyPrefetcher);
+        } else {
+            this.getLogger().debug("No pom.xml file at the root of the repository: the dependencies are not prefetched.");
+        }
+    }
+
     private List<String> getPaths(File[] dir, Git git) {
         List<String> paths = new ArrayList<>();
         try {
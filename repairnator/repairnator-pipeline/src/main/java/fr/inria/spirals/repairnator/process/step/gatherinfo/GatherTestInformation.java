@@ -5,22 +5,19 @@ import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.inspectors.properties.tests.*;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
+import fr.inria.spirals.repairnator.process.maven.MavenProjectLayout;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
 import fr.inria.spirals.repairnator.process.testinformation.FailureType;
-import org.apache.maven.plugins.surefire.report.ReportTestCase;
-import org.apache.maven.plugins.surefire.report.ReportTestSuite;
-import org.apache.maven.plugins.surefire.report.SurefireReportParser;
-import org.apache.maven.reporting.MavenReportException;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestCaseFailure;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassResult;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Created by urli on 05/01/2017.
@@ -43,6 +40,24 @@ public class GatherTestInformation extends AbstractStep {
 
     private ContractForGatherTestInformation contract;
 
+    /**
+     * The test results read in the surefire reports of a module, or the error which prevented to read them.
+     */
+    private static class ModuleReports {
+        private List<TestClassResult> testClassResults;
+        private Exception exception;
+
+        private static ModuleReports parse(File surefireDir) {
+            ModuleReports moduleReports = new ModuleReports();
+            try {
+                moduleReports.testClassResults = new SurefireReportStreamParser().parse(surefireDir);
+            } catch (IOException | XMLStreamException e) {
+                moduleReports.exception = e;
+            }
+            return moduleReports;
+        }
+    }
+
     /**
      * This step intends to gather test information produced during {@link fr.inria.spirals.repairnator.process.step.TestProject} step.
      * A contract is asked to know if the step should find test failure or if everything must pass. Moreover, this step send by default
@@ -89,33 +104,47 @@ public class GatherTestInformation extends AbstractStep {
 
         this.getLogger().debug("Contract: " + this.contract.getClass().getSimpleName());
 
-        File rootRepo = new File(this.getInspector().getJobStatus().getPomDirPath());
-        final List<File> surefireDirs = new ArrayList<File>();
-
-        try {
-            Files.walkFileTree(rootRepo.toPath(), new SimpleFileVisitor<Path>() {
-                public FileVisitResult preVisitDirectory(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (file.toString().endsWith(SUREFIREREPORT_PATH)) {
-                        surefireDirs.add(file.toFile());
-                        return FileVisitResult.SKIP_SUBTREE;
-                    } else {
-                        return FileVisitResult.CONTINUE;
-                    }
+        // the surefire reports directories, with the module they belong to
+        final Map<File, File> surefireDirs = new LinkedHashMap<File, File>();
+
+        MavenProjectLayout projectLayout = this.getInspector().getJobStatus().getProjectLayout();
+        if (projectLayout != null) {
+            // the directories of the modules are known: no need to traverse the whole repository
+            for (MavenProjectLayout.Module module : projectLayout.getModules()) {
+                File surefireDir = module.getSurefireReportsDirectory();
+                if (surefireDir.isDirectory()) {
+                    surefireDirs.put(surefireDir, module.getBasedir());
+                }
+            }
+        } else {
+            // the modules are known from the index of the repository: no need to traverse it again
+            File rootRepo = new File(this.getInspector().getJobStatus().getPomDirPath()).getAbsoluteFile();
+            for (File moduleDir : this.getInspector().getJobStatus().getRepositoryIndex().getModuleDirectories()) {
+                File surefireDir = new File(moduleDir, SUREFIREREPORT_PATH);
+                if (moduleDir.toPath().startsWith(rootRepo.toPath()) && surefireDir.isDirectory()) {
+                    surefireDirs.put(surefireDir, moduleDir);
                 }
-            });
-        } catch (IOException e) {
-            this.getLogger().warn("Error while traversing files to get surefire reports: " + e);
-            this.addStepError(e.getMessage());
+            }
         }
 
-
         JobStatus jobStatus = this.getInspector().getJobStatus();
-        for (File surefireDir : surefireDirs) {
-            SurefireReportParser parser = new SurefireReportParser(Arrays.asList(new File[] { surefireDir }),
-                    Locale.ENGLISH, null);
+        Set<String> failingModulePaths = new LinkedHashSet<>();
+        Map<String, FailureLocation> failureLocationsByClass = new LinkedHashMap<>();
+
+        // the modules are parsed in parallel, and their results are gathered in the order of the modules
+        List<File> surefireDirList = new ArrayList<>(surefireDirs.keySet());
+        List<ModuleReports> allModuleReports = surefireDirList.parallelStream().map(ModuleReports::parse).collect(Collectors.toList());
+
+        for (int i = 0; i < surefireDirList.size(); i++) {
+            File surefireDir = surefireDirList.get(i);
+            ModuleReports moduleReports = allModuleReports.get(i);
+            if (moduleReports.exception != null) {
+                this.addStepError("Error while parsing files to get test information.", moduleReports.exception);
+                continue;
+            }
+
             try {
-                List<ReportTestSuite> testSuites = parser.parseXMLReportFiles();
-                for (ReportTestSuite testSuite : testSuites) {
+                for (TestClassResult testSuite : moduleReports.testClassResults) {
                     this.nbTotalTests += testSuite.getNumberOfTests();
                     int runningTests = testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped();
                     this.nbRunningTests += runningTests;
@@ -125,8 +154,9 @@ public class GatherTestInformation extends AbstractStep {
                     this.nbSkippingTests += testSuite.getNumberOfSkipped();
 
                     if (testSuite.getNumberOfFailures() > 0 || testSuite.getNumberOfErrors() > 0) {
-                        File failingModule = surefireDir.getParentFile().getParentFile();
+                        File failingModule = surefireDirs.get(surefireDir);
                         this.failingModulePath = failingModule.getCanonicalPath();
+                        failingModulePaths.add(this.failingModulePath);
 
                         if (!this.skipSettingStatusInformation) {
                             jobStatus.setFailingModulePath(this.failingModulePath);
@@ -141,65 +171,51 @@ public class GatherTestInformation extends AbstractStep {
                             failingClass.setNumberSkipping(testSuite.getNumberOfSkipped());
                         }
 
-                        for (ReportTestCase testCase : testSuite.getTestCases()) {
-                            if (testCase.hasFailure() || testCase.hasError()) {
-
-                                // sometimes surefire reports a failureType on the form:
-                                // "java.lang.NullPointerException:" we should avoid this case
-                                String failureType = testCase.getFailureType();
-
-                                if (failureType.endsWith(":")) {
-                                    failureType = failureType.substring(0, failureType.length() - 1);
-                                }
-
-                                this.failureNames.add(failureType);
-                                FailureType typeTof = new FailureType(failureType, testCase.getFailureMessage(), testCase.hasError());
-                                FailureLocation failureLocation = null;
-
-                                for (FailureLocation location : this.failureLocations) {
-                                    if (location.getClassName().equals(testCase.getFullClassName())) {
-                                        failureLocation = location;
-                                        break;
-                                    }
-                                }
-
-                                if (failureLocation == null) {
-                                    failureLocation = new FailureLocation(testCase.getFullClassName());
-                                    this.failureLocations.add(failureLocation);
-                                }
-                                failureLocation.addFailure(typeTof);
-
-                                if (testCase.hasError()) {
-                                    failureLocation.addErroringMethod(testCase.getName());
-                                } else {
-                                    failureLocation.addFailingMethod(testCase.getName());
-                                }
-
-                                if (!this.skipSettingStatusInformation) {
-                                    Properties properties = this.getInspector().getJobStatus().getProperties();
-                                    properties.getTests().getOverallMetrics().addFailure(typeTof.getFailureName(), typeTof.isError());
-
-                                    FailureDetail failureDetail = new FailureDetail();
-                                    failureDetail.setTestClass(failureLocation.getClassName());
-                                    failureDetail.setTestMethod(testCase.getName());
-                                    failureDetail.setFailureName(typeTof.getFailureName());
-                                    failureDetail.setDetail(typeTof.getFailureDetail());
-                                    failureDetail.setError(typeTof.isError());
-                                    properties.getTests().addFailureDetail(failureDetail);
-                                }
+                        for (TestCaseFailure testCase : testSuite.getFailures()) {
+                            // sometimes surefire reports a failureType on the form:
+                            // "java.lang.NullPointerException:" we should avoid this case
+                            String failureType = (testCase.getType() != null) ? testCase.getType() : "";
+
+                            if (failureType.endsWith(":")) {
+                                failureType = failureType.substring(0, failureType.length() - 1);
+                            }
+
+                            this.failureNames.add(failureType);
+                            FailureType typeTof = new FailureType(failureType, testCase.getMessage(), testCase.isError());
+                            FailureLocation failureLocation = failureLocationsByClass.computeIfAbsent(testCase.getFullClassName(), FailureLocation::new);
+                            failureLocation.addFailure(typeTof);
+
+                            if (testCase.isError()) {
+                                failureLocation.addErroringMethod(testCase.getName());
+                            } else {
+                                failureLocation.addFailingMethod(testCase.getName());
+                            }
+
+                            if (!this.skipSettingStatusInformation) {
+                                Properties properties = this.getInspector().getJobStatus().getProperties();
+                                properties.getTests().getOverallMetrics().addFailure(typeTof.getFailureName(), typeTof.isError());
+
+                                FailureDetail failureDetail = new FailureDetail();
+                                failureDetail.setTestClass(failureLocation.getClassName());
+                                failureDetail.setTestMethod(testCase.getName());
+                                failureDetail.setFailureName(typeTof.getFailureName());
+                                failureDetail.setDetail(typeTof.getFailureDetail());
+                                failureDetail.setError(typeTof.isError());
+                                properties.getTests().addFailureDetail(failureDetail);
                             }
                         }
                     }
                 }
-            } catch (MavenReportException e) {
-                this.addStepError("Error while parsing files to get test information.", e);
             } catch (IOException e) {
                 this.addStepError("Error while getting the failing module path.", e);
             }
         }
+        // the locations are added once complete, as their hash code depends on their failures
+        this.failureLocations.addAll(failureLocationsByClass.values());
 
         if (!this.skipSettingStatusInformation) {
             jobStatus.setFailureLocations(this.failureLocations);
+            jobStatus.setFailingModulePaths(new ArrayList<>(failingModulePaths));
 
             Properties properties = jobStatus.getProperties();
             Tests tests = properties.getTests();
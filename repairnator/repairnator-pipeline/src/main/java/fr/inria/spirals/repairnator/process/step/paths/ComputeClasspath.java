@@ -5,7 +5,9 @@ import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.ClasspathCache;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import fr.inria.spirals.repairnator.process.maven.MavenProjectLayout;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -23,7 +25,7 @@ import java.util.Properties;
 public class ComputeClasspath extends AbstractStep {
     private static final String goal = "dependency:build-classpath";
 
-    private static final String CLASSPATH_FILENAME = "classpath.info";
+    private static final String CLASSPATH_FILENAME = MavenProjectLayout.CLASSPATH_FILENAME;
     private static final String DEFAULT_CLASSES_DIR = "/target/classes";
     private static final String DEFAULT_TEST_CLASSES_DIR = "/target/test-classes";
 
@@ -114,9 +116,27 @@ public class ComputeClasspath extends AbstractStep {
         String pomModule = incriminatedModule + File.separator + Utils.POM_FILE;
         String classpathFilePath = incriminatedModule + File.separator + CLASSPATH_FILENAME;
 
-        if (this.runMavenGoal(pomModule, properties) != MavenHelper.MAVEN_SUCCESS) {
+        ClasspathCache classpathCache = null;
+        String cacheKey = null;
+        if (this.getConfig().getClasspathCacheDirectory() != null) {
+            classpathCache = new ClasspathCache(new File(this.getConfig().getClasspathCacheDirectory()),
+                    this.getInspector().getM2LocalPath(), this.getInspector().getRepoLocalPath());
+            cacheKey = classpathCache.computeKey(new File(pomModule), new File(this.getPom()),
+                    this.getInspector().getJobStatus().getEffectiveModelCache());
+        }
+
+        // the classpath of the module has already been written by the single maven invocation of the build
+        MavenProjectLayout projectLayout = this.getInspector().getJobStatus().getProjectLayout();
+        MavenProjectLayout.Module module = (projectLayout != null) ? projectLayout.getModule(new File(incriminatedModule)) : null;
+        if (module != null && module.getClasspathFile().exists()) {
+            this.getLogger().debug("Using the classpath computed by the build.");
+        } else if (cacheKey != null && classpathCache.restore(cacheKey, new File(classpathFilePath))) {
+            this.getLogger().debug("Using the cached classpath " + cacheKey + ": the dependencies did not change.");
+        } else if (this.runMavenGoal(pomModule, properties) != MavenHelper.MAVEN_SUCCESS) {
             this.addStepError("Error while computing classpath maven.");
             return StepStatus.buildError(this, PipelineState.CLASSPATHERROR);
+        } else if (cacheKey != null) {
+            classpathCache.store(cacheKey, new File(classpathFilePath));
         }
 
         // Only jars will be added in the classpath here, which is the number of libraries of the failing module
@@ -126,7 +146,12 @@ public class ComputeClasspath extends AbstractStep {
         this.checkJUnitInClasspath();
 
         // Default "/target/classes" and "/target/test-classes" dirs are then added here
-        this.addDefaultDirsToClassPath(incriminatedModule);
+        if (module != null && module.getOutputDirectory() != null && module.getTestOutputDirectory() != null) {
+            this.addFileToClassPath(module.getOutputDirectory());
+            this.addFileToClassPath(module.getTestOutputDirectory());
+        } else {
+            this.addDefaultDirsToClassPath(incriminatedModule);
+        }
         this.getInspector().getJobStatus().setRepairClassPath(this.classPath);
 
         return StepStatus.buildSuccess(this);
@@ -1,8 +1,9 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
+import fr.inria.spirals.repairnator.process.files.RepositoryIndex;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
-import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import fr.inria.spirals.repairnator.process.maven.MavenProjectLayout;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.model.Build;
@@ -73,7 +74,7 @@ public class ComputeDir extends AbstractStep {
         }
 
         Model model;
-        model = MavenHelper.readPomXml(pomOfCurrentDirPath, this.getInspector().getM2LocalPath());
+        model = this.getInspector().getJobStatus().getEffectiveModelCache().getModel(pomOfCurrentDirPath, this.getInspector().getM2LocalPath());
         if (model == null) {
             this.addStepError("Error while building pom.xml model: no model has been retrieved.");
             return null;
@@ -161,6 +162,38 @@ public class ComputeDir extends AbstractStep {
         return null;
     }
 
+    /**
+     * Get the directories from the layout written by the single maven invocation of the build, instead of reading the pom.xml files.
+     *
+     * @return null if no directory of the layout exists: the pom.xml files are then read
+     */
+    protected File[] searchForDirsInLayout(MavenProjectLayout projectLayout) {
+        File rootDir = new File(this.rootDirPath);
+        try {
+            rootDir = rootDir.getCanonicalFile();
+        } catch (IOException e) {
+            getLogger().error("Error while getting canonical path for rootDirectory");
+        }
+
+        Set<File> result = new HashSet<File>();
+        for (MavenProjectLayout.Module module : projectLayout.getModules()) {
+            boolean isSearchedModule = (this.allModules) ?
+                    module.getBasedir().toPath().startsWith(rootDir.toPath()) : module.getBasedir().equals(rootDir);
+            File dir = (this.computeDirType == ComputeDirType.COMPUTE_SOURCE_DIR) ?
+                    module.getSourceDirectory() : module.getTestSourceDirectory();
+
+            if (isSearchedModule && dir != null && dir.exists()) {
+                result.add(dir);
+            }
+        }
+
+        if (result.isEmpty()) {
+            this.getLogger().debug("No " + dirTypeName + " directory has been found in the layout of the project. Try to read pom.xml to get information.");
+            return null;
+        }
+        return this.returnResult(result);
+    }
+
     private File[] returnResult(Set<File> result) {
         List<File> sortedFiles = new ArrayList<>(result);
         Collections.sort(sortedFiles);
@@ -170,8 +203,11 @@ public class ComputeDir extends AbstractStep {
     protected int computeMetricsOnDirs(File[] dirs) {
         int numberFiles = 0;
         if (dirs != null && dirs.length > 0) {
+            RepositoryIndex repositoryIndex = this.getInspector().getJobStatus().getRepositoryIndex();
             for (File f : dirs) {
-                numberFiles += FileUtils.listFiles(f, new String[] {"java"}, true).size();
+                // the directories outside of the index, like the generated sources, are listed
+                List<File> javaFiles = repositoryIndex.getFiles(f, "java");
+                numberFiles += (javaFiles != null) ? javaFiles.size() : FileUtils.listFiles(f, new String[] {"java"}, true).size();
             }
         }
         return numberFiles;
@@ -179,7 +215,13 @@ public class ComputeDir extends AbstractStep {
 
     @Override
     protected StepStatus businessExecute() {
-        this.resultDirs = this.searchForDirs(this.rootDirPath, true);
+        MavenProjectLayout projectLayout = this.getInspector().getJobStatus().getProjectLayout();
+        if (projectLayout != null) {
+            this.resultDirs = this.searchForDirsInLayout(projectLayout);
+        }
+        if (this.resultDirs == null) {
+            this.resultDirs = this.searchForDirs(this.rootDirPath, true);
+        }
 
         if (this.resultDirs == null || this.resultDirs.length == 0) {
             this.addStepError("Fail to find " + dirTypeName + " directories.");
@@ -3,7 +3,6 @@ package fr.inria.spirals.repairnator.process.step.paths;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
-import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import org.apache.maven.model.Model;
@@ -23,7 +22,7 @@ public class ComputeModules extends AbstractStep {
         List<File> modules = new ArrayList<>();
 
         File pomFile = new File(pomPath);
-        Model model = MavenHelper.readPomXml(pomFile, this.getInspector().getM2LocalPath());
+        Model model = this.getInspector().getJobStatus().getEffectiveModelCache().getModel(pomFile, this.getInspector().getM2LocalPath());
         if (model == null) {
             this.addStepError("Error while building model: no model has been retrieved.");
             return null;
@@ -1,7 +1,6 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
-import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.states.PipelineState;
@@ -26,7 +25,7 @@ public class ComputePlugins extends AbstractStep {
         List<File> plugins = new ArrayList<>();
 
         File pomFile = new File(pomPath);
-        Model model = MavenHelper.readPomXml(pomFile, this.getInspector().getM2LocalPath());
+        Model model = this.getInspector().getJobStatus().getEffectiveModelCache().getModel(pomFile, this.getInspector().getM2LocalPath());
         if (model == null) {
             this.addStepError("Error while building model: no model has been retrieved.");
             return null;
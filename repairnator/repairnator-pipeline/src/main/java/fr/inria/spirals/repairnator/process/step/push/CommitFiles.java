@@ -37,11 +37,12 @@ public class CommitFiles extends AbstractStep {
 
             GitHelper gitHelper = this.getInspector().getGitHelper();
 
+            // only the files changed since the previous commit are written in the repository to push
             String[] excludedFileNames = {".git", ".m2"};
             if (this.commitType == CommitType.COMMIT_BUGGY_BUILD) {
-                FileHelper.copyDirectory(sourceDir, targetDir, excludedFileNames, true, this);
+                FileHelper.syncDirectory(sourceDir, targetDir, excludedFileNames, true, this);
             } else {
-                FileHelper.copyDirectory(sourceDir, targetDir, excludedFileNames, false, this);
+                FileHelper.syncDirectory(sourceDir, targetDir, excludedFileNames, false, this);
             }
 
             FileHelper.removeNotificationFromTravisYML(targetDir, this);
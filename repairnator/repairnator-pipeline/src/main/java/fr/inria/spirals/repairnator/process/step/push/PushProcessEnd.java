@@ -1,5 +1,6 @@
 package fr.inria.spirals.repairnator.process.step.push;
 
+import fr.inria.spirals.repairnator.process.git.PushAggregator;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector4Bears;
@@ -9,17 +10,22 @@ import fr.inria.spirals.repairnator.states.PushState;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.RemoteAddCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Collection;
 
 public class PushProcessEnd extends AbstractStep {
 
     public static final String REMOTE_NAME = "saveFail";
+    private static final int PUSH_RETRIES = 3;
+    private static final long PUSH_RETRY_DELAY = 5000; // in milliseconds
 
     private String remoteRepoUrl;
     private String branchName;
@@ -70,30 +76,34 @@ public class PushProcessEnd extends AbstractStep {
                     CredentialsProvider credentialsProvider = new UsernamePasswordCredentialsProvider(this.getConfig().getGithubToken(), "");
 
                     this.getLogger().debug("Check if a branch already exists in the remote repository...");
-                    ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh", "-c", "git remote show " + REMOTE_NAME + " | grep " + branchName)
-                            .directory(new File(this.getInspector().getRepoLocalPath()));
-
-                    Process p = processBuilder.start();
-                    BufferedReader stdin = new BufferedReader(new InputStreamReader(p.getInputStream()));
-                    p.waitFor();
-
-                    this.getLogger().debug("Get result from grep process...");
-                    String processReturn = "";
-                    String line;
-                    while (stdin.ready() && (line = stdin.readLine()) != null) {
-                        processReturn += line;
-                    }
-
-                    if (!processReturn.equals("")) {
+                    if (this.remoteBranchExists(remoteRepo, credentialsProvider)) {
                         this.getLogger().warn("A branch already exists in the remote repo with the following name: " + branchName);
-                        this.getLogger().debug("Here the grep return: " + processReturn);
                         return StepStatus.buildSkipped(this, "A branch already exists in the remote repo with the following name: " + branchName);
                     }
 
                     this.getLogger().debug("Prepare the branch and push...");
                     Ref branch = git.checkout().setCreateBranch(true).setName(branchName).call();
 
-                    git.push().setRemote(REMOTE_NAME).add(branch).setCredentialsProvider(credentialsProvider).call();
+                    if (this.getConfig().getPushOutboxDirectory() != null) {
+                        PushAggregator pushAggregator = new PushAggregator(new File(this.getConfig().getPushOutboxDirectory()), remoteRepo, credentialsProvider, PUSH_RETRIES, PUSH_RETRY_DELAY);
+                        pushAggregator.submit(git, branchName);
+                        pushAggregator.flush();
+
+                        PushAggregator.BranchStatus branchStatus = pushAggregator.getStatus(branchName);
+                        if (branchStatus == PushAggregator.BranchStatus.PENDING) {
+                            // the remote cannot be reached for now: the branch is not pushed yet, but it will be by a later flush
+                            this.getLogger().warn("The branch " + branchName + " cannot be pushed for now: it stays queued in the push outbox.");
+                            this.getInspector().getJobStatus().setGitBranchUrl(this.remoteRepoUrl + "/tree/" + branchName);
+                            this.setPushState(PushState.REPO_PUSH_QUEUED);
+                            return StepStatus.buildSkipped(this, "The branch is queued in the push outbox: it will be pushed by a later flush.");
+                        } else if (branchStatus != PushAggregator.BranchStatus.PUSHED) {
+                            this.getLogger().warn("The branch " + branchName + " has not been pushed: " + branchStatus);
+                            this.setPushState(PushState.REPO_NOT_PUSHED);
+                            return StepStatus.buildSkipped(this, "The branch has not been pushed by the push aggregator: " + branchStatus);
+                        }
+                    } else {
+                        git.push().setRemote(REMOTE_NAME).add(branch).setCredentialsProvider(credentialsProvider).call();
+                    }
 
                     this.getInspector().getJobStatus().setHasBeenPushed(true);
 
@@ -106,8 +116,6 @@ public class PushProcessEnd extends AbstractStep {
                     this.addStepError("Error while setting remote repository with the following URL: " + remoteRepo + ".", e);
                 } catch (GitAPIException e) {
                     this.addStepError("Error while executing a JGit operation.", e);
-                } catch (InterruptedException e) {
-                    this.addStepError("Error while executing git command to check branch existence.", e);
                 }
                 this.setPushState(PushState.REPO_NOT_PUSHED);
                 return StepStatus.buildSkipped(this, "Error while pushing.");
@@ -122,4 +130,14 @@ public class PushProcessEnd extends AbstractStep {
             return StepStatus.buildSkipped(this);
         }
     }
+
+    private boolean remoteBranchExists(String remoteRepo, CredentialsProvider credentialsProvider) throws GitAPIException {
+        Collection<Ref> remoteBranches = Git.lsRemoteRepository().setRemote(remoteRepo).setHeads(true).setCredentialsProvider(credentialsProvider).call();
+        for (Ref remoteBranch : remoteBranches) {
+            if (remoteBranch.getName().equals(Constants.R_HEADS + branchName)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -49,6 +49,8 @@ public abstract class AbstractRepairStep extends AbstractStep {
     @Override
     public void execute() {
         if (this.getConfig().getRepairTools().contains(this.getRepairToolName())) {
+            // a previous repair tool may have changed the compiled classes
+            this.restoreCompiledOutputs();
             super.execute();
         } else {
             this.getLogger().warn("Skipping repair step "+this.getRepairToolName());
@@ -57,6 +59,13 @@ public abstract class AbstractRepairStep extends AbstractStep {
         }
     }
 
+    @Override
+    protected void executeNextStep() {
+        // the repair tool may have changed the files of the repository, for instance by applying a patch
+        this.getInspector().getJobStatus().getRepositoryIndex().invalidate();
+        super.executeNextStep();
+    }
+
     private List<File> serializePatches(List<RepairPatch> patchList) throws IOException {
         File parentDirectory = new File(this.getInspector().getRepoToPushLocalPath(), DEFAULT_DIR_PATCHES);
 
@@ -0,0 +1,212 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read the surefire reports of a module with a streaming parser.
+ *
+ * Only the numbers of tests by class and the failing test cases are kept: the stack traces and the outputs of the tests,
+ * which are most of the size of the reports, are skipped without being loaded in memory.
+ * As with the surefire report parser, the test cases are grouped by their class name, which can differ from the
+ * name of the test suite, and the same files are read: all the XML files except the summaries of TestNG and failsafe.
+ */
+public class SurefireReportStreamParser {
+    private static final List<String> IGNORED_REPORTS = Arrays.asList("testng-failed.xml", "testng-failures.xml", "testng-results.xml");
+    private static final String IGNORED_REPORT_PREFIX = "failsafe-summary";
+
+    private XMLInputFactory inputFactory;
+
+    /**
+     * The results of the test cases of a test class.
+     */
+    public static class TestClassResult {
+        private String fullClassName;
+        private int numberOfTests;
+        private int numberOfFailures;
+        private int numberOfErrors;
+        private int numberOfSkipped;
+        private List<TestCaseFailure> failures;
+
+        TestClassResult(String fullClassName) {
+            this.fullClassName = fullClassName;
+            this.failures = new ArrayList<>();
+        }
+
+        public String getFullClassName() {
+            return fullClassName;
+        }
+
+        public int getNumberOfTests() {
+            return numberOfTests;
+        }
+
+        public int getNumberOfFailures() {
+            return numberOfFailures;
+        }
+
+        public int getNumberOfErrors() {
+            return numberOfErrors;
+        }
+
+        public int getNumberOfSkipped() {
+            return numberOfSkipped;
+        }
+
+        /**
+         * @return the test cases with a failure or an error, in the order of the report
+         */
+        public List<TestCaseFailure> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * A test case with a failure or an error.
+     */
+    public static class TestCaseFailure {
+        private String fullClassName;
+        private String name;
+        private String type;
+        private String message;
+        private boolean error;
+
+        TestCaseFailure(String fullClassName, String name, String type, String message, boolean error) {
+            this.fullClassName = fullClassName;
+            this.name = name;
+            this.type = type;
+            this.message = message;
+            this.error = error;
+        }
+
+        public String getFullClassName() {
+            return fullClassName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
+
+    public SurefireReportStreamParser() {
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    static boolean isReport(File file) {
+        String name = file.getName();
+        return file.isFile() && name.endsWith(".xml") && !IGNORED_REPORTS.contains(name) && !name.startsWith(IGNORED_REPORT_PREFIX);
+    }
+
+    /**
+     * @return the results of the test classes reported in the given surefire-reports directory, in the order of the report files
+     */
+    public List<TestClassResult> parse(File reportsDirectory) throws IOException, XMLStreamException {
+        List<TestClassResult> results = new ArrayList<>();
+        File[] files = reportsDirectory.listFiles();
+        if (files == null) {
+            return results;
+        }
+        Arrays.sort(files);
+
+        for (File file : files) {
+            if (isReport(file)) {
+                results.addAll(this.parseReport(file));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the results of the test classes reported in the given report file
+     */
+    public List<TestClassResult> parseReport(File report) throws IOException, XMLStreamException {
+        Map<String, TestClassResult> results = new LinkedHashMap<>();
+
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(report))) {
+            XMLStreamReader reader = this.inputFactory.createXMLStreamReader(inputStream);
+            try {
+                String suiteClassName = null;
+                TestClassResult currentResult = null;
+                String testCaseName = null;
+                TestCaseFailure testCaseFailure = null;
+                // the depth of the testcase elements: the failures of the reruns are nested deeper
+                int testCaseDepth = -1;
+                int depth = 0;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        String element = reader.getLocalName();
+
+                        if ("testsuite".equals(element)) {
+                            String name = reader.getAttributeValue(null, "name");
+                            String group = reader.getAttributeValue(null, "group");
+                            suiteClassName = (group == null || group.trim().isEmpty()) ? name : group + "." + name;
+                            results.computeIfAbsent(suiteClassName, TestClassResult::new);
+                        } else if ("testcase".equals(element)) {
+                            String className = reader.getAttributeValue(null, "classname");
+                            currentResult = results.computeIfAbsent(className != null ? className : suiteClassName, TestClassResult::new);
+                            currentResult.numberOfTests++;
+                            testCaseName = reader.getAttributeValue(null, "name");
+                            testCaseFailure = null;
+                            testCaseDepth = depth;
+                        } else if (depth == testCaseDepth + 1 && currentResult != null) {
+                            if ("failure".equals(element) || "error".equals(element)) {
+                                boolean error = "error".equals(element);
+                                if (error) {
+                                    currentResult.numberOfErrors++;
+                                } else {
+                                    currentResult.numberOfFailures++;
+                                }
+                                if (testCaseFailure == null) {
+                                    testCaseFailure = new TestCaseFailure(currentResult.getFullClassName(), testCaseName,
+                                            reader.getAttributeValue(null, "type"), reader.getAttributeValue(null, "message"), error);
+                                    currentResult.failures.add(testCaseFailure);
+                                }
+                            } else if ("skipped".equals(element)) {
+                                currentResult.numberOfSkipped++;
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == testCaseDepth) {
+                            testCaseDepth = -1;
+                            currentResult = null;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        return new ArrayList<>(results.values());
+    }
+}
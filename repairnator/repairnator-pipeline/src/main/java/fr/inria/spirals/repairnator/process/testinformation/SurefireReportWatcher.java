@@ -0,0 +1,157 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassResult;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watch the surefire reports written while the tests are running, to know as soon as possible
+ * if the test classes which failed on Travis fail again.
+ *
+ * Surefire writes the report of a test class once all its tests ran: the reports are read again each time they change,
+ * and a report which cannot be parsed yet is read again at the next poll. The reports already there when the watcher
+ * is created, left by a previous run, are ignored until they are written again.
+ */
+public class SurefireReportWatcher {
+    private static final String SUREFIRE_REPORTS_PATH = "target/surefire-reports";
+
+    public enum Decision {
+        // some of the expected failing classes did not run yet
+        PENDING,
+        // all the expected failing classes ran, and at least one of them failed again
+        REPRODUCED,
+        // all the expected failing classes ran, and all of them passed
+        NOT_REPRODUCED
+    }
+
+    private List<File> reportsDirectories;
+    private Set<String> expectedFailingClasses;
+    private Set<String> reproducedClasses;
+    private Set<String> passingClasses;
+    private Map<File, String> reportStates;
+    private SurefireReportStreamParser parser;
+
+    /**
+     * @param moduleDirectories the directories of the modules whose reports are watched
+     * @param expectedFailingClasses the test classes which failed on Travis
+     */
+    public SurefireReportWatcher(List<File> moduleDirectories, Set<String> expectedFailingClasses) {
+        this.reportsDirectories = new ArrayList<>();
+        for (File moduleDirectory : moduleDirectories) {
+            this.reportsDirectories.add(new File(moduleDirectory, SUREFIRE_REPORTS_PATH));
+        }
+        this.expectedFailingClasses = new HashSet<>(expectedFailingClasses);
+        this.reproducedClasses = new HashSet<>();
+        this.passingClasses = new HashSet<>();
+        this.reportStates = new HashMap<>();
+        this.parser = new SurefireReportStreamParser();
+
+        for (File report : this.listReports()) {
+            this.reportStates.put(report, getState(report));
+        }
+    }
+
+    private static String getState(File report) {
+        return report.lastModified() + ":" + report.length();
+    }
+
+    // the nested classes are reported apart from their outer class, but Travis logs give the outer class
+    private static String getOuterClassName(String className) {
+        int index = className.indexOf('$');
+        return index < 0 ? className : className.substring(0, index);
+    }
+
+    private List<File> listReports() {
+        List<File> reports = new ArrayList<>();
+        for (File reportsDirectory : this.reportsDirectories) {
+            File[] files = reportsDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (SurefireReportStreamParser.isReport(file)) {
+                        reports.add(file);
+                    }
+                }
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Read the reports written since the last poll.
+     *
+     * @return the decision which can be taken from the reports read so far
+     */
+    public synchronized Decision poll() {
+        for (File report : this.listReports()) {
+            String state = getState(report);
+            if (state.equals(this.reportStates.get(report))) {
+                continue;
+            }
+
+            List<TestClassResult> results;
+            try {
+                results = this.parser.parseReport(report);
+            } catch (IOException | XMLStreamException e) {
+                // the report is being written
+                continue;
+            }
+            this.reportStates.put(report, state);
+
+            for (TestClassResult result : results) {
+                String className = getOuterClassName(result.getFullClassName());
+                if (!this.expectedFailingClasses.contains(className)) {
+                    continue;
+                }
+                if (!result.getFailures().isEmpty()) {
+                    this.reproducedClasses.add(className);
+                    this.passingClasses.remove(className);
+                } else if (!this.reproducedClasses.contains(className)) {
+                    this.passingClasses.add(className);
+                }
+            }
+        }
+        return this.getDecision();
+    }
+
+    public synchronized Decision getDecision() {
+        if (this.expectedFailingClasses.isEmpty() || this.reproducedClasses.size() + this.passingClasses.size() < this.expectedFailingClasses.size()) {
+            return Decision.PENDING;
+        }
+        return this.reproducedClasses.isEmpty() ? Decision.NOT_REPRODUCED : Decision.REPRODUCED;
+    }
+
+    /**
+     * @return the expected failing classes which failed again
+     */
+    public synchronized Set<String> getReproducedClasses() {
+        return new HashSet<>(this.reproducedClasses);
+    }
+
+    /**
+     * Delete the reports which cannot be parsed, when the tests have been stopped while surefire was writing them.
+     * Otherwise, they would prevent reading the results of their whole module.
+     *
+     * @return the number of deleted reports
+     */
+    public synchronized int discardIncompleteReports() {
+        int nbDeletedReports = 0;
+        for (File report : this.listReports()) {
+            try {
+                this.parser.parseReport(report);
+            } catch (IOException | XMLStreamException e) {
+                if (report.delete()) {
+                    nbDeletedReports++;
+                }
+            }
+        }
+        return nbDeletedReports;
+    }
+}
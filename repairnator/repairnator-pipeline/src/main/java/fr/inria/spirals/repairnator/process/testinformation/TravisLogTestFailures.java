@@ -0,0 +1,70 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.jtravis.entities.Build;
+import fr.inria.jtravis.entities.Job;
+import fr.inria.jtravis.entities.Log;
+
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Read the test classes which failed in a Travis build from the surefire output of its logs.
+ *
+ * The test classes are given by the summary line of each failing class: "Tests run: ... <<< FAILURE! - in foo.BarTest"
+ * with the recent versions of surefire, or by the preceding "Running foo.BarTest" line with the older ones.
+ */
+public final class TravisLogTestFailures {
+    private static final Pattern COLOR_PATTERN = Pattern.compile("\u001B\\[[;\\d]*[mK]");
+    private static final Pattern RUNNING_PATTERN = Pattern.compile("Running (\\S+)\\s*$");
+    private static final Pattern FAILING_CLASS_PATTERN = Pattern.compile("Tests run: \\d+, Failures: \\d+, Errors: \\d+, Skipped: \\d+, Time elapsed: .*<<< (?:FAILURE|ERROR)!(?:\\s+-+\\s+in\\s+(\\S+))?");
+
+    private TravisLogTestFailures() {
+    }
+
+    /**
+     * @return the failing test classes of all the jobs of the build, empty if none of their logs can be read
+     */
+    public static Set<String> getFailingTestClasses(Build build) {
+        Set<String> failingTestClasses = new LinkedHashSet<>();
+        if (build == null || build.getJobs() == null) {
+            return failingTestClasses;
+        }
+        for (Job job : build.getJobs()) {
+            Optional<Log> optionalLog = job.getLog();
+            if (optionalLog.isPresent() && optionalLog.get().getContent() != null) {
+                failingTestClasses.addAll(getFailingTestClasses(optionalLog.get().getContent()));
+            }
+        }
+        return failingTestClasses;
+    }
+
+    /**
+     * @return the failing test classes reported in the given log, in the order of the log
+     */
+    public static Set<String> getFailingTestClasses(String logContent) {
+        Set<String> failingTestClasses = new LinkedHashSet<>();
+        String runningClass = null;
+
+        for (String line : logContent.split("\r?\n")) {
+            line = COLOR_PATTERN.matcher(line).replaceAll("");
+
+            Matcher runningMatcher = RUNNING_PATTERN.matcher(line);
+            if (runningMatcher.find()) {
+                runningClass = runningMatcher.group(1);
+                continue;
+            }
+
+            Matcher failingMatcher = FAILING_CLASS_PATTERN.matcher(line);
+            if (failingMatcher.find()) {
+                String failingClass = failingMatcher.group(1) != null ? failingMatcher.group(1) : runningClass;
+                if (failingClass != null) {
+                    failingTestClasses.add(failingClass);
+                }
+            }
+        }
+        return failingTestClasses;
+    }
+}
@@ -4,20 +4,26 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import fr.inria.spirals.repairnator.process.files.FileHelper;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.step.CloneRepository;
 import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
 
 public class FileHelperTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileHelperTest.class);
 
     private File tmpDir;
 
@@ -53,6 +59,84 @@ public class FileHelperTest {
         assertTrue(nextLevelIsLowestLevel(lines, getIndexOfFirstLineAfterConsecutiveHashes(lines, i)));
     }
 
+    @Test
+    public void testSyncDirectoryOnlyWritesChangedFiles() throws IOException {
+        tmpDir = Files.createTempDirectory("test_syncDirectory").toFile();
+        File sourceDir = new File(tmpDir, "repo");
+        File targetDir = new File(tmpDir, "repo_topush");
+        FileUtils.write(new File(sourceDir, "src/main/App.java"), "class App {}", StandardCharsets.UTF_8);
+        FileUtils.write(new File(sourceDir, "pom.xml"), "<project/>", StandardCharsets.UTF_8);
+        FileUtils.write(new File(sourceDir, ".git/HEAD"), "ref: refs/heads/master", StandardCharsets.UTF_8);
+        CloneRepository cloneStep = this.mockStep(sourceDir);
+
+        FileHelper.syncDirectory(sourceDir, targetDir, new String[] {".git", ".m2"}, true, cloneStep);
+        assertEquals("class App {}", FileUtils.readFileToString(new File(targetDir, "src/main/App.java"), StandardCharsets.UTF_8));
+        assertTrue(new File(targetDir, "pom.xml").exists());
+        assertFalse(new File(targetDir, ".git").exists());
+
+        // the files are replaced in the source directory, as done by a checkout
+        File app = new File(sourceDir, "src/main/App.java");
+        Files.delete(app.toPath());
+        FileUtils.write(app, "class App { int field; }", StandardCharsets.UTF_8);
+        FileUtils.write(new File(sourceDir, "repairnator.json"), "{}", StandardCharsets.UTF_8);
+
+        FileHelper.syncDirectory(sourceDir, targetDir, new String[] {".git", ".m2"}, false, cloneStep);
+        assertEquals("class App { int field; }", FileUtils.readFileToString(new File(targetDir, "src/main/App.java"), StandardCharsets.UTF_8));
+        assertTrue(new File(targetDir, "repairnator.json").exists());
+        // the unchanged files are not written again
+        assertTrue(Files.isSameFile(new File(sourceDir, "pom.xml").toPath(), new File(targetDir, "pom.xml").toPath()));
+    }
+
+    @Test
+    public void testRemoveGhOauthDoesNotChangeLinkedFile() throws IOException {
+        tmpDir = Files.createTempDirectory("test_removeGhOauth").toFile();
+        File sourceDir = new File(tmpDir, "repo");
+        File targetDir = new File(tmpDir, "repo_topush");
+        File log = new File(sourceDir, "repairnator.log");
+        FileUtils.write(log, "java -jar nopol.jar --ghOauth abc123", StandardCharsets.UTF_8);
+
+        FileHelper.syncDirectory(sourceDir, targetDir, new String[] {".git"}, true, this.mockStep(sourceDir));
+        FileHelper.removeGhOauthFromCreatedFilesToPush(targetDir, Collections.singletonList("repairnator.log"));
+
+        assertEquals("java -jar nopol.jar [REMOVED]", FileUtils.readFileToString(new File(targetDir, "repairnator.log"), StandardCharsets.UTF_8));
+        assertEquals("java -jar nopol.jar --ghOauth abc123", FileUtils.readFileToString(log, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBenchmarkSyncDirectoryOnLargeRepository() throws IOException {
+        Utils4Tests.assumeBenchmarksEnabled();
+        tmpDir = Files.createTempDirectory("test_benchmarkSyncDirectory").toFile();
+        File sourceDir = new File(tmpDir, "repo");
+        byte[] content = new byte[32 * 1024];
+        for (int i = 0; i < 2000; i++) {
+            FileUtils.writeByteArrayToFile(new File(sourceDir, "module" + (i % 20) + "/src/File" + i + ".java"), content);
+        }
+        CloneRepository cloneStep = this.mockStep(sourceDir);
+        String[] excludedFileNames = {".git", ".m2"};
+
+        long start = System.nanoTime();
+        FileHelper.copyDirectory(sourceDir, new File(tmpDir, "copy"), excludedFileNames, true, cloneStep);
+        FileHelper.copyDirectory(sourceDir, new File(tmpDir, "copy"), excludedFileNames, false, cloneStep);
+        long copyTime = System.nanoTime() - start;
+        long copiedBytes = 2 * FileUtils.sizeOfDirectory(sourceDir);
+
+        start = System.nanoTime();
+        long syncedBytes = FileHelper.syncDirectory(sourceDir, new File(tmpDir, "sync"), excludedFileNames, true, cloneStep);
+        syncedBytes += FileHelper.syncDirectory(sourceDir, new File(tmpDir, "sync"), excludedFileNames, false, cloneStep);
+        long syncTime = System.nanoTime() - start;
+
+        LOGGER.info("Two copies of a repository of 2000 files: " + (copyTime / 1000000) + "ms, " + copiedBytes + " bytes written. "
+                + "Two synchronizations: " + (syncTime / 1000000) + "ms, " + syncedBytes + " bytes written.");
+        assertTrue(syncedBytes < copiedBytes);
+        assertEquals(FileUtils.sizeOfDirectory(sourceDir), FileUtils.sizeOfDirectory(new File(tmpDir, "sync")));
+    }
+
+    private CloneRepository mockStep(File directory) {
+        JobStatus jobStatus = new JobStatus(directory.getAbsolutePath());
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(jobStatus, directory.getAbsolutePath());
+        return new CloneRepository(inspector);
+    }
+
     public static boolean lineBeginsWithHash(List<String> lines, int index) {
         String line = lines.get(index);
         if (line.trim().startsWith("#")) {
@@ -0,0 +1,215 @@
+package fr.inria.spirals.repairnator.process.files;
+
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRepositoryIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestRepositoryIndex.class);
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // the files are dated before the refreshes, as after a checkout
+    private static void setPastModificationDates(File root) throws IOException {
+        long date = System.currentTimeMillis() - 60000;
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            paths.forEach(path -> path.toFile().setLastModified(date));
+        }
+    }
+
+    @Test
+    public void testIndexRecordsModulesAndRoles() throws IOException {
+        File root = this.tmpFolder.newFolder("repo");
+        writeFile(new File(root, "pom.xml"), "<project/>");
+        writeFile(new File(root, "README.md"), "readme");
+        writeFile(new File(root, "core/pom.xml"), "<project/>");
+        writeFile(new File(root, "core/src/main/java/foo/Foo.java"), "class Foo {}");
+        writeFile(new File(root, "core/src/test/java/foo/FooTest.java"), "class FooTest {}");
+        writeFile(new File(root, "core/target/classes/foo/Foo.class"), "binary");
+        writeFile(new File(root, "core/target/generated-sources/foo/Generated.java"), "class Generated {}");
+        writeFile(new File(root, ".git/HEAD"), "ref: refs/heads/master");
+
+        RepositoryIndex index = new RepositoryIndex(root);
+        assertEquals(Arrays.asList(root.getAbsoluteFile(), new File(root, "core").getAbsoluteFile()), index.getModuleDirectories());
+
+        RepositoryIndex.Entry entry = index.getEntry(new File(root, "core/src/main/java/foo/Foo.java"));
+        assertEquals("core/src/main/java/foo/Foo.java", entry.getPath());
+        assertEquals("core", entry.getModulePath());
+        assertEquals(RepositoryIndex.Role.SOURCE, entry.getRole());
+        assertEquals(RepositoryIndex.Role.TEST, index.getEntry(new File(root, "core/src/test/java/foo/FooTest.java")).getRole());
+        assertEquals("", index.getEntry(new File(root, "README.md")).getModulePath());
+        assertEquals(Collections.singletonList(new File(root, "core/src/test/java/foo/FooTest.java").getAbsoluteFile()), index.getFiles(RepositoryIndex.Role.TEST));
+
+        // the build outputs and the hidden directories are not indexed
+        assertNull(index.getEntry(new File(root, "core/target/classes/foo/Foo.class")));
+        assertNull(index.getEntry(new File(root, ".git/HEAD")));
+        assertNull(index.getFiles(new File(root, "core/target/generated-sources"), "java"));
+        assertEquals(2, index.getFiles(new File(root, "core/src"), "java").size());
+        assertEquals(2, index.getFiles(root, "java").size());
+
+        // sha256 of "readme"
+        assertEquals("711a6108ba2ce6ca93dd47d6817f2361db10d8ab6eec89460b2dfc2c325efabe", index.getContentHash(new File(root, "README.md")));
+    }
+
+    @Test
+    public void testRefreshOnlyListsChangedDirectories() throws IOException {
+        File root = this.tmpFolder.newFolder("repo");
+        writeFile(new File(root, "pom.xml"), "<project/>");
+        writeFile(new File(root, "src/main/java/foo/Foo.java"), "class Foo {}");
+        writeFile(new File(root, "src/main/java/bar/Bar.java"), "class Bar {}");
+        setPastModificationDates(root);
+
+        RepositoryIndex index = new RepositoryIndex(root);
+        index.refresh();
+        File foo = new File(root, "src/main/java/foo/Foo.java");
+        String fooHash = index.getContentHash(foo);
+        long nbListedDirectories = index.getNbListedDirectories();
+
+        index.refresh();
+        assertEquals(nbListedDirectories, index.getNbListedDirectories());
+        assertEquals(fooHash, index.getContentHash(foo));
+
+        // a patch changes a file and adds another one
+        writeFile(foo, "class Foo { int patched; }");
+        writeFile(new File(root, "src/main/java/bar/Baz.java"), "class Baz {}");
+        index.refresh();
+        assertEquals(nbListedDirectories + 1, index.getNbListedDirectories());
+        assertNotEquals(fooHash, index.getContentHash(foo));
+        assertEquals(3, index.getFiles(RepositoryIndex.Role.SOURCE).size());
+    }
+
+    @Test
+    public void testInvalidatedIndexIsRefreshedWhenQueried() throws IOException {
+        File root = this.tmpFolder.newFolder("repo");
+        writeFile(new File(root, "pom.xml"), "<project/>");
+        writeFile(new File(root, "src/main/java/foo/Foo.java"), "class Foo {}");
+        setPastModificationDates(root);
+
+        RepositoryIndex index = new RepositoryIndex(root);
+        index.refresh();
+        File foo = new File(root, "src/main/java/foo/Foo.java");
+        String fooHash = index.getContentHash(foo);
+
+        // a repair step applies a patch after the checkout
+        writeFile(foo, "class Foo { int patched; }");
+        writeFile(new File(root, "src/main/java/foo/Bar.java"), "class Bar {}");
+        assertEquals(1, index.getFiles(RepositoryIndex.Role.SOURCE).size());
+
+        index.invalidate();
+        assertEquals(2, index.getFiles(RepositoryIndex.Role.SOURCE).size());
+        assertNotEquals(fooHash, index.getContentHash(foo));
+    }
+
+    /**
+     * Count the directories listed and the file attributes read by a walk of the given directory, as done by the steps before the index.
+     */
+    private static long[] walk(File directory) throws IOException {
+        long[] counters = new long[2];
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                counters[0]++;
+                counters[1]++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                counters[1]++;
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return counters;
+    }
+
+    @Test
+    public void testBenchmarkLargeRepository() throws IOException {
+        Utils4Tests.assumeBenchmarksEnabled();
+        int nbModules = 40;
+        int nbPackages = 10;
+        int nbClasses = 25;
+
+        File root = this.tmpFolder.newFolder("large");
+        writeFile(new File(root, "pom.xml"), "<project/>");
+        List<File> sourceDirs = new ArrayList<>();
+        List<File> testDirs = new ArrayList<>();
+        for (int module = 0; module < nbModules; module++) {
+            File moduleDir = new File(root, "module" + module);
+            writeFile(new File(moduleDir, "pom.xml"), "<project/>");
+            sourceDirs.add(new File(moduleDir, "src/main/java"));
+            testDirs.add(new File(moduleDir, "src/test/java"));
+            for (int pkg = 0; pkg < nbPackages; pkg++) {
+                for (int clazz = 0; clazz < nbClasses; clazz++) {
+                    writeFile(new File(moduleDir, "src/main/java/pkg" + pkg + "/Class" + clazz + ".java"), "class Class" + clazz + " {}");
+                    writeFile(new File(moduleDir, "src/test/java/pkg" + pkg + "/Class" + clazz + "Test.java"), "class Class" + clazz + "Test {}");
+                    // the walks also entered the build outputs
+                    writeFile(new File(moduleDir, "target/classes/pkg" + pkg + "/Class" + clazz + ".class"), "binary");
+                }
+            }
+        }
+        setPastModificationDates(root);
+
+        // before the index, for the buggy and the patched builds: GatherTestInformation walked the repository twice,
+        // ComputeSourceDir counted the source files twice and ComputeTestDir counted the test files once
+        long start = System.nanoTime();
+        long[] walkCounters = new long[2];
+        List<File> walkedDirs = new ArrayList<>(Arrays.asList(root, root));
+        walkedDirs.addAll(sourceDirs);
+        walkedDirs.addAll(sourceDirs);
+        walkedDirs.addAll(testDirs);
+        for (File walkedDir : walkedDirs) {
+            long[] counters = walk(walkedDir);
+            walkCounters[0] += counters[0];
+            walkCounters[1] += counters[1];
+        }
+        long walkTime = (System.nanoTime() - start) / 1000000;
+
+        // with the index: it is built after the checkout of the buggy build and refreshed after the one of the patched build
+        start = System.nanoTime();
+        RepositoryIndex index = new RepositoryIndex(root);
+        index.refresh();
+        index.refresh();
+        int nbSourceFiles = 0;
+        for (int i = 0; i < 2; i++) {
+            assertEquals(nbModules + 1, index.getModuleDirectories().size());
+            for (File sourceDir : sourceDirs) {
+                nbSourceFiles += index.getFiles(sourceDir, "java").size();
+            }
+        }
+        long indexTime = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(2 * nbModules * nbPackages * nbClasses, nbSourceFiles);
+        long walkOperations = walkCounters[0] + walkCounters[1];
+        long indexOperations = index.getNbListedDirectories() + index.getNbReadAttributes();
+        assertTrue(indexOperations < walkOperations);
+        LOGGER.info("Large repository of " + (2 * nbModules * nbPackages * nbClasses) + " java files: the walks of the steps listed "
+                + walkCounters[0] + " directories and read " + walkCounters[1] + " file attributes in " + walkTime + "ms, the index listed "
+                + index.getNbListedDirectories() + " directories and read " + index.getNbReadAttributes() + " file attributes in " + indexTime + "ms.");
+    }
+}
@@ -0,0 +1,59 @@
+package fr.inria.spirals.repairnator.process.files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestWorkspaceReclaimer {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testWorkspaceIsMovedThenDeleted() throws Exception {
+        File workspace = this.createWorkspace("12345", 2000);
+        File trash = new File(workspace.getParentFile(), WorkspaceReclaimer.TRASH_DIRECTORY_NAME);
+
+        WorkspaceReclaimer reclaimer = new WorkspaceReclaimer();
+        reclaimer.reclaim(workspace);
+        // the workspace disappears right away, so that a new build can use the same path
+        assertFalse(workspace.exists());
+
+        assertTrue(reclaimer.waitForDeletions(1, TimeUnit.MINUTES));
+        assertEquals(0, trash.list().length);
+    }
+
+    @Test
+    public void testDeletionsLeftByPreviousProcessAreResumed() throws Exception {
+        File workspace = this.createWorkspace("12345", 10);
+        File trash = new File(workspace.getParentFile(), WorkspaceReclaimer.TRASH_DIRECTORY_NAME);
+        // a previous process was stopped before deleting its trash
+        File leftover = this.createWorkspace(WorkspaceReclaimer.TRASH_DIRECTORY_NAME + "/12000-1", 10);
+
+        WorkspaceReclaimer reclaimer = new WorkspaceReclaimer();
+        reclaimer.reclaim(workspace);
+
+        assertTrue(reclaimer.waitForDeletions(1, TimeUnit.MINUTES));
+        assertFalse(leftover.exists());
+        assertEquals(0, trash.list().length);
+    }
+
+    private File createWorkspace(String name, int nbFiles) throws Exception {
+        File workspace = new File(tmpFolder.getRoot(), "surli/failingProject/" + name);
+        for (int i = 0; i < nbFiles; i++) {
+            File file = new File(workspace, ".m2/org/artifact" + (i % 50) + "/file" + i + ".jar");
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+        }
+        return workspace;
+    }
+}
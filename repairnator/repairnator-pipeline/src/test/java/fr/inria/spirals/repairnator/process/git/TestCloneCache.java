@@ -0,0 +1,163 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestCloneCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestCloneCache.class);
+    private static final String SLUG = "surli/failingProject";
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File workingCopy;
+    private String remoteUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        // the remote is a bare repository accessed through the file protocol, to go through the git transport as for a network remote
+        this.workingCopy = tmpFolder.newFolder("workingcopy");
+        git(this.workingCopy, "init");
+        for (int i = 0; i < 20; i++) {
+            this.commitFile("File" + i + ".java", 2000);
+        }
+        File remote = new File(tmpFolder.getRoot(), "remote.git");
+        git(tmpFolder.getRoot(), "clone", "--bare", this.workingCopy.getAbsolutePath(), remote.getAbsolutePath());
+        this.remoteUrl = "file://" + remote.getAbsolutePath();
+        git(this.workingCopy, "remote", "add", "origin", this.remoteUrl);
+    }
+
+    @Test
+    public void testCloneFromMirror() throws Exception {
+        CloneCache cloneCache = new CloneCache(tmpFolder.newFolder("cache"), Long.MAX_VALUE);
+        String firstCommit = this.head();
+
+        File clone = new File(tmpFolder.getRoot(), "clone1");
+        cloneCache.cloneRepository(SLUG, this.remoteUrl, clone, Collections.singletonList(firstCommit));
+        assertTrue(cloneCache.getMirrorDirectory(SLUG).exists());
+        assertEquals(0, runGit(clone, "cat-file", "-e", firstCommit + "^{commit}"));
+        assertEquals(this.remoteUrl, gitOutput(clone, "remote", "get-url", "origin"));
+
+        // a new commit is pushed on a branch: the mirror is updated to get it
+        git(this.workingCopy, "checkout", "-b", "feature");
+        String newCommit = this.commitFile("NewFile.java", 10);
+        git(this.workingCopy, "push", "origin", "feature");
+
+        File clone2 = new File(tmpFolder.getRoot(), "clone2");
+        cloneCache.cloneRepository(SLUG, this.remoteUrl, clone2, Arrays.asList(firstCommit, newCommit));
+        assertEquals(0, runGit(clone2, "cat-file", "-e", newCommit + "^{commit}"));
+    }
+
+    @Test
+    public void testMirrorsAreEvictedOverBudget() throws Exception {
+        CloneCache cloneCache = new CloneCache(tmpFolder.newFolder("cache"), 0);
+        String commit = this.head();
+
+        File clone = new File(tmpFolder.getRoot(), "clone");
+        cloneCache.cloneRepository(SLUG, this.remoteUrl, clone, Collections.singletonList(commit));
+
+        // the clone does not depend on the evicted mirror
+        assertFalse(cloneCache.getMirrorDirectory(SLUG).exists());
+        assertEquals(0, runGit(clone, "fsck", "--no-dangling"));
+        assertEquals(0, runGit(clone, "cat-file", "-e", commit + "^{commit}"));
+    }
+
+    /**
+     * Compare a clone from the remote with a clone from a warm mirror: the bytes written for the objects of the clone
+     * are the ones which would be transferred with a network remote.
+     */
+    @Test
+    public void testBenchmarkAgainstLocalRemote() throws Exception {
+        Utils4Tests.assumeBenchmarksEnabled();
+        CloneCache cloneCache = new CloneCache(tmpFolder.newFolder("cache"), Long.MAX_VALUE);
+        String commit = this.head();
+        cloneCache.cloneRepository(SLUG, this.remoteUrl, new File(tmpFolder.getRoot(), "warmup"), Collections.singletonList(commit));
+
+        File directClone = new File(tmpFolder.getRoot(), "direct");
+        long start = System.nanoTime();
+        git(tmpFolder.getRoot(), "clone", this.remoteUrl, directClone.getAbsolutePath());
+        long directTime = System.nanoTime() - start;
+        long directBytes = writtenObjectBytes(directClone);
+
+        File cachedClone = new File(tmpFolder.getRoot(), "cached");
+        start = System.nanoTime();
+        cloneCache.cloneRepository(SLUG, this.remoteUrl, cachedClone, Collections.singletonList(commit));
+        long cachedTime = System.nanoTime() - start;
+        long cachedBytes = writtenObjectBytes(cachedClone);
+
+        LOGGER.info("Direct clone: " + (directTime / 1000000) + "ms, " + directBytes + " bytes transferred. "
+                + "Clone from the mirror: " + (cachedTime / 1000000) + "ms, " + cachedBytes + " bytes transferred.");
+        assertTrue(directBytes > 0);
+        assertTrue(cachedBytes < directBytes);
+    }
+
+    private String commitFile(String name, int nbLines) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < nbLines; i++) {
+            content.append("// line ").append(i).append(" of ").append(name).append('\n');
+        }
+        Files.write(new File(this.workingCopy, name).toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        git(this.workingCopy, "add", name);
+        git(this.workingCopy, "-c", "user.name=test", "-c", "user.email=test@repairnator.fr", "commit", "-m", "Add " + name);
+        return this.head();
+    }
+
+    private String head() throws Exception {
+        return gitOutput(this.workingCopy, "rev-parse", "HEAD");
+    }
+
+    // the objects shared with the mirror are hardlinks: only the other ones have been written
+    private static long writtenObjectBytes(File clone) throws IOException {
+        try (Stream<Path> files = Files.walk(new File(clone, ".git/objects").toPath())) {
+            return files.filter(Files::isRegularFile).mapToLong(path -> {
+                try {
+                    int nbLinks = (Integer) Files.getAttribute(path, "unix:nlink");
+                    return (nbLinks > 1) ? 0 : Files.size(path);
+                } catch (IOException | UnsupportedOperationException e) {
+                    return 0;
+                }
+            }).sum();
+        }
+    }
+
+    private static int runGit(File directory, String... arguments) throws Exception {
+        String[] command = new String[arguments.length + 1];
+        command[0] = "git";
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+        return new ProcessBuilder(command).directory(directory).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT).start().waitFor();
+    }
+
+    private static void git(File directory, String... arguments) throws Exception {
+        assertEquals(0, runGit(directory, arguments));
+    }
+
+    private static String gitOutput(File directory, String... arguments) throws Exception {
+        String[] command = new String[arguments.length + 1];
+        command[0] = "git";
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+        Process process = new ProcessBuilder(command).directory(directory).start();
+        byte[] output = new byte[4096];
+        int length = process.getInputStream().read(output);
+        process.waitFor();
+        return new String(output, 0, Math.max(length, 0), StandardCharsets.UTF_8).trim();
+    }
+}
@@ -0,0 +1,100 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestGitCommands {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestGitCommands.class);
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File repository;
+
+    @Before
+    public void setUp() throws Exception {
+        this.repository = tmpFolder.newFolder("repository");
+        GitCommands.execute(this.repository, "init", "-q");
+    }
+
+    @Test
+    public void testAddForceStagesIgnoredFiles() throws Exception {
+        this.writeFile(".gitignore", "*.log\n");
+        this.writeFile("repairnator.log", "log");
+        this.writeFile("repairnator.json", "{}");
+
+        assertEquals(0, GitCommands.addForce(this.repository, Arrays.asList("repairnator.log", "repairnator.json")));
+        assertEquals("repairnator.json\nrepairnator.log", GitCommands.output(this.repository, "diff", "--cached", "--name-only"));
+    }
+
+    @Test
+    public void testAddForceWithMissingFile() throws Exception {
+        this.writeFile("first.txt", "first");
+        this.writeFile("second.txt", "second");
+
+        // the missing file makes the batch fail, but the other files are still staged
+        assertEquals(1, GitCommands.addForce(this.repository, Arrays.asList("first.txt", "missing.txt", "second.txt")));
+        assertEquals("first.txt\nsecond.txt", GitCommands.output(this.repository, "diff", "--cached", "--name-only"));
+    }
+
+    @Test
+    public void testBenchmarkBatchedAdd() throws Exception {
+        Utils4Tests.assumeBenchmarksEnabled();
+        for (int nbFiles : new int[] {10, 1000, 10000}) {
+            File batchedRepository = tmpFolder.newFolder("batched" + nbFiles);
+            GitCommands.execute(batchedRepository, "init", "-q");
+            List<String> files = this.createFiles(batchedRepository, nbFiles);
+
+            long start = System.nanoTime();
+            GitCommands.addForce(batchedRepository, files);
+            long batchedTime = System.nanoTime() - start;
+            assertEquals(nbFiles, GitCommands.output(batchedRepository, "diff", "--cached", "--name-only").split("\n").length);
+
+            // one process per file, as done before: it is too slow to be run for the largest number of files
+            String perFileTime = "skipped";
+            if (nbFiles <= 1000) {
+                File perFileRepository = tmpFolder.newFolder("perfile" + nbFiles);
+                GitCommands.execute(perFileRepository, "init", "-q");
+                this.createFiles(perFileRepository, nbFiles);
+
+                start = System.nanoTime();
+                for (String file : files) {
+                    GitCommands.execute(perFileRepository, "add", "-f", file);
+                }
+                perFileTime = ((System.nanoTime() - start) / 1000000) + "ms";
+            }
+
+            LOGGER.info("Staging of " + nbFiles + " files: batched " + (batchedTime / 1000000) + "ms, one process per file " + perFileTime + ".");
+        }
+    }
+
+    private List<String> createFiles(File directory, int nbFiles) throws Exception {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < nbFiles; i++) {
+            String file = "src/module" + (i % 10) + "/File" + i + ".java";
+            File javaFile = new File(directory, file);
+            Files.createDirectories(javaFile.getParentFile().toPath());
+            Files.write(javaFile.toPath(), ("class File" + i + " {}").getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private void writeFile(String name, String content) throws Exception {
+        Files.write(new File(this.repository, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
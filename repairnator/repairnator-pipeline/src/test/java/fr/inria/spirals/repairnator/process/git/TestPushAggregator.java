@@ -0,0 +1,112 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class TestPushAggregator {
+    private static final PersonIdent IDENT = new PersonIdent("repairnator", "noreply@github.com");
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File remote;
+    private File outboxDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        this.remote = tmpFolder.newFolder("remote.git");
+        Git.init().setBare(true).setDirectory(this.remote).call().close();
+        this.outboxDirectory = new File(tmpFolder.getRoot(), "outbox");
+    }
+
+    @Test
+    public void testBranchesOfSeveralPipelinesArePushedTogether() throws Exception {
+        PushAggregator pushAggregator = new PushAggregator(this.outboxDirectory, this.remote.getAbsolutePath(), null, 0, 0);
+
+        RevCommit firstCommit;
+        RevCommit secondCommit;
+        try (Git firstPipeline = this.createRepositoryToPush("first", "first-branch");
+             Git secondPipeline = this.createRepositoryToPush("second", "second-branch")) {
+            firstCommit = firstPipeline.log().call().iterator().next();
+            secondCommit = secondPipeline.log().call().iterator().next();
+
+            pushAggregator.submit(firstPipeline, "first-branch");
+            pushAggregator.submit(secondPipeline, "second-branch");
+        }
+        assertEquals(PushAggregator.BranchStatus.PENDING, pushAggregator.getStatus("first-branch"));
+
+        assertEquals(2, pushAggregator.flush());
+
+        try (Git remoteGit = Git.open(this.remote)) {
+            assertEquals(firstCommit.getId(), remoteGit.getRepository().exactRef(Constants.R_HEADS + "first-branch").getObjectId());
+            assertEquals(secondCommit.getId(), remoteGit.getRepository().exactRef(Constants.R_HEADS + "second-branch").getObjectId());
+        }
+        assertEquals(PushAggregator.BranchStatus.PUSHED, pushAggregator.getStatus("first-branch"));
+        assertEquals(PushAggregator.BranchStatus.PUSHED, pushAggregator.getStatus("second-branch"));
+
+        // nothing is left to push
+        assertEquals(0, pushAggregator.flush());
+    }
+
+    @Test
+    public void testRejectedBranchDoesNotBlockOthers() throws Exception {
+        // the remote already contains a different branch with the same name
+        try (Git existing = this.createRepositoryToPush("existing", "conflicting-branch")) {
+            existing.push().setRemote(this.remote.getAbsolutePath()).add("conflicting-branch").call();
+        }
+
+        PushAggregator pushAggregator = new PushAggregator(this.outboxDirectory, this.remote.getAbsolutePath(), null, 0, 0);
+        try (Git firstPipeline = this.createRepositoryToPush("first", "conflicting-branch");
+             Git secondPipeline = this.createRepositoryToPush("second", "second-branch")) {
+            pushAggregator.submit(firstPipeline, "conflicting-branch");
+            pushAggregator.submit(secondPipeline, "second-branch");
+        }
+
+        assertEquals(1, pushAggregator.flush());
+        assertEquals(PushAggregator.BranchStatus.REJECTED, pushAggregator.getStatus("conflicting-branch"));
+        assertEquals(PushAggregator.BranchStatus.PUSHED, pushAggregator.getStatus("second-branch"));
+    }
+
+    @Test
+    public void testUnreachableRemoteKeepsBranchesPending() throws Exception {
+        File missingRemote = new File(tmpFolder.getRoot(), "missing.git");
+        PushAggregator pushAggregator = new PushAggregator(this.outboxDirectory, missingRemote.getAbsolutePath(), null, 2, 10);
+        try (Git pipeline = this.createRepositoryToPush("first", "first-branch")) {
+            pushAggregator.submit(pipeline, "first-branch");
+        }
+
+        assertEquals(0, pushAggregator.flush());
+        assertEquals(PushAggregator.BranchStatus.PENDING, pushAggregator.getStatus("first-branch"));
+
+        // the branch is pushed by a later flush, once the remote is available
+        Git.init().setBare(true).setDirectory(missingRemote).call().close();
+        assertEquals(1, pushAggregator.flush());
+        try (Git remoteGit = Git.open(missingRemote)) {
+            assertNotNull(remoteGit.getRepository().exactRef(Constants.R_HEADS + "first-branch"));
+        }
+        assertEquals(PushAggregator.BranchStatus.PUSHED, pushAggregator.getStatus("first-branch"));
+    }
+
+    private Git createRepositoryToPush(String name, String branchName) throws Exception {
+        File directory = tmpFolder.newFolder(name);
+        Git git = Git.init().setDirectory(directory).call();
+        Files.write(new File(directory, "repairnator.json").toPath(), name.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("End of the Repairnator process").setAuthor(IDENT).setCommitter(IDENT).call();
+        git.checkout().setCreateBranch(true).setName(branchName).call();
+        return git;
+    }
+}
@@ -0,0 +1,123 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestShallowCloneHelper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestShallowCloneHelper.class);
+    private static final int NB_COMMITS = 200;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File workingCopy;
+    private String remoteUrl;
+    private String firstCommit;
+    private String forkCommit;
+
+    @Before
+    public void setUp() throws Exception {
+        this.workingCopy = tmpFolder.newFolder("workingcopy");
+        GitCommands.execute(this.workingCopy, "init");
+        this.firstCommit = this.commitFile("File.java", 0);
+        for (int i = 1; i < NB_COMMITS; i++) {
+            this.commitFile("File.java", i);
+            if (i == 10) {
+                this.forkCommit = this.head();
+            }
+        }
+        GitCommands.execute(this.workingCopy, "branch", "-M", "master");
+
+        // a branch forked at the beginning of the history, as an old pull request
+        GitCommands.execute(this.workingCopy, "checkout", "-b", "feature", this.forkCommit);
+        this.commitFile("Feature.java", 0);
+        GitCommands.execute(this.workingCopy, "checkout", "master");
+
+        // the remote accepts fetching any commit, as GitHub does
+        File remote = new File(tmpFolder.getRoot(), "remote.git");
+        GitCommands.execute(null, "clone", "--bare", this.workingCopy.getAbsolutePath(), remote.getAbsolutePath());
+        GitCommands.execute(remote, "config", "uploadpack.allowAnySHA1InWant", "true");
+        this.remoteUrl = "file://" + remote.getAbsolutePath();
+    }
+
+    @Test
+    public void testMissingCommitIsFetched() throws Exception {
+        File clone = new File(tmpFolder.getRoot(), "clone");
+        ShallowCloneHelper shallowCloneHelper = new ShallowCloneHelper(5);
+        shallowCloneHelper.cloneRepository(this.remoteUrl, clone);
+
+        assertTrue(ShallowCloneHelper.isShallow(clone));
+        assertFalse(ShallowCloneHelper.hasCommit(clone, this.firstCommit));
+
+        assertTrue(shallowCloneHelper.ensureCommit(clone, this.firstCommit));
+        assertTrue(ShallowCloneHelper.hasCommit(clone, this.firstCommit));
+        GitCommands.execute(clone, "checkout", this.firstCommit);
+    }
+
+    @Test
+    public void testHistoryIsDeepenedToFindMergeBase() throws Exception {
+        File clone = new File(tmpFolder.getRoot(), "clone");
+        ShallowCloneHelper shallowCloneHelper = new ShallowCloneHelper(5);
+        shallowCloneHelper.cloneRepository(this.remoteUrl, clone);
+
+        String featureHead = GitCommands.output(clone, "rev-parse", "origin/feature");
+        String masterHead = GitCommands.output(clone, "rev-parse", "origin/master");
+        assertNotNull(featureHead);
+        assertEquals(null, GitCommands.output(clone, "merge-base", featureHead, masterHead));
+
+        assertTrue(shallowCloneHelper.ensureMergeBase(clone, Arrays.asList("origin"), featureHead, masterHead));
+        assertEquals(this.forkCommit, GitCommands.output(clone, "merge-base", featureHead, masterHead));
+    }
+
+    @Test
+    public void testBenchmarkOnLargeHistory() throws Exception {
+        Utils4Tests.assumeBenchmarksEnabled();
+        File fullClone = new File(tmpFolder.getRoot(), "full");
+        long start = System.nanoTime();
+        GitCommands.execute(null, "clone", "--no-single-branch", this.remoteUrl, fullClone.getAbsolutePath());
+        long fullTime = System.nanoTime() - start;
+        long fullSize = FileUtils.sizeOfDirectory(fullClone);
+
+        File shallowClone = new File(tmpFolder.getRoot(), "shallow");
+        start = System.nanoTime();
+        new ShallowCloneHelper(1).cloneRepository(this.remoteUrl, shallowClone);
+        long shallowTime = System.nanoTime() - start;
+        long shallowSize = FileUtils.sizeOfDirectory(shallowClone);
+
+        LOGGER.info("Full clone of " + NB_COMMITS + " commits: " + (fullTime / 1000000) + "ms, " + fullSize + " bytes. "
+                + "Shallow clone: " + (shallowTime / 1000000) + "ms, " + shallowSize + " bytes.");
+        assertTrue(shallowSize < fullSize);
+    }
+
+    // each commit rewrites the whole file, so that the history is much larger than the last version
+    private String commitFile(String name, int version) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append("// version ").append(version).append(" line ").append(i).append('\n');
+        }
+        Files.write(new File(this.workingCopy, name).toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        GitCommands.execute(this.workingCopy, "add", name);
+        GitCommands.execute(this.workingCopy, "-c", "user.name=test", "-c", "user.email=test@repairnator.fr", "commit", "-q", "-m", "Version " + version + " of " + name);
+        return this.head();
+    }
+
+    private String head() throws Exception {
+        return GitCommands.output(this.workingCopy, "rev-parse", "HEAD");
+    }
+}
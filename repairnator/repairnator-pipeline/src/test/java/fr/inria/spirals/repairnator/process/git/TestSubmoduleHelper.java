@@ -0,0 +1,117 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSubmoduleHelper {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File superproject;
+    private File firstLibrary;
+    // the submodules are cloned from local repositories, which git only accepts from the mirrors of the clone cache
+    private CloneCache cloneCache;
+
+    @Before
+    public void setUp() throws Exception {
+        this.firstLibrary = this.createRepository("firstlib", "First.java");
+        File secondLibrary = this.createRepository("secondlib", "Second.java");
+
+        this.superproject = this.createRepository("superproject", "Main.java");
+        this.addSubmodule(this.firstLibrary, "first");
+        this.addSubmodule(secondLibrary, "second");
+        this.commit(this.superproject, "Add submodules");
+
+        this.cloneCache = new CloneCache(tmpFolder.newFolder("cache"), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testSubmodulesAreInitializedInClone() throws Exception {
+        File clone = this.cloneSuperproject();
+        SubmoduleHelper submoduleHelper = new SubmoduleHelper(2, this.cloneCache);
+        assertEquals(Arrays.asList("first", "second"), submoduleHelper.getOutdatedSubmodules(clone));
+
+        submoduleHelper.initAllSubmodules(clone);
+
+        assertTrue(new File(clone, "first/First.java").exists());
+        assertTrue(new File(clone, "second/Second.java").exists());
+        assertEquals(Collections.emptyList(), submoduleHelper.getOutdatedSubmodules(clone));
+    }
+
+    @Test
+    public void testOnlyChangedSubmodulesAreUpdated() throws Exception {
+        File clone = this.cloneSuperproject();
+        SubmoduleHelper submoduleHelper = new SubmoduleHelper(2, this.cloneCache);
+        submoduleHelper.initAllSubmodules(clone);
+
+        // a new commit of the superproject only changes the recorded commit of the first submodule
+        String newCommit = this.commitFile(this.firstLibrary, "First.java", "new version");
+        GitCommands.execute(new File(this.superproject, "first"), "pull", "-q", "origin", "master");
+        GitCommands.execute(this.superproject, "add", "first");
+        this.commit(this.superproject, "Update first submodule");
+        GitCommands.execute(clone, "pull", "-q", "origin", "master");
+
+        assertEquals(Collections.singletonList("first"), submoduleHelper.getOutdatedSubmodules(clone));
+        submoduleHelper.initAllSubmodules(clone);
+        assertEquals(newCommit, GitCommands.output(new File(clone, "first"), "rev-parse", "HEAD"));
+        assertEquals(Collections.emptyList(), submoduleHelper.getOutdatedSubmodules(clone));
+    }
+
+    @Test
+    public void testSubmodulesAreClonedFromCache() throws Exception {
+        File clone = this.cloneSuperproject();
+        new SubmoduleHelper(2, this.cloneCache).initAllSubmodules(clone);
+
+        String firstLibraryUrl = "file://" + this.firstLibrary.getAbsolutePath();
+        assertTrue(this.cloneCache.getMirrorDirectory(CloneCache.getKeyFromUrl(firstLibraryUrl)).exists());
+        assertTrue(new File(clone, "first/First.java").exists());
+        // the mirrors of both submodules are prepared at the same time
+        String secondLibraryUrl = "file://" + new File(this.tmpFolder.getRoot(), "secondlib").getAbsolutePath();
+        assertTrue(this.cloneCache.getMirrorDirectory(CloneCache.getKeyFromUrl(secondLibraryUrl)).exists());
+        assertTrue(new File(clone, "second/Second.java").exists());
+        // the submodules keep their original remote
+        assertEquals(firstLibraryUrl, GitCommands.output(clone, "config", "submodule.first.url"));
+        assertEquals(firstLibraryUrl, GitCommands.output(new File(clone, "first"), "remote", "get-url", "origin"));
+    }
+
+    private File createRepository(String name, String fileName) throws Exception {
+        File repository = tmpFolder.newFolder(name);
+        GitCommands.execute(repository, "init", "-q");
+        this.commitFile(repository, fileName, "first version");
+        GitCommands.execute(repository, "branch", "-M", "master");
+        return repository;
+    }
+
+    private void addSubmodule(File library, String path) throws Exception {
+        GitCommands.execute(this.superproject, "-c", "protocol.file.allow=always", "submodule", "add", "-q", "file://" + library.getAbsolutePath(), path);
+    }
+
+    private File cloneSuperproject() throws Exception {
+        File clone = new File(tmpFolder.getRoot(), "clone");
+        GitCommands.execute(null, "clone", "-q", this.superproject.getAbsolutePath(), clone.getAbsolutePath());
+        return clone;
+    }
+
+    private String commitFile(File repository, String fileName, String content) throws Exception {
+        Files.write(new File(repository, fileName).toPath(), content.getBytes(StandardCharsets.UTF_8));
+        GitCommands.execute(repository, "add", fileName);
+        return this.commit(repository, "Change " + fileName);
+    }
+
+    private String commit(File repository, String message) throws Exception {
+        GitCommands.execute(repository, "-c", "user.name=test", "-c", "user.email=test@repairnator.fr", "commit", "-q", "-m", message);
+        return GitCommands.output(repository, "rev-parse", "HEAD");
+    }
+}
@@ -0,0 +1,26 @@
+package fr.inria.spirals.repairnator.process.inspectors;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestErrorRingBuffer {
+
+    @Test
+    public void testErrorsAreDeduplicatedAndBounded() {
+        ErrorRingBuffer errorRingBuffer = new ErrorRingBuffer(3);
+        errorRingBuffer.add("[ERROR] Failed to compile Foo.java");
+        errorRingBuffer.add("[ERROR] ");
+        errorRingBuffer.add("[ERROR] -> [Help 1]");
+        errorRingBuffer.add("[ERROR] Failed to compile Foo.java  ");
+        errorRingBuffer.add("[ERROR] Failed to compile Bar.java");
+        assertEquals(Arrays.asList("[ERROR] Failed to compile Foo.java (x2)", "[ERROR] Failed to compile Bar.java"), errorRingBuffer.getLines());
+
+        errorRingBuffer.add("[ERROR] Failed to compile Baz.java");
+        errorRingBuffer.add("[ERROR] Failed to execute goal compile");
+        assertEquals(Arrays.asList("(2 older error lines dropped)", "[ERROR] Failed to compile Bar.java",
+                "[ERROR] Failed to compile Baz.java", "[ERROR] Failed to execute goal compile"), errorRingBuffer.getLines());
+    }
+}
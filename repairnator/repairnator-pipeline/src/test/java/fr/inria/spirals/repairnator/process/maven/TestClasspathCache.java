@@ -0,0 +1,106 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestClasspathCache {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File cacheDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.cacheDirectory = this.tmpFolder.newFolder("cache");
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String dependency(String artifactId, String version) {
+        return "<dependency><groupId>ext</groupId><artifactId>" + artifactId + "</artifactId><version>" + version + "</version></dependency>";
+    }
+
+    /**
+     * A project with a core module and an app module depending on it.
+     */
+    private File createProject(String name, String coreDependency, String appDescription) throws IOException {
+        File root = this.tmpFolder.newFolder(name);
+        String header = "<project><modelVersion>4.0.0</modelVersion>";
+        String parent = "<parent><groupId>g</groupId><artifactId>root</artifactId><version>1.0-SNAPSHOT</version></parent>";
+        writeFile(new File(root, "pom.xml"), header + "<groupId>g</groupId><artifactId>root</artifactId><version>1.0-SNAPSHOT</version>"
+                + "<packaging>pom</packaging><modules><module>core</module><module>app</module></modules></project>");
+        writeFile(new File(root, "core/pom.xml"), header + parent + "<artifactId>core</artifactId>"
+                + "<dependencies>" + coreDependency + "</dependencies></project>");
+        writeFile(new File(root, "app/pom.xml"), header + parent + "<artifactId>app</artifactId><description>" + appDescription + "</description>"
+                + "<dependencies><dependency><groupId>g</groupId><artifactId>core</artifactId><version>1.0-SNAPSHOT</version></dependency>"
+                + dependency("junit", "4.12") + "</dependencies></project>");
+        return root;
+    }
+
+    private String computeKey(File root) {
+        ClasspathCache classpathCache = new ClasspathCache(this.cacheDirectory, new File(root, ".m2").getPath(), root.getPath());
+        return classpathCache.computeKey(new File(root, "app/pom.xml"), new File(root, "pom.xml"), new EffectiveModelCache());
+    }
+
+    @Test
+    public void testKeyDependsOnDependencyDeclarations() throws IOException {
+        String key = this.computeKey(this.createProject("project", dependency("guava", "20.0"), "first"));
+        assertNotNull(key);
+
+        // the dependencies are the same
+        assertEquals(key, this.computeKey(this.createProject("sameDependencies", dependency("guava", "20.0"), "second")));
+
+        // a module of the reactor depends on another version
+        assertNotEquals(key, this.computeKey(this.createProject("otherDependencies", dependency("guava", "21.0"), "first")));
+
+        // the artifacts can change without any change of the declarations
+        assertNull(this.computeKey(this.createProject("snapshot", dependency("guava", "21.0-SNAPSHOT"), "first")));
+        assertNull(this.computeKey(this.createProject("range", dependency("guava", "[20.0,21.0)"), "first")));
+    }
+
+    @Test
+    public void testClasspathIsRelocated() throws IOException {
+        File firstBuild = this.tmpFolder.newFolder("firstBuild");
+        File firstJar = new File(firstBuild, ".m2/ext/guava/20.0/guava-20.0.jar");
+        File firstSystemJar = new File(firstBuild, "lib/system.jar");
+        writeFile(firstJar, "jar");
+        writeFile(firstSystemJar, "jar");
+        File classpathFile = new File(firstBuild, "classpath.info");
+        writeFile(classpathFile, firstJar.getPath() + File.pathSeparator + firstSystemJar.getPath());
+
+        new ClasspathCache(this.cacheDirectory, new File(firstBuild, ".m2").getPath(), firstBuild.getPath()).store("key", classpathFile);
+
+        File secondBuild = this.tmpFolder.newFolder("secondBuild");
+        ClasspathCache classpathCache = new ClasspathCache(this.cacheDirectory, new File(secondBuild, ".m2").getPath(), secondBuild.getPath());
+        classpathFile = new File(secondBuild, "classpath.info");
+        assertFalse(classpathCache.restore("otherKey", classpathFile));
+        // the jars have not been downloaded by the second build
+        assertFalse(classpathCache.restore("key", classpathFile));
+
+        File secondJar = new File(secondBuild, ".m2/ext/guava/20.0/guava-20.0.jar");
+        File secondSystemJar = new File(secondBuild, "lib/system.jar");
+        writeFile(secondJar, "jar");
+        writeFile(secondSystemJar, "jar");
+        assertTrue(classpathCache.restore("key", classpathFile));
+        assertEquals(secondJar.getPath() + File.pathSeparator + secondSystemJar.getPath(),
+                new String(Files.readAllBytes(classpathFile.toPath()), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,251 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.files.RepositoryIndex;
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestCompiledOutputs {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestCompiledOutputs.class);
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readFile(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    // the files are dated before the build, as after a checkout
+    private static void setPastModificationDates(File root) throws IOException {
+        long date = System.currentTimeMillis() - 60000;
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            paths.forEach(path -> path.toFile().setLastModified(date));
+        }
+    }
+
+    private File createProject() throws IOException {
+        File root = this.tmpFolder.newFolder("repo");
+        writeFile(new File(root, "pom.xml"), "<project/>");
+        writeFile(new File(root, "core/pom.xml"), "<project/>");
+        writeFile(new File(root, "core/src/main/java/foo/Foo.java"), "package foo; class Foo { static final int VALUE = 1; }");
+        writeFile(new File(root, "core/src/main/java/foo/Bar.java"), "package foo; class Bar { int value = Foo.VALUE; }");
+        writeFile(new File(root, "core/src/main/java/foo/Baz.java"), "package foo; class Baz { Bar bar; }");
+        writeFile(new File(root, "core/src/main/java/foo/Other.java"), "package foo; class Other {}");
+        writeFile(new File(root, "core/src/main/resources/config.properties"), "value=1");
+        writeFile(new File(root, "core/src/test/java/foo/FooTest.java"), "package foo; class FooTest { Foo foo; }");
+        setPastModificationDates(root);
+
+        // the outputs of the build
+        for (String className : Arrays.asList("Foo", "Foo$1", "Bar", "Baz", "Other")) {
+            writeFile(new File(root, "core/target/classes/foo/" + className + ".class"), className);
+        }
+        writeFile(new File(root, "core/target/classes/config.properties"), "value=1");
+        writeFile(new File(root, "core/target/test-classes/foo/FooTest.class"), "FooTest");
+        return root;
+    }
+
+    @Test
+    public void testPrepareDeletesClassesOfChangedSourcesAndTheirDependents() throws IOException {
+        File root = this.createProject();
+        CompiledOutputs compiledOutputs = new CompiledOutputs(this.tmpFolder.newFolder("store"), new RepositoryIndex(root));
+        assertTrue(compiledOutputs.record());
+        String version = compiledOutputs.getVersion();
+        assertNotNull(version);
+
+        // nothing changed: the classes are all reused
+        assertTrue(compiledOutputs.prepare().isEmpty());
+        assertTrue(compiledOutputs.isIncremental());
+
+        // a repair tool changed a class, then a patch changes a source and a resource
+        writeFile(new File(root, "core/target/classes/foo/Other.class"), "instrumented");
+        writeFile(new File(root, "core/target/classes/foo/Added.class"), "Added");
+        writeFile(new File(root, "core/src/main/java/foo/Foo.java"), "package foo; class Foo { static final int VALUE = 2; }");
+        writeFile(new File(root, "core/src/main/resources/config.properties"), "value=2");
+
+        Set<String> recompiledSources = compiledOutputs.prepare();
+        assertEquals(new HashSet<>(Arrays.asList("core/src/main/java/foo/Foo.java", "core/src/main/java/foo/Bar.java",
+                "core/src/main/java/foo/Baz.java", "core/src/test/java/foo/FooTest.java")), recompiledSources);
+        assertTrue(compiledOutputs.isIncremental());
+
+        File classes = new File(root, "core/target/classes/foo");
+        assertEquals("Other", readFile(new File(classes, "Other.class")));
+        assertFalse(new File(classes, "Added.class").exists());
+        for (String className : Arrays.asList("Foo", "Foo$1", "Bar", "Baz")) {
+            assertFalse(new File(classes, className + ".class").exists());
+        }
+        assertFalse(new File(root, "core/target/test-classes/foo/FooTest.class").exists());
+
+        // the build compiled the patched sources
+        writeFile(new File(classes, "Foo.class"), "Foo2");
+        assertTrue(compiledOutputs.record());
+        assertNotEquals(version, compiledOutputs.getVersion());
+        assertTrue(compiledOutputs.prepare().isEmpty());
+        assertEquals("Foo2", readFile(new File(classes, "Foo.class")));
+    }
+
+    @Test
+    public void testChangedPomCompilesWholeProject() throws IOException {
+        File root = this.createProject();
+        CompiledOutputs compiledOutputs = new CompiledOutputs(this.tmpFolder.newFolder("store"), new RepositoryIndex(root));
+        assertTrue(compiledOutputs.record());
+
+        writeFile(new File(root, "core/pom.xml"), "<project><dependencies/></project>");
+        writeFile(new File(root, "core/target/classes/foo/Other.class"), "instrumented");
+        assertNull(compiledOutputs.prepare());
+        assertFalse(compiledOutputs.isIncremental());
+        // the classes are put back all the same
+        assertEquals("Other", readFile(new File(root, "core/target/classes/foo/Other.class")));
+
+        compiledOutputs.discardOutputs();
+        assertFalse(new File(root, "core/target/classes").exists());
+        assertFalse(new File(root, "core/target/test-classes").exists());
+    }
+
+    @Test
+    public void testGeneratedSourcesCompileWholeProject() throws IOException {
+        File root = this.createProject();
+        writeFile(new File(root, "core/target/generated-sources/annotations/foo/FooBuilder.java"), "package foo; class FooBuilder {}");
+        CompiledOutputs compiledOutputs = new CompiledOutputs(this.tmpFolder.newFolder("store"), new RepositoryIndex(root));
+        assertTrue(compiledOutputs.record());
+
+        writeFile(new File(root, "core/src/main/java/foo/Other.java"), "package foo; class Other { int patched; }");
+        assertNull(compiledOutputs.prepare());
+        assertTrue(new File(root, "core/target/classes/foo/Other.class").exists());
+    }
+
+    @Test
+    public void testRenamedResourceIsNotPutBack() throws IOException {
+        File root = this.createProject();
+        CompiledOutputs compiledOutputs = new CompiledOutputs(this.tmpFolder.newFolder("store"), new RepositoryIndex(root));
+        assertTrue(compiledOutputs.record());
+
+        // a patch renames the resource, then the previous build copied it in the classes
+        Files.move(new File(root, "core/src/main/resources/config.properties").toPath(), new File(root, "core/src/main/resources/renamed.properties").toPath());
+        Files.delete(new File(root, "core/target/classes/config.properties").toPath());
+        writeFile(new File(root, "core/target/classes/renamed.properties"), "value=1");
+
+        assertTrue(compiledOutputs.prepare().isEmpty());
+        assertFalse(new File(root, "core/target/classes/config.properties").exists());
+        assertTrue(new File(root, "core/target/classes/renamed.properties").exists());
+    }
+
+    @Test
+    public void testRestoreKeepsClassesOfChangedSources() throws IOException {
+        File root = this.createProject();
+        CompiledOutputs compiledOutputs = new CompiledOutputs(this.tmpFolder.newFolder("store"), new RepositoryIndex(root));
+        assertTrue(compiledOutputs.record());
+
+        // a repair tool instrumented a class and changed a source
+        writeFile(new File(root, "core/target/classes/foo/Other.class"), "instrumented");
+        Files.delete(new File(root, "core/target/classes/foo/Bar.class").toPath());
+        writeFile(new File(root, "core/src/main/java/foo/Foo.java"), "package foo; class Foo { static final int VALUE = 2; }");
+
+        // the next repair tool uses the classes without building the project
+        assertTrue(compiledOutputs.restore());
+        assertFalse(compiledOutputs.isIncremental());
+        File classes = new File(root, "core/target/classes/foo");
+        assertEquals("Other", readFile(new File(classes, "Other.class")));
+        for (String className : Arrays.asList("Foo", "Foo$1", "Bar", "Baz")) {
+            assertEquals(className, readFile(new File(classes, className + ".class")));
+        }
+        assertTrue(new File(root, "core/target/test-classes/foo/FooTest.class").exists());
+    }
+
+    private static int compile(JavaCompiler compiler, File classes, List<File> sources) {
+        List<String> arguments = new ArrayList<>(Arrays.asList("-d", classes.getPath(), "-cp", classes.getPath(), "-nowarn"));
+        for (File source : sources) {
+            arguments.add(source.getPath());
+        }
+        classes.mkdirs();
+        return compiler.run(null, null, null, arguments.toArray(new String[0]));
+    }
+
+    @Test
+    public void testBenchmarkPatchedBuild() throws IOException {
+        Utils4Tests.assumeBenchmarksEnabled();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            LOGGER.warn("No java compiler available: the benchmark is skipped.");
+            return;
+        }
+        int nbPackages = 20;
+        int nbClasses = 40;
+
+        // each class of a package refers to the previous one
+        File root = this.tmpFolder.newFolder("large");
+        writeFile(new File(root, "pom.xml"), "<project/>");
+        List<File> sources = new ArrayList<>();
+        for (int pkg = 0; pkg < nbPackages; pkg++) {
+            for (int clazz = 0; clazz < nbClasses; clazz++) {
+                String className = "Package" + pkg + "Class" + clazz;
+                File source = new File(root, "src/main/java/pkg" + pkg + "/" + className + ".java");
+                String field = clazz == 0 ? "int value;" : "Package" + pkg + "Class" + (clazz - 1) + " previous;";
+                writeFile(source, "package pkg" + pkg + "; public class " + className + " { " + field + " public int get() { return " + clazz + "; } }");
+                sources.add(source);
+            }
+        }
+        setPastModificationDates(root);
+        File classes = new File(root, "target/classes");
+
+        // the buggy build
+        assertEquals(0, compile(compiler, classes, sources));
+        CompiledOutputs compiledOutputs = new CompiledOutputs(this.tmpFolder.newFolder("store"), new RepositoryIndex(root));
+        assertTrue(compiledOutputs.record());
+
+        // the patch changes a class in the middle of a package: the following classes refer to it, directly or not
+        File patchedSource = new File(root, "src/main/java/pkg0/Package0Class" + (nbClasses / 2) + ".java");
+        writeFile(patchedSource, readFile(patchedSource).replace("return", "return 1 +"));
+
+        // before: the maven-compiler-plugin compiles the whole module again
+        long start = System.nanoTime();
+        assertEquals(0, compile(compiler, this.tmpFolder.newFolder("full"), sources));
+        long fullTime = (System.nanoTime() - start) / 1000000;
+
+        // after: only the sources whose classes have been deleted are compiled
+        start = System.nanoTime();
+        Set<String> recompiledSources = compiledOutputs.prepare();
+        assertNotNull(recompiledSources);
+        List<File> staleSources = new ArrayList<>();
+        for (String path : recompiledSources) {
+            staleSources.add(new File(root, path));
+        }
+        assertEquals(0, compile(compiler, classes, staleSources));
+        long incrementalTime = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(nbClasses / 2, recompiledSources.size());
+        try (Stream<Path> classFiles = Files.walk(classes.toPath())) {
+            assertEquals(nbPackages * nbClasses, classFiles.filter(path -> path.toString().endsWith(".class")).count());
+        }
+        LOGGER.info("Patched build of " + sources.size() + " java files: the whole module compiled in " + fullTime + "ms, the "
+                + recompiledSources.size() + " changed and dependent java files compiled in " + incrementalTime + "ms.");
+    }
+}
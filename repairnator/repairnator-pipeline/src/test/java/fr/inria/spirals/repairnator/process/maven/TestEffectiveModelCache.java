@@ -0,0 +1,131 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.apache.maven.model.Model;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TestEffectiveModelCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestEffectiveModelCache.class);
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private String localRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        this.localRepository = this.tmpFolder.newFolder(".m2").getAbsolutePath();
+    }
+
+    private static void writePom(File dir, String artifactId, String parentArtifactId, List<String> modules, String sourceDirectory) throws IOException {
+        StringBuilder pom = new StringBuilder();
+        pom.append("<project><modelVersion>4.0.0</modelVersion>");
+        if (parentArtifactId != null) {
+            pom.append("<parent><groupId>bench</groupId><artifactId>").append(parentArtifactId)
+                    .append("</artifactId><version>1.0</version></parent>");
+        }
+        pom.append("<groupId>bench</groupId><artifactId>").append(artifactId).append("</artifactId><version>1.0</version>");
+        if (!modules.isEmpty()) {
+            pom.append("<packaging>pom</packaging><modules>");
+            for (String module : modules) {
+                pom.append("<module>").append(module).append("</module>");
+            }
+            pom.append("</modules>");
+        }
+        if (sourceDirectory != null) {
+            pom.append("<properties><source.dir>").append(sourceDirectory).append("</source.dir></properties>");
+        }
+        pom.append("<build><sourceDirectory>${source.dir}</sourceDirectory></build></project>");
+        dir.mkdirs();
+        Files.write(new File(dir, "pom.xml").toPath(), pom.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A project with the given depth of modules, each aggregator having the given number of modules.
+     *
+     * @return the pom.xml files of all the modules
+     */
+    private static List<File> createProject(File dir, String artifactId, String parentArtifactId, int depth, int width) throws IOException {
+        List<File> pomFiles = new ArrayList<>();
+        List<String> modules = new ArrayList<>();
+        if (depth > 0) {
+            for (int i = 0; i < width; i++) {
+                String module = artifactId + "-" + i;
+                modules.add(module);
+                pomFiles.addAll(createProject(new File(dir, module), module, artifactId, depth - 1, width));
+            }
+        }
+        // the source directory is inherited from the root pom.xml file
+        writePom(dir, artifactId, parentArtifactId, modules, parentArtifactId == null ? "src/main/java" : null);
+        pomFiles.add(0, new File(dir, "pom.xml"));
+        return pomFiles;
+    }
+
+    @Test
+    public void testModelsAreReadAgainAfterChange() throws IOException {
+        File root = this.tmpFolder.newFolder("project");
+        List<File> pomFiles = createProject(root, "root", null, 2, 2);
+        File leafPom = pomFiles.get(pomFiles.size() - 1);
+        EffectiveModelCache cache = new EffectiveModelCache();
+
+        Model model = cache.getModel(leafPom, this.localRepository);
+        assertEquals(new File(leafPom.getParentFile(), "src/main/java").getPath(), model.getBuild().getSourceDirectory());
+        assertSame(model, cache.getModel(leafPom, this.localRepository));
+        assertEquals(1, cache.getHits());
+
+        // the root pom.xml file changes, as after the checkout of another commit
+        writePom(root, "root", null, Arrays.asList("root-0", "root-1"), "src/changed");
+        Model newModel = cache.getModel(leafPom, this.localRepository);
+        assertNotSame(model, newModel);
+        assertEquals(new File(leafPom.getParentFile(), "src/changed").getPath(), newModel.getBuild().getSourceDirectory());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testBenchmarkDeepMultiModuleProject() throws IOException {
+        Utils4Tests.assumeBenchmarksEnabled();
+        File root = this.tmpFolder.newFolder("deep");
+        List<File> pomFiles = createProject(root, "root", null, 4, 3);
+        // ComputeModules, ComputeSourceDir and ComputeTestDir read all the pom.xml files of the project
+        int nbReads = 3;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < nbReads; i++) {
+            for (File pomFile : pomFiles) {
+                MavenHelper.readPomXml(pomFile, this.localRepository);
+            }
+        }
+        long uncachedTime = (System.nanoTime() - start) / 1000000;
+
+        EffectiveModelCache cache = new EffectiveModelCache();
+        start = System.nanoTime();
+        for (int i = 0; i < nbReads; i++) {
+            for (File pomFile : pomFiles) {
+                cache.getModel(pomFile, this.localRepository);
+            }
+        }
+        long cachedTime = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(pomFiles.size(), cache.getMisses());
+        assertEquals(pomFiles.size() * (nbReads - 1), cache.getHits());
+        LOGGER.info("Reading " + pomFiles.size() + " pom.xml files " + nbReads + " times: " + uncachedTime + "ms without cache, "
+                + cachedTime + "ms with the effective model cache.");
+    }
+}
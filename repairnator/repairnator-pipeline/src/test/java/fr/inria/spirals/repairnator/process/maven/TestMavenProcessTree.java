@@ -0,0 +1,128 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestMavenProcessTree {
+
+    private MavenProcessTree processTree;
+    private Process process;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("The processes are found in /proc", new File("/proc/self/environ").exists());
+        this.processTree = new MavenProcessTree();
+    }
+
+    @After
+    public void tearDown() {
+        if (this.process != null) {
+            this.process.destroyForcibly();
+        }
+    }
+
+    private Process startProcess(MavenProcessTree tree) throws Exception {
+        // the shell forks a child which survives it, like a JVM forked by surefire when mvn is killed
+        ProcessBuilder processBuilder = new ProcessBuilder("sh", "-c", "sleep 60 & sleep 60");
+        processBuilder.environment().put(MavenProcessTree.MARKER_ENVIRONMENT_VARIABLE, tree.getMarker());
+        Process process = processBuilder.start();
+        for (int i = 0; i < 50 && tree.getPids().size() < 3; i++) {
+            Thread.sleep(100);
+        }
+        return process;
+    }
+
+    @Test
+    public void testKillWholeTree() throws Exception {
+        this.process = this.startProcess(this.processTree);
+        assertEquals(3, this.processTree.getPids().size());
+        assertTrue(this.processTree.getMemoryUsage() > 0);
+
+        // the other trees are not affected
+        MavenProcessTree otherTree = new MavenProcessTree();
+        Process otherProcess = this.startProcess(otherTree);
+        try {
+            assertEquals(3, this.processTree.kill());
+            assertTrue(this.process.waitFor(10, TimeUnit.SECONDS));
+            assertTrue(this.processTree.getPids().isEmpty());
+            assertEquals(0, this.processTree.getMemoryUsage());
+
+            assertEquals(3, otherTree.getPids().size());
+            assertTrue(otherProcess.isAlive());
+        } finally {
+            otherTree.kill();
+        }
+        assertTrue(otherProcess.waitFor(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOrphanProcessesAreFound() throws Exception {
+        this.process = this.startProcess(this.processTree);
+        // the parent is killed alone, as done by the invoker on interruption
+        this.process.destroyForcibly().waitFor();
+
+        assertEquals(2, this.processTree.getPids().size());
+        assertEquals(2, this.processTree.kill());
+        assertTrue(this.processTree.getPids().isEmpty());
+    }
+
+    private static int getNiceness(String pid) {
+        String stat = MavenProcessTree.readStat(pid);
+        assertNotNull(stat);
+        // the niceness is the 19th field, the 17th after the name of the command
+        return Integer.parseInt(stat.substring(stat.lastIndexOf(')') + 1).trim().split("\\s+")[16]);
+    }
+
+    @Test
+    public void testReniceChildrenKeepsRootPriority() throws Exception {
+        // the shell plays the warm JVM, its children the JVMs forked by surefire
+        this.process = this.startProcess(this.processTree);
+        List<String> pids = this.processTree.getPids();
+        assertEquals(3, pids.size());
+        String rootPid = null;
+        for (String pid : pids) {
+            if (!pids.contains(MavenProcessTree.getParentPid(pid))) {
+                rootPid = pid;
+            }
+        }
+        assertNotNull(rootPid);
+        int rootNiceness = getNiceness(rootPid);
+
+        assertEquals(2, this.processTree.reniceChildren(5));
+        for (String pid : pids) {
+            if (pid.equals(rootPid)) {
+                assertEquals(rootNiceness, getNiceness(pid));
+            } else {
+                assertEquals(Math.min(19, rootNiceness + 5), getNiceness(pid));
+            }
+        }
+        this.processTree.kill();
+    }
+
+    @Test
+    public void testKillChildrenKeepsRoot() throws Exception {
+        // the shell plays the warm JVM waiting for the next goal, its children the JVMs left by a goal
+        ProcessBuilder processBuilder = new ProcessBuilder("sh", "-c", "sleep 60 & sleep 60 & read line");
+        processBuilder.environment().put(MavenProcessTree.MARKER_ENVIRONMENT_VARIABLE, this.processTree.getMarker());
+        this.process = processBuilder.start();
+        for (int i = 0; i < 50 && this.processTree.getPids().size() < 3; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(3, this.processTree.getPids().size());
+
+        assertEquals(2, this.processTree.killChildren());
+        assertEquals(1, this.processTree.getPids().size());
+        assertTrue(this.process.isAlive());
+        this.processTree.kill();
+    }
+}
@@ -0,0 +1,77 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TestMavenProjectLayout {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private void writeLayout(File basedir, String sourceDirectory, String modules) throws IOException {
+        String layout = String.join("|", basedir.getPath(), basedir.getPath() + "/build",
+                basedir.getPath() + "/" + sourceDirectory, basedir.getPath() + "/src/test/java",
+                basedir.getPath() + "/build/classes", basedir.getPath() + "/build/test-classes", modules);
+        // the help plugin may write other lines before the evaluated expression
+        Files.write(new File(basedir, MavenProjectLayout.LAYOUT_FILENAME).toPath(),
+                Arrays.asList("[INFO] Evaluating expression", layout), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReadLayoutOfModules() throws IOException {
+        File root = tmpFolder.newFolder("project").getCanonicalFile();
+        File core = new File(root, "core");
+        File app = new File(root, "app");
+        core.mkdirs();
+        app.mkdirs();
+        this.writeLayout(root, "src/main/java", "[core, app/pom.xml]");
+        this.writeLayout(core, "src", "[]");
+        Files.write(new File(app, "pom.xml").toPath(), "<project/>".getBytes(StandardCharsets.UTF_8));
+        this.writeLayout(app, "src/main/java", "[]");
+
+        MavenProjectLayout layout = MavenProjectLayout.read(root);
+
+        assertNotNull(layout);
+        assertEquals(3, layout.getModules().size());
+        assertEquals(root, layout.getModules().get(0).getBasedir());
+
+        MavenProjectLayout.Module coreModule = layout.getModule(new File(root, "app/../core"));
+        assertNotNull(coreModule);
+        assertEquals(new File(core, "src"), coreModule.getSourceDirectory());
+        assertEquals(new File(core, "src/test/java"), coreModule.getTestSourceDirectory());
+        assertEquals(new File(core, "build/classes"), coreModule.getOutputDirectory());
+        assertEquals(new File(core, "build/test-classes"), coreModule.getTestOutputDirectory());
+        assertEquals(new File(core, "build/surefire-reports"), coreModule.getSurefireReportsDirectory());
+        assertEquals(new File(core, MavenProjectLayout.CLASSPATH_FILENAME), coreModule.getClasspathFile());
+
+        assertNotNull(layout.getModule(app));
+        assertNull(layout.getModule(tmpFolder.getRoot()));
+    }
+
+    @Test
+    public void testMissingOrInvalidLayout() throws IOException {
+        File root = tmpFolder.newFolder("project").getCanonicalFile();
+        assertNull(MavenProjectLayout.read(root));
+
+        Files.write(new File(root, MavenProjectLayout.LAYOUT_FILENAME).toPath(),
+                "[ERROR] Failed to execute goal".getBytes(StandardCharsets.UTF_8));
+        assertNull(MavenProjectLayout.read(root));
+
+        // a missing module is ignored
+        this.writeLayout(root, "src/main/java", "[missing]");
+        MavenProjectLayout layout = MavenProjectLayout.read(root);
+        assertNotNull(layout);
+        assertEquals(1, layout.getModules().size());
+    }
+}
@@ -0,0 +1,128 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestMavenRepositoryCache {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File cacheDirectory;
+
+    @Before
+    public void setUp() {
+        this.cacheDirectory = new File(tmpFolder.getRoot(), "mavencache");
+    }
+
+    @Test
+    public void testSettingsDeclareTheCacheAsRepository() throws Exception {
+        MavenRepositoryCache mavenCache = new MavenRepositoryCache(this.cacheDirectory, Long.MAX_VALUE);
+        File settings = mavenCache.createSettings(tmpFolder.newFolder(".m2"));
+
+        String content = new String(Files.readAllBytes(settings.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.contains("<url>" + this.cacheDirectory.getAbsoluteFile().toURI() + "</url>"));
+        assertTrue(content.contains("<pluginRepository><id>" + MavenRepositoryCache.CACHE_REPOSITORY_ID + "</id>"));
+        assertTrue(content.contains("<activeProfile>" + MavenRepositoryCache.CACHE_REPOSITORY_ID + "</activeProfile>"));
+    }
+
+    @Test
+    public void testArtifactsArePublishedAndCounted() throws Exception {
+        MavenRepositoryCache mavenCache = new MavenRepositoryCache(this.cacheDirectory, Long.MAX_VALUE);
+
+        // the first build downloads everything
+        File firstRepository = tmpFolder.newFolder("first");
+        this.createArtifact(firstRepository, "junit/junit/4.12", "junit-4.12", "central", 100);
+        this.createArtifact(firstRepository, "org/hamcrest/hamcrest-core/1.3", "hamcrest-core-1.3", "central", 100);
+        this.createArtifact(firstRepository, "fr/inria/project/1.0-SNAPSHOT", "project-1.0-SNAPSHOT", "central", 100);
+        MavenRepositoryCache.Statistics statistics = mavenCache.publish(firstRepository);
+        assertEquals(0, statistics.getHits());
+        assertEquals(6, statistics.getMisses());
+
+        assertTrue(new File(this.cacheDirectory, "junit/junit/4.12/junit-4.12.jar").exists());
+        assertTrue(new File(this.cacheDirectory, "junit/junit/4.12/junit-4.12.pom").exists());
+        // the files maintained by Maven and the snapshots are not published
+        assertFalse(new File(this.cacheDirectory, "junit/junit/4.12/_remote.repositories").exists());
+        assertFalse(new File(this.cacheDirectory, "junit/junit/maven-metadata-central.xml").exists());
+        assertFalse(new File(this.cacheDirectory, "fr/inria/project/1.0-SNAPSHOT").exists());
+
+        // the second build gets its artifacts from the cache
+        File secondRepository = tmpFolder.newFolder("second");
+        this.createArtifact(secondRepository, "junit/junit/4.12", "junit-4.12", MavenRepositoryCache.CACHE_REPOSITORY_ID, 100);
+        this.createArtifact(secondRepository, "commons-io/commons-io/2.5", "commons-io-2.5", "central", 100);
+        statistics = mavenCache.publish(secondRepository);
+        assertEquals(2, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(0.5, statistics.getHitRatio(), 0.001);
+        assertTrue(new File(this.cacheDirectory, "commons-io/commons-io/2.5/commons-io-2.5.jar").exists());
+
+        MavenRepositoryCache.Statistics totalStatistics = mavenCache.getTotalStatistics();
+        assertEquals(2, totalStatistics.getHits());
+        assertEquals(8, totalStatistics.getMisses());
+    }
+
+    @Test
+    public void testInstalledArtifactsAreNotPublished() throws Exception {
+        MavenRepositoryCache mavenCache = new MavenRepositoryCache(this.cacheDirectory, Long.MAX_VALUE);
+
+        // the project of the build is installed with a release version, which does not come from a remote repository
+        File repository = tmpFolder.newFolder("repository");
+        this.createArtifact(repository, "fr/inria/project/1.0", "project-1.0", "", 100);
+        this.createArtifact(repository, "junit/junit/4.12", "junit-4.12", "central", 100);
+        MavenRepositoryCache.Statistics statistics = mavenCache.publish(repository);
+        assertEquals(2, statistics.getMisses());
+
+        assertFalse(new File(this.cacheDirectory, "fr/inria/project/1.0/project-1.0.jar").exists());
+        assertFalse(new File(this.cacheDirectory, "fr/inria/project/1.0/project-1.0.jar.sha1").exists());
+        assertTrue(new File(this.cacheDirectory, "junit/junit/4.12/junit-4.12.jar").exists());
+        assertTrue(new File(this.cacheDirectory, "junit/junit/4.12/junit-4.12.jar.sha1").exists());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedVersionsAreEvicted() throws Exception {
+        // room for two versions only
+        MavenRepositoryCache mavenCache = new MavenRepositoryCache(this.cacheDirectory, 2 * 1200);
+
+        File firstRepository = tmpFolder.newFolder("first");
+        this.createArtifact(firstRepository, "junit/junit/4.12", "junit-4.12", "central", 1000);
+        this.createArtifact(firstRepository, "org/hamcrest/hamcrest-core/1.3", "hamcrest-core-1.3", "central", 1000);
+        mavenCache.publish(firstRepository);
+        new File(this.cacheDirectory, "junit/junit/4.12").setLastModified(System.currentTimeMillis() - 60000);
+
+        // hamcrest is used again, and a new artifact is downloaded: junit is the least recently used one
+        File secondRepository = tmpFolder.newFolder("second");
+        this.createArtifact(secondRepository, "org/hamcrest/hamcrest-core/1.3", "hamcrest-core-1.3", MavenRepositoryCache.CACHE_REPOSITORY_ID, 1000);
+        this.createArtifact(secondRepository, "commons-io/commons-io/2.5", "commons-io-2.5", "central", 1000);
+        mavenCache.publish(secondRepository);
+
+        assertFalse(new File(this.cacheDirectory, "junit/junit/4.12").exists());
+        assertTrue(new File(this.cacheDirectory, "org/hamcrest/hamcrest-core/1.3/hamcrest-core-1.3.jar").exists());
+        assertTrue(new File(this.cacheDirectory, "commons-io/commons-io/2.5/commons-io-2.5.jar").exists());
+    }
+
+    /**
+     * Create the files of an artifact as Maven does in a local repository.
+     */
+    private void createArtifact(File repository, String path, String baseName, String repositoryId, int jarSize) throws Exception {
+        File versionDirectory = new File(repository, path);
+        Files.createDirectories(versionDirectory.toPath());
+        Files.write(new File(versionDirectory, baseName + ".jar").toPath(), new byte[jarSize]);
+        Files.write(new File(versionDirectory, baseName + ".pom").toPath(), "<project/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(versionDirectory, baseName + ".jar.sha1").toPath(), "0000".getBytes(StandardCharsets.UTF_8));
+        String remoteRepositories = "#NOTE: This is a Maven Resolver internal implementation file\n"
+                + baseName + ".jar>" + repositoryId + "=\n"
+                + baseName + ".pom>" + repositoryId + "=\n";
+        Files.write(new File(versionDirectory, "_remote.repositories").toPath(), remoteRepositories.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(versionDirectory.getParentFile(), "maven-metadata-central.xml").toPath(), "<metadata/>".getBytes(StandardCharsets.UTF_8));
+    }
+}
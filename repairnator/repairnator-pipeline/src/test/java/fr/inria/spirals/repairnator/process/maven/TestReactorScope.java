@@ -0,0 +1,49 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestReactorScope {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testFailingModuleSelectors() throws Exception {
+        File root = this.tmpFolder.newFolder("project");
+        File core = new File(root, "core");
+        File api = new File(root, "core/api");
+        File web = new File(root, "web");
+        api.mkdirs();
+        web.mkdirs();
+
+        JobStatus jobStatus = new JobStatus(root.getAbsolutePath());
+        // the failing modules are not known yet
+        assertNull(ReactorScope.getFailingModuleSelectors(jobStatus));
+
+        jobStatus.setFailingModulePaths(Arrays.asList(api.getCanonicalPath(), web.getCanonicalPath()));
+        // the modules of the reactor are not known yet
+        assertNull(ReactorScope.getFailingModuleSelectors(jobStatus));
+
+        jobStatus.setModules(new File[] { core, api, web });
+        assertEquals(Arrays.asList("core/api", "web"), ReactorScope.getFailingModuleSelectors(jobStatus));
+
+        // the root module is failing
+        jobStatus.setFailingModulePaths(Arrays.asList(web.getCanonicalPath(), root.getCanonicalPath()));
+        assertNull(ReactorScope.getFailingModuleSelectors(jobStatus));
+
+        // the failing module is not part of the reactor
+        jobStatus.setModules(new File[] { core, api });
+        jobStatus.setFailingModulePaths(Collections.singletonList(web.getCanonicalPath()));
+        assertNull(ReactorScope.getFailingModuleSelectors(jobStatus));
+    }
+}
@@ -0,0 +1,123 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestWarmMavenProcess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestWarmMavenProcess.class);
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File mavenHome;
+    private File project;
+    private WarmMavenProcess warmMavenProcess;
+
+    @Before
+    public void setUp() throws Exception {
+        String mavenHomePath = System.getProperty("maven.home", System.getenv("M2_HOME"));
+        Assume.assumeTrue("A Maven installation is needed", mavenHomePath != null && new File(mavenHomePath, "lib").isDirectory());
+        this.mavenHome = new File(mavenHomePath);
+
+        this.project = tmpFolder.newFolder("warm-maven");
+        Files.copy(new File("src/test/resources/warm-maven/pom.xml").toPath(), new File(this.project, "pom.xml").toPath());
+        this.warmMavenProcess = new WarmMavenProcess(this.mavenHome);
+    }
+
+    @After
+    public void tearDown() {
+        if (this.warmMavenProcess != null) {
+            this.warmMavenProcess.stop();
+        }
+    }
+
+    @Test
+    public void testGoalsAreRunWithTheirOutputAndExitCode() {
+        List<String> output = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        assertEquals(Integer.valueOf(MavenHelper.MAVEN_SUCCESS), this.run(output, errors, "validate"));
+        assertTrue(output.stream().anyMatch(line -> line.contains("BUILD SUCCESS")));
+
+        output.clear();
+        assertEquals(Integer.valueOf(MavenHelper.MAVEN_ERROR), this.run(output, errors, "-Drepairnator.fail=true", "validate"));
+        assertTrue(output.stream().anyMatch(line -> line.contains("missing-module")));
+
+        // the property of the previous goal is not kept by the warm process
+        output.clear();
+        assertEquals(Integer.valueOf(MavenHelper.MAVEN_SUCCESS), this.run(output, errors, "validate"));
+        assertTrue(output.stream().anyMatch(line -> line.contains("BUILD SUCCESS")));
+    }
+
+    @Test
+    public void testKilledProcessIsRestarted() {
+        List<String> output = new ArrayList<>();
+        assertEquals(Integer.valueOf(MavenHelper.MAVEN_SUCCESS), this.run(output, null, "validate"));
+        this.warmMavenProcess.stop();
+        assertEquals(Integer.valueOf(MavenHelper.MAVEN_SUCCESS), this.run(output, null, "validate"));
+    }
+
+    @Test
+    public void testProjectsWithMavenConfigurationAreNotRun() throws Exception {
+        File pomFile = new File(this.project, "pom.xml");
+        assertTrue(WarmMavenProcess.canRun(pomFile));
+
+        File mvnDirectory = new File(this.project, ".mvn");
+        assertTrue(mvnDirectory.mkdir());
+        for (String configFile : new String[] {"jvm.config", "maven.config", "extensions.xml"}) {
+            File file = new File(mvnDirectory, configFile);
+            assertTrue(file.createNewFile());
+            assertFalse(WarmMavenProcess.canRun(pomFile));
+            assertTrue(file.delete());
+        }
+        assertTrue(WarmMavenProcess.canRun(pomFile));
+    }
+
+    @Test
+    public void testBenchmarkGoalLatency() throws Exception {
+        Utils4Tests.assumeBenchmarksEnabled();
+        int nbGoals = 5;
+        File log = tmpFolder.newFile("mvn.log");
+        long start = System.nanoTime();
+        for (int i = 0; i < nbGoals; i++) {
+            Process process = new ProcessBuilder(new File(this.mavenHome, "bin/mvn").getAbsolutePath(), "-B", "-e", "validate")
+                    .directory(this.project).redirectOutput(log).redirectErrorStream(true).start();
+            assertEquals(0, process.waitFor());
+        }
+        long coldTime = (System.nanoTime() - start) / 1000000 / nbGoals;
+
+        start = System.nanoTime();
+        this.run(new ArrayList<>(), null, "validate");
+        long firstWarmTime = (System.nanoTime() - start) / 1000000;
+        start = System.nanoTime();
+        for (int i = 1; i < nbGoals; i++) {
+            assertEquals(Integer.valueOf(MavenHelper.MAVEN_SUCCESS), this.run(new ArrayList<>(), null, "validate"));
+        }
+        long warmTime = (System.nanoTime() - start) / 1000000 / (nbGoals - 1);
+
+        LOGGER.info("Latency of a goal: new mvn process " + coldTime + "ms, warm process " + warmTime
+                + "ms (first goal, including the startup: " + firstWarmTime + "ms).");
+    }
+
+    private Integer run(List<String> output, List<String> errors, String... args) {
+        List<String> mavenArgs = new ArrayList<>(Arrays.asList("-B", "-e"));
+        mavenArgs.addAll(Arrays.asList(args));
+        return this.warmMavenProcess.execute(this.project, mavenArgs, output::add, (errors == null) ? null : errors::add);
+    }
+}
@@ -0,0 +1,121 @@
+package fr.inria.spirals.repairnator.process.maven.output;
+
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestMavenLogWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestMavenLogWriter.class);
+    private static final String LINE = "[INFO] Running fr.inria.spirals.repairnator.SomeTest with a rather usual length of line";
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private List<String> readGzip(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testLinesAreWrittenInOrder() throws IOException {
+        File logFile = new File(tmpFolder.getRoot(), "repairnator.maven.test.log");
+        MavenLogWriter logWriter = new MavenLogWriter(logFile);
+        for (int i = 0; i < 10000; i++) {
+            logWriter.write("line " + i);
+        }
+        logWriter.close();
+        // the lines given after the end of the goal are ignored
+        logWriter.write("ignored");
+
+        List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(10000, lines.size());
+        assertEquals("line 0", lines.get(0));
+        assertEquals("line 9999", lines.get(9999));
+    }
+
+    @Test
+    public void testLogIsRotatedAboveMaxSize() throws IOException {
+        File logFile = new File(tmpFolder.getRoot(), "repairnator.maven.test.log");
+        // 100 lines of 10 characters by file
+        MavenLogWriter logWriter = new MavenLogWriter(logFile, 1000);
+        for (int i = 0; i < 1000; i++) {
+            logWriter.write(String.format("line %04d", i));
+        }
+        logWriter.close();
+
+        List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(100, lines.size());
+        assertEquals("line 0900", lines.get(0));
+
+        List<String> rotatedLines = this.readGzip(logWriter.getRotatedFile(1));
+        assertEquals(100, rotatedLines.size());
+        assertEquals("line 0800", rotatedLines.get(0));
+        assertEquals("line 0400", this.readGzip(logWriter.getRotatedFile(MavenLogWriter.MAX_ROTATED_FILES)).get(0));
+        assertFalse(logWriter.getRotatedFile(MavenLogWriter.MAX_ROTATED_FILES + 1).exists());
+        // all the rotated files are pushed with the log file
+        assertEquals(MavenLogWriter.MAX_ROTATED_FILES, logWriter.getRotatedFiles().size());
+        assertEquals(logWriter.getRotatedFile(1), logWriter.getRotatedFiles().get(0));
+
+        // the rotated files of a previous goal are removed
+        logWriter = new MavenLogWriter(logFile, 1000);
+        logWriter.write("new goal");
+        logWriter.close();
+        assertFalse(logWriter.getRotatedFile(1).exists());
+        assertTrue(logWriter.getRotatedFiles().isEmpty());
+        assertEquals(1, Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testBenchmarkThroughput() throws IOException {
+        Utils4Tests.assumeBenchmarksEnabled();
+        int nbLines = 500000;
+
+        // the former handler: a file writer flushed after each line
+        File logFile = tmpFolder.newFile("flushed.log");
+        long start = System.nanoTime();
+        try (FileWriter fileWriter = new FileWriter(logFile)) {
+            for (int i = 0; i < nbLines; i++) {
+                fileWriter.write(LINE + "\n");
+                fileWriter.flush();
+            }
+        }
+        long flushedThroughput = nbLines * 1000000000L / (System.nanoTime() - start);
+
+        logFile = tmpFolder.newFile("async.log");
+        start = System.nanoTime();
+        MavenLogWriter logWriter = new MavenLogWriter(logFile);
+        for (int i = 0; i < nbLines; i++) {
+            logWriter.write(LINE);
+        }
+        long producerTime = System.nanoTime() - start;
+        logWriter.close();
+        long asyncThroughput = nbLines * 1000000000L / (System.nanoTime() - start);
+        long producerThroughput = nbLines * 1000000000L / producerTime;
+
+        assertTrue(logFile.length() <= MavenLogWriter.MAX_FILE_SIZE);
+        assertTrue(logWriter.getRotatedFile(1).exists());
+
+        LOGGER.info("Maven log throughput: flushed writer " + flushedThroughput + " lines/s, async writer " + asyncThroughput
+                + " lines/s including the rotations (" + producerThroughput + " lines/s seen by Maven).");
+    }
+}
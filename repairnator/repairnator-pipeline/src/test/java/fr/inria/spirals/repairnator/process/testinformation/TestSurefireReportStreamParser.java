@@ -0,0 +1,163 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestCaseFailure;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassResult;
+import fr.inria.spirals.repairnator.process.utils4tests.Utils4Tests;
+import org.apache.maven.plugins.surefire.report.ReportTestSuite;
+import org.apache.maven.plugins.surefire.report.SurefireReportParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSurefireReportStreamParser {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestSurefireReportStreamParser.class);
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testParseReports() throws Exception {
+        File reportsDirectory = this.tmpFolder.newFolder("surefire-reports");
+        writeFile(new File(reportsDirectory, "TEST-foo.BarTest.xml"), "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<testsuite name=\"foo.BarTest\" tests=\"5\" failures=\"1\" errors=\"1\" skipped=\"1\">"
+                + "<properties><property name=\"java.version\" value=\"1.8\"/></properties>"
+                + "<testcase name=\"testPass\" classname=\"foo.BarTest\" time=\"0.01\"/>"
+                + "<testcase name=\"testFail\" classname=\"foo.BarTest\"><failure message=\"expected:&lt;1&gt;\" type=\"java.lang.AssertionError\">"
+                + "java.lang.AssertionError: expected:&lt;1&gt;\n\tat foo.BarTest.testFail(BarTest.java:10)</failure>"
+                + "<system-out><![CDATA[some output]]></system-out></testcase>"
+                + "<testcase name=\"testSkip\" classname=\"foo.BarTest\"><skipped/></testcase>"
+                // a flaky test passed when run again: it is not failing
+                + "<testcase name=\"testFlaky\" classname=\"foo.BarTest\"><flakyFailure message=\"boom\" type=\"java.lang.AssertionError\">"
+                + "<stackTrace>trace</stackTrace></flakyFailure></testcase>"
+                // the test cases of a nested class are reported in the suite of the outer class
+                + "<testcase name=\"testNested\" classname=\"foo.BarTest$Nested\"><error message=\"npe\" type=\"java.lang.NullPointerException:\"/></testcase>"
+                + "</testsuite>");
+        writeFile(new File(reportsDirectory, "foo.BarTest.txt"), "not a report");
+        writeFile(new File(reportsDirectory, "testng-results.xml"), "<testng-results/>");
+
+        List<TestClassResult> results = new SurefireReportStreamParser().parse(reportsDirectory);
+        assertEquals(2, results.size());
+
+        TestClassResult barTest = results.get(0);
+        assertEquals("foo.BarTest", barTest.getFullClassName());
+        assertEquals(4, barTest.getNumberOfTests());
+        assertEquals(1, barTest.getNumberOfFailures());
+        assertEquals(0, barTest.getNumberOfErrors());
+        assertEquals(1, barTest.getNumberOfSkipped());
+        assertEquals(1, barTest.getFailures().size());
+        TestCaseFailure failure = barTest.getFailures().get(0);
+        assertEquals("testFail", failure.getName());
+        assertEquals("java.lang.AssertionError", failure.getType());
+        assertEquals("expected:<1>", failure.getMessage());
+        assertFalse(failure.isError());
+
+        TestClassResult nestedTest = results.get(1);
+        assertEquals("foo.BarTest$Nested", nestedTest.getFullClassName());
+        assertEquals(1, nestedTest.getNumberOfTests());
+        assertEquals(1, nestedTest.getNumberOfErrors());
+        TestCaseFailure error = nestedTest.getFailures().get(0);
+        assertEquals("foo.BarTest$Nested", error.getFullClassName());
+        assertEquals("java.lang.NullPointerException:", error.getType());
+        assertTrue(error.isError());
+    }
+
+    private static String generateReport(String className, int nbTests) {
+        StringBuilder report = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuite name=\"" + className + "\">");
+        report.append("<properties>");
+        for (int i = 0; i < 50; i++) {
+            report.append("<property name=\"property").append(i).append("\" value=\"value").append(i).append("\"/>");
+        }
+        report.append("</properties>");
+        for (int i = 0; i < nbTests; i++) {
+            report.append("<testcase name=\"test").append(i).append("\" classname=\"").append(className).append("\" time=\"0.001\">");
+            if (i % 10 == 0) {
+                report.append("<failure message=\"expected:&lt;").append(i).append("&gt;\" type=\"java.lang.AssertionError\">");
+                for (int j = 0; j < 40; j++) {
+                    report.append("\tat ").append(className).append(".test").append(i).append("(Test.java:").append(j).append(")\n");
+                }
+                report.append("</failure>");
+            }
+            report.append("<system-out><![CDATA[");
+            for (int j = 0; j < 10; j++) {
+                report.append("a line of output of the test ").append(i).append('\n');
+            }
+            report.append("]]></system-out></testcase>");
+        }
+        return report.append("</testsuite>").toString();
+    }
+
+    @Test
+    public void testBenchmarkManyTestCases() throws Exception {
+        Utils4Tests.assumeBenchmarksEnabled();
+        int nbModules = 8;
+        int nbClassesByModule = 50;
+        int nbTestsByClass = 30;
+
+        List<File> reportsDirectories = new ArrayList<>();
+        for (int module = 0; module < nbModules; module++) {
+            File reportsDirectory = this.tmpFolder.newFolder("module" + module, "target", "surefire-reports");
+            for (int clazz = 0; clazz < nbClassesByModule; clazz++) {
+                String className = "module" + module + ".Class" + clazz + "Test";
+                writeFile(new File(reportsDirectory, "TEST-" + className + ".xml"), generateReport(className, nbTestsByClass));
+            }
+            reportsDirectories.add(reportsDirectory);
+        }
+
+        // the former parsing: the reports are read one module after the other with the surefire report parser
+        long start = System.nanoTime();
+        int formerNbTests = 0;
+        for (File reportsDirectory : reportsDirectories) {
+            SurefireReportParser parser = new SurefireReportParser(Collections.singletonList(reportsDirectory), Locale.ENGLISH, null);
+            for (ReportTestSuite testSuite : parser.parseXMLReportFiles()) {
+                formerNbTests += testSuite.getNumberOfTests();
+            }
+        }
+        long formerTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        List<List<TestClassResult>> allResults = reportsDirectories.parallelStream().map(reportsDirectory -> {
+            try {
+                return new SurefireReportStreamParser().parse(reportsDirectory);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).collect(Collectors.toList());
+        long streamTime = (System.nanoTime() - start) / 1000000;
+
+        int nbTests = 0;
+        int nbFailures = 0;
+        for (List<TestClassResult> results : allResults) {
+            for (TestClassResult result : results) {
+                nbTests += result.getNumberOfTests();
+                nbFailures += result.getFailures().size();
+            }
+        }
+        assertEquals(nbModules * nbClassesByModule * nbTestsByClass, nbTests);
+        assertEquals(formerNbTests, nbTests);
+        assertEquals(nbTests / 10, nbFailures);
+
+        LOGGER.info("Parsing " + nbTests + " test cases in " + nbModules + " modules: " + formerTime + "ms with the surefire report parser, "
+                + streamTime + "ms with the streaming parser in parallel.");
+    }
+}
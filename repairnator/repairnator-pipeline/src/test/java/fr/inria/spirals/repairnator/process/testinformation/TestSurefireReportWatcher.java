@@ -0,0 +1,76 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSurefireReportWatcher {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeReport(File module, String className, boolean failing) throws IOException {
+        String testCase = "<testcase name=\"test\" classname=\"" + className + "\">"
+                + (failing ? "<failure message=\"boom\" type=\"java.lang.AssertionError\"/>" : "") + "</testcase>";
+        writeFile(new File(module, "target/surefire-reports/TEST-" + className + ".xml"),
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuite name=\"" + className + "\">" + testCase + "</testsuite>");
+    }
+
+    private static List<File> getModuleDirectories(File root) {
+        return Arrays.asList(root, new File(root, "core"), new File(root, "app"));
+    }
+
+    @Test
+    public void testReproducedWhenExpectedClassFailsAgain() throws IOException {
+        File root = this.tmpFolder.newFolder("project");
+        // a report left by a previous run is not taken into account
+        writeReport(new File(root, "core"), "foo.CoreTest", true);
+
+        SurefireReportWatcher watcher = new SurefireReportWatcher(getModuleDirectories(root), new HashSet<>(Arrays.asList("foo.CoreTest", "foo.AppTest")));
+        assertEquals(SurefireReportWatcher.Decision.PENDING, watcher.poll());
+
+        writeReport(new File(root, "app"), "foo.AppTest$Nested", true);
+        writeReport(new File(root, "app"), "foo.OtherTest", true);
+        assertEquals(SurefireReportWatcher.Decision.PENDING, watcher.poll());
+
+        // the report is written again: the expected failing class passes this time
+        writeReport(new File(root, "core"), "foo.CoreTest", false);
+        assertEquals(SurefireReportWatcher.Decision.REPRODUCED, watcher.poll());
+        assertEquals(Collections.singleton("foo.AppTest"), watcher.getReproducedClasses());
+    }
+
+    @Test
+    public void testNotReproducedWhenExpectedClassesPass() throws IOException {
+        File root = this.tmpFolder.newFolder("project");
+        SurefireReportWatcher watcher = new SurefireReportWatcher(getModuleDirectories(root), Collections.singleton("foo.AppTest"));
+
+        // the tests are stopped while surefire writes the report
+        File partialReport = new File(root, "app/target/surefire-reports/TEST-foo.AppTest.xml");
+        writeFile(partialReport, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuite name=\"foo.AppTest\"><testcase name=\"te");
+        assertEquals(SurefireReportWatcher.Decision.PENDING, watcher.poll());
+        assertEquals(1, watcher.discardIncompleteReports());
+        assertFalse(partialReport.exists());
+
+        writeReport(new File(root, "app"), "foo.AppTest", false);
+        assertEquals(SurefireReportWatcher.Decision.NOT_REPRODUCED, watcher.poll());
+        assertTrue(watcher.getReproducedClasses().isEmpty());
+    }
+}
@@ -0,0 +1,23 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestTravisLogTestFailures {
+
+    @Test
+    public void testFailingClassesFromTravisLog() {
+        String log = "[INFO] Running foo.OldTest\n"
+                + "Tests run: 2, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.05 sec <<< FAILURE!\n"
+                + "\u001B[1;31m[ERROR] \u001B[mTests run: 3, Failures: 0, Errors: 1, Skipped: 0, Time elapsed: 0.1 s <<< ERROR! - in foo.NewTest\n"
+                + "[INFO] Tests run: 4, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.1 s - in foo.PassingTest\n"
+                + "[ERROR] Tests run: 1, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.1 s <<< FAILURE! -- in foo.OtherTest\n"
+                + "[ERROR] testFoo(foo.OtherTest)  Time elapsed: 0.01 s  <<< FAILURE!\n";
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("foo.OldTest", "foo.NewTest", "foo.OtherTest")), TravisLogTestFailures.getFailingTestClasses(log));
+    }
+}
@@ -1,6 +1,9 @@
 package fr.inria.spirals.repairnator.process.utils4tests;
 
+import org.junit.Assume;
+
 public class Utils4Tests {
+    public static final String BENCHMARKS_PROPERTY = "repairnator.benchmarks";
 
     public static String getZ3SolverPath() {
         String z3SolverPath;
@@ -17,4 +20,11 @@ public class Utils4Tests {
         return (OS.contains("mac"));
     }
 
+    /**
+     * The timing benchmarks are too long for the default build: they are only run with -Drepairnator.benchmarks=true.
+     */
+    public static void assumeBenchmarksEnabled() {
+        Assume.assumeTrue("The benchmarks are only run with -D" + BENCHMARKS_PROPERTY + "=true", Boolean.getBoolean(BENCHMARKS_PROPERTY));
+    }
+
 }
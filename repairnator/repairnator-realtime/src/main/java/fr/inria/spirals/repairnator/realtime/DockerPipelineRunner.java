@@ -6,17 +6,18 @@ import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.docker.DockerHelper;
 import fr.inria.spirals.repairnator.dockerpool.DockerPoolManager;
 import fr.inria.spirals.repairnator.dockerpool.RunnablePipelineContainer;
+import fr.inria.spirals.repairnator.dockerpool.WarmContainerPool;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
 import fr.inria.spirals.repairnator.serializer.engines.json.JSONFileSerializerEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Deque;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 
 /**
@@ -56,7 +57,9 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
         if (RepairnatorConfig.getInstance().getDockerImageName() != null) {
             this.setDockerImageName(RepairnatorConfig.getInstance().getDockerImageName());
         }
+        this.initResourceAwareScheduling();
         this.initExecutorService(RepairnatorConfig.getInstance().getNbThreads());
+        this.initWarmContainerPool(RepairnatorConfig.getInstance().getNbWarmContainers());
     }
 
     public void setDockerImageName(String dockerImageName) {
@@ -69,14 +72,33 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
      */
     private void refreshDockerImage() {
         this.dockerImageId = DockerHelper.findDockerImage(this.dockerImageName, this.getDockerClient());
+        if (this.getWarmContainerPool() != null) {
+            this.getWarmContainerPool().setImageId(this.dockerImageId);
+        }
         this.limitDateNextRetrieveDockerImage = new Date(new Date().toInstant().plus(DELAY_BETWEEN_DOCKER_IMAGE_REFRESH, ChronoUnit.MINUTES).toEpochMilli());
         LOGGER.debug("Find the following docker image: "+this.dockerImageId);
     }
 
     public void initExecutorService(int nbThreads) {
-        this.executorService = Executors.newFixedThreadPool(nbThreads);
+        this.executorService = this.createExecutorService(nbThreads);
+
+        if (this.getResourceScheduler() != null) {
+            LOGGER.debug("Executor service initialized with resource aware scheduling.");
+        } else {
+            LOGGER.debug("Executor service initialized for "+nbThreads+" threads.");
+        }
+    }
 
-        LOGGER.debug("Executor service initialized for "+nbThreads+" threads.");
+    /**
+     * Start a pool of pre-started containers if asked: they are used in priority for the submitted builds.
+     */
+    public void initWarmContainerPool(int nbWarmContainers) {
+        if (nbWarmContainers > 0) {
+            File warmContainersDirectory = new File(RepairnatorConfig.getInstance().getWarmContainersDirectory());
+            WarmContainerPool warmContainerPool = new WarmContainerPool(this, this.dockerImageId, nbWarmContainers, warmContainersDirectory);
+            this.setWarmContainerPool(warmContainerPool);
+            warmContainerPool.start();
+        }
     }
 
     public int getRunning() {
@@ -87,17 +109,21 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
         if (this.limitDateNextRetrieveDockerImage != null && this.limitDateNextRetrieveDockerImage.before(new Date())) {
             this.refreshDockerImage();
         }
-		this.executorService.submit(this.submitBuild(this.dockerImageId, new InputBuildId(build.getId())));
+		this.executorService.submit(this.submitBuild(this.dockerImageId, new InputBuildId(build.getId()), build.getRepository().getSlug()));
     }
 
     public void switchOff() {
         LOGGER.warn("The process will now stop. "+this.getRunning()+" docker containers will be stopped.");
-        for (RunnablePipelineContainer container : this.submittedRunnablePipelineContainers) {
+        for (RunnablePipelineContainer container : this.submittedRunnablePipelineContainers.values()) {
             container.serialize("ABORT");
             container.killDockerContainer(this.getDockerClient(), false);
         }
 
         this.executorService.shutdownNow();
+        if (this.getWarmContainerPool() != null) {
+            this.getWarmContainerPool().shutdown();
+        }
+        this.stopWatchdog();
     }
 
     @Override
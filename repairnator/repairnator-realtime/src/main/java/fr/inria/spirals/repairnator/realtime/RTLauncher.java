@@ -88,6 +88,26 @@ public class RTLauncher {
         jsap.registerParameter(LauncherUtils.defineArgCreateOutputDir());
         // -t or --threads
         jsap.registerParameter(LauncherUtils.defineArgNbThreads());
+        // --resourceAware
+        jsap.registerParameter(LauncherUtils.defineArgResourceAwareScheduling());
+        // --footprintHistory
+        jsap.registerParameter(LauncherUtils.defineArgFootprintHistory());
+        // --stallDetection
+        jsap.registerParameter(LauncherUtils.defineArgStallDetection());
+        // --cloneCache
+        jsap.registerParameter(LauncherUtils.defineArgCloneCache());
+        // --cloneCacheSize
+        jsap.registerParameter(LauncherUtils.defineArgCloneCacheSize());
+        // --cloneDepth
+        jsap.registerParameter(LauncherUtils.defineArgCloneDepth());
+        // --submoduleJobs
+        jsap.registerParameter(LauncherUtils.defineArgSubmoduleJobs());
+        // --pushOutbox
+        jsap.registerParameter(LauncherUtils.defineArgPushOutbox());
+        // --mavenCache
+        jsap.registerParameter(LauncherUtils.defineArgMavenCache());
+        // --mavenCacheSize
+        jsap.registerParameter(LauncherUtils.defineArgMavenCacheSize());
         // --pushurl
         jsap.registerParameter(LauncherUtils.defineArgPushUrl());
         // --ghOauth
@@ -212,6 +232,20 @@ public class RTLauncher {
         opt2.setHelp("limit before stop submitting new builds to queue, default: 100 enqueued build ids");
         jsap.registerParameter(opt2);
 
+        opt2 = new FlaggedOption("warmcontainers");
+        opt2.setLongFlag("warmcontainers");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Number of pipeline containers to start in advance, waiting for builds (only in DOCKER pipeline mode), default: 0");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("warmcontainersdir");
+        opt2.setLongFlag("warmcontainersdir");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setDefault("/tmp/repairnator-warm");
+        opt2.setHelp("Host directory used to give the build ids to the warm containers");
+        jsap.registerParameter(opt2);
+
         opt2 = new FlaggedOption("scannermode");
         opt2.setLongFlag("scannermode");
         opt2.setStringParser(JSAP.STRING_PARSER);
@@ -249,6 +283,16 @@ public class RTLauncher {
         this.config.setCreateOutputDir(LauncherUtils.getArgCreateOutputDir(arguments));
         this.config.setLogDirectory(LauncherUtils.getArgLogDirectory(arguments));
         this.config.setNbThreads(LauncherUtils.getArgNbThreads(arguments));
+        this.config.setResourceAwareScheduling(LauncherUtils.getArgResourceAwareScheduling(arguments));
+        this.config.setFootprintHistoryPath(LauncherUtils.getArgFootprintHistory(arguments));
+        this.config.setStallDetection(LauncherUtils.getArgStallDetection(arguments));
+        this.config.setCloneCacheDirectory(LauncherUtils.getArgCloneCache(arguments));
+        this.config.setCloneCacheSize(LauncherUtils.getArgCloneCacheSize(arguments));
+        this.config.setCloneDepth(LauncherUtils.getArgCloneDepth(arguments));
+        this.config.setSubmoduleJobs(LauncherUtils.getArgSubmoduleJobs(arguments));
+        this.config.setPushOutboxDirectory(LauncherUtils.getArgPushOutbox(arguments));
+        this.config.setMavenCacheDirectory(LauncherUtils.getArgMavenCache(arguments));
+        this.config.setMavenCacheSize(LauncherUtils.getArgMavenCacheSize(arguments));
         this.config.setGithubToken(LauncherUtils.getArgGithubOAuth(arguments));
         this.config.setGithubUserEmail(LauncherUtils.getArgGithubUserEmail(arguments));
         this.config.setGithubUserName(LauncherUtils.getArgGithubUserName(arguments));
@@ -277,6 +321,8 @@ public class RTLauncher {
         this.config.setWebSocketUrl(arguments.getString("websocketurl"));
         this.config.setJmxHostName(arguments.getString("jmxhost"));
         this.config.setQueueLimit(arguments.getInt("queuelimit"));
+        this.config.setNbWarmContainers(arguments.getInt("warmcontainers"));
+        this.config.setWarmContainersDirectory(arguments.getString("warmcontainersdir"));
     }
 
     private void initSerializerEngines() {